@@ -392,74 +392,32 @@ public class ThymeleafViewGeneratorServiceImpl extends
 
   @Override
   public void addModalConfirmDelete(String moduleName, ViewContext<ThymeleafMetadata> ctx) {
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/modal-confirm-delete").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/modal-confirm-delete", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/modal-confirm-delete", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/modal-confirm-delete", ctx);
 
   }
 
   @Override
   public void addModalConfirmDeleteBatch(String moduleName, ViewContext<ThymeleafMetadata> ctx) {
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/modal-confirm-delete-batch").concat(
             getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/modal-confirm-delete-batch", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/modal-confirm-delete-batch", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/modal-confirm-delete-batch", ctx);
   }
 
   @Override
   public void addModalExportEmptyError(String moduleName, ViewContext<ThymeleafMetadata> ctx) {
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/modal-export-empty-error").concat(
             getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/modal-export-empty-error", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/modal-export-empty-error", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/modal-export-empty-error", ctx);
   }
 
   @Override
@@ -585,7 +543,14 @@ public class ThymeleafViewGeneratorServiceImpl extends
     addUpdateDetailsCompositionView(moduleName, entityMetadata, viewMetadata, entityItem, detail,
         childCtx);
 
-    childCtx.addExtraParameter("detail", detail);
+    // Merging the show and edit views updates the fields of their detail while
+    // other views are rendered, so the delete modals get a detail of their own
+    DetailEntityItem modalsDetail =
+        createDetailEntityItem(viewMetadata, entity, entityMetadata, ctx.getEntityName(), ctx,
+            DETAIL_SUFFIX, entityItem);
+    modalsDetail.addConfigurationElement("entityLabel",
+        StringUtils.uncapitalize(FieldItem.buildLabel(modalsDetail.getEntityName(), "")));
+    childCtx.addExtraParameter("detail", modalsDetail);
 
     addListDeleteModalDetailView(moduleName, entityMetadata, entity, controllerMetadata, childCtx);
     addListDeleteModalDetailBatchView(moduleName, entityMetadata, entity, controllerMetadata,
@@ -604,38 +569,28 @@ public class ThymeleafViewGeneratorServiceImpl extends
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> formBeanFields = getPersistentFields(formBeanDetails.getFields());
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, formBeanFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/").concat(finderName)
             .concat("Form").concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
     ctx.addExtraParameter("finderName", finderName.replace("findBy", "by"));
     ctx.addExtraParameter("entity", entityItem);
     ctx.addExtraParameter("fields", fields);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeListView("finderForm", existingDoc, ctx, entityItem, fields,
-                new ArrayList<List<DetailEntityItem>>());
+    generateView(viewName, "finderForm", ctx, new ViewMerger() {
+      @Override
+      protected Document mergeView(Document existingDoc, ViewContext<ThymeleafMetadata> viewCtx) {
+        return mergeListView("finderForm", existingDoc, viewCtx, entityItem, fields,
+            new ArrayList<List<DetailEntityItem>>());
       }
-    } else {
-      newDoc = process("finderForm", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -651,7 +606,7 @@ public class ThymeleafViewGeneratorServiceImpl extends
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> returnFields = getPersistentFields(returnTypeDetails.getFields());
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, returnFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
@@ -668,17 +623,14 @@ public class ThymeleafViewGeneratorServiceImpl extends
             TABLE_SUFFIX);
 
 
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/").concat(finderName)
             .concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    List<List<DetailEntityItem>> detailsLevels = new ArrayList<List<DetailEntityItem>>();
+    final List<List<DetailEntityItem>> detailsLevels = new ArrayList<List<DetailEntityItem>>();
     if (detailsControllers != null && !detailsControllers.isEmpty()) {
       List<DetailEntityItem> details = new ArrayList<DetailEntityItem>();
       for (ThymeleafMetadata detailController : detailsControllers) {
@@ -738,28 +690,19 @@ public class ThymeleafViewGeneratorServiceImpl extends
     // Adding formBean fields
     ctx.addExtraParameter("formbeanfields", formBeanFields);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = mergeListView("finderList", existingDoc, ctx, entityItem, fields, detailsLevels);
+    generateView(viewName, "finderList", ctx, new ViewMerger() {
+      @Override
+      protected Document mergeView(Document existingDoc, ViewContext<ThymeleafMetadata> viewCtx) {
+        return mergeListView("finderList", existingDoc, viewCtx, entityItem, fields, detailsLevels);
       }
-    } else {
-      newDoc = process("finderList", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
   }
 
 
   private void addShowDetailsCompositionView(String moduleName, JpaEntityMetadata entityMetadata,
-      ThymeleafMetadata viewMetadata, EntityItem entityItem, DetailEntityItem detail,
+      ThymeleafMetadata viewMetadata, final EntityItem entityItem, final DetailEntityItem detail,
       ViewContext<ThymeleafMetadata> ctx) {
 
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
@@ -771,30 +714,21 @@ public class ThymeleafViewGeneratorServiceImpl extends
 
     // TODO
     ctx.addExtraParameter("details", Collections.EMPTY_LIST);
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeDetailsCompositionView("showDetailComposition", existingDoc, ctx, entityItem,
-                detail, (List<FieldItem>) detail.getConfiguration().get("fields"));
+    ctx.addExtraParameter("fields", detail.getConfiguration().get("fields"));
+    // Merging updates the fields of the detail, which its show and edit views share
+    generateView(viewName, "showDetailComposition", ctx, new ViewMerger() {
+      @Override
+      protected Document mergeView(Document existingDoc, ViewContext<ThymeleafMetadata> viewCtx) {
+        return mergeDetailsCompositionView("showDetailComposition", existingDoc, viewCtx,
+            entityItem, detail, (List<FieldItem>) detail.getConfiguration().get("fields"));
       }
-    } else {
-      ctx.addExtraParameter("fields", detail.getConfiguration().get("fields"));
-      newDoc = process("showDetailComposition", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    }, detail);
   }
 
   private void addUpdateDetailsCompositionView(String moduleName, JpaEntityMetadata entityMetadata,
-      ThymeleafMetadata viewMetadata, EntityItem entityItem, DetailEntityItem detail,
+      ThymeleafMetadata viewMetadata, final EntityItem entityItem, final DetailEntityItem detail,
       ViewContext<ThymeleafMetadata> ctx) {
 
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
@@ -804,21 +738,15 @@ public class ThymeleafViewGeneratorServiceImpl extends
     ctx.addExtraParameter("entity", entityItem);
     ctx.addExtraParameter("detail", detail);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeDetailsCompositionView("editDetailComposition", existingDoc, ctx, entityItem,
-                detail, (List<FieldItem>) detail.getConfiguration().get("fields"));
+    ctx.addExtraParameter("fields", detail.getConfiguration().get("fields"));
+    // Merging updates the fields of the detail, which its show and edit views share
+    generateView(viewName, "editDetailComposition", ctx, new ViewMerger() {
+      @Override
+      protected Document mergeView(Document existingDoc, ViewContext<ThymeleafMetadata> viewCtx) {
+        return mergeDetailsCompositionView("editDetailComposition", existingDoc, viewCtx,
+            entityItem, detail, (List<FieldItem>) detail.getConfiguration().get("fields"));
       }
-    } else {
-      ctx.addExtraParameter("fields", detail.getConfiguration().get("fields"));
-      newDoc = process("editDetailComposition", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    }, detail);
   }
 
 
@@ -826,9 +754,6 @@ public class ThymeleafViewGeneratorServiceImpl extends
       MemberDetails entity, ControllerMetadata controllerMetadata, ThymeleafMetadata viewMetadata,
       ViewContext<ThymeleafMetadata> ctx) {
 
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
@@ -836,9 +761,9 @@ public class ThymeleafViewGeneratorServiceImpl extends
             .concat(getViewsExtension());
 
     // Get root entity metadata
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    DetailEntityItem detail =
+    final DetailEntityItem detail =
         createDetailEntityItem(viewMetadata, entity, entityMetadata, ctx.getEntityName(), ctx,
             DETAIL_SUFFIX, entityItem);
 
@@ -851,18 +776,12 @@ public class ThymeleafViewGeneratorServiceImpl extends
     ctx.addExtraParameter("select2_placeholder",
         getCreateDetailsSelect2PlaceholderLabelKey(controllerMetadata, ctx));
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = mergeCreateDetailsView("createDetail", existingDoc, ctx, entityItem, detail);
+    generateView(viewName, "createDetail", ctx, new ViewMerger() {
+      @Override
+      protected Document mergeView(Document existingDoc, ViewContext<ThymeleafMetadata> viewCtx) {
+        return mergeCreateDetailsView("createDetail", existingDoc, viewCtx, entityItem, detail);
       }
-    } else {
-      newDoc = process("createDetail", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
 
   }
@@ -871,9 +790,6 @@ public class ThymeleafViewGeneratorServiceImpl extends
       JpaEntityMetadata entityMetadata, MemberDetails entity,
       ControllerMetadata controllerMetadata, ThymeleafMetadata viewMetadata,
       ViewContext<ThymeleafMetadata> ctx) {
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
@@ -881,9 +797,9 @@ public class ThymeleafViewGeneratorServiceImpl extends
             .concat(getViewsExtension());
 
     // Get root entity metadata
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    DetailEntityItem detail =
+    final DetailEntityItem detail =
         createDetailEntityItem(viewMetadata, entity, entityMetadata, ctx.getEntityName(), ctx,
             DETAIL_SUFFIX, entityItem);
 
@@ -897,21 +813,14 @@ public class ThymeleafViewGeneratorServiceImpl extends
     childCtx.addExtraParameter("entity", entityItem);
     childCtx.addExtraParameter("detail", detail);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeDetailsCompositionView("createDetailComposition", existingDoc, childCtx,
-                entityItem, detail, (List<FieldItem>) detail.getConfiguration().get("fields"));
+    childCtx.addExtraParameter("fields", detail.getConfiguration().get("fields"));
+    generateView(viewName, "createDetailComposition", childCtx, new ViewMerger() {
+      @Override
+      protected Document mergeView(Document existingDoc, ViewContext<ThymeleafMetadata> viewCtx) {
+        return mergeDetailsCompositionView("createDetailComposition", existingDoc, viewCtx,
+            entityItem, detail, (List<FieldItem>) detail.getConfiguration().get("fields"));
       }
-    } else {
-      childCtx.addExtraParameter("fields", detail.getConfiguration().get("fields"));
-      newDoc = process("createDetailComposition", childCtx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
   }
 
 
@@ -1013,25 +922,11 @@ public class ThymeleafViewGeneratorServiceImpl extends
 
   @Override
   public void addDefaultListLayout(String moduleName, ViewContext<ThymeleafMetadata> ctx) {
-    // Process elements to generate
-    Document newDoc = null;
-
     // Getting new viewName
     String viewName =
         getLayoutsFolder(moduleName).concat("/default-list-layout").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      Document existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("layouts/default-list-layout", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("layouts/default-list-layout", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "layouts/default-list-layout", ctx);
 
   }
 
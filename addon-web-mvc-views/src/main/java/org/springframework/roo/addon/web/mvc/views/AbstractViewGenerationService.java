@@ -4,6 +4,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Reference;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.addon.dto.addon.EntityProjectionLocator;
@@ -37,6 +38,7 @@ import org.springframework.roo.classpath.operations.Cardinality;
 import org.springframework.roo.classpath.persistence.PersistenceMemberLocator;
 import org.springframework.roo.classpath.scanner.MemberDetails;
 import org.springframework.roo.classpath.scanner.MemberDetailsScanner;
+import org.springframework.roo.file.undo.UndoManager;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
@@ -71,6 +73,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.logging.Logger;
 
 /**
@@ -99,14 +102,44 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
   private static Logger LOGGER = HandlerUtils.getLogger(AbstractViewGenerationService.class);
 
+  /**
+   * The document generated for a view, along with the fingerprint of what it
+   * was generated from
+   */
+  private static class GeneratedView<DOC> {
+
+    private final DOC document;
+    private final Long fingerprint;
+
+    private GeneratedView(final DOC document, final Long fingerprint) {
+      this.document = document;
+      this.fingerprint = fingerprint;
+    }
+  }
+
   private ServiceInstaceManager serviceInstaceManager = new ServiceInstaceManager();
 
+  // Views being generated by each thread, if it started generating views
+  private final ThreadLocal<ViewGenerationPipeline<GeneratedView<DOC>>> viewGenerationPipelines =
+      new ThreadLocal<ViewGenerationPipeline<GeneratedView<DOC>>>();
+
+  // What each view was last generated from, to skip the views that wouldn't change
+  private final ViewFingerprints viewFingerprints = new ViewFingerprints();
+
+  @Reference
+  UndoManager undoManager;
+
   // ------------ OSGi component attributes ----------------
   protected BundleContext context;
 
   protected void activate(final ComponentContext context) {
     this.context = context.getBundleContext();
     serviceInstaceManager.activate(this.context);
+    undoManager.addUndoListener(viewFingerprints);
+  }
+
+  protected void deactivate(final ComponentContext context) {
+    undoManager.removeUndoListener(viewFingerprints);
   }
 
   protected abstract DOC process(String templateName, ViewContext<T> ctx);
@@ -141,6 +174,34 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
   protected abstract boolean isUserManagedDocument(DOC document);
 
+  /**
+   * This method returns a digest of the templates the provided template is
+   * rendered with, which must change whenever they change. It's asked for
+   * each time a view is generated, so it mustn't depend on file events.
+   * Views are only skipped when they'd be generated from the same digest.
+   *
+   * @param templateName
+   * @return <code>null</code> if it's unknown, in which case the views are
+   *         always generated
+   */
+  protected Long getTemplatesDigest(String templateName) {
+    return null;
+  }
+
+  /**
+   * Merges a view with its existing document
+   */
+  protected abstract class ViewMerger {
+
+    /**
+     * @param existingDoc the view's existing document, which isn't
+     *            user-managed
+     * @param ctx the view's own copy of its context
+     * @return the merged document
+     */
+    protected abstract DOC mergeView(DOC existingDoc, ViewContext<T> ctx);
+  }
+
   @Override
   public void addListView(String moduleName, JpaEntityMetadata entityMetadata,
       MemberDetails entity, List<T> detailsControllers, ViewContext<T> ctx) {
@@ -183,21 +244,18 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> entityFields = getPersistentFields(defaultReturnTypeFields);
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/").concat("/list")
             .concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    List<List<DetailEntityItem>> detailsLevels = new ArrayList<List<DetailEntityItem>>();
+    final List<List<DetailEntityItem>> detailsLevels = new ArrayList<List<DetailEntityItem>>();
     if (detailsControllers != null && !detailsControllers.isEmpty()) {
       List<DetailEntityItem> details = new ArrayList<DetailEntityItem>();
       for (T detailController : detailsControllers) {
@@ -240,21 +298,15 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
       }
     }
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = mergeListView("list", existingDoc, ctx, entityItem, fields, detailsLevels);
+    ctx.addExtraParameter("entity", entityItem);
+    ctx.addExtraParameter("fields", fields);
+    ctx.addExtraParameter("detailsLevels", detailsLevels);
+    generateView(viewName, "list", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return mergeListView("list", existingDoc, viewCtx, entityItem, fields, detailsLevels);
       }
-    } else {
-      ctx.addExtraParameter("entity", entityItem);
-      ctx.addExtraParameter("fields", fields);
-      ctx.addExtraParameter("detailsLevels", detailsLevels);
-      newDoc = process("list", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -300,34 +352,26 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> entityFields = getPersistentFields(defaultReturnTypeFields);
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
             .concat("/listDeleteModal").concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = mergeListDeleteModalView("listDeleteModal", existingDoc, ctx, entityItem, fields);
+    ctx.addExtraParameter("entity", entityItem);
+    ctx.addExtraParameter("fields", fields);
+    generateView(viewName, "listDeleteModal", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return mergeListDeleteModalView("listDeleteModal", existingDoc, viewCtx, entityItem,
+            fields);
       }
-    } else {
-      ctx.addExtraParameter("entity", entityItem);
-      ctx.addExtraParameter("fields", fields);
-      newDoc = process("listDeleteModal", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -372,37 +416,27 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> entityFields = getPersistentFields(defaultReturnTypeFields);
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
             .concat(controllerMetadata.getDetailsPathAsString("/")).concat("/listDeleteModal")
             .concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeListDeleteModalDetailView("listDeleteModalDetail", existingDoc, ctx, entityItem,
-                fields);
+    ctx.addExtraParameter("entity", entityItem);
+    ctx.addExtraParameter("fields", fields);
+    generateView(viewName, "listDeleteModalDetail", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return mergeListDeleteModalDetailView("listDeleteModalDetail", existingDoc, viewCtx,
+            entityItem, fields);
       }
-    } else {
-      ctx.addExtraParameter("entity", entityItem);
-      ctx.addExtraParameter("fields", fields);
-      newDoc = process("listDeleteModalDetail", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
   }
 
   @Override
@@ -447,36 +481,26 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> entityFields = getPersistentFields(defaultReturnTypeFields);
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
             .concat("/listDeleteModalBatch").concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeListDeleteModalBatchView("listDeleteModalBatch", loadExistingDoc(viewName), ctx,
-                entityItem, fields);
+    ctx.addExtraParameter("entity", entityItem);
+    ctx.addExtraParameter("fields", fields);
+    generateView(viewName, "listDeleteModalBatch", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return mergeListDeleteModalBatchView("listDeleteModalBatch", existingDoc, viewCtx,
+            entityItem, fields);
       }
-    } else {
-      ctx.addExtraParameter("entity", entityItem);
-      ctx.addExtraParameter("fields", fields);
-      newDoc = process("listDeleteModalBatch", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -522,37 +546,27 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     // Getting entity fields that should be included on view
     List<FieldMetadata> entityFields = getPersistentFields(defaultReturnTypeFields);
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), true, ctx,
             TABLE_SUFFIX);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
             .concat(controllerMetadata.getDetailsPathAsString("/")).concat("/listDeleteModalBatch")
             .concat(getViewsExtension());
 
-    EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
+    final EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc =
-            mergeListDeleteModalBatchDetailView("listDeleteModalBatchDetail",
-                loadExistingDoc(viewName), ctx, entityItem, fields);
+    ctx.addExtraParameter("entity", entityItem);
+    ctx.addExtraParameter("fields", fields);
+    generateView(viewName, "listDeleteModalBatchDetail", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return mergeListDeleteModalBatchDetailView("listDeleteModalBatchDetail", existingDoc,
+            viewCtx, entityItem, fields);
       }
-    } else {
-      ctx.addExtraParameter("entity", entityItem);
-      ctx.addExtraParameter("fields", fields);
-      newDoc = process("listDeleteModalBatchDetail", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -619,7 +633,7 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
         entityFields.add(field);
       }
     }
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), false, ctx,
             FIELD_SUFFIX);
 
@@ -627,9 +641,6 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     ctx.addExtraParameter("entity", entityItem);
     ctx.addExtraParameter("compositeRelationFields", compositeRelationFields);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/").concat("/show")
@@ -681,18 +692,12 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     ctx.addExtraParameter("detailsLevels", detailsLevels);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("show", existingDoc, ctx, fields);
+    generateView(viewName, "show", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return merge("show", existingDoc, viewCtx, fields);
       }
-    } else {
-      newDoc = process("show", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -716,7 +721,7 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
         entityFields.add(field);
       }
     }
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), false, ctx,
             FIELD_SUFFIX);
 
@@ -724,26 +729,17 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     ctx.addExtraParameter("entity", entityItem);
     ctx.addExtraParameter("compositeRelationFields", compositeRelationFields);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/")
             .concat("/showInline").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("showInline", existingDoc, ctx, fields);
+    generateView(viewName, "showInline", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return merge("showInline", existingDoc, viewCtx, fields);
       }
-    } else {
-      newDoc = process("showInline", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -756,9 +752,6 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     EntityItem entityItem = createEntityItem(entityMetadata, ctx, TABLE_SUFFIX);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/").concat("/create")
@@ -776,7 +769,7 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
       }
     }
 
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), false, ctx,
             FIELD_SUFFIX);
 
@@ -784,18 +777,12 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     ctx.addExtraParameter("entity", entityItem);
     ctx.addExtraParameter("compositeRelationFields", compositeRelationFields);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("create", existingDoc, ctx, fields);
+    generateView(viewName, "create", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return merge("create", existingDoc, viewCtx, fields);
       }
-    } else {
-      newDoc = process("create", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -806,9 +793,6 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     // Getting entity fields that should be included on view
     List<FieldMetadata> entityFields = new ArrayList<FieldMetadata>();
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat(ctx.getControllerPath()).concat("/").concat("/edit")
@@ -827,7 +811,7 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
       }
     }
 
-    List<FieldItem> fields =
+    final List<FieldItem> fields =
         getFieldViewItems(entityMetadata, entityFields, ctx.getEntityName(), false, ctx,
             FIELD_SUFFIX);
 
@@ -837,18 +821,12 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     ctx.addExtraParameter("entity", entityItem);
     ctx.addExtraParameter("compositeRelationFields", compositeRelationFields);
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("edit", existingDoc, ctx, fields);
+    generateView(viewName, "edit", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return merge("edit", existingDoc, viewCtx, fields);
       }
-    } else {
-      newDoc = process("edit", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -868,219 +846,92 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
   @Override
   public void addIndexView(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getViewsFolder(moduleName).concat("/index").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("index", existingDoc, ctx);
-      }
-
-    } else {
-      newDoc = process("index", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "index", ctx);
 
   }
 
   @Override
   public void addLoginView(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getViewsFolder(moduleName).concat("/login").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("login", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("login", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "login", ctx);
 
   }
 
   @Override
   public void addAccessibilityView(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getViewsFolder(moduleName).concat("/accessibility").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("accessibility", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("accessibility", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "accessibility", ctx);
 
   }
 
   @Override
   public void addErrorView(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getViewsFolder(moduleName).concat("/error").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("error", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("error", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "error", ctx);
 
   }
 
   @Override
   public void addDefaultLayout(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getLayoutsFolder(moduleName).concat("/default-layout").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("layouts/default-layout", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("layouts/default-layout", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "layouts/default-layout", ctx);
 
   }
 
   @Override
   public void addDefaultLayoutNoMenu(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getLayoutsFolder(moduleName).concat("/default-layout-no-menu").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("layouts/default-layout-no-menu", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("layouts/default-layout-no-menu", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "layouts/default-layout-no-menu", ctx);
 
   }
 
   @Override
   public void addHomeLayout(String moduleName, ViewContext<T> ctx) {
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getLayoutsFolder(moduleName).concat("/home-layout").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("layouts/home-layout", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("layouts/home-layout", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "layouts/home-layout", ctx);
 
   }
 
   @Override
   public void addFooter(String moduleName, ViewContext<T> ctx) {
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getFragmentsFolder(moduleName).concat("/footer").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/footer", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/footer", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/footer", ctx);
 
   }
 
   @Override
   public void addHeader(String moduleName, ViewContext<T> ctx) {
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getFragmentsFolder(moduleName).concat("/header").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/header", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/header", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/header", ctx);
 
   }
 
@@ -1213,7 +1064,7 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
     // First of all, generate a list of MenuEntries based on existing
     // controllers
-    List<MenuEntry> menuEntries = new ArrayList<MenuEntry>(mapMenuEntries.values());
+    final List<MenuEntry> menuEntries = new ArrayList<MenuEntry>(mapMenuEntries.values());
 
     // Generate ids to search when merge new and existing doc
     List<String> requiredIds = new ArrayList<String>();
@@ -1221,25 +1072,16 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
       requiredIds.add(entry.getPathPrefix().concat(entry.getEntityName()).concat("Entry"));
     }
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getFragmentsFolder(moduleName).concat("/menu").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = mergeMenu("fragments/menu", existingDoc, ctx, menuEntries);
+    ctx.addExtraParameter("menuEntries", menuEntries);
+    generateView(viewName, "fragments/menu", ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return mergeMenu("fragments/menu", existingDoc, viewCtx, menuEntries);
       }
-    } else {
-      ctx.addExtraParameter("menuEntries", menuEntries);
-      newDoc = process("fragments/menu", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    });
 
   }
 
@@ -1279,96 +1121,40 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
 
   @Override
   public void addModal(String moduleName, ViewContext<T> ctx) {
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName = getFragmentsFolder(moduleName).concat("/modal").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/modal", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/modal", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/modal", ctx);
 
   }
 
   @Override
   public void addModalConfirm(String moduleName, ViewContext<T> ctx) {
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/modal-confirm").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/modal-confirm", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/modal-confirm", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/modal-confirm", ctx);
 
   }
 
   @Override
   public void addSessionLinks(String moduleName, ViewContext<T> ctx) {
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/session-links").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/session-links", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/session-links", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/session-links", ctx);
 
   }
 
   @Override
   public void addConcurrencyControl(String moduleName, ViewContext<T> ctx) {
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/concurrency-control").concat(getViewsExtension());
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/concurrency-control", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/concurrency-control", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/concurrency-control", ctx);
 
   }
 
@@ -1379,9 +1165,6 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     List<I18n> installedLanguages = getI18nOperations().getInstalledLanguages(moduleName);
     ctx.addExtraParameter("languages", installedLanguages);
 
-    // Process elements to generate
-    DOC newDoc = null;
-
     // Getting new viewName
     String viewName =
         getFragmentsFolder(moduleName).concat("/languages").concat(getViewsExtension());
@@ -1392,18 +1175,7 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
       requiredIds.add(language.getLocale().getLanguage() + "Flag");
     }
 
-    // Check if new view to generate exists or not
-    if (existsFile(viewName)) {
-      DOC existingDoc = loadExistingDoc(viewName);
-      if (!isUserManagedDocument(existingDoc)) {
-        newDoc = merge("fragments/languages", existingDoc, ctx);
-      }
-    } else {
-      newDoc = process("fragments/languages", ctx);
-    }
-
-    // Write newDoc on disk
-    writeDoc(newDoc, viewName);
+    generateView(viewName, "fragments/languages", ctx);
   }
 
   @Override
@@ -2067,6 +1839,172 @@ public abstract class AbstractViewGenerationService<DOC, T extends AbstractViewM
     return parse(content);
   }
 
+  /**
+   * This method generates the provided view from its template, merging it
+   * with its existing document using {@link #merge(String, Object, ViewContext)}
+   *
+   * @param viewPath
+   * @param templateName
+   * @param ctx
+   */
+  protected void generateView(String viewPath, final String templateName, ViewContext<T> ctx) {
+    generateView(viewPath, templateName, ctx, new ViewMerger() {
+      @Override
+      protected DOC mergeView(DOC existingDoc, ViewContext<T> viewCtx) {
+        return merge(templateName, existingDoc, viewCtx);
+      }
+    });
+  }
+
+  /**
+   * This method generates the provided view from its template, merging it
+   * with its existing document using the provided merger
+   *
+   * @param viewPath
+   * @param templateName
+   * @param ctx
+   * @param merger
+   */
+  protected void generateView(String viewPath, String templateName, ViewContext<T> ctx,
+      ViewMerger merger) {
+    generateView(viewPath, templateName, ctx, merger, viewPath);
+  }
+
+  /**
+   * This method generates the provided view from its template, unless its
+   * existing document is user-managed. The view is rendered with a copy of
+   * the provided context, so the parameters added to it afterwards, or while
+   * merging the view, don't affect other views.
+   * <p>
+   * The view is skipped altogether if it was last generated from the same
+   * template, context values and existing document (see
+   * {@link ViewFingerprints}), unless it shares its dependency with other
+   * views, as merging those may change its models.
+   * <p>
+   * While the current thread is generating views (see
+   * {@link #startViewGeneration()}), the view is rendered concurrently with
+   * others and written once they're finished. Otherwise, it's rendered and
+   * written right away.
+   *
+   * @param viewPath
+   * @param templateName
+   * @param ctx
+   * @param merger
+   * @param dependency what the view shares with other views, such as the
+   *            template models that merging it modifies. Views sharing it
+   *            are rendered one after the other.
+   */
+  protected void generateView(final String viewPath, final String templateName,
+      ViewContext<T> ctx, final ViewMerger merger, Object dependency) {
+    final ViewContext<T> viewCtx = new ViewContext<T>(ctx);
+    final Long fingerprint;
+    if (viewPath.equals(dependency)) {
+      fingerprint =
+          ViewFingerprints.getFingerprint(viewPath, templateName,
+              getTemplatesDigest(templateName), merger.getClass(), viewCtx);
+    } else {
+      fingerprint = null;
+    }
+    if (viewFingerprints.isCurrent(viewPath, fingerprint)) {
+      return;
+    }
+    // Check if new view to generate exists or not
+    final boolean exists = existsFile(viewPath);
+    final Callable<GeneratedView<DOC>> render =
+        prepareRender(templateName, new Callable<GeneratedView<DOC>>() {
+          public GeneratedView<DOC> call() {
+            return new GeneratedView<DOC>(renderView(viewPath, exists, templateName, viewCtx,
+                merger), fingerprint);
+          }
+        });
+    final ViewGenerationPipeline<GeneratedView<DOC>> pipeline = viewGenerationPipelines.get();
+    if (pipeline == null) {
+      final GeneratedView<DOC> view;
+      try {
+        view = render.call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      writeDoc(view.document, viewPath);
+      viewFingerprints.put(viewPath, view.fingerprint);
+    } else {
+      pipeline.add(viewPath, dependency, render);
+    }
+  }
+
+  /**
+   * This method prepares, on the thread generating the views, what rendering
+   * the provided template requires, such as locating the templates. Views
+   * may be rendered by other threads, which must only render, parse and merge
+   * documents, as the project's services aren't thread-safe.
+   *
+   * @param templateName
+   * @param render renders the view, including merging it
+   * @return what renders the view with everything it requires
+   */
+  protected <V> Callable<V> prepareRender(String templateName, Callable<V> render) {
+    return render;
+  }
+
+  private DOC renderView(String viewPath, boolean exists, String templateName,
+      ViewContext<T> ctx, ViewMerger merger) {
+    if (exists) {
+      DOC existingDoc = loadExistingDoc(viewPath);
+      if (isUserManagedDocument(existingDoc)) {
+        return null;
+      }
+      return merger.mergeView(existingDoc, ctx);
+    }
+    return process(templateName, ctx);
+  }
+
+  @Override
+  public void startViewGeneration() {
+    ViewGenerationPipeline<GeneratedView<DOC>> pipeline = viewGenerationPipelines.get();
+    if (pipeline == null) {
+      pipeline = new ViewGenerationPipeline<GeneratedView<DOC>>() {
+        @Override
+        protected void writeDoc(GeneratedView<DOC> view, String viewPath) {
+          AbstractViewGenerationService.this.writeDoc(view.document, viewPath);
+          viewFingerprints.put(viewPath, view.fingerprint);
+        }
+      };
+      viewGenerationPipelines.set(pipeline);
+    }
+    pipeline.start();
+  }
+
+  @Override
+  public void finishViewGeneration() {
+    ViewGenerationPipeline<GeneratedView<DOC>> pipeline = viewGenerationPipelines.get();
+    Validate.validState(pipeline != null, "View generation has not been started");
+    try {
+      if (pipeline.finish()) {
+        viewGenerationPipelines.remove();
+      }
+    } catch (RuntimeException e) {
+      viewGenerationPipelines.remove();
+      throw e;
+    }
+  }
+
+  /**
+   * This method checks whether the current thread is generating views, i.e.
+   * whether it called {@link #startViewGeneration()} and hasn't finished yet
+   *
+   * @return true if the current thread is generating views
+   */
+  protected boolean isGeneratingViews() {
+    return viewGenerationPipelines.get() != null;
+  }
+
+  @Override
+  public void clearViewFingerprints() {
+    viewFingerprints.clear();
+  }
+
   /**
    * This method check if the provided viewPath file exists
    *
@@ -425,143 +425,152 @@ public abstract class AbstractViewGeneratorMetadataProvider<T extends AbstractVi
 
     final String module = controllerDetail.getType().getModule();
 
-    switch (controllerMetadata.getType()) {
-      case COLLECTION:
-
-        // Obtain the details controllers to use only them that includes "list" value in the
-        // views parameter of @RooDetail annotation. If @RooDetail doesn't include views
-        // parameter, include it.
-        List<T> detailsControllersForListView =
-            getDetailsControllers(controllerMetadata, controllerPackage, entity, viewType, "list");
-
-        // Add list view
-        if (viewMetadata.shouldGenerateView("list")) {
-          viewGenerationService.addListView(module, entityMetadata, entityMemberDetails,
-              detailsControllersForListView, ctx);
-        }
-        if (!entityMetadata.isReadOnly()) {
-          // If not readOnly, add create view
-          if (viewMetadata.shouldGenerateView("create")) {
-            viewGenerationService.addCreateView(module, entityMetadata, entityMemberDetails, ctx);
+    // Render the views of this controller concurrently, writing them once all are finished
+    viewGenerationService.startViewGeneration();
+    try {
+      switch (controllerMetadata.getType()) {
+        case COLLECTION:
+
+          // Obtain the details controllers to use only them that includes "list" value in the
+          // views parameter of @RooDetail annotation. If @RooDetail doesn't include views
+          // parameter, include it.
+          List<T> detailsControllersForListView =
+              getDetailsControllers(controllerMetadata, controllerPackage, entity, viewType,
+                  "list");
+
+          // Add list view
+          if (viewMetadata.shouldGenerateView("list")) {
+            viewGenerationService.addListView(module, entityMetadata, entityMemberDetails,
+                detailsControllersForListView, ctx);
           }
-          if (viewMetadata.shouldGenerateView("listDeleteModal")) {
-            // If not readOnly, add the modal dialogs for delete and delete batch
-            viewGenerationService.addListDeleteModalView(module, entityMetadata,
-                entityMemberDetails, ctx);
-            if (viewMetadata.shouldGenerateView("listDeleteModalBatch")) {
-              viewGenerationService.addListDeleteModalBatchView(module, entityMetadata,
+          if (!entityMetadata.isReadOnly()) {
+            // If not readOnly, add create view
+            if (viewMetadata.shouldGenerateView("create")) {
+              viewGenerationService.addCreateView(module, entityMetadata, entityMemberDetails, ctx);
+            }
+            if (viewMetadata.shouldGenerateView("listDeleteModal")) {
+              // If not readOnly, add the modal dialogs for delete and delete batch
+              viewGenerationService.addListDeleteModalView(module, entityMetadata,
                   entityMemberDetails, ctx);
+              if (viewMetadata.shouldGenerateView("listDeleteModalBatch")) {
+                viewGenerationService.addListDeleteModalBatchView(module, entityMetadata,
+                    entityMemberDetails, ctx);
+              }
             }
           }
-        }
-
-        break;
-      case ITEM:
 
-        // Obtain the details controllers to use only them that includes "show" value in the
-        // views parameter of @RooDetail annotation.
-        List<T> detailsControllersForShowView =
-            getDetailsControllers(controllerMetadata, controllerPackage, entity, viewType, "show");
+          break;
+        case ITEM:
+
+          // Obtain the details controllers to use only them that includes "show" value in the
+          // views parameter of @RooDetail annotation.
+          List<T> detailsControllersForShowView =
+              getDetailsControllers(controllerMetadata, controllerPackage, entity, viewType,
+                  "show");
+
+          // Add show view
+          if (viewMetadata.shouldGenerateView("show")) {
+            viewGenerationService.addShowView(module, entityMetadata, entityMemberDetails,
+                detailsControllersForShowView, ctx);
+          }
 
-        // Add show view
-        if (viewMetadata.shouldGenerateView("show")) {
-          viewGenerationService.addShowView(module, entityMetadata, entityMemberDetails,
-              detailsControllersForShowView, ctx);
-        }
+          if (viewMetadata.shouldGenerateView("showInLine")) {
+            // Add showInline view
+            viewGenerationService.addShowInlineView(module, entityMetadata, entityMemberDetails,
+                ctx);
+          }
 
-        if (viewMetadata.shouldGenerateView("showInLine")) {
-          // Add showInline view
-          viewGenerationService.addShowInlineView(module, entityMetadata, entityMemberDetails, ctx);
-        }
+          if (!entityMetadata.isReadOnly() && viewMetadata.shouldGenerateView("edit")) {
+            // If not readOnly, add update view
+            viewGenerationService.addUpdateView(module, entityMetadata, entityMemberDetails, ctx);
+          }
+          break;
+        case DETAIL:
+          viewGenerationService.addDetailsViews(module, entityMetadata, entityMemberDetails,
+              controllerMetadata, viewMetadata, ctx);
+
+          // Add this metadata as upstream dependency for parent controllers
+          // for updating views of parent controllers
+          JavaType parentEntity = entityMetadata.getAnnotatedEntity();
+          List<ClassOrInterfaceTypeDetails> parentControllers =
+              new ArrayList<ClassOrInterfaceTypeDetails>();
+          parentControllers.addAll(getControllerLocator().getControllers(parentEntity,
+              ControllerType.COLLECTION, viewType));
+          parentControllers.addAll(getControllerLocator().getControllers(parentEntity,
+              ControllerType.ITEM, viewType));
+          parentControllers.addAll(getControllerLocator().getControllers(parentEntity,
+              ControllerType.SEARCH, viewType));
+          for (ClassOrInterfaceTypeDetails parentController : parentControllers) {
+            String viewMetadatIdentifier = createLocalIdentifier(parentController);
+            registerDependency(metadataIdentificationString, viewMetadatIdentifier);
+          }
 
-        if (!entityMetadata.isReadOnly() && viewMetadata.shouldGenerateView("edit")) {
-          // If not readOnly, add update view
-          viewGenerationService.addUpdateView(module, entityMetadata, entityMemberDetails, ctx);
-        }
-        break;
-      case DETAIL:
-        viewGenerationService.addDetailsViews(module, entityMetadata, entityMemberDetails,
-            controllerMetadata, viewMetadata, ctx);
-
-        // Add this metadata as upstream dependency for parent controllers
-        // for updating views of parent controllers
-        JavaType parentEntity = entityMetadata.getAnnotatedEntity();
-        List<ClassOrInterfaceTypeDetails> parentControllers =
-            new ArrayList<ClassOrInterfaceTypeDetails>();
-        parentControllers.addAll(getControllerLocator().getControllers(parentEntity,
-            ControllerType.COLLECTION, viewType));
-        parentControllers.addAll(getControllerLocator().getControllers(parentEntity,
-            ControllerType.ITEM, viewType));
-        parentControllers.addAll(getControllerLocator().getControllers(parentEntity,
-            ControllerType.SEARCH, viewType));
-        for (ClassOrInterfaceTypeDetails parentController : parentControllers) {
-          String viewMetadatIdentifier = createLocalIdentifier(parentController);
-          registerDependency(metadataIdentificationString, viewMetadatIdentifier);
-        }
+          break;
 
-        break;
+        case DETAIL_ITEM:
+          viewGenerationService.addDetailsItemViews(module, entityMetadata, entityMemberDetails,
+              controllerMetadata, viewMetadata, ctx);
 
-      case DETAIL_ITEM:
-        viewGenerationService.addDetailsItemViews(module, entityMetadata, entityMemberDetails,
-            controllerMetadata, viewMetadata, ctx);
+          RelationInfoExtended last = controllerMetadata.getLastDetailsInfo();
+          ClassOrInterfaceTypeDetails childCid =
+              getTypeLocationService().getTypeDetails(last.childType);
 
-        RelationInfoExtended last = controllerMetadata.getLastDetailsInfo();
-        ClassOrInterfaceTypeDetails childCid =
-            getTypeLocationService().getTypeDetails(last.childType);
+          MemberDetails detailMemberDetails = getMemberDetails(childCid);
 
-        MemberDetails detailMemberDetails = getMemberDetails(childCid);
+          // Update i18n labels of detail entity
+          if (shouldGenerateI18nLabels()) {
+            Map<String, String> labels =
+                viewGenerationService.getI18nLabels(detailMemberDetails, last.childType,
+                    last.childEntityMetadata, controllerMetadata, module, ctx);
+            getI18nOperations().addOrUpdateLabels(module, labels);
+          }
+          break;
 
-        // Update i18n labels of detail entity
-        if (shouldGenerateI18nLabels()) {
-          Map<String, String> labels =
-              viewGenerationService.getI18nLabels(detailMemberDetails, last.childType,
-                  last.childEntityMetadata, controllerMetadata, module, ctx);
-          getI18nOperations().addOrUpdateLabels(module, labels);
-        }
-        break;
-
-      case SEARCH:
-        // Check if this search controller have finders included
-        // in @RooSearch annotation
-        if (searchAnnotationValues != null && searchAnnotationValues.getFinders() != null) {
-          List<String> finders =
-              new ArrayList<String>(Arrays.asList(searchAnnotationValues.getFinders()));
-          // Generating views for all finders
-          for (String finderName : finders) {
-
-            // Getting the formBean for this finder
-            JavaType formBean = finderFormBeans.get(finderName);
-            viewGenerationService.addFinderFormView(module, entityMetadata, viewMetadata, formBean,
-                finderName, ctx);
-
-            // Getting the returnType for this finder
-            JavaType returnType = finderReturnTypes.get(finderName);
-            if (!returnType.getParameters().isEmpty()) {
-              returnType = returnType.getParameters().get(0);
+        case SEARCH:
+          // Check if this search controller have finders included
+          // in @RooSearch annotation
+          if (searchAnnotationValues != null && searchAnnotationValues.getFinders() != null) {
+            List<String> finders =
+                new ArrayList<String>(Arrays.asList(searchAnnotationValues.getFinders()));
+            // Generating views for all finders
+            for (String finderName : finders) {
+
+              // Getting the formBean for this finder
+              JavaType formBean = finderFormBeans.get(finderName);
+              viewGenerationService.addFinderFormView(module, entityMetadata, viewMetadata,
+                  formBean, finderName, ctx);
+
+              // Getting the returnType for this finder
+              JavaType returnType = finderReturnTypes.get(finderName);
+              if (!returnType.getParameters().isEmpty()) {
+                returnType = returnType.getParameters().get(0);
+              }
+
+              // Obtain the details controllers to use only them that includes this finder value in
+              // the views parameter of @RooDetail annotation.
+              List<T> detailsControllersForFinderListView =
+                  getDetailsControllers(controllerMetadata, controllerPackage, entity, viewType,
+                      finderName);
+
+              viewGenerationService.addFinderListView(module, entityMetadata, entityMemberDetails,
+                  viewMetadata, formBean, returnType, finderName,
+                  detailsControllersForFinderListView, ctx);
             }
-
-            // Obtain the details controllers to use only them that includes this finder value in the
-            // views parameter of @RooDetail annotation.
-            List<T> detailsControllersForFinderListView =
-                getDetailsControllers(controllerMetadata, controllerPackage, entity, viewType,
-                    finderName);
-
-            viewGenerationService.addFinderListView(module, entityMetadata, entityMemberDetails,
-                viewMetadata, formBean, returnType, finderName,
-                detailsControllersForFinderListView, ctx);
           }
-        }
-        break;
-      default:
-        throw new IllegalArgumentException();
-    }
+          break;
+        default:
+          throw new IllegalArgumentException();
+      }
 
-    // Update menu view every time that new controller has been modified
-    // TODO: Maybe, instead of modify all menu view, only new generated
-    // controller should
-    // be included on it. Must be fixed on future versions.
-    if (shouldUpdateMenu()) {
-      viewGenerationService.updateMenuView(module, ctx);
+      // Update menu view every time that new controller has been modified
+      // TODO: Maybe, instead of modify all menu view, only new generated
+      // controller should
+      // be included on it. Must be fixed on future versions.
+      if (shouldUpdateMenu()) {
+        viewGenerationService.updateMenuView(module, ctx);
+      }
+    } finally {
+      viewGenerationService.finishViewGeneration();
     }
 
     if (shouldGenerateI18nLabels()) {
@@ -403,6 +403,28 @@ public interface MVCViewGenerationService<T extends AbstractViewMetadata> {
    */
   void updateMenuView(String moduleName, ViewContext<T> ctx);
 
+  /**
+   * This operation starts collecting the views added by the current thread,
+   * so that they're rendered concurrently and written together once
+   * {@link #finishViewGeneration()} is called. Calls can be nested, in which
+   * case the views are written by the outermost one.
+   */
+  void startViewGeneration();
+
+  /**
+   * This operation waits for the views added since
+   * {@link #startViewGeneration()} was called to be rendered, and writes
+   * them in the order they were added.
+   */
+  void finishViewGeneration();
+
+  /**
+   * This operation forgets what each view was last generated from, so that
+   * every view is rendered and merged again the next time it's generated,
+   * even if neither its models nor its templates changed.
+   */
+  void clearViewFingerprints();
+
   /**
    * This operation will install all necessary templates on generated project.
    * With that, Spring Roo users will be able to customize the Spring Roo templates
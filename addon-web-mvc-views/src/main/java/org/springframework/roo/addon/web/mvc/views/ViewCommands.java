@@ -242,6 +242,67 @@ public class ViewCommands implements CommandMarker {
     getMVCViewGenerationService(type).installTemplates();
   }
 
+  /**
+   * This indicator returns all possible values for --type parameter.
+   *
+   * Only installed response types that generate views will be provided.
+   *
+   * @param context
+   * @return
+   */
+  @CliOptionAutocompleteIndicator(param = "type", command = "web mvc view update",
+      help = "--type parameter should be completed with the provided response types.")
+  public List<String> getAllUpdateViewTypeValues(ShellContext context) {
+    return getAllViewTypeValues(context);
+  }
+
+  /**
+   * This method checks if web mvc view update command is available or not.
+   *
+   * View update command will be available if exists some type that
+   * has been installed.
+   *
+   * @return
+   */
+  @CliAvailabilityIndicator("web mvc view update")
+  public boolean isUpdateAvailable() {
+    return isInstallTemplateAvailable();
+  }
+
+  /**
+   * This method provides the Command definition to be able to generate
+   * again the views of every controller.
+   *
+   * @param type
+   * @param force
+   */
+  @CliCommand(
+      value = "web mvc view update",
+      help = "Generates again the views of every controller. Views are skipped if neither their "
+          + "entity fields, their templates nor their existing files changed since they were last "
+          + "generated, unless `--force` is specified.")
+  public void update(
+      @CliOption(key = "type", mandatory = true,
+          help = "View identifier of the views to generate. Only installed views are available. "
+              + "Views can be installed with `web mvc view setup` command.") String type,
+      @CliOption(
+          key = "force",
+          mandatory = false,
+          specifiedDefaultValue = "true",
+          unspecifiedDefaultValue = "false",
+          help = "Indicates if developer wants to render and merge every view again, even those "
+              + "that wouldn't change. "
+              + "Default if option present: `true`; default if option not present: `false`.")
+      boolean force) {
+
+    MVCViewGenerationService viewGenerationService = getMVCViewGenerationService(type);
+    if (viewGenerationService == null) {
+      throw new IllegalArgumentException("ERROR: You have provided an invalid type.");
+    }
+
+    getViewOperations().update(viewGenerationService, force);
+  }
+
   // Get OSGi services
 
   public TypeLocationService getTypeLocationService() {
@@ -43,7 +43,27 @@ public class ViewContext<T extends AbstractViewMetadata> {
   // Security information
   private boolean securityEnabled;
 
-
+  public ViewContext() {}
+
+  /**
+   * Creates a copy of the provided context, with its own extra information
+   *
+   * @param ctx
+   */
+  public ViewContext(ViewContext<T> ctx) {
+    this.viewMetadata = ctx.viewMetadata;
+    this.controllerMetadata = ctx.controllerMetadata;
+    this.projectName = ctx.projectName;
+    this.description = ctx.description;
+    this.version = ctx.version;
+    this.controllerPath = ctx.controllerPath;
+    this.identifierField = ctx.identifierField;
+    this.modelAttribute = ctx.modelAttribute;
+    this.modelAttributeName = ctx.modelAttributeName;
+    this.entityName = ctx.entityName;
+    this.extraInformation = new HashMap<String, Object>(ctx.extraInformation);
+    this.securityEnabled = ctx.securityEnabled;
+  }
 
   public String getControllerPath() {
     return controllerPath;
@@ -0,0 +1,308 @@
+package org.springframework.roo.addon.web.mvc.views;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.springframework.roo.addon.jpa.addon.entity.JpaEntityMetadata.RelationInfo;
+import org.springframework.roo.addon.web.mvc.i18n.components.I18n;
+import org.springframework.roo.addon.web.mvc.views.components.FieldItem;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.file.undo.UndoEvent;
+import org.springframework.roo.file.undo.UndoListener;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+import org.springframework.roo.support.util.ContentHashUtils;
+
+/**
+ * Remembers, for each view, a fingerprint of what it was last generated
+ * from: its template and the digest of the templates, the values of its
+ * {@link ViewContext}, including the components of its data model such as
+ * its {@link FieldItem}s, and the digest of the existing document it was
+ * merged with. Generating a view again from the same fingerprint would leave
+ * it as it is, so it can be skipped.
+ * <p>
+ * The digest of a view's document is taken when it's generated, before the
+ * new document is written, so a view that changed is generated once more
+ * before it can be skipped. Views whose context holds values without a
+ * deterministic representation, such as metadata, have no fingerprint and
+ * are always generated.
+ * <p>
+ * Fingerprints are forgotten when file changes are undone, as the documents
+ * they describe may not have been written.
+ *
+ * @since 2.0
+ */
+class ViewFingerprints implements UndoListener {
+
+  private static final Comparator<Field> FIELD_NAME_COMPARATOR = new Comparator<Field>() {
+    public int compare(final Field field1, final Field field2) {
+      return field1.getName().compareTo(field2.getName());
+    }
+  };
+
+  /** The package of the view components, whose fields make up their values */
+  private static final String COMPONENTS_PACKAGE = FieldItem.class.getPackage().getName();
+
+  /** key: component class, value: its instance fields, by name */
+  private static final ConcurrentMap<Class<?>, List<Field>> COMPONENT_FIELDS =
+      new ConcurrentHashMap<Class<?>, List<Field>>();
+
+  private static boolean appendComponent(final StringBuilder builder, final Object component,
+      final Map<Object, Object> enclosingValues) {
+    builder.append(component.getClass().getName()).append('(');
+    for (final Field field : getComponentFields(component.getClass())) {
+      builder.append(field.getName()).append('=');
+      try {
+        if (!appendValue(builder, field.get(component), enclosingValues)) {
+          return false;
+        }
+      } catch (final IllegalAccessException e) {
+        return false;
+      }
+      builder.append(';');
+    }
+    builder.append(')');
+    return true;
+  }
+
+  private static void appendText(final StringBuilder builder, final Object value) {
+    final String text = String.valueOf(value);
+    builder.append(text.length()).append('"').append(text);
+  }
+
+  /**
+   * Appends a deterministic representation of the given value
+   *
+   * @param builder the builder to append to
+   * @param value the value; can be <code>null</code>
+   * @param enclosingValues the values being appended that contain this one
+   * @return <code>false</code> if the value has no such representation
+   */
+  private static boolean appendValue(final StringBuilder builder, final Object value,
+      final Map<Object, Object> enclosingValues) {
+    if (value == null) {
+      builder.append("null");
+      return true;
+    }
+    if (value instanceof CharSequence || value instanceof Number || value instanceof Boolean
+        || value instanceof Character || value instanceof Enum || value instanceof JavaType
+        || value instanceof JavaSymbolName || value instanceof Locale) {
+      appendText(builder, value);
+      return true;
+    }
+    if (value instanceof ClassOrInterfaceTypeDetails) {
+      // Views only refer to other types by name
+      appendText(builder, ((ClassOrInterfaceTypeDetails) value).getType());
+      return true;
+    }
+    if (value instanceof I18n) {
+      final I18n language = (I18n) value;
+      appendText(builder, language.getLanguage());
+      appendText(builder, language.getLocale());
+      return true;
+    }
+    if (enclosingValues.containsKey(value)) {
+      builder.append('^');
+      return true;
+    }
+    enclosingValues.put(value, value);
+    try {
+      if (value instanceof RelationInfo) {
+        final RelationInfo relationInfo = (RelationInfo) value;
+        return appendValue(builder, Arrays.<Object>asList(relationInfo.fieldName,
+            relationInfo.cardinality, relationInfo.type, relationInfo.entityType,
+            relationInfo.childType, relationInfo.mappedBy), enclosingValues);
+      }
+      if (value instanceof Map) {
+        final SortedMap<String, Object> entries = new TreeMap<String, Object>();
+        for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          entries.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+        builder.append('{');
+        for (final Map.Entry<String, Object> entry : entries.entrySet()) {
+          appendText(builder, entry.getKey());
+          builder.append('=');
+          if (!appendValue(builder, entry.getValue(), enclosingValues)) {
+            return false;
+          }
+          builder.append(';');
+        }
+        builder.append('}');
+        return true;
+      }
+      if (value instanceof Set) {
+        // Sets may iterate in any order, so sort their elements' representations
+        final List<String> elements = new ArrayList<String>();
+        for (final Object element : (Set<?>) value) {
+          final StringBuilder elementBuilder = new StringBuilder();
+          if (!appendValue(elementBuilder, element, enclosingValues)) {
+            return false;
+          }
+          elements.add(elementBuilder.toString());
+        }
+        Collections.sort(elements);
+        return appendValue(builder, elements, enclosingValues);
+      }
+      if (value instanceof Collection || value instanceof Object[]) {
+        final Collection<?> elements =
+            value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value);
+        builder.append('[');
+        for (final Object element : elements) {
+          if (!appendValue(builder, element, enclosingValues)) {
+            return false;
+          }
+          builder.append(',');
+        }
+        builder.append(']');
+        return true;
+      }
+      if (value.getClass().getName().startsWith(COMPONENTS_PACKAGE + ".")) {
+        return appendComponent(builder, value, enclosingValues);
+      }
+      return false;
+    } finally {
+      enclosingValues.remove(value);
+    }
+  }
+
+  private static List<Field> getComponentFields(final Class<?> componentClass) {
+    List<Field> fields = COMPONENT_FIELDS.get(componentClass);
+    if (fields == null) {
+      fields = new ArrayList<Field>();
+      for (Class<?> type = componentClass; type != Object.class; type = type.getSuperclass()) {
+        for (final Field field : type.getDeclaredFields()) {
+          if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+            field.setAccessible(true);
+            fields.add(field);
+          }
+        }
+      }
+      Collections.sort(fields, FIELD_NAME_COMPARATOR);
+      COMPONENT_FIELDS.put(componentClass, fields);
+    }
+    return fields;
+  }
+
+  /**
+   * Returns the fingerprint of what the given view would be generated from
+   *
+   * @param viewPath the path of the view's document (required)
+   * @param templateName the template the view is rendered from (required)
+   * @param templatesDigest the digest of the templates; can be
+   *            <code>null</code> if it's unknown
+   * @param merger the class of what merges the view with its existing
+   *            document (required)
+   * @param ctx the view's context (required)
+   * @return <code>null</code> if the view has no fingerprint
+   */
+  static Long getFingerprint(final String viewPath, final String templateName,
+      final Long templatesDigest, final Class<?> merger, final ViewContext<?> ctx) {
+    if (templatesDigest == null) {
+      return null;
+    }
+    final StringBuilder builder = new StringBuilder();
+    appendText(builder, templateName);
+    appendText(builder, templatesDigest);
+    appendText(builder, merger.getName());
+
+    // The view and controller metadata are only used to prepare the values
+    final List<Object> values =
+        Arrays.<Object>asList(ctx.getProjectName(), ctx.getDescription(), ctx.getVersion(),
+            ctx.getControllerPath(), ctx.getIdentifierField(), ctx.getModelAttribute(),
+            ctx.getModelAttributeName(), ctx.getEntityName(), ctx.isSecurityEnabled(),
+            ctx.getExtraInformation());
+    if (!appendValue(builder, values, new IdentityHashMap<Object, Object>())) {
+      return null;
+    }
+
+    final File document = new File(viewPath);
+    if (document.isFile()) {
+      try {
+        appendText(builder, ContentHashUtils.hash(document));
+      } catch (final IOException e) {
+        return null;
+      }
+    } else {
+      builder.append("none");
+    }
+    return ContentHashUtils.hash(builder);
+  }
+
+  /** key: view path */
+  private final Map<String, Long> fingerprints = new HashMap<String, Long>();
+  private long generations;
+  private long skips;
+
+  /**
+   * Forgets all fingerprints, so every view is generated again
+   */
+  synchronized void clear() {
+    fingerprints.clear();
+  }
+
+  /**
+   * Indicates whether the given view was last generated from the given
+   * fingerprint, in which case it can be skipped
+   *
+   * @param viewPath the path of the view's document (required)
+   * @param fingerprint the fingerprint; can be <code>null</code>
+   * @return <code>false</code> if the view must be generated
+   */
+  synchronized boolean isCurrent(final String viewPath, final Long fingerprint) {
+    final boolean current = fingerprint != null && fingerprint.equals(fingerprints.get(viewPath));
+    if (current) {
+      skips++;
+    } else {
+      generations++;
+    }
+    return current;
+  }
+
+  public void onUndoEvent(final UndoEvent event) {
+    if (event.isUndoing()) {
+      clear();
+    }
+  }
+
+  /**
+   * Remembers the fingerprint the given view was generated from
+   *
+   * @param viewPath the path of the view's document (required)
+   * @param fingerprint the fingerprint; if <code>null</code>, the view's
+   *            previous fingerprint is forgotten
+   */
+  synchronized void put(final String viewPath, final Long fingerprint) {
+    if (fingerprint == null) {
+      fingerprints.remove(viewPath);
+    } else {
+      fingerprints.put(viewPath, fingerprint);
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    final ToStringBuilder builder = new ToStringBuilder(this);
+    builder.append("generations", generations);
+    builder.append("skips", skips);
+    builder.append("fingerprints", fingerprints.size());
+    return builder.toString().replaceFirst("@[0-9a-f]+", ":");
+  }
+}
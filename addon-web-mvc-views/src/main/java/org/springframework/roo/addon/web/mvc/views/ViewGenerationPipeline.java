@@ -0,0 +1,143 @@
+package org.springframework.roo.addon.web.mvc.views;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Renders and merges views on a pool of daemon threads, shared by all
+ * pipelines and sized to the number of processors, while the calling thread
+ * keeps preparing the next ones, then writes the finished documents in
+ * one batch, in the order the views were added.
+ * <p>
+ * Views are independent unless they share a dependency, such as their view
+ * path or a template model that merging them modifies; views sharing one are
+ * rendered one after the other, in the order they were added.
+ * <p>
+ * Pipelines can be started again while open, e.g. when generating the views
+ * of a controller requires the metadata of another one; they're only
+ * finished by the outermost caller.
+ *
+ * @param <DOC> the type of the generated documents
+ * @since 2.0
+ */
+abstract class ViewGenerationPipeline<DOC> {
+
+  /**
+   * A view whose document is being rendered
+   */
+  private static class View<DOC> {
+
+    private final Future<DOC> document;
+    private final String viewPath;
+
+    private View(final String viewPath, final Future<DOC> document) {
+      this.document = document;
+      this.viewPath = viewPath;
+    }
+  }
+
+  private static ExecutorService renderers;
+
+  private static synchronized ExecutorService getRenderers() {
+    if (renderers == null) {
+      renderers =
+          Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+              new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                  final Thread thread = new Thread(runnable, "Roo view renderer");
+                  // Idle renderers mustn't keep the shell from exiting
+                  thread.setDaemon(true);
+                  return thread;
+                }
+              });
+    }
+    return renderers;
+  }
+
+  private int depth;
+  /** key: dependency, value: the last render of a view having it */
+  private final Map<Object, Future<DOC>> lastRenders = new HashMap<Object, Future<DOC>>();
+  private final List<View<DOC>> views = new ArrayList<View<DOC>>();
+
+  /**
+   * Adds a view to render
+   *
+   * @param viewPath the path to write the view's document to (required)
+   * @param dependency what the view shares with others (required)
+   * @param render renders the view's document; can return <code>null</code>
+   *            to leave the view as it is (required)
+   */
+  void add(final String viewPath, final Object dependency, final Callable<DOC> render) {
+    final Future<DOC> previousRender = lastRenders.get(dependency);
+    final Future<DOC> document = getRenderers().submit(new Callable<DOC>() {
+      public DOC call() throws Exception {
+        if (previousRender != null) {
+          // Submitted earlier to the same queue, so it's already running or
+          // done
+          previousRender.get();
+        }
+        return render.call();
+      }
+    });
+    lastRenders.put(dependency, document);
+    views.add(new View<DOC>(viewPath, document));
+  }
+
+  /**
+   * Finishes this pipeline, unless it's still open for an outer caller
+   *
+   * @return <code>true</code> if the views were written
+   * @throws RuntimeException the first exception thrown rendering a view, in
+   *             which case the views added before it are still written and
+   *             those added after it are cancelled
+   */
+  boolean finish() {
+    if (--depth > 0) {
+      return false;
+    }
+    try {
+      for (final View<DOC> view : views) {
+        writeDoc(view.document.get(), view.viewPath);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while generating views", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      // Only those not written yet can still be running
+      for (final View<DOC> view : views) {
+        view.document.cancel(true);
+      }
+      lastRenders.clear();
+      views.clear();
+    }
+    return true;
+  }
+
+  /**
+   * Starts this pipeline, or enters it again if it's already open
+   */
+  void start() {
+    depth++;
+  }
+
+  /**
+   * Writes the given document
+   *
+   * @param document the document; can be <code>null</code>
+   * @param viewPath the path to write it to
+   */
+  protected abstract void writeDoc(DOC document, String viewPath);
+}
@@ -22,4 +22,14 @@ public interface ViewOperations {
    */
   void setup(ControllerMVCResponseService viewType, Pom module);
 
+  /**
+   * This operation will generate again the views of every controller,
+   * skipping those that wouldn't change unless forced to.
+   *
+   * @param viewGenerationService MVCViewGenerationService of the views
+   * @param force
+   *            whether to render and merge every view again
+   */
+  void update(MVCViewGenerationService<?> viewGenerationService, boolean force);
+
 }
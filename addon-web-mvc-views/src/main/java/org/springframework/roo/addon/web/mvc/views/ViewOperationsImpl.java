@@ -1,5 +1,6 @@
 package org.springframework.roo.addon.web.mvc.views;
 
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.Validate;
@@ -12,6 +13,9 @@ import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.addon.web.mvc.controller.addon.responses.ControllerMVCResponseService;
 import org.springframework.roo.classpath.ModuleFeatureName;
 import org.springframework.roo.classpath.TypeLocationService;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
+import org.springframework.roo.model.RooJavaType;
 import org.springframework.roo.project.maven.Pom;
 import org.springframework.roo.support.logging.HandlerUtils;
 
@@ -31,6 +35,7 @@ public class ViewOperationsImpl implements ViewOperations {
   private BundleContext context;
 
   private TypeLocationService typeLocationService;
+  private MetadataDependencyRegistry metadataDependencyRegistry;
 
   protected void activate(final ComponentContext context) {
     this.context = context.getBundleContext();
@@ -49,6 +54,22 @@ public class ViewOperationsImpl implements ViewOperations {
     responseType.install(module);
   }
 
+  @Override
+  public void update(MVCViewGenerationService<?> viewGenerationService, boolean force) {
+    if (force) {
+      viewGenerationService.clearViewFingerprints();
+    }
+
+    // Notify the metadata of every controller as if it had changed, so that
+    // their views are generated again
+    Set<ClassOrInterfaceTypeDetails> controllers =
+        getTypeLocationService().findClassesOrInterfaceDetailsWithAnnotation(
+            RooJavaType.ROO_CONTROLLER);
+    for (ClassOrInterfaceTypeDetails controller : controllers) {
+      getMetadataDependencyRegistry().notifyDownstream(controller.getDeclaredByMetadataId());
+    }
+  }
+
   /**
    * This method gets MVCViewGenerationService implementation that contains necessary operations
    * to install templates inside generated project.
@@ -102,4 +123,27 @@ public class ViewOperationsImpl implements ViewOperations {
     }
   }
 
+  public MetadataDependencyRegistry getMetadataDependencyRegistry() {
+    if (metadataDependencyRegistry == null) {
+      // Get all Services implement MetadataDependencyRegistry interface
+      try {
+        ServiceReference<?>[] references =
+            this.context.getAllServiceReferences(MetadataDependencyRegistry.class.getName(), null);
+
+        for (ServiceReference<?> ref : references) {
+          metadataDependencyRegistry = (MetadataDependencyRegistry) this.context.getService(ref);
+          return metadataDependencyRegistry;
+        }
+
+        return null;
+
+      } catch (InvalidSyntaxException e) {
+        LOGGER.warning("Cannot load MetadataDependencyRegistry on ViewOperationsImpl.");
+        return null;
+      }
+    } else {
+      return metadataDependencyRegistry;
+    }
+  }
+
 }
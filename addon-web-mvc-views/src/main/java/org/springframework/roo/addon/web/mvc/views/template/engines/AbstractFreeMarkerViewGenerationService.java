@@ -1,15 +1,15 @@
 package org.springframework.roo.addon.web.mvc.views.template.engines;
 
-import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
@@ -22,17 +22,21 @@ import org.springframework.roo.process.manager.FileManager;
 import org.springframework.roo.support.osgi.OSGiUtils;
 import org.springframework.roo.support.util.FileUtils;
 
-import freemarker.template.Configuration;
-import freemarker.template.Template;
-import freemarker.template.TemplateExceptionHandler;
-import freemarker.template.Version;
-
 @Component(componentAbstract = true)
 public abstract class AbstractFreeMarkerViewGenerationService<DOC, T extends AbstractViewMetadata>
     extends AbstractViewGenerationService<DOC, T> {
 
   @Reference
   FileManager fileManager;
+  @Reference
+  FreeMarkerEngineService freeMarkerEngineService;
+
+  // The engine of the view each thread is rendering, if it was prepared for it
+  private final ThreadLocal<FreeMarkerEngine> viewEngines = new ThreadLocal<FreeMarkerEngine>();
+  // The templates directory engine checked for changes by each thread
+  // generating views, so it's checked once for all of them
+  private final ThreadLocal<FreeMarkerEngine> generationEngines =
+      new ThreadLocal<FreeMarkerEngine>();
 
   protected abstract Class<?> getResourceLoaderClass();
 
@@ -41,23 +45,101 @@ public abstract class AbstractFreeMarkerViewGenerationService<DOC, T extends Abs
     return fileManager.exists(location.concat("/").concat(templateName).concat(".ftl"));
   }
 
+  /**
+   * This method returns the engine of the project's templates directory. It
+   * checks the templates for changes once for all the views generated
+   * between {@link #startViewGeneration()} and
+   * {@link #finishViewGeneration()}, and each time it is called otherwise.
+   *
+   * @return the engine
+   * @throws IOException
+   */
+  private FreeMarkerEngine getDirectoryEngine() throws IOException {
+    if (!isGeneratingViews()) {
+      return freeMarkerEngineService.getDirectoryEngine(getTemplatesLocation());
+    }
+    FreeMarkerEngine engine = generationEngines.get();
+    if (engine == null) {
+      engine = freeMarkerEngineService.getDirectoryEngine(getTemplatesLocation());
+      generationEngines.set(engine);
+    }
+    return engine;
+  }
+
+  /**
+   * This method returns the engine that renders the provided template
+   *
+   * @param templateName
+   * @return the engine of the project's templates directory if it contains
+   *         the template, otherwise the engine of the classpath templates
+   * @throws IOException
+   */
+  private FreeMarkerEngine getEngine(String templateName) throws IOException {
+    final FreeMarkerEngine viewEngine = viewEngines.get();
+    if (viewEngine != null) {
+      return viewEngine;
+    }
+    // Check if exists some template. If not, use classpath to locate the template
+    if (checkTemplates(getTemplatesLocation(), templateName)) {
+      return getDirectoryEngine();
+    }
+    return freeMarkerEngineService.getClasspathEngine(getResourceLoaderClass(), "templates");
+  }
+
+  @Override
+  public void finishViewGeneration() {
+    try {
+      super.finishViewGeneration();
+    } finally {
+      if (!isGeneratingViews()) {
+        // The next views may use changed templates
+        generationEngines.remove();
+      }
+    }
+  }
+
+  @Override
+  protected Long getTemplatesDigest(String templateName) {
+    try {
+      return getEngine(templateName).getTemplatesDigest();
+    } catch (IOException e) {
+      // Without a digest, the view is simply generated again
+      return null;
+    }
+  }
+
+  /**
+   * This method locates the engine of the provided template on the current
+   * thread, so the thread rendering the view only uses that engine
+   */
+  @Override
+  protected <V> Callable<V> prepareRender(String templateName, final Callable<V> render) {
+    final FreeMarkerEngine engine;
+    try {
+      engine = getEngine(templateName);
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format(
+          "ERROR: Error trying to locate the template '%s.ftl'", templateName), e);
+    }
+    return new Callable<V>() {
+      public V call() throws Exception {
+        viewEngines.set(engine);
+        try {
+          return render.call();
+        } finally {
+          viewEngines.remove();
+        }
+      }
+    };
+  }
+
   protected DOC process(String templateName, ViewContext<T> ctx) {
     String content = "";
 
     Map<String, Object> input = null;
     try {
 
-      Configuration cfg = new Configuration(new Version(2, 3, 23));
-      cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-
-      // Check if exists some template. If not, use classpath to locate the template
-      if (checkTemplates(getTemplatesLocation(), templateName)) {
-        // Process using FreeMarker and setDirectoryForTemplateLoading
-        cfg.setDirectoryForTemplateLoading(new File(getTemplatesLocation()));
-      } else {
-        // Process using FreeMarker and setClassForTemplateLoading
-        cfg.setClassForTemplateLoading(getResourceLoaderClass(), "templates");
-      }
+      final FreeMarkerEngine engine = getEngine(templateName);
 
       // Prepare the template input:
       input = new HashMap<String, Object>();
@@ -92,12 +174,7 @@ public abstract class AbstractFreeMarkerViewGenerationService<DOC, T extends Abs
         input.put(extraInformation.getKey(), extraInformation.getValue());
       }
 
-      Template template = cfg.getTemplate(templateName.concat(".ftl"));
-      StringBuilderWriter writer = new StringBuilderWriter();
-      template.process(input, writer);
-      writer.close();
-
-      content = writer.toString();
+      content = engine.process(templateName.concat(".ftl"), input);
 
       if (StringUtils.isBlank(content)) {
         throw new RuntimeException(String.format(
@@ -0,0 +1,141 @@
+package org.springframework.roo.addon.web.mvc.views.template.engines;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.springframework.roo.metadata.MetadataLogger;
+import org.springframework.roo.support.util.ContentHashUtils;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+/**
+ * A long-lived FreeMarker {@link Configuration} that keeps the templates it
+ * has parsed. The time each template takes to render is reported to the
+ * {@link MetadataLogger}, so it's listed by the "metadata status" command.
+ *
+ * @since 2.0
+ */
+public class FreeMarkerEngine {
+
+  private static final String[] TEMPLATE_EXTENSIONS = {"ftl"};
+
+  private final Configuration configuration;
+  private final MetadataLogger metadataLogger;
+  private Long templatesDigest;
+  private final File templatesDirectory;
+
+  /**
+   * Constructor
+   *
+   * @param configuration the configuration to load and render templates with
+   *            (required)
+   * @param templatesDirectory the directory the configuration loads templates
+   *            from; <code>null</code> if it loads them from the classpath
+   * @param metadataLogger the logger to time renders with (required)
+   */
+  FreeMarkerEngine(final Configuration configuration, final File templatesDirectory,
+      final MetadataLogger metadataLogger) {
+    Validate.notNull(configuration, "Configuration required");
+    Validate.notNull(metadataLogger, "Metadata logger required");
+    this.configuration = configuration;
+    this.metadataLogger = metadataLogger;
+    this.templatesDirectory = templatesDirectory;
+  }
+
+  /**
+   * Returns a digest of the path, size and modification time of each
+   * template in the templates directory
+   */
+  private long getDirectoryDigest() {
+    final SortedMap<String, String> templateStats = new TreeMap<String, String>();
+    final int prefixLength = templatesDirectory.getPath().length();
+    if (templatesDirectory.isDirectory()) {
+      for (final File template : FileUtils.listFiles(templatesDirectory, TEMPLATE_EXTENSIONS,
+          true)) {
+        templateStats.put(template.getPath().substring(prefixLength), template.length() + ":"
+            + template.lastModified());
+      }
+    }
+    return ContentHashUtils.hash(templateStats.toString());
+  }
+
+  /**
+   * Returns a digest of the templates this engine renders, which changes
+   * whenever any of them, or any template they may include, changes. For a
+   * templates directory this is the digest of the last {@link #refresh()};
+   * the templates of the classpath only change along with the add-on
+   * providing them, so their digest is constant.
+   *
+   * @return the digest
+   */
+  public synchronized long getTemplatesDigest() {
+    if (templatesDirectory == null) {
+      return 0;
+    }
+    if (templatesDigest == null) {
+      refresh();
+    }
+    return templatesDigest;
+  }
+
+  /**
+   * Renders the given template, which is only parsed the first time it's
+   * rendered
+   *
+   * @param templateName the template's name, relative to the templates
+   *            location (required)
+   * @param input the template's data model (required)
+   * @return the rendered text
+   * @throws IOException if the template can't be loaded or parsed
+   * @throws TemplateException if the template can't be rendered
+   */
+  public String process(final String templateName, final Map<String, Object> input)
+      throws IOException, TemplateException {
+    metadataLogger.startTimer("FreeMarker template " + templateName);
+    try {
+      final Template template = configuration.getTemplate(templateName);
+      final StringBuilderWriter writer = new StringBuilderWriter();
+      template.process(input, writer);
+      return writer.toString();
+    } finally {
+      metadataLogger.stopTimer();
+    }
+  }
+
+  /**
+   * Checks the size and modification time of each template in the templates
+   * directory, forgetting the parsed templates if any of them has been
+   * added, changed or removed since the last check. A template may include
+   * others, so they're all loaded again. This does nothing for templates
+   * loaded from the classpath.
+   * <p>
+   * FreeMarker's own check is disabled, as it would stat each template every
+   * time it renders, from whichever thread renders it.
+   */
+  synchronized void refresh() {
+    if (templatesDirectory == null) {
+      return;
+    }
+    final long directoryDigest = getDirectoryDigest();
+    if (templatesDigest != null && templatesDigest != directoryDigest) {
+      configuration.clearTemplateCache();
+    }
+    templatesDigest = directoryDigest;
+  }
+
+  @Override
+  public String toString() {
+    final ToStringBuilder builder = new ToStringBuilder(this);
+    builder.append("templatesDirectory", templatesDirectory);
+    return builder.toString().replaceFirst("@[0-9a-f]+", ":");
+  }
+}
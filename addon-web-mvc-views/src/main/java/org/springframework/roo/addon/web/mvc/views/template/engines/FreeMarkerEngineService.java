@@ -0,0 +1,36 @@
+package org.springframework.roo.addon.web.mvc.views.template.engines;
+
+import java.io.IOException;
+
+/**
+ * Provides long-lived {@link FreeMarkerEngine}s, so that each template is
+ * parsed once rather than every time it renders a view.
+ *
+ * @since 2.0
+ */
+public interface FreeMarkerEngineService {
+
+  /**
+   * Returns the engine loading templates from the classpath of the given
+   * class. These templates are never loaded again.
+   *
+   * @param resourceLoaderClass the class whose package contains the templates
+   *            (required)
+   * @param basePackagePath the path of the templates relative to that
+   *            package (required)
+   * @return a non-<code>null</code> engine
+   */
+  FreeMarkerEngine getClasspathEngine(Class<?> resourceLoaderClass, String basePackagePath);
+
+  /**
+   * Returns the engine loading templates from the given directory, such as
+   * the project's customized templates. These templates are loaded again
+   * if any template in the directory has been added, changed or removed
+   * since the engine was last returned.
+   *
+   * @param templatesLocation the directory (required)
+   * @return a non-<code>null</code> engine
+   * @throws IOException if the directory can't be read
+   */
+  FreeMarkerEngine getDirectoryEngine(String templatesLocation) throws IOException;
+}
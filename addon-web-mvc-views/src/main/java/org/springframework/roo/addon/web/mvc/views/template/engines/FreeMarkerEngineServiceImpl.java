@@ -0,0 +1,88 @@
+package org.springframework.roo.addon.web.mvc.views.template.engines;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+import org.springframework.roo.metadata.MetadataLogger;
+import org.springframework.roo.support.util.FileUtils;
+
+import freemarker.template.Configuration;
+import freemarker.template.TemplateExceptionHandler;
+import freemarker.template.Version;
+
+/**
+ * Implementation of {@link FreeMarkerEngineService}.
+ * <p>
+ * Rather than FreeMarker checking each template's modification time every
+ * time it renders it, a templates directory is checked once each time its
+ * engine is handed out. The file monitor can't be relied on for this, as it
+ * ignores directories such as <code>.roo/templates</code>.
+ *
+ * @since 2.0
+ */
+@Component
+@Service
+public class FreeMarkerEngineServiceImpl implements FreeMarkerEngineService {
+
+  private static Configuration createConfiguration() {
+    final Configuration configuration = new Configuration(new Version(2, 3, 23));
+    configuration.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+    configuration.setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+    return configuration;
+  }
+
+  @Reference
+  MetadataLogger metadataLogger;
+
+  /** key: resource loader class and base package path */
+  private final Map<String, FreeMarkerEngine> classpathEngines =
+      new HashMap<String, FreeMarkerEngine>();
+  /** key: canonical path of the templates directory */
+  private final Map<String, FreeMarkerEngine> directoryEngines =
+      new HashMap<String, FreeMarkerEngine>();
+
+  public synchronized FreeMarkerEngine getClasspathEngine(final Class<?> resourceLoaderClass,
+      final String basePackagePath) {
+    Validate.notNull(resourceLoaderClass, "Resource loader class required");
+    Validate.notNull(basePackagePath, "Base package path required");
+    final String key = resourceLoaderClass.getName() + ":" + basePackagePath;
+    FreeMarkerEngine engine = classpathEngines.get(key);
+    if (engine == null) {
+      final Configuration configuration = createConfiguration();
+      configuration.setClassForTemplateLoading(resourceLoaderClass, basePackagePath);
+      engine = new FreeMarkerEngine(configuration, null, metadataLogger);
+      classpathEngines.put(key, engine);
+    }
+    return engine;
+  }
+
+  public synchronized FreeMarkerEngine getDirectoryEngine(final String templatesLocation)
+      throws IOException {
+    Validate.notBlank(templatesLocation, "Templates location required");
+    final String directory = FileUtils.getCanonicalPath(new File(templatesLocation));
+    FreeMarkerEngine engine = directoryEngines.get(directory);
+    if (engine == null) {
+      final Configuration configuration = createConfiguration();
+      configuration.setDirectoryForTemplateLoading(new File(directory));
+      engine = new FreeMarkerEngine(configuration, new File(directory), metadataLogger);
+      directoryEngines.put(directory, engine);
+    }
+    engine.refresh();
+    return engine;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final ToStringBuilder builder = new ToStringBuilder(this);
+    builder.append("classpathEngines", classpathEngines);
+    builder.append("directoryEngines", directoryEngines);
+    return builder.toString().replaceFirst("@[0-9a-f]+", ":");
+  }
+}
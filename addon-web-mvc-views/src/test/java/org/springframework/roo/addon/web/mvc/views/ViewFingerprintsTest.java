@@ -0,0 +1,170 @@
+package org.springframework.roo.addon.web.mvc.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.addon.web.mvc.views.components.FieldItem;
+
+/**
+ * Unit test of {@link ViewFingerprints}
+ *
+ * @since 2.0
+ */
+public class ViewFingerprintsTest {
+
+  private static final Long TEMPLATES_DIGEST = 42L;
+
+  // Fixture
+  private File directory;
+  private ViewFingerprints fingerprints;
+  private String viewPath;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-views").toFile();
+    fingerprints = new ViewFingerprints();
+    viewPath = new File(directory, "show.html").getPath();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private ViewContext<AbstractViewMetadata> createContext(final String label) {
+    final ViewContext<AbstractViewMetadata> ctx = new ViewContext<AbstractViewMetadata>();
+    ctx.setProjectName("petclinic");
+    ctx.setControllerPath("/owners");
+    ctx.setEntityName("Owner");
+    final FieldItem field = new FieldItem("firstName", "Owner");
+    field.setLabel(label);
+    ctx.addExtraParameter("fields", Arrays.asList(field));
+    return ctx;
+  }
+
+  private Long getFingerprint(final ViewContext<AbstractViewMetadata> ctx) {
+    return getFingerprint(TEMPLATES_DIGEST, ctx);
+  }
+
+  private Long getFingerprint(final Long templatesDigest,
+      final ViewContext<AbstractViewMetadata> ctx) {
+    return ViewFingerprints.getFingerprint(viewPath, "show", templatesDigest, getClass(), ctx);
+  }
+
+  @Test
+  public void testEqualContextsHaveEqualFingerprints() {
+    final Long fingerprint = getFingerprint(createContext("First name"));
+
+    assertNotNull(fingerprint);
+    assertEquals(fingerprint, getFingerprint(createContext("First name")));
+  }
+
+  @Test
+  public void testDifferentComponentsHaveDifferentFingerprints() {
+    assertFalse(getFingerprint(createContext("First name")).equals(
+        getFingerprint(createContext("Name"))));
+  }
+
+  @Test
+  public void testDifferentTemplatesHaveDifferentFingerprints() {
+    final ViewContext<AbstractViewMetadata> ctx = createContext("First name");
+
+    assertFalse(getFingerprint(ctx).equals(getFingerprint(43L, ctx)));
+    assertFalse(getFingerprint(ctx).equals(
+        ViewFingerprints.getFingerprint(viewPath, "list", TEMPLATES_DIGEST, getClass(), ctx)));
+  }
+
+  @Test
+  public void testUnknownTemplatesDigestHasNoFingerprint() {
+    assertNull(getFingerprint(null, createContext("First name")));
+  }
+
+  @Test
+  public void testValueWithoutStableRepresentationHasNoFingerprint() {
+    final ViewContext<AbstractViewMetadata> ctx = createContext("First name");
+    ctx.addExtraParameter("metadata", new Object());
+
+    assertNull(getFingerprint(ctx));
+  }
+
+  @Test
+  public void testSetsAndMapsAreSorted() {
+    final ViewContext<AbstractViewMetadata> ctx1 = createContext("First name");
+    final Map<String, Object> map1 = new LinkedHashMap<String, Object>();
+    map1.put("a", 1);
+    map1.put("b", 2);
+    ctx1.addExtraParameter("map", map1);
+    ctx1.addExtraParameter("set", new LinkedHashSet<String>(Arrays.asList("a", "b")));
+    final ViewContext<AbstractViewMetadata> ctx2 = createContext("First name");
+    final Map<String, Object> map2 = new LinkedHashMap<String, Object>();
+    map2.put("b", 2);
+    map2.put("a", 1);
+    ctx2.addExtraParameter("map", map2);
+    ctx2.addExtraParameter("set", new LinkedHashSet<String>(Arrays.asList("b", "a")));
+
+    assertEquals(getFingerprint(ctx1), getFingerprint(ctx2));
+  }
+
+  @Test
+  public void testCyclesAreMarked() {
+    final ViewContext<AbstractViewMetadata> ctx1 = createContext("First name");
+    final List<Object> cycle1 = new ArrayList<Object>();
+    cycle1.add("a");
+    cycle1.add(cycle1);
+    ctx1.addExtraParameter("cycle", cycle1);
+    final ViewContext<AbstractViewMetadata> ctx2 = createContext("First name");
+    final List<Object> cycle2 = new ArrayList<Object>();
+    cycle2.add("a");
+    cycle2.add(cycle2);
+    ctx2.addExtraParameter("cycle", cycle2);
+    final ViewContext<AbstractViewMetadata> ctx3 = createContext("First name");
+    ctx3.addExtraParameter("cycle", Arrays.asList("a", Arrays.asList()));
+
+    assertNotNull(getFingerprint(ctx1));
+    assertEquals(getFingerprint(ctx1), getFingerprint(ctx2));
+    assertFalse(getFingerprint(ctx1).equals(getFingerprint(ctx3)));
+  }
+
+  @Test
+  public void testExistingDocumentIsPartOfFingerprint() throws IOException {
+    final ViewContext<AbstractViewMetadata> ctx = createContext("First name");
+    final Long withoutDocument = getFingerprint(ctx);
+    FileUtils.writeStringToFile(new File(viewPath), "<html/>");
+    final Long withDocument = getFingerprint(ctx);
+
+    FileUtils.writeStringToFile(new File(viewPath), "<html></html>");
+
+    assertFalse(withoutDocument.equals(withDocument));
+    assertFalse(withDocument.equals(getFingerprint(ctx)));
+  }
+
+  @Test
+  public void testViewIsCurrentUntilCleared() {
+    final Long fingerprint = getFingerprint(createContext("First name"));
+    assertFalse(fingerprints.isCurrent(viewPath, fingerprint));
+
+    fingerprints.put(viewPath, fingerprint);
+    assertTrue(fingerprints.isCurrent(viewPath, fingerprint));
+    assertFalse(fingerprints.isCurrent(viewPath, null));
+
+    fingerprints.clear();
+    assertFalse(fingerprints.isCurrent(viewPath, fingerprint));
+  }
+}
@@ -0,0 +1,168 @@
+package org.springframework.roo.addon.web.mvc.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link ViewGenerationPipeline}
+ *
+ * @since 2.0
+ */
+public class ViewGenerationPipelineTest {
+
+  // Fixture
+  private final AtomicInteger maximumRendering = new AtomicInteger();
+  private ViewGenerationPipeline<String> pipeline;
+  private final List<String> renders = Collections.synchronizedList(new ArrayList<String>());
+  private final AtomicInteger rendering = new AtomicInteger();
+  private final List<String> writes = new ArrayList<String>();
+
+  @Before
+  public void setUp() {
+    pipeline = new ViewGenerationPipeline<String>() {
+      @Override
+      protected void writeDoc(final String document, final String viewPath) {
+        writes.add(viewPath + "=" + document);
+      }
+    };
+  }
+
+  /**
+   * Returns a render of the given document that takes the given time
+   */
+  private Callable<String> render(final String document, final long millis) {
+    return new Callable<String>() {
+      public String call() throws Exception {
+        final int running = rendering.incrementAndGet();
+        synchronized (maximumRendering) {
+          maximumRendering.set(Math.max(maximumRendering.get(), running));
+        }
+        try {
+          Thread.sleep(millis);
+          renders.add(document);
+          return document;
+        } finally {
+          rendering.decrementAndGet();
+        }
+      }
+    };
+  }
+
+  private Callable<String> fail(final Exception exception) {
+    return new Callable<String>() {
+      public String call() throws Exception {
+        throw exception;
+      }
+    };
+  }
+
+  @Test
+  public void testViewsAreWrittenInOrderAdded() {
+    pipeline.start();
+    pipeline.add("list.html", "list.html", render("list", 100));
+    pipeline.add("show.html", "show.html", render("show", 0));
+    pipeline.add("edit.html", "edit.html", render(null, 0));
+
+    assertTrue(pipeline.finish());
+
+    assertEquals(Arrays.asList("list.html=list", "show.html=show", "edit.html=null"), writes);
+  }
+
+  @Test
+  public void testViewsSharingDependencyAreRenderedInOrderAdded() {
+    pipeline.start();
+    pipeline.add("list.html", "models", render("list", 100));
+    pipeline.add("show.html", "models", render("show", 50));
+    pipeline.add("edit.html", "models", render("edit", 0));
+
+    pipeline.finish();
+
+    assertEquals(Arrays.asList("list", "show", "edit"), renders);
+    assertEquals(1, maximumRendering.get());
+  }
+
+  @Test
+  public void testIndependentViewsAreRenderedConcurrently() {
+    pipeline.start();
+    pipeline.add("list.html", "list.html", render("list", 200));
+    pipeline.add("show.html", "show.html", render("show", 200));
+
+    pipeline.finish();
+
+    assertEquals(Math.min(2, Runtime.getRuntime().availableProcessors()),
+        maximumRendering.get());
+  }
+
+  @Test
+  public void testNestedPipelineIsFinishedByOutermostCaller() {
+    pipeline.start();
+    pipeline.add("list.html", "list.html", render("list", 0));
+    pipeline.start();
+    pipeline.add("show.html", "show.html", render("show", 0));
+
+    assertFalse(pipeline.finish());
+    assertTrue(writes.isEmpty());
+
+    assertTrue(pipeline.finish());
+    assertEquals(Arrays.asList("list.html=list", "show.html=show"), writes);
+  }
+
+  @Test
+  public void testRenderExceptionIsThrownOnceEarlierViewsAreWritten() {
+    final IllegalArgumentException exception = new IllegalArgumentException("Invalid template");
+    pipeline.start();
+    pipeline.add("list.html", "list.html", render("list", 0));
+    pipeline.add("show.html", "show.html", fail(exception));
+    pipeline.add("edit.html", "edit.html", render("edit", 0));
+
+    try {
+      pipeline.finish();
+      throw new AssertionError("The pipeline finished");
+    } catch (final IllegalArgumentException e) {
+      assertSame(exception, e);
+    }
+
+    assertEquals(Arrays.asList("list.html=list"), writes);
+  }
+
+  @Test
+  public void testCheckedRenderExceptionIsWrapped() {
+    final IOException exception = new IOException("Unreadable template");
+    pipeline.start();
+    pipeline.add("show.html", "show.html", fail(exception));
+
+    try {
+      pipeline.finish();
+      throw new AssertionError("The pipeline finished");
+    } catch (final IllegalStateException e) {
+      assertSame(exception, e.getCause());
+    }
+  }
+
+  @Test
+  public void testViewsAreRenderedByDaemonThreads() {
+    pipeline.start();
+    pipeline.add("show.html", "show.html", new Callable<String>() {
+      public String call() {
+        return String.valueOf(Thread.currentThread().isDaemon());
+      }
+    });
+
+    pipeline.finish();
+
+    assertEquals(Arrays.asList("show.html=true"), writes);
+  }
+}
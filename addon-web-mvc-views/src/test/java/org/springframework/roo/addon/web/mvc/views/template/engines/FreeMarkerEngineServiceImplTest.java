@@ -0,0 +1,140 @@
+package org.springframework.roo.addon.web.mvc.views.template.engines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.metadata.DefaultMetadataLogger;
+import org.springframework.roo.metadata.MetadataTimingStatistic;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Unit test of {@link FreeMarkerEngineServiceImpl} and the engines it hands
+ * out
+ *
+ * @since 2.0
+ */
+public class FreeMarkerEngineServiceImplTest {
+
+  private static final Map<String, Object> INPUT = Collections
+      .<String, Object>singletonMap("name", "Roo");
+
+  // Fixture
+  private File directory;
+  private DefaultMetadataLogger metadataLogger;
+  private FreeMarkerEngineServiceImpl service;
+  private File template;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-templates").toFile().getCanonicalFile();
+    template = new File(directory, "show.ftl");
+    FileUtils.writeStringToFile(template, "Hello ${name}");
+    metadataLogger = new DefaultMetadataLogger();
+    service = new FreeMarkerEngineServiceImpl();
+    service.metadataLogger = metadataLogger;
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private String render() throws IOException, TemplateException {
+    return service.getDirectoryEngine(directory.getPath()).process("show.ftl", INPUT);
+  }
+
+  /**
+   * Rewrites the template, moving its modification time on so the change is
+   * noticed even on file systems with a coarse resolution
+   */
+  private void rewriteTemplate(final String contents) throws IOException {
+    final long lastModified = template.lastModified();
+    FileUtils.writeStringToFile(template, contents);
+    assertTrue(template.setLastModified(lastModified + 10000));
+  }
+
+  @Test
+  public void testDirectoryEngineIsKeptForDirectory() throws IOException {
+    final FreeMarkerEngine engine = service.getDirectoryEngine(directory.getPath());
+
+    assertSame(engine, service.getDirectoryEngine(directory.getPath()));
+    assertSame(engine, service.getDirectoryEngine(directory.getPath() + "/."));
+  }
+
+  @Test
+  public void testUnchangedTemplateIsParsedOnce() throws Exception {
+    assertEquals("Hello Roo", render());
+    // Same size and modification time, so it's considered unchanged
+    final long lastModified = template.lastModified();
+    FileUtils.writeStringToFile(template, "Howdy ${name}");
+    assertTrue(template.setLastModified(lastModified));
+
+    assertEquals("Hello Roo", render());
+  }
+
+  @Test
+  public void testChangedTemplateIsLoadedAgain() throws Exception {
+    assertEquals("Hello Roo", render());
+    final long digest = service.getDirectoryEngine(directory.getPath()).getTemplatesDigest();
+
+    rewriteTemplate("Goodbye ${name}");
+
+    assertEquals("Goodbye Roo", render());
+    assertFalse(digest == service.getDirectoryEngine(directory.getPath()).getTemplatesDigest());
+  }
+
+  @Test
+  public void testAddedTemplateChangesDigest() throws IOException {
+    final long digest = service.getDirectoryEngine(directory.getPath()).getTemplatesDigest();
+    assertEquals(digest, service.getDirectoryEngine(directory.getPath()).getTemplatesDigest());
+
+    FileUtils.writeStringToFile(new File(directory, "fragments/menu.ftl"), "<ul/>");
+
+    assertFalse(digest == service.getDirectoryEngine(directory.getPath()).getTemplatesDigest());
+  }
+
+  @Test
+  public void testClasspathEngineIsKeptWithConstantDigest() {
+    final FreeMarkerEngine engine = service.getClasspathEngine(getClass(), "templates");
+
+    assertSame(engine, service.getClasspathEngine(getClass(), "templates"));
+    assertEquals(0, engine.getTemplatesDigest());
+  }
+
+  @Test
+  public void testRendersAreTimed() throws Exception {
+    render();
+    render();
+
+    assertEquals(1, metadataLogger.getTimings().size());
+    final MetadataTimingStatistic timing = metadataLogger.getTimings().first();
+    assertEquals("FreeMarker template show.ftl", timing.getName());
+    assertEquals(2, timing.getInvocations());
+  }
+
+  @Test
+  public void testFailedRenderIsTimed() throws IOException {
+    try {
+      service.getDirectoryEngine(directory.getPath()).process("missing.ftl", INPUT);
+      throw new AssertionError("A missing template was rendered");
+    } catch (final IOException expected) {
+    } catch (final TemplateException e) {
+      throw new AssertionError(e);
+    }
+
+    assertEquals(1, metadataLogger.getTimings().first().getInvocations());
+  }
+}
@@ -0,0 +1,48 @@
+package org.springframework.roo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.roo.metadata.internal.DefaultMetadataDependencyRegistry;
+
+/**
+ * Benchmarks building the dependencies of a project in a
+ * {@link DefaultMetadataDependencyRegistry}, with and without interned IDs.
+ * As in Roo, every registration builds its identification strings afresh.
+ * Run with <code>-prof gc</code> to compare the bytes allocated per
+ * operation, and with a fixed heap (e.g. <code>-jvmArgs "-Xms1g -Xmx1g"</code>)
+ * for stable results.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DependencyGraphMemoryBenchmark {
+
+  @Param({"1000"})
+  public int entities;
+
+  @Param({"false", "true"})
+  public boolean interned;
+
+  @Benchmark
+  public DefaultMetadataDependencyRegistry registerDependencies() {
+    final DefaultMetadataDependencyRegistry registry =
+        new DefaultMetadataDependencyRegistry(interned);
+    SyntheticProject.registerDependencies(registry, entities);
+    return registry;
+  }
+}
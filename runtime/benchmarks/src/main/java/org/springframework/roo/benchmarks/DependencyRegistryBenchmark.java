@@ -0,0 +1,78 @@
+package org.springframework.roo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.roo.metadata.DefaultMetadataLogger;
+import org.springframework.roo.metadata.MetadataService;
+import org.springframework.roo.metadata.internal.DefaultMetadataDependencyRegistry;
+
+/**
+ * Benchmarks {@link DefaultMetadataDependencyRegistry#notifyDownstream(String)}
+ * of a physical type, on its own and batched with the types it relates to,
+ * with both dependency graph backends. The metadata service ignores the
+ * notifications, so the benchmarks measure the dispatch itself.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DependencyRegistryBenchmark {
+
+  @Param({"1000"})
+  public int entities;
+
+  @Param({"false", "true"})
+  public boolean interned;
+
+  private int next;
+  private DefaultMetadataDependencyRegistry registry;
+  private String[] typeIds;
+
+  private int nextEntity() {
+    next = (next + 1) % entities;
+    return next;
+  }
+
+  @Benchmark
+  public void notifyDownstream() {
+    registry.notifyDownstream(typeIds[nextEntity()]);
+  }
+
+  @Benchmark
+  public void notifyDownstreamBatch() {
+    final int entity = nextEntity();
+    registry.startNotificationBatch();
+    for (int r = 0; r <= SyntheticProject.RELATIONS; r++) {
+      registry.notifyDownstream(typeIds[(entity + r) % entities]);
+    }
+    registry.endNotificationBatch();
+  }
+
+  @Setup
+  public void setUp() {
+    registry = new DefaultMetadataDependencyRegistry(interned);
+    Stubs.inject(registry, "metadataLogger", new DefaultMetadataLogger());
+    registry.addNotificationListener(Stubs.nullObject(MetadataService.class));
+    SyntheticProject.registerDependencies(registry, entities);
+
+    typeIds = new String[entities];
+    for (int i = 0; i < entities; i++) {
+      typeIds[i] = SyntheticProject.getTypeId(i);
+    }
+  }
+}
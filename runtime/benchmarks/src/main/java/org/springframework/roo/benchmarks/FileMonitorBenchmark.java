@@ -0,0 +1,66 @@
+package org.springframework.roo.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.roo.file.monitor.DirectoryMonitoringRequest;
+import org.springframework.roo.file.monitor.event.FileOperation;
+import org.springframework.roo.file.monitor.polling.PollingFileMonitorService;
+
+/**
+ * Benchmarks {@link PollingFileMonitorService#scanAll()} of a generated source
+ * tree in which nothing changed since the previous scan, which is what most
+ * of the shell's background scans find.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileMonitorBenchmark {
+
+  @Param({"1000"})
+  public int entities;
+
+  private PollingFileMonitorService fileMonitorService;
+  private File root;
+
+  @Benchmark
+  public int scanAll() {
+    return fileMonitorService.scanAll();
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    root = File.createTempFile("roo-benchmark", "");
+    FileUtils.forceDelete(root);
+    SyntheticProject.writeSources(root, entities);
+
+    fileMonitorService = new PollingFileMonitorService();
+    fileMonitorService.add(new DirectoryMonitoringRequest(root, true, FileOperation.values()));
+    // Take the initial snapshot, so the benchmark only finds unchanged files
+    fileMonitorService.scanAll();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(root);
+  }
+}
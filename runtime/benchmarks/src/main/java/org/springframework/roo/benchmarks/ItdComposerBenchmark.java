@@ -0,0 +1,58 @@
+package org.springframework.roo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.roo.classpath.details.ItdTypeDetails;
+import org.springframework.roo.classpath.itd.ItdSourceFileComposer;
+
+/**
+ * Benchmarks the output of {@link ItdSourceFileComposer} for a generated
+ * JavaBean ITD with the given number of fields and their accessors, either
+ * copied into a new string or hashed within a reused buffer.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ItdComposerBenchmark {
+
+  @Param({"5", "50"})
+  public int fields;
+
+  private ItdTypeDetails itd;
+
+  @Benchmark
+  public String getOutput() {
+    return new ItdSourceFileComposer(itd).getOutput();
+  }
+
+  @Benchmark
+  public long getOutputHash() {
+    final ItdSourceFileComposer composer = new ItdSourceFileComposer(itd, true);
+    try {
+      return composer.getOutputHash();
+    } finally {
+      composer.release();
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    itd = SyntheticProject.getJavaBeanItd(0, fields);
+  }
+}
@@ -0,0 +1,84 @@
+package org.springframework.roo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Benchmarks the creation, hashing and sorting of the types of inner classes
+ * of the entities, with and without
+ * {@link JavaType#intern(JavaType) interning}. Run with
+ * <code>-prof gc</code> to compare the bytes allocated per operation.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JavaTypeBenchmark {
+
+  @Param({"1000"})
+  public int entities;
+
+  @Param({"false", "true"})
+  public boolean interned;
+
+  private String[] typeNames;
+
+  private JavaType getType(final String typeName) {
+    return interned ? JavaType.intern(typeName) : new JavaType(typeName);
+  }
+
+  @Benchmark
+  public Set<JavaType> hashTypes() {
+    final Set<JavaType> types = new HashSet<JavaType>();
+    for (final String typeName : typeNames) {
+      types.add(getType(typeName));
+    }
+    return types;
+  }
+
+  @Benchmark
+  public List<JavaType> listTypes() {
+    final List<JavaType> types = new ArrayList<JavaType>(typeNames.length);
+    for (final String typeName : typeNames) {
+      types.add(JavaType.listOf(getType(typeName)));
+    }
+    return types;
+  }
+
+  @Setup
+  public void setUp() {
+    typeNames = new String[entities];
+    for (int i = 0; i < entities; i++) {
+      // Inner types also create their enclosing types
+      typeNames[i] = SyntheticProject.getEntity(i).getFullyQualifiedTypeName() + ".Builder";
+    }
+  }
+
+  @Benchmark
+  public List<JavaType> sortTypes() {
+    final List<JavaType> types = listTypes();
+    Collections.sort(types);
+    return types;
+  }
+}
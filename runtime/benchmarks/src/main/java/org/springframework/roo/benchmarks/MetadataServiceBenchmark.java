@@ -0,0 +1,122 @@
+package org.springframework.roo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.BundleContext;
+import org.springframework.roo.metadata.AbstractMetadataItem;
+import org.springframework.roo.metadata.DefaultMetadataLogger;
+import org.springframework.roo.metadata.DefaultMetadataMetrics;
+import org.springframework.roo.metadata.DefaultMetadataService;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
+import org.springframework.roo.metadata.MetadataItem;
+import org.springframework.roo.metadata.MetadataProvider;
+import org.springframework.roo.metadata.internal.DefaultMetadataDependencyRegistry;
+import org.springframework.roo.metadata.internal.MetadataDependencyRegistryTracker;
+
+/**
+ * Benchmarks {@link DefaultMetadataService#get(String, boolean)} when the
+ * metadata is cached, when it must be created again, and
+ * {@link DefaultMetadataService#evict(String)} of a physical type with all the
+ * ITDs that depend on it.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetadataServiceBenchmark {
+
+  /**
+   * Provides an item for each JavaBean ITD instance, without any work, so the
+   * benchmarks measure the service itself
+   */
+  private static class JavaBeanProvider implements MetadataProvider {
+
+    public MetadataItem get(final String metadataIdentificationString) {
+      return new AbstractMetadataItem(metadataIdentificationString) {};
+    }
+
+    public String getProvidesType() {
+      return SyntheticProject.getItdClassId("JavaBean");
+    }
+  }
+
+  /**
+   * A {@link DefaultMetadataService} wired to the given registry and provider
+   */
+  private static class WiredMetadataService extends DefaultMetadataService {
+
+    WiredMetadataService(final MetadataDependencyRegistry registry,
+        final MetadataProvider provider) {
+      registryTracker =
+          new MetadataDependencyRegistryTracker(Stubs.nullObject(BundleContext.class), this) {
+            @Override
+            public MetadataDependencyRegistry getService() {
+              return registry;
+            }
+          };
+      Stubs.inject(this, "metadataLogger", new DefaultMetadataLogger());
+      Stubs.inject(this, "metadataMetrics", new DefaultMetadataMetrics());
+      bindMetadataProvider(provider);
+      registry.addNotificationListener(this);
+    }
+  }
+
+  @Param({"1000"})
+  public int entities;
+
+  private String[] itdIds;
+  private int next;
+  private DefaultMetadataService service;
+  private String[] typeIds;
+
+  @Benchmark
+  public void evict() {
+    service.evict(typeIds[nextEntity()]);
+  }
+
+  @Benchmark
+  public MetadataItem getHit() {
+    return service.get(itdIds[nextEntity()], false);
+  }
+
+  @Benchmark
+  public MetadataItem getMiss() {
+    return service.get(itdIds[nextEntity()], true);
+  }
+
+  private int nextEntity() {
+    next = (next + 1) % entities;
+    return next;
+  }
+
+  @Setup
+  public void setUp() {
+    final DefaultMetadataDependencyRegistry registry = new DefaultMetadataDependencyRegistry();
+    Stubs.inject(registry, "metadataLogger", new DefaultMetadataLogger());
+    SyntheticProject.registerDependencies(registry, entities);
+    service = new WiredMetadataService(registry, new JavaBeanProvider());
+
+    itdIds = new String[entities];
+    typeIds = new String[entities];
+    for (int i = 0; i < entities; i++) {
+      itdIds[i] = SyntheticProject.getItdId("JavaBean", i);
+      typeIds[i] = SyntheticProject.getTypeId(i);
+      service.get(itdIds[i]);
+    }
+  }
+}
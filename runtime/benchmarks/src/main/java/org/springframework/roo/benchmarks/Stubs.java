@@ -0,0 +1,93 @@
+package org.springframework.roo.benchmarks;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Wires Roo services outside an OSGi container, where nothing injects their
+ * references.
+ *
+ * @since 2.0
+ */
+final class Stubs {
+
+  /**
+   * Sets a field of the given object, whatever its visibility, as Felix SCR
+   * would do for a reference
+   *
+   * @param target the object to modify (required)
+   * @param fieldName the name of the field, declared by the object's class or
+   *            a superclass (required)
+   * @param value the value to set
+   */
+  static void inject(final Object target, final String fieldName, final Object value) {
+    Validate.notNull(target, "Target required");
+    for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+      try {
+        final Field field = type.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+        return;
+      } catch (final NoSuchFieldException e) {
+        // Try the superclass
+      } catch (final IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    throw new IllegalArgumentException("No field '" + fieldName + "' in " + target.getClass());
+  }
+
+  /**
+   * Returns an implementation of the given interface whose methods do nothing
+   * and return an empty collection, null, zero or false
+   *
+   * @param type the interface to implement (required)
+   * @return a non-null instance
+   */
+  static <T> T nullObject(final Class<T> type) {
+    Validate.isTrue(type.isInterface(), "%s is not an interface", type);
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        new InvocationHandler() {
+          public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            if ("equals".equals(method.getName())) {
+              return proxy == args[0];
+            }
+            if ("hashCode".equals(method.getName())) {
+              return System.identityHashCode(proxy);
+            }
+            if ("toString".equals(method.getName())) {
+              return type.getSimpleName() + " stub";
+            }
+            final Class<?> returnType = method.getReturnType();
+            if (returnType == Collection.class || returnType == List.class) {
+              return new ArrayList<Object>();
+            }
+            if (returnType == Set.class) {
+              return new HashSet<Object>();
+            }
+            if (returnType == Map.class) {
+              return new HashMap<Object, Object>();
+            }
+            if (!returnType.isPrimitive() || returnType == void.class) {
+              return null;
+            }
+            // The default value of the primitive type, boxed
+            return Array.get(Array.newInstance(returnType, 1), 0);
+          }
+        }));
+  }
+
+  private Stubs() {}
+}
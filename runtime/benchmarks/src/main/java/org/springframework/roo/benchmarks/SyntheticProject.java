@@ -0,0 +1,226 @@
+package org.springframework.roo.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.PhysicalTypeIdentifier;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.FieldMetadataBuilder;
+import org.springframework.roo.classpath.details.ItdTypeDetails;
+import org.springframework.roo.classpath.details.ItdTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.MethodMetadataBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotatedJavaType;
+import org.springframework.roo.classpath.itd.InvocableMemberBodyBuilder;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
+import org.springframework.roo.metadata.MetadataIdentificationUtils;
+import org.springframework.roo.model.JavaSymbolName;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Generates the artifacts of a Roo project with a given number of entities:
+ * metadata IDs and their dependencies, entity sources, ITDs and a source tree
+ * on disk. Everything is derived from the entity numbers, so every run
+ * benchmarks the same project.
+ * <p>
+ * Each entity has the ITDs and layers a typical Roo application generates,
+ * and is related to the next {@link #RELATIONS} entities.
+ *
+ * @since 2.0
+ */
+final class SyntheticProject {
+
+  /** The number of entities each entity is related to */
+  static final int RELATIONS = 3;
+
+  private static final String ADDON_PACKAGE = "org.springframework.roo.addon.";
+  private static final String[] ITDS = {"JpaEntity", "JavaBean", "ToString", "Identifier",
+      "JpaAudit", "Equals", "Serializable"};
+  private static final String[] LAYERS = {"Repository", "RepositoryImpl", "Service",
+      "ServiceImpl", "Controller", "JsonController", "ThymeleafController", "DataOnDemand",
+      "IntegrationTest"};
+  private static final String PACKAGE = "com.example";
+  private static final String SOURCE_PATH = "SRC_MAIN_JAVA?";
+
+  /**
+   * Returns the type of the given entity
+   *
+   * @param entity the entity number
+   * @return a non-null type
+   */
+  static JavaType getEntity(final int entity) {
+    return new JavaType(PACKAGE + ".domain.Entity" + entity);
+  }
+
+  /**
+   * Returns the source of the given entity, a JavaBean with the given number
+   * of fields
+   *
+   * @param entity the entity number
+   * @param fields the number of fields
+   * @return the contents of a Java source file
+   */
+  static String getEntitySource(final int entity, final int fields) {
+    final StringBuilder source = new StringBuilder();
+    source.append("package ").append(PACKAGE).append(".domain;\n\n");
+    source.append("import java.io.Serializable;\nimport java.util.Date;\n\n");
+    source.append("/**\n * Entity ").append(entity).append("\n */\n");
+    source.append("public class Entity").append(entity).append(" implements Serializable {\n\n");
+    source.append("    private Long id;\n\n    private Date created;\n\n");
+    for (int i = 0; i < fields; i++) {
+      source.append("    private String field").append(i).append(";\n\n");
+    }
+    for (int i = 0; i < fields; i++) {
+      source.append("    public String getField").append(i).append("() {\n");
+      source.append("        return this.field").append(i).append(";\n    }\n\n");
+      source.append("    public void setField").append(i).append("(String field").append(i);
+      source.append(") {\n        this.field").append(i).append(" = field").append(i);
+      source.append(";\n    }\n\n");
+    }
+    return source.append("}\n").toString();
+  }
+
+  /**
+   * Returns the class-level ID of the metadata behind the given ITD
+   *
+   * @param itd the ITD, such as "JavaBean"
+   * @return a metadata class ID
+   */
+  static String getItdClassId(final String itd) {
+    return MetadataIdentificationUtils.create(ADDON_PACKAGE + itd + "Metadata");
+  }
+
+  /**
+   * Returns the ID of the given ITD of the given entity
+   *
+   * @param itd the ITD, such as "JavaBean"
+   * @param entity the entity number
+   * @return a metadata instance ID
+   */
+  static String getItdId(final String itd, final int entity) {
+    return getItdId(itd, getEntity(entity).getFullyQualifiedTypeName());
+  }
+
+  private static String getItdId(final String itd, final String type) {
+    return MetadataIdentificationUtils.create(ADDON_PACKAGE + itd + "Metadata", SOURCE_PATH
+        + type);
+  }
+
+  /**
+   * Returns the ITD that declares the accessors and mutators of the given
+   * entity
+   *
+   * @param entity the entity number
+   * @param fields the number of fields
+   * @return a non-null ITD
+   */
+  static ItdTypeDetails getJavaBeanItd(final int entity, final int fields) {
+    final JavaType entityType = getEntity(entity);
+    final String declaredBy = getItdId("JavaBean", entity);
+    final ClassOrInterfaceTypeDetails governor =
+        new ClassOrInterfaceTypeDetailsBuilder(getTypeId(entity), Modifier.PUBLIC, entityType,
+            PhysicalTypeCategory.CLASS).build();
+    final ItdTypeDetailsBuilder itd =
+        new ItdTypeDetailsBuilder(declaredBy, governor, new JavaType(
+            entityType.getFullyQualifiedTypeName() + "_Roo_JavaBean"), true);
+
+    for (int i = 0; i < fields; i++) {
+      final JavaSymbolName field = new JavaSymbolName("field" + i);
+      itd.addField(new FieldMetadataBuilder(declaredBy, Modifier.PRIVATE, field, JavaType.STRING,
+          null));
+
+      final InvocableMemberBodyBuilder getterBody = new InvocableMemberBodyBuilder();
+      getterBody.appendFormalLine("return this.%s;", field);
+      itd.addMethod(new MethodMetadataBuilder(declaredBy, Modifier.PUBLIC, new JavaSymbolName(
+          "getField" + i), JavaType.STRING, getterBody));
+
+      final InvocableMemberBodyBuilder setterBody = new InvocableMemberBodyBuilder();
+      setterBody.appendFormalLine("this.%1$s = %1$s;", field);
+      final List<JavaSymbolName> parameterNames = new ArrayList<JavaSymbolName>();
+      parameterNames.add(field);
+      itd.addMethod(new MethodMetadataBuilder(declaredBy, Modifier.PUBLIC, new JavaSymbolName(
+          "setField" + i), JavaType.VOID_PRIMITIVE, AnnotatedJavaType
+          .convertFromJavaTypes(JavaType.STRING), parameterNames, setterBody));
+    }
+    return itd.build();
+  }
+
+  /**
+   * Returns the ID of the given entity's physical type
+   *
+   * @param entity the entity number
+   * @return a metadata instance ID
+   */
+  static String getTypeId(final int entity) {
+    return getTypeId(getEntity(entity).getFullyQualifiedTypeName());
+  }
+
+  private static String getTypeId(final String type) {
+    return MetadataIdentificationUtils.create(PhysicalTypeIdentifier.class.getName(), SOURCE_PATH
+        + type);
+  }
+
+  /**
+   * Registers the metadata dependencies of the given number of entities, as
+   * their providers would
+   *
+   * @param registry the registry to populate (required)
+   * @param entities the number of entities
+   */
+  static void registerDependencies(final MetadataDependencyRegistry registry, final int entities) {
+    final String physicalTypeClass =
+        MetadataIdentificationUtils.create(PhysicalTypeIdentifier.class.getName());
+    for (final String itd : ITDS) {
+      registry.registerDependency(physicalTypeClass, getItdClassId(itd));
+    }
+
+    for (int i = 0; i < entities; i++) {
+      for (final String itd : ITDS) {
+        registry.registerDependency(getTypeId(i), getItdId(itd, i));
+      }
+      for (int r = 1; r <= RELATIONS; r++) {
+        final int related = (i + r) % entities;
+        registry.registerDependency(getTypeId(related), getItdId("JpaEntity", i));
+        registry.registerDependency(getTypeId(related), getItdId("ToString", i));
+      }
+      for (final String layer : LAYERS) {
+        final String type = PACKAGE + "." + layer.toLowerCase() + ".Entity" + i + layer;
+        registry.registerDependency(getTypeId(type), getItdId(layer, type));
+        registry.registerDependency(getItdId("JpaEntity", i), getItdId(layer, type));
+        registry.registerDependency(getTypeId(i), getItdId(layer, type));
+      }
+    }
+  }
+
+  /**
+   * Writes the sources of the given number of entities, and of their layers,
+   * below the given directory
+   *
+   * @param root the project directory (required)
+   * @param entities the number of entities
+   * @return the number of files written
+   * @throws IOException if a file cannot be written
+   */
+  static int writeSources(final File root, final int entities) throws IOException {
+    final File sources = new File(root, "src/main/java/" + PACKAGE.replace('.', '/'));
+    int files = 0;
+    for (int i = 0; i < entities; i++) {
+      final String source = getEntitySource(i, 5);
+      FileUtils.writeStringToFile(new File(sources, "domain/Entity" + i + ".java"), source);
+      files++;
+      for (final String layer : LAYERS) {
+        FileUtils.writeStringToFile(new File(sources, layer.toLowerCase() + "/Entity" + i + layer
+            + ".java"), source);
+        files++;
+      }
+    }
+    return files;
+  }
+
+  private SyntheticProject() {}
+}
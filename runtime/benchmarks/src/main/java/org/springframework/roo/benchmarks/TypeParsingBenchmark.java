@@ -0,0 +1,61 @@
+package org.springframework.roo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.roo.classpath.TypeLocationService;
+import org.springframework.roo.classpath.antlrjavaparser.JavaParserTypeParsingService;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.metadata.MetadataService;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Benchmarks
+ * {@link JavaParserTypeParsingService#getTypeFromString(String, String, JavaType)}
+ * of a generated entity with the given number of fields and their accessors.
+ *
+ * @since 2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TypeParsingBenchmark {
+
+  @Param({"5", "50"})
+  public int fields;
+
+  private String declaredBy;
+  private JavaType entity;
+  private String source;
+  private JavaParserTypeParsingService typeParsingService;
+
+  @Benchmark
+  public ClassOrInterfaceTypeDetails getTypeFromString() {
+    return typeParsingService.getTypeFromString(source, declaredBy, entity);
+  }
+
+  @Setup
+  public void setUp() {
+    typeParsingService = new JavaParserTypeParsingService();
+    Stubs.inject(typeParsingService, "metadataService", Stubs.nullObject(MetadataService.class));
+    Stubs.inject(typeParsingService, "typeLocationService",
+        Stubs.nullObject(TypeLocationService.class));
+
+    declaredBy = SyntheticProject.getTypeId(0);
+    entity = SyntheticProject.getEntity(0);
+    source = SyntheticProject.getEntitySource(0, fields);
+  }
+}
@@ -6,10 +6,12 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -18,6 +20,7 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.PhysicalTypeMetadata;
 import org.springframework.roo.classpath.TypeLocationService;
 import org.springframework.roo.classpath.TypeParsingService;
 import org.springframework.roo.classpath.antlrjavaparser.details.JavaParserAnnotationMetadataBuilder;
@@ -30,6 +33,7 @@ import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.classpath.details.ConstructorMetadata;
 import org.springframework.roo.classpath.details.FieldMetadata;
 import org.springframework.roo.classpath.details.ImportMetadata;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
 import org.springframework.roo.classpath.details.MethodMetadata;
 import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
 import org.springframework.roo.classpath.details.comments.CommentStructure;
@@ -39,6 +43,7 @@ import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.model.JavaPackage;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
+import org.springframework.roo.support.util.ContentHashUtils;
 
 import com.github.antlrjavaparser.ASTHelper;
 import com.github.antlrjavaparser.JavaParser;
@@ -62,11 +67,19 @@ import com.github.antlrjavaparser.api.type.ClassOrInterfaceType;
 @Service
 public class JavaParserTypeParsingService implements TypeParsingService {
 
+  /**
+   * Shared with {@link JavaParserTypeResolutionService}, which reads the
+   * packages of the files being preparsed before their types are parsed
+   */
+  static final PreparsedCompilationUnits PREPARSED_UNITS = new PreparsedCompilationUnits();
+
   @Reference
   MetadataService metadataService;
   @Reference
   TypeLocationService typeLocationService;
 
+  private final ParsedTypeCache parsedTypes = new ParsedTypeCache();
+
   private void addEnumConstant(final List<EnumConstantDeclaration> constants,
       final JavaSymbolName name) {
     // Determine location to insert
@@ -111,15 +124,36 @@ public class JavaParserTypeParsingService implements TypeParsingService {
     Validate.notBlank(declaredByMetadataId, "Declaring metadata ID required");
     Validate.notNull(typeName, "Java type to locate required");
     final File file = new File(fileIdentifier);
-    String typeContents = "";
+    byte[] typeContents = new byte[0];
     try {
-      typeContents = FileUtils.readFileToString(file);
+      typeContents = FileUtils.readFileToByteArray(file);
     } catch (final IOException ignored) {
     }
-    if (StringUtils.isBlank(typeContents)) {
-      return null;
+
+    // Reuse the type last parsed from the same contents, unless its
+    // superclass has changed since
+    final long contentHash = ContentHashUtils.hash(typeContents);
+    ClassOrInterfaceTypeDetails cid =
+        parsedTypes.get(fileIdentifier, contentHash, typeContents.length, declaredByMetadataId,
+            typeName);
+    if (cid != null && getSuperclass(cid) == parsedTypes.getSuperclass(fileIdentifier)) {
+      parsedTypes.recordLookup(true);
+      return cid;
+    }
+    parsedTypes.recordLookup(false);
+
+    final CompilationUnit compilationUnit =
+        PREPARSED_UNITS.remove(fileIdentifier, typeContents);
+    if (compilationUnit == null) {
+      cid = getTypeFromString(new String(typeContents), declaredByMetadataId, typeName);
+    } else {
+      cid = getTypeFromCompilationUnit(compilationUnit, declaredByMetadataId, typeName);
+    }
+    if (cid != null) {
+      parsedTypes.put(fileIdentifier, contentHash, typeContents.length, declaredByMetadataId,
+          typeName, cid, getSuperclass(cid));
     }
-    return getTypeFromString(typeContents, declaredByMetadataId, typeName);
+    return cid;
   }
 
   @Override
@@ -134,14 +168,7 @@ public class JavaParserTypeParsingService implements TypeParsingService {
     try {
       final CompilationUnit compilationUnit =
           JavaParser.parse(new ByteArrayInputStream(fileContents.getBytes()));
-      final TypeDeclaration typeDeclaration =
-          JavaParserUtils.locateTypeDeclaration(compilationUnit, typeName);
-      if (typeDeclaration == null) {
-        return null;
-      }
-      return JavaParserClassOrInterfaceTypeDetailsBuilder.getInstance(compilationUnit, null,
-          typeDeclaration, declaredByMetadataId, typeName, metadataService, typeLocationService)
-          .build();
+      return getTypeFromCompilationUnit(compilationUnit, declaredByMetadataId, typeName);
     } catch (final IOException e) {
       throw new IllegalStateException(e);
     } catch (final ParseException e) {
@@ -149,6 +176,58 @@ public class JavaParserTypeParsingService implements TypeParsingService {
     }
   }
 
+  private ClassOrInterfaceTypeDetails getTypeFromCompilationUnit(
+      final CompilationUnit compilationUnit, final String declaredByMetadataId,
+      final JavaType typeName) {
+    final TypeDeclaration typeDeclaration =
+        JavaParserUtils.locateTypeDeclaration(compilationUnit, typeName);
+    if (typeDeclaration == null) {
+      return null;
+    }
+    return JavaParserClassOrInterfaceTypeDetailsBuilder.getInstance(compilationUnit, null,
+        typeDeclaration, declaredByMetadataId, typeName, metadataService, typeLocationService)
+        .build();
+  }
+
+  /**
+   * Returns the current details of the given type's superclass, as used when
+   * building the type
+   *
+   * @param cid the type (required)
+   * @return <code>null</code> if none is available
+   */
+  private MemberHoldingTypeDetails getSuperclass(final ClassOrInterfaceTypeDetails cid) {
+    if (cid.getPhysicalTypeCategory() != PhysicalTypeCategory.CLASS
+        || cid.getExtendsTypes().size() != 1) {
+      return null;
+    }
+    final String superclassId =
+        typeLocationService.getPhysicalTypeIdentifier(cid.getExtendsTypes().get(0));
+    if (superclassId == null) {
+      return null;
+    }
+    final PhysicalTypeMetadata superPtm = (PhysicalTypeMetadata) metadataService.get(superclassId);
+    return superPtm == null ? null : superPtm.getMemberHoldingTypeDetails();
+  }
+
+  @Override
+  public void preparse(final Collection<String> fileIdentifiers,
+      final ExecutorService executor) {
+    Validate.notNull(fileIdentifiers, "File identifiers required");
+    Validate.notNull(executor, "Executor required");
+    PREPARSED_UNITS.parse(fileIdentifiers, executor);
+  }
+
+  @Override
+  public void releasePreparsed() {
+    PREPARSED_UNITS.clear();
+  }
+
+  @Override
+  public String toString() {
+    return parsedTypes.toString();
+  }
+
   /**
    * Appends the presented class to the end of the presented body
    * declarations. The body declarations appear within the presented
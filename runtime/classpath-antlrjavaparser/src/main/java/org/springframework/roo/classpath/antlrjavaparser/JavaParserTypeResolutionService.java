@@ -63,16 +63,19 @@ public class JavaParserTypeResolutionService implements TypeResolutionService {
     Validate.isTrue(new File(fileIdentifier).isFile(), "The identifier doesn't represent a file");
     try {
       final File file = new File(fileIdentifier);
-      String typeContents = "";
+      byte[] typeContents = new byte[0];
       try {
-        typeContents = FileUtils.readFileToString(file);
+        typeContents = FileUtils.readFileToByteArray(file);
       } catch (final IOException ignored) {
       }
-      if (StringUtils.isBlank(typeContents)) {
+      if (StringUtils.isBlank(new String(typeContents))) {
         return null;
       }
-      final CompilationUnit compilationUnit =
-          JavaParser.parse(new ByteArrayInputStream(typeContents.getBytes()));
+      CompilationUnit compilationUnit =
+          JavaParserTypeParsingService.PREPARSED_UNITS.get(fileIdentifier, typeContents);
+      if (compilationUnit == null) {
+        compilationUnit = JavaParser.parse(new ByteArrayInputStream(typeContents));
+      }
       if (compilationUnit == null || compilationUnit.getPackage() == null) {
         return null;
       }
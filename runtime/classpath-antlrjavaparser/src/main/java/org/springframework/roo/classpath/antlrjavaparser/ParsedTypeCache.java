@@ -0,0 +1,185 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Remembers the type last parsed from each file, along with a digest of the
+ * file contents it was parsed from, so that a file whose contents haven't
+ * changed needn't be parsed again.
+ * <p>
+ * The cache holds at most {@value #DEFAULT_MAXIMUM_SIZE} files by default (see
+ * {@value #MAXIMUM_SIZE_PROPERTY}), evicting the least recently used ones, and
+ * its types are softly referenced so that they can be reclaimed when memory
+ * runs low.
+ *
+ * @since 2.0
+ */
+class ParsedTypeCache {
+
+  /**
+   * A type parsed from given contents
+   */
+  private static class ParsedType {
+
+    private final long contentHash;
+    private final int contentLength;
+    private final String declaredByMetadataId;
+    private final MemberHoldingTypeDetails superclass;
+    private final ClassOrInterfaceTypeDetails type;
+    private final JavaType typeName;
+
+    private ParsedType(final long contentHash, final int contentLength,
+        final String declaredByMetadataId, final JavaType typeName,
+        final ClassOrInterfaceTypeDetails type, final MemberHoldingTypeDetails superclass) {
+      this.contentHash = contentHash;
+      this.contentLength = contentLength;
+      this.declaredByMetadataId = declaredByMetadataId;
+      this.superclass = superclass;
+      this.type = type;
+      this.typeName = typeName;
+    }
+  }
+
+  static final int DEFAULT_MAXIMUM_SIZE = 2000;
+  static final String MAXIMUM_SIZE_PROPERTY = "roo.parser.cache.size";
+
+  private long collections;
+  private long evictions;
+  private long hits;
+  private final int maximumSize;
+  private long misses;
+  /** key: file identifier */
+  private final Map<String, SoftReference<ParsedType>> parsedTypes;
+
+  /**
+   * Constructor that reads the maximum size from the
+   * {@value #MAXIMUM_SIZE_PROPERTY} system property
+   */
+  ParsedTypeCache() {
+    this(Integer.getInteger(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maximumSize the maximum number of files to remember (0 disables
+   *            the cache)
+   */
+  ParsedTypeCache(final int maximumSize) {
+    this.maximumSize = maximumSize;
+    parsedTypes = new LinkedHashMap<String, SoftReference<ParsedType>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<String, SoftReference<ParsedType>> eldest) {
+        if (size() > ParsedTypeCache.this.maximumSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the type parsed from the given file, if it was parsed from the
+   * same contents, for the same metadata ID and type name, and with the same
+   * superclass details. Only the caller can tell whether the superclass
+   * changed, so it must report the outcome of the lookup via
+   * {@link #recordLookup(boolean)}.
+   *
+   * @param fileIdentifier the file the type was parsed from (required)
+   * @param contentHash the hash of the file's current contents
+   * @param contentLength the length of the file's current contents
+   * @param declaredByMetadataId the metadata ID of the type (required)
+   * @param typeName the name of the type (required)
+   * @return <code>null</code> if the type must be parsed
+   */
+  synchronized ClassOrInterfaceTypeDetails get(final String fileIdentifier,
+      final long contentHash, final int contentLength, final String declaredByMetadataId,
+      final JavaType typeName) {
+    final SoftReference<ParsedType> reference = parsedTypes.get(fileIdentifier);
+    if (reference == null) {
+      return null;
+    }
+    final ParsedType parsedType = reference.get();
+    if (parsedType == null) {
+      collections++;
+      parsedTypes.remove(fileIdentifier);
+      return null;
+    }
+    if (parsedType.contentHash != contentHash || parsedType.contentLength != contentLength
+        || !parsedType.declaredByMetadataId.equals(declaredByMetadataId)
+        || !parsedType.typeName.equals(typeName)) {
+      return null;
+    }
+    return parsedType.type;
+  }
+
+  /**
+   * Returns the superclass details the given file's type was parsed with
+   *
+   * @param fileIdentifier the file the type was parsed from (required)
+   * @return <code>null</code> if none or unknown
+   */
+  synchronized MemberHoldingTypeDetails getSuperclass(final String fileIdentifier) {
+    final SoftReference<ParsedType> reference = parsedTypes.get(fileIdentifier);
+    final ParsedType parsedType = reference == null ? null : reference.get();
+    return parsedType == null ? null : parsedType.superclass;
+  }
+
+  /**
+   * Remembers the type parsed from the given file
+   *
+   * @param fileIdentifier the file the type was parsed from (required)
+   * @param contentHash the hash of the contents parsed
+   * @param contentLength the length of the contents parsed
+   * @param declaredByMetadataId the metadata ID of the type (required)
+   * @param typeName the name of the type (required)
+   * @param type the parsed type (required)
+   * @param superclass the superclass details the type was built with
+   *            (<code>null</code> if none)
+   */
+  synchronized void put(final String fileIdentifier, final long contentHash,
+      final int contentLength, final String declaredByMetadataId, final JavaType typeName,
+      final ClassOrInterfaceTypeDetails type, final MemberHoldingTypeDetails superclass) {
+    if (maximumSize > 0) {
+      parsedTypes.put(fileIdentifier, new SoftReference<ParsedType>(new ParsedType(contentHash,
+          contentLength, declaredByMetadataId, typeName, type, superclass)));
+    }
+  }
+
+  /**
+   * Records whether a lookup found a usable type
+   *
+   * @param hit whether the type didn't need parsing
+   */
+  synchronized void recordLookup(final boolean hit) {
+    if (hit) {
+      hits++;
+    } else {
+      misses++;
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    final ToStringBuilder builder = new ToStringBuilder(this);
+    builder.append("hits", hits);
+    builder.append("misses", misses);
+    builder.append("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    builder.append("evictions", evictions);
+    builder.append("collections", collections);
+    builder.append("currentSize", parsedTypes.size());
+    builder.append("maximumSize", maximumSize);
+    return builder.toString().replaceFirst("@[0-9a-f]+", ":");
+  }
+}
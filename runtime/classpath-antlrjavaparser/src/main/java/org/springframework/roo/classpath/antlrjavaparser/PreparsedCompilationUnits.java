@@ -0,0 +1,172 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.springframework.roo.support.util.ContentHashUtils;
+
+import com.github.antlrjavaparser.JavaParser;
+import com.github.antlrjavaparser.api.CompilationUnit;
+
+/**
+ * Compilation units parsed ahead of time, in parallel, for a batch of files
+ * that are about to be read one by one. Each unit is only handed out for the
+ * contents it was parsed from, so a file changed in the meantime is simply
+ * parsed again.
+ * <p>
+ * Only the last batch is kept; parsing another batch, or clearing this
+ * instance, releases it.
+ *
+ * @since 2.0
+ */
+class PreparsedCompilationUnits {
+
+  /**
+   * A compilation unit parsed from given contents
+   */
+  private static class PreparsedUnit {
+
+    private final CompilationUnit compilationUnit;
+    private final long contentHash;
+    private final int contentLength;
+
+    private PreparsedUnit(final long contentHash, final int contentLength,
+        final CompilationUnit compilationUnit) {
+      this.compilationUnit = compilationUnit;
+      this.contentHash = contentHash;
+      this.contentLength = contentLength;
+    }
+
+    private boolean isParsedFrom(final byte[] contents) {
+      return contentLength == contents.length && contentHash == ContentHashUtils.hash(contents);
+    }
+  }
+
+  /** Below this many files, they're parsed by the calling thread */
+  private static final int MIN_PARALLEL_PARSES = 4;
+
+  /**
+   * Parses the given file
+   *
+   * @return <code>null</code> if it can't be read or parsed, in which case
+   *         it's left to be parsed, and the problem reported, when it's read
+   */
+  private static PreparsedUnit parse(final String fileIdentifier) {
+    try {
+      final byte[] contents = FileUtils.readFileToByteArray(new File(fileIdentifier));
+      final CompilationUnit compilationUnit =
+          JavaParser.parse(new ByteArrayInputStream(contents));
+      return compilationUnit == null ? null : new PreparsedUnit(ContentHashUtils.hash(contents),
+          contents.length, compilationUnit);
+    } catch (final Exception e) {
+      return null;
+    }
+  }
+
+  /** key: file identifier */
+  private final Map<String, PreparsedUnit> units = new HashMap<String, PreparsedUnit>();
+
+  /**
+   * Forgets the last batch
+   */
+  synchronized void clear() {
+    units.clear();
+  }
+
+  /**
+   * Returns the compilation unit parsed from the given file, leaving it
+   * available to later callers
+   *
+   * @param fileIdentifier the file (required)
+   * @param contents the file's current contents (required)
+   * @return <code>null</code> if it wasn't parsed from these contents
+   */
+  synchronized CompilationUnit get(final String fileIdentifier, final byte[] contents) {
+    final PreparsedUnit unit = units.get(fileIdentifier);
+    return unit == null || !unit.isParsedFrom(contents) ? null : unit.compilationUnit;
+  }
+
+  /**
+   * Parses the given files on the given executor, replacing the previous
+   * batch. Returns early, with whatever was parsed, if the calling thread is
+   * interrupted.
+   *
+   * @param fileIdentifiers the files to parse (required; can be empty)
+   * @param executor the executor to parse them on, unless there are too few
+   *            of them to be worth it (required)
+   */
+  void parse(final Collection<String> fileIdentifiers, final ExecutorService executor) {
+    clear();
+    if (fileIdentifiers.isEmpty()) {
+      return;
+    }
+    final Map<String, PreparsedUnit> parsed = new HashMap<String, PreparsedUnit>();
+    if (fileIdentifiers.size() < MIN_PARALLEL_PARSES) {
+      for (final String fileIdentifier : fileIdentifiers) {
+        parsed.put(fileIdentifier, parse(fileIdentifier));
+      }
+    } else {
+      parseInParallel(fileIdentifiers, executor, parsed);
+    }
+    synchronized (this) {
+      for (final Map.Entry<String, PreparsedUnit> entry : parsed.entrySet()) {
+        if (entry.getValue() != null) {
+          units.put(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+  }
+
+  private void parseInParallel(final Collection<String> fileIdentifiers,
+      final ExecutorService executor, final Map<String, PreparsedUnit> parsed) {
+    final List<String> submitted = new ArrayList<String>(fileIdentifiers.size());
+    final List<Future<PreparsedUnit>> futures =
+        new ArrayList<Future<PreparsedUnit>>(fileIdentifiers.size());
+    try {
+      for (final String fileIdentifier : fileIdentifiers) {
+        submitted.add(fileIdentifier);
+        futures.add(executor.submit(new Callable<PreparsedUnit>() {
+          public PreparsedUnit call() {
+            return parse(fileIdentifier);
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        parsed.put(submitted.get(i), futures.get(i).get());
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final ExecutionException e) {
+      // Can't happen, as parse(String) doesn't throw
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      // The executor is the caller's, so only stop what's left of this batch
+      for (final Future<PreparsedUnit> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Returns the compilation unit parsed from the given file, which is then
+   * forgotten, as the caller may change it
+   *
+   * @param fileIdentifier the file (required)
+   * @param contents the file's current contents (required)
+   * @return <code>null</code> if it wasn't parsed from these contents
+   */
+  synchronized CompilationUnit remove(final String fileIdentifier, final byte[] contents) {
+    final PreparsedUnit unit = units.remove(fileIdentifier);
+    return unit == null || !unit.isParsedFrom(contents) ? null : unit.compilationUnit;
+  }
+}
@@ -0,0 +1,68 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Modifier;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * Unit test of {@link ParsedTypeCache}
+ *
+ * @since 2.0
+ */
+public class ParsedTypeCacheTest {
+
+  private static final String DECLARED_BY_MID = "MID:foo#bar";
+  private static final JavaType TYPE = new JavaType("com.example.MyClass");
+
+  private static ClassOrInterfaceTypeDetails getType() {
+    return new ClassOrInterfaceTypeDetailsBuilder(DECLARED_BY_MID, Modifier.PUBLIC, TYPE,
+        PhysicalTypeCategory.CLASS).build();
+  }
+
+  // Fixture
+  private ParsedTypeCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new ParsedTypeCache(2);
+  }
+
+  @Test
+  public void testChangedContentsAreNotReused() {
+    cache.put("A.java", 1, 10, DECLARED_BY_MID, TYPE, getType(), null);
+    assertNull(cache.get("A.java", 2, 10, DECLARED_BY_MID, TYPE));
+    assertNull(cache.get("A.java", 1, 11, DECLARED_BY_MID, TYPE));
+    assertNull(cache.get("A.java", 1, 10, "MID:foo#baz", TYPE));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedTypeIsEvicted() {
+    final ClassOrInterfaceTypeDetails a = getType();
+    cache.put("A.java", 1, 10, DECLARED_BY_MID, TYPE, a, null);
+    cache.put("B.java", 2, 10, DECLARED_BY_MID, TYPE, getType(), null);
+    assertSame(a, cache.get("A.java", 1, 10, DECLARED_BY_MID, TYPE));
+    cache.put("C.java", 3, 10, DECLARED_BY_MID, TYPE, getType(), null);
+
+    assertSame(a, cache.get("A.java", 1, 10, DECLARED_BY_MID, TYPE));
+    assertNull(cache.get("B.java", 2, 10, DECLARED_BY_MID, TYPE));
+    assertTrue(cache.toString().contains("evictions=1"));
+  }
+
+  @Test
+  public void testHitRate() {
+    cache.recordLookup(true);
+    cache.recordLookup(true);
+    cache.recordLookup(true);
+    cache.recordLookup(false);
+    assertTrue(cache.toString(), cache.toString().contains("hitRate=0.75"));
+  }
+}
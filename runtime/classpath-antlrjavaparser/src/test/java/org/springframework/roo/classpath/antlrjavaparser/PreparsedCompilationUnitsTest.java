@@ -0,0 +1,130 @@
+package org.springframework.roo.classpath.antlrjavaparser;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.antlrjavaparser.api.CompilationUnit;
+
+/**
+ * Unit test of {@link PreparsedCompilationUnits}
+ *
+ * @since 2.0
+ */
+public class PreparsedCompilationUnitsTest {
+
+  private static final byte[] PERSON = "package com.example; public class Person {}".getBytes();
+
+  // Fixture
+  private File directory;
+  private ExecutorService executor;
+  private PreparsedCompilationUnits units;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-preparse").toFile();
+    executor = Executors.newFixedThreadPool(2);
+    units = new PreparsedCompilationUnits();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    executor.shutdownNow();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private String createFile(final String name, final byte[] contents) throws IOException {
+    final File file = new File(directory, name);
+    FileUtils.writeByteArrayToFile(file, contents);
+    return file.getPath();
+  }
+
+  @Test
+  public void testUnitIsHandedOutForContentsItWasParsedFrom() throws IOException {
+    final String person = createFile("Person.java", PERSON);
+    units.parse(Arrays.asList(person), executor);
+
+    final CompilationUnit unit = units.get(person, PERSON);
+
+    assertNotNull(unit);
+    assertSame(unit, units.get(person, PERSON));
+    assertSame(unit, units.remove(person, PERSON));
+    assertNull(units.get(person, PERSON));
+  }
+
+  @Test
+  public void testChangedContentsAreLeftToBeParsed() throws IOException {
+    final String person = createFile("Person.java", PERSON);
+    units.parse(Arrays.asList(person), executor);
+
+    assertNull(units.get(person, "package com.example; public class Persom {}".getBytes()));
+    assertNull(units.get(person, "package com.example; public class Owner {}".getBytes()));
+  }
+
+  @Test
+  public void testUnparseableAndMissingFilesAreLeftToBeParsed() throws IOException {
+    final byte[] broken = "public class Person {".getBytes();
+    final String person = createFile("Person.java", broken);
+    final String missing = new File(directory, "Missing.java").getPath();
+
+    units.parse(Arrays.asList(person, missing), executor);
+
+    assertNull(units.get(person, broken));
+    assertNull(units.get(missing, PERSON));
+  }
+
+  @Test
+  public void testLargeBatchIsParsedOnExecutor() throws IOException {
+    final List<String> files = new ArrayList<String>();
+    for (int i = 0; i < 20; i++) {
+      files.add(createFile("Type" + i + ".java", ("public class Type" + i + " {}").getBytes()));
+    }
+
+    units.parse(files, executor);
+
+    for (int i = 0; i < 20; i++) {
+      assertNotNull(units.get(files.get(i), ("public class Type" + i + " {}").getBytes()));
+    }
+    // The executor is left for the next batch
+    assertNotNull(executor.submit(new Runnable() {
+      public void run() {}
+    }));
+  }
+
+  @Test
+  public void testNextBatchReplacesPreviousOne() throws IOException {
+    final String person = createFile("Person.java", PERSON);
+    final byte[] owner = "public class Owner {}".getBytes();
+    final String ownerFile = createFile("Owner.java", owner);
+    units.parse(Arrays.asList(person), executor);
+
+    units.parse(Arrays.asList(ownerFile), executor);
+
+    assertNull(units.get(person, PERSON));
+    assertNotNull(units.get(ownerFile, owner));
+  }
+
+  @Test
+  public void testClearReleasesBatch() throws IOException {
+    final String person = createFile("Person.java", PERSON);
+    units.parse(Arrays.asList(person), executor);
+
+    units.clear();
+
+    assertNull(units.get(person, PERSON));
+  }
+}
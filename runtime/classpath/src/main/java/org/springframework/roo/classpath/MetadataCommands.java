@@ -3,6 +3,8 @@ package org.springframework.roo.classpath;
 import static org.apache.commons.io.IOUtils.LINE_SEPARATOR;
 import static org.springframework.roo.shell.OptionContexts.INCLUDE_CURRENT_MODULE;
 
+import java.util.Map;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.Validate;
@@ -14,7 +16,9 @@ import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
 import org.springframework.roo.classpath.scanner.MemberDetailsScanner;
 import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
+import org.springframework.roo.metadata.MetadataHistogram;
 import org.springframework.roo.metadata.MetadataLogger;
+import org.springframework.roo.metadata.MetadataMetrics;
 import org.springframework.roo.metadata.MetadataService;
 import org.springframework.roo.metadata.MetadataTimingStatistic;
 import org.springframework.roo.model.JavaType;
@@ -31,10 +35,13 @@ import org.springframework.roo.shell.CommandMarker;
 @Service
 public class MetadataCommands implements CommandMarker {
 
+  private static final double NANOSECONDS_IN_MILLISECOND = 1000000D;
+
   private static final String METADATA_FOR_MODULE_COMMAND = "metadata for module";
   private static final String METADATA_CACHE_COMMAND = "metadata cache";
   private static final String METADATA_FOR_ID_COMMAND = "metadata for id";
   private static final String METADATA_FOR_TYPE_COMMAND = "metadata for type";
+  private static final String METADATA_STATS_COMMAND = "metadata stats";
   private static final String METADATA_STATUS_COMMAND = "metadata status";
   private static final String METADATA_TRACE_COMMAND = "metadata trace";
 
@@ -45,15 +52,19 @@ public class MetadataCommands implements CommandMarker {
   @Reference
   private MetadataLogger metadataLogger;
   @Reference
+  private MetadataMetrics metadataMetrics;
+  @Reference
   private MetadataService metadataService;
   @Reference
   private ProjectOperations projectOperations;
   @Reference
   private TypeLocationService typeLocationService;
+  @Reference
+  private TypeParsingService typeParsingService;
 
   @CliAvailabilityIndicator({METADATA_FOR_MODULE_COMMAND, METADATA_CACHE_COMMAND,
-      METADATA_FOR_ID_COMMAND, METADATA_FOR_TYPE_COMMAND, METADATA_STATUS_COMMAND,
-      METADATA_TRACE_COMMAND})
+      METADATA_FOR_ID_COMMAND, METADATA_FOR_TYPE_COMMAND, METADATA_STATS_COMMAND,
+      METADATA_STATUS_COMMAND, METADATA_TRACE_COMMAND})
   public boolean isModuleMetadataAvailable() {
     return projectOperations.getFocusedModule() != null;
   }
@@ -161,6 +172,66 @@ public class MetadataCommands implements CommandMarker {
     return sb.toString();
   }
 
+  @CliCommand(value = METADATA_STATS_COMMAND,
+      help = "Shows metadata provider latencies, eviction cascades, retry groups and the most "
+          + "recomputed metadata items since Roo started or the statistics were reset.")
+  public String metadataStats(
+      @CliOption(key = "json", mandatory = false, unspecifiedDefaultValue = "false",
+          specifiedDefaultValue = "true",
+          help = "Whether to output the statistics as a JSON document. "
+              + "Default if option present: `true`; default if option not present: `false`.") final boolean json,
+      @CliOption(key = "top", mandatory = false, unspecifiedDefaultValue = "10",
+          help = "The number of most recomputed metadata items to show. "
+              + "Default if option not present: `10`.") final int top,
+      @CliOption(key = "reset", mandatory = false, unspecifiedDefaultValue = "false",
+          specifiedDefaultValue = "true",
+          help = "Whether to discard the statistics once shown. "
+              + "Default if option present: `true`; default if option not present: `false`.") final boolean reset) {
+    Validate.isTrue(top >= 0, "Top must be zero or more");
+    final String stats;
+    if (json) {
+      stats = metadataMetrics.toJson(top);
+    } else {
+      final StringBuilder sb = new StringBuilder();
+      sb.append(String.format("%-70s %8s %10s %10s %10s %10s", "Provider (ms)", "Count", "Mean",
+          "p50", "p99", "Max"));
+      sb.append(LINE_SEPARATOR);
+      for (final Map.Entry<String, MetadataHistogram> entry : metadataMetrics
+          .getProviderLatencies().entrySet()) {
+        final MetadataHistogram latencies = entry.getValue();
+        sb.append(String.format("%-70s %8d %10.3f %10.3f %10.3f %10.3f", entry.getKey(),
+            latencies.getCount(), latencies.getMean() / NANOSECONDS_IN_MILLISECOND,
+            (double) latencies.getPercentile(50) / NANOSECONDS_IN_MILLISECOND,
+            (double) latencies.getPercentile(99) / NANOSECONDS_IN_MILLISECOND,
+            (double) latencies.getMax() / NANOSECONDS_IN_MILLISECOND));
+        sb.append(LINE_SEPARATOR);
+      }
+      appendSizes(sb, "Eviction cascades", metadataMetrics.getEvictionCascades());
+      appendSizes(sb, "Retry groups", metadataMetrics.getRetryGroups());
+      final Map<String, Long> mostRecomputed = metadataMetrics.getMostRecomputed(top);
+      if (!mostRecomputed.isEmpty()) {
+        sb.append("Most recomputed:").append(LINE_SEPARATOR);
+        for (final Map.Entry<String, Long> entry : mostRecomputed.entrySet()) {
+          sb.append(String.format("%8d %s", entry.getValue(), entry.getKey()))
+              .append(LINE_SEPARATOR);
+        }
+      }
+      stats = sb.toString();
+    }
+    if (reset) {
+      metadataMetrics.reset();
+    }
+    return stats;
+  }
+
+  private void appendSizes(final StringBuilder sb, final String name,
+      final MetadataHistogram sizes) {
+    sb.append(String.format("%-18s: count=%d mean=%.1f p50=%d p99=%d max=%d", name,
+        sizes.getCount(), sizes.getMean(), sizes.getPercentile(50), sizes.getPercentile(99),
+        sizes.getMax()));
+    sb.append(LINE_SEPARATOR);
+  }
+
   @CliCommand(value = METADATA_STATUS_COMMAND,
       help = "Shows metadata statistics of the current project.")
   public String metadataTimings() {
@@ -168,7 +239,8 @@ public class MetadataCommands implements CommandMarker {
     for (final MetadataTimingStatistic stat : metadataLogger.getTimings()) {
       sb.append(stat.toString()).append(LINE_SEPARATOR);
     }
-    sb.append(metadataService.toString());
+    sb.append(metadataService.toString()).append(LINE_SEPARATOR);
+    sb.append(typeParsingService.toString());
     return sb.toString();
   }
 
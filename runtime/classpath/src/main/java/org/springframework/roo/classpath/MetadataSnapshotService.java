@@ -0,0 +1,30 @@
+package org.springframework.roo.classpath;
+
+/**
+ * Persists, between shell sessions, where the project's types live and the
+ * dependencies between their metadata. A new session still parses every
+ * type and creates its metadata; the snapshot only saves resolving the type
+ * of each unchanged source file and registering the dependencies again.
+ * <p>
+ * The snapshot is stored in the project's <code>.roo</code> directory. Each
+ * entry is keyed by source file path and content hash, so entries whose file
+ * was modified, moved or deleted are discarded on restore.
+ *
+ * @since 2.0
+ */
+public interface MetadataSnapshotService {
+
+  /**
+   * Restores the snapshot saved by a previous session, if any. Only entries
+   * whose source file is unchanged are restored. This method only has an
+   * effect the first time it is called in a session.
+   *
+   * @return the number of source files whose entries were restored
+   */
+  int restore();
+
+  /**
+   * Saves a snapshot of the current session, replacing any previous one.
+   */
+  void save();
+}
@@ -0,0 +1,261 @@
+package org.springframework.roo.classpath;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+import org.springframework.roo.metadata.MetadataDependency;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
+import org.springframework.roo.metadata.MetadataIdentificationUtils;
+import org.springframework.roo.model.JavaType;
+import org.springframework.roo.project.LogicalPath;
+import org.springframework.roo.project.Path;
+import org.springframework.roo.project.PathResolver;
+import org.springframework.roo.project.ProjectOperations;
+import org.springframework.roo.project.maven.Pom;
+import org.springframework.roo.support.logging.HandlerUtils;
+import org.springframework.roo.support.util.ContentHashUtils;
+
+/**
+ * Implementation of {@link MetadataSnapshotService}.
+ * <p>
+ * The snapshot contains, for each known Java source file, its size, content
+ * hash and physical type identifier; and the whole
+ * {@link MetadataDependencyRegistry} graph. On restore, unchanged files are
+ * registered in the {@link TypeCache} without resolving their package again,
+ * and dependencies that don't involve a changed type are re-registered.
+ * <p>
+ * Parsed type details are not part of the snapshot, as they aren't
+ * serializable, so every type is still parsed and its metadata created.
+ * Neither are the hash codes tracked by metadata notifiers, as hash codes such
+ * as those of enums differ from one JVM to the next.
+ *
+ * @since 2.0
+ */
+@Component
+@Service
+public class MetadataSnapshotServiceImpl implements MetadataSnapshotService {
+
+  /**
+   * A Java source file recorded in the snapshot
+   */
+  private static class FileEntry {
+    long hash;
+    String path;
+    String physicalTypeId;
+    long size;
+  }
+
+  private static final int FORMAT_VERSION = 2;
+  private static final Logger LOGGER = HandlerUtils.getLogger(MetadataSnapshotServiceImpl.class);
+  private static final String SNAPSHOT_FILE_NAME = "cache/metadata.snapshot";
+
+  @Reference
+  private MetadataDependencyRegistry metadataDependencyRegistry;
+  @Reference
+  private PathResolver pathResolver;
+  @Reference
+  private ProjectOperations projectOperations;
+  @Reference
+  private TypeCache typeCache;
+  @Reference
+  private TypeLocationService typeLocationService;
+
+  private BundleContext context;
+  private boolean restored;
+
+  protected void activate(final ComponentContext cContext) {
+    context = cContext.getBundleContext();
+  }
+
+  protected void deactivate(final ComponentContext cContext) {
+    save();
+  }
+
+  private File getSnapshotFile() {
+    return new File(pathResolver.getIdentifier(LogicalPath.getInstance(Path.ROOT_ROO_CONFIG, ""),
+        SNAPSHOT_FILE_NAME));
+  }
+
+  private String getVersion() {
+    return context.getBundle().getVersion().toString();
+  }
+
+  private boolean isUnchanged(final FileEntry entry) {
+    final File file = new File(entry.path);
+    if (!file.isFile() || file.length() != entry.size) {
+      return false;
+    }
+    try {
+      return ContentHashUtils.hash(file) == entry.hash;
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Indicates whether the given ID belongs to one of the given types, i.e.
+   * both refer to the same "path?type" metadata instance.
+   */
+  private boolean isOfTypes(final String metadataId, final Set<String> instanceKeys) {
+    return MetadataIdentificationUtils.isIdentifyingInstance(metadataId)
+        && instanceKeys.contains(MetadataIdentificationUtils.getMetadataInstance(metadataId));
+  }
+
+  public int restore() {
+    if (restored || !projectOperations.isFocusedProjectAvailable()) {
+      return 0;
+    }
+    restored = true;
+
+    final File snapshotFile = getSnapshotFile();
+    if (!snapshotFile.isFile()) {
+      return 0;
+    }
+
+    DataInputStream in = null;
+    try {
+      in =
+          new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(
+              snapshotFile))));
+      if (in.readInt() != FORMAT_VERSION || !getVersion().equals(in.readUTF())) {
+        // Written by another version of Roo; start from scratch
+        return 0;
+      }
+
+      // Validate the files against their current contents
+      final List<FileEntry> unchangedFiles = new ArrayList<FileEntry>();
+      final Set<String> unchangedTypes = new HashSet<String>();
+      final Set<String> changedTypes = new HashSet<String>();
+      final int fileCount = in.readInt();
+      for (int i = 0; i < fileCount; i++) {
+        final FileEntry entry = new FileEntry();
+        entry.path = in.readUTF();
+        entry.size = in.readLong();
+        entry.hash = in.readLong();
+        entry.physicalTypeId = in.readUTF();
+        final String instanceKey =
+            MetadataIdentificationUtils.getMetadataInstance(entry.physicalTypeId);
+        if (isUnchanged(entry)) {
+          unchangedFiles.add(entry);
+          unchangedTypes.add(instanceKey);
+        } else {
+          changedTypes.add(instanceKey);
+        }
+      }
+
+      // Re-register the dependencies that don't involve changed types
+      final int dependencyCount = in.readInt();
+      for (int i = 0; i < dependencyCount; i++) {
+        final String upstream = in.readUTF();
+        final String downstream = in.readUTF();
+        if (!isOfTypes(upstream, changedTypes) && !isOfTypes(downstream, changedTypes)
+            && metadataDependencyRegistry.isValidDependency(upstream, downstream)) {
+          metadataDependencyRegistry.registerDependency(upstream, downstream);
+        }
+      }
+
+      // Let the type cache know where the unchanged types live
+      for (final FileEntry entry : unchangedFiles) {
+        final JavaType javaType = PhysicalTypeIdentifier.getJavaType(entry.physicalTypeId);
+        final Pom module = projectOperations.getPomFromModuleName(javaType.getModule());
+        if (module != null) {
+          typeCache.cacheTypeAgainstModule(module, javaType);
+          typeCache.cacheFilePathAgainstTypeIdentifier(entry.path, entry.physicalTypeId);
+        }
+      }
+      LOGGER.fine("Restored metadata snapshot for " + unchangedFiles.size() + " of " + fileCount
+          + " source files");
+      return unchangedFiles.size();
+    } catch (final IOException e) {
+      LOGGER.log(Level.FINE, "Ignoring unreadable metadata snapshot " + snapshotFile, e);
+      return 0;
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  public void save() {
+    if (!projectOperations.isFocusedProjectAvailable()) {
+      return;
+    }
+
+    final List<FileEntry> files = new ArrayList<FileEntry>();
+    for (final String physicalTypeId : typeCache.getAllTypeIdentifiers()) {
+      final FileEntry entry = new FileEntry();
+      entry.path = typeLocationService.getPhysicalTypeCanonicalPath(physicalTypeId);
+      entry.physicalTypeId = physicalTypeId;
+      final File file = new File(entry.path);
+      if (!file.isFile()) {
+        continue;
+      }
+      try {
+        entry.size = file.length();
+        entry.hash = ContentHashUtils.hash(file);
+      } catch (final IOException e) {
+        continue;
+      }
+      files.add(entry);
+    }
+    final Collection<MetadataDependency> dependencies =
+        metadataDependencyRegistry.getDependencies();
+
+    // Write to a temporary file first, so a crash never leaves a truncated
+    // snapshot behind
+    final File snapshotFile = getSnapshotFile();
+    final File tempFile = new File(snapshotFile.getPath() + ".tmp");
+    DataOutputStream out = null;
+    try {
+      snapshotFile.getParentFile().mkdirs();
+      out =
+          new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(
+              tempFile))));
+      out.writeInt(FORMAT_VERSION);
+      out.writeUTF(getVersion());
+      out.writeInt(files.size());
+      for (final FileEntry entry : files) {
+        out.writeUTF(entry.path);
+        out.writeLong(entry.size);
+        out.writeLong(entry.hash);
+        out.writeUTF(entry.physicalTypeId);
+      }
+      out.writeInt(dependencies.size());
+      for (final MetadataDependency dependency : dependencies) {
+        out.writeUTF(dependency.getUpstreamDependency());
+        out.writeUTF(dependency.getDownstreamDependency());
+      }
+      out.close();
+      out = null;
+      if (snapshotFile.exists() && !snapshotFile.delete() || !tempFile.renameTo(snapshotFile)) {
+        LOGGER.fine("Unable to replace metadata snapshot " + snapshotFile);
+      }
+    } catch (final IOException e) {
+      LOGGER.log(Level.FINE, "Unable to save metadata snapshot " + snapshotFile, e);
+    } finally {
+      IOUtils.closeQuietly(out);
+      if (tempFile.exists()) {
+        tempFile.delete();
+      }
+    }
+  }
+}
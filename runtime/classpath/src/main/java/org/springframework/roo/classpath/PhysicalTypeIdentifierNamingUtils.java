@@ -66,8 +66,8 @@ public final class PhysicalTypeIdentifierNamingUtils {
     final String instance =
         MetadataIdentificationUtils.getMetadataInstance(metadataIdentificationString);
     final int index = instance.indexOf("?");
-    return new JavaType(instance.substring(index + 1),
-        getModuleFromIdentificationString(metadataIdentificationString));
+    return JavaType.intern(new JavaType(instance.substring(index + 1),
+        getModuleFromIdentificationString(metadataIdentificationString)));
   }
 
   /**
@@ -82,8 +82,8 @@ public final class PhysicalTypeIdentifierNamingUtils {
    */
   public static JavaType getJavaType(final String metadataClass, final String metadataId) {
     final String instanceKey = getInstanceKey(metadataClass, metadataId);
-    return new JavaType(instanceKey.substring(instanceKey.indexOf(PATH_SUFFIX) + 1),
-        getModuleFromIdentificationString(metadataId));
+    return JavaType.intern(new JavaType(instanceKey.substring(instanceKey.indexOf(PATH_SUFFIX) + 1),
+        getModuleFromIdentificationString(metadataId)));
   }
 
   /**
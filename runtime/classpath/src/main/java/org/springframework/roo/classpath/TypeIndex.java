@@ -0,0 +1,254 @@
+package org.springframework.roo.classpath;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
+import org.springframework.roo.model.JavaType;
+
+/**
+ * An inverted index of the project's types, by the annotations and tags
+ * (custom data keys) they have and by the module they belong to. Types are
+ * known by their physical type identifier.
+ * <p>
+ * Every change to the index increments its {@link #getGeneration()
+ * generation}, so that callers can cache the results of their queries until
+ * the index actually changes. Re-indexing a type without changing its
+ * annotations, tags or module is not a change.
+ *
+ * @since 2.0
+ */
+class TypeIndex {
+
+  /**
+   * What a type is indexed under
+   */
+  private static class IndexedType {
+
+    private final Set<JavaType> annotations;
+    private final String module;
+    private final Set<Object> tags;
+
+    private IndexedType(final Set<JavaType> annotations, final Set<Object> tags,
+        final String module) {
+      this.annotations = annotations;
+      this.module = module;
+      this.tags = tags;
+    }
+
+    private boolean isIndexedAs(final IndexedType other) {
+      return annotations.equals(other.annotations) && tags.equals(other.tags)
+          && module.equals(other.module);
+    }
+  }
+
+  private static <K> void add(final Map<K, Set<String>> index, final K key,
+      final String physicalTypeId) {
+    Set<String> physicalTypeIds = index.get(key);
+    if (physicalTypeIds == null) {
+      physicalTypeIds = new HashSet<String>();
+      index.put(key, physicalTypeIds);
+    }
+    physicalTypeIds.add(physicalTypeId);
+  }
+
+  private static <K> Set<String> get(final Map<K, Set<String>> index, final K key) {
+    final Set<String> physicalTypeIds = index.get(key);
+    if (physicalTypeIds == null) {
+      return Collections.emptySet();
+    }
+    return physicalTypeIds;
+  }
+
+  private static <K> void remove(final Map<K, Set<String>> index, final K key,
+      final String physicalTypeId) {
+    final Set<String> physicalTypeIds = index.get(key);
+    if (physicalTypeIds != null) {
+      physicalTypeIds.remove(physicalTypeId);
+      if (physicalTypeIds.isEmpty()) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private final Map<JavaType, Set<String>> annotationIndex = new HashMap<JavaType, Set<String>>();
+  private long generation;
+  private final Map<String, Set<String>> moduleIndex = new HashMap<String, Set<String>>();
+  private final Map<Object, Set<String>> tagIndex = new HashMap<Object, Set<String>>();
+  /** key: physical type identifier */
+  private final Map<String, IndexedType> types = new HashMap<String, IndexedType>();
+
+  /**
+   * Forgets every type
+   */
+  synchronized void clear() {
+    if (!types.isEmpty()) {
+      annotationIndex.clear();
+      moduleIndex.clear();
+      tagIndex.clear();
+      types.clear();
+      generation++;
+    }
+  }
+
+  /**
+   * Returns the types having all of the given annotations
+   *
+   * @param annotations the annotations to look for (required, not empty)
+   * @param module the module to look in (<code>null</code> for any module,
+   *            empty for the root module)
+   * @return the physical type identifiers of the types found, in no
+   *         particular order (never <code>null</code>)
+   */
+  synchronized Set<String> findWithAllAnnotations(final Collection<JavaType> annotations,
+      final String module) {
+    Validate.notEmpty(annotations, "Annotations required");
+    // Intersect the smallest sets first
+    final List<Set<String>> postings = new ArrayList<Set<String>>();
+    for (final JavaType annotation : annotations) {
+      postings.add(get(annotationIndex, annotation));
+    }
+    if (module != null) {
+      postings.add(get(moduleIndex, StringUtils.stripToEmpty(module)));
+    }
+    Set<String> smallest = postings.get(0);
+    for (final Set<String> posting : postings) {
+      if (posting.size() < smallest.size()) {
+        smallest = posting;
+      }
+    }
+    final Set<String> found = new LinkedHashSet<String>(smallest);
+    for (final Set<String> posting : postings) {
+      if (found.isEmpty()) {
+        break;
+      }
+      if (posting != smallest) {
+        found.retainAll(posting);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Returns the types having any of the given annotations
+   *
+   * @param annotations the annotations to look for (required)
+   * @param module the module to look in (<code>null</code> for any module,
+   *            empty for the root module)
+   * @return the physical type identifiers of the types found, grouped by
+   *         annotation in the given order (never <code>null</code>)
+   */
+  synchronized Set<String> findWithAnyAnnotation(final Collection<JavaType> annotations,
+      final String module) {
+    Validate.notNull(annotations, "Annotations required");
+    final Set<String> found = new LinkedHashSet<String>();
+    for (final JavaType annotation : annotations) {
+      found.addAll(get(annotationIndex, annotation));
+    }
+    return inModule(found, module);
+  }
+
+  /**
+   * Returns the types having the given tag
+   *
+   * @param tag the tag to look for (required)
+   * @param module the module to look in (<code>null</code> for any module,
+   *            empty for the root module)
+   * @return the physical type identifiers of the types found, in no
+   *         particular order (never <code>null</code>)
+   */
+  synchronized Set<String> findWithTag(final Object tag, final String module) {
+    Validate.notNull(tag, "Tag required");
+    return inModule(new LinkedHashSet<String>(get(tagIndex, tag)), module);
+  }
+
+  /**
+   * Returns the generation of this index, which changes whenever a type is
+   * added, removed or indexed differently
+   *
+   * @return a number that only ever increases
+   */
+  synchronized long getGeneration() {
+    return generation;
+  }
+
+  private Set<String> inModule(final Set<String> physicalTypeIds, final String module) {
+    if (module != null) {
+      physicalTypeIds.retainAll(get(moduleIndex, StringUtils.stripToEmpty(module)));
+    }
+    return physicalTypeIds;
+  }
+
+  /**
+   * Forgets the given type
+   *
+   * @param physicalTypeId the physical type identifier of the type (required)
+   * @return whether the type was indexed
+   */
+  synchronized boolean remove(final String physicalTypeId) {
+    Validate.notBlank(physicalTypeId, "Physical type identifier required");
+    final IndexedType indexed = types.remove(physicalTypeId);
+    if (indexed == null) {
+      return false;
+    }
+    unindex(physicalTypeId, indexed);
+    generation++;
+    return true;
+  }
+
+  private void unindex(final String physicalTypeId, final IndexedType indexed) {
+    for (final JavaType annotation : indexed.annotations) {
+      remove(annotationIndex, annotation, physicalTypeId);
+    }
+    for (final Object tag : indexed.tags) {
+      remove(tagIndex, tag, physicalTypeId);
+    }
+    remove(moduleIndex, indexed.module, physicalTypeId);
+  }
+
+  /**
+   * Indexes the given type under its current annotations, tags and module,
+   * replacing how it was previously indexed
+   *
+   * @param type the details of the type (required)
+   * @return whether the index changed
+   */
+  synchronized boolean update(final MemberHoldingTypeDetails type) {
+    Validate.notNull(type, "Member holding type details required");
+    final String physicalTypeId = type.getDeclaredByMetadataId();
+    final Set<JavaType> annotations = new HashSet<JavaType>();
+    for (final AnnotationMetadata annotation : type.getAnnotations()) {
+      annotations.add(annotation.getAnnotationType());
+    }
+    final IndexedType indexed =
+        new IndexedType(annotations, new HashSet<Object>(type.getCustomData().keySet()),
+            PhysicalTypeIdentifier.getPath(physicalTypeId).getModule());
+
+    final IndexedType previous = types.put(physicalTypeId, indexed);
+    if (previous != null) {
+      if (previous.isIndexedAs(indexed)) {
+        return false;
+      }
+      unindex(physicalTypeId, previous);
+    }
+    for (final JavaType annotation : indexed.annotations) {
+      add(annotationIndex, annotation, physicalTypeId);
+    }
+    for (final Object tag : indexed.tags) {
+      add(tagIndex, tag, physicalTypeId);
+    }
+    add(moduleIndex, indexed.module, physicalTypeId);
+    generation++;
+    return true;
+  }
+}
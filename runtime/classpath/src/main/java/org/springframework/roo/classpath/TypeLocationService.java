@@ -84,6 +84,31 @@ public interface TypeLocationService {
    */
   Set<ClassOrInterfaceTypeDetails> findClassesOrInterfaceDetailsWithTag(Object tag);
 
+  /**
+   * Returns the {@link JavaType}s that possess all of the specified
+   * annotations.
+   * 
+   * @param annotationsToDetect the annotations to detect on a type (at least
+   *            one)
+   * @return a set of types that have all the specified annotations.
+   * @since 2.0
+   */
+  Set<JavaType> findTypesWithAllAnnotations(JavaType... annotationsToDetect);
+
+  /**
+   * Returns the {@link JavaType}s of the given module that possess all of the
+   * specified annotations.
+   * 
+   * @param moduleName the name of the module to search (<code>null</code> for
+   *            any module, empty for the root module)
+   * @param annotationsToDetect the annotations to detect on a type (at least
+   *            one)
+   * @return a set of types that have all the specified annotations.
+   * @since 2.0
+   */
+  Set<JavaType> findTypesWithAllAnnotationsInModule(String moduleName,
+      JavaType... annotationsToDetect);
+
   /**
    * Returns a set of {@link JavaType}s that possess the specified annotations
    * (specified as a vararg).
@@ -103,6 +128,19 @@ public interface TypeLocationService {
    */
   Set<JavaType> findTypesWithAnnotation(List<JavaType> annotationsToDetect);
 
+  /**
+   * Returns the {@link JavaType}s of the given module that possess any of the
+   * specified annotations.
+   * 
+   * @param moduleName the name of the module to search (required, empty for
+   *            the root module)
+   * @param annotationsToDetect the annotations to detect on a type.
+   * @return a set of types that have any of the specified annotations.
+   * @since 2.0
+   */
+  Set<JavaType> findTypesWithAnnotationInModule(String moduleName,
+      JavaType... annotationsToDetect);
+
   /**
    * Returns a list with all JavaPackages for a given module.
    * 
@@ -268,6 +306,17 @@ public interface TypeLocationService {
   boolean hasModuleFeature(Pom module, ModuleFeatureName moduleFeatureName);
 
 
+  /**
+   * Returns the generation of the index of the project's types by annotation,
+   * tag and module. The generation changes whenever a type is added, removed,
+   * or gains or loses an annotation or tag, so callers can cache the results
+   * of their queries until it changes.
+   * 
+   * @return a number that only ever increases
+   * @since 2.0
+   */
+  long getTypeIndexGeneration();
+
   /**
    * Indicates whether the given type exists anywhere in the user project
    * 
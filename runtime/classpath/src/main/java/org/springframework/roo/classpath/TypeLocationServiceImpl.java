@@ -9,8 +9,6 @@ import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
-import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
-import org.springframework.roo.classpath.details.annotations.AnnotationMetadata;
 import org.springframework.roo.file.monitor.FileMonitorService;
 import org.springframework.roo.file.monitor.event.FileDetails;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
@@ -25,6 +23,7 @@ import org.springframework.roo.project.PhysicalPath;
 import org.springframework.roo.project.ProjectOperations;
 import org.springframework.roo.project.maven.Pom;
 import org.springframework.roo.shell.NaturalOrderComparator;
+import org.springframework.roo.shell.Shell;
 import org.springframework.roo.support.logging.HandlerUtils;
 import org.springframework.roo.support.util.FileUtils;
 
@@ -42,6 +41,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -81,6 +87,9 @@ public class TypeLocationServiceImpl implements TypeLocationService {
 
   private static final String JAVA_FILES_ANT_PATH = "**" + File.separatorChar + "*.java";
 
+  /** How many files to preparse per processor at once */
+  private static final int PREPARSED_FILES_PER_THREAD = 16;
+
   /**
    * Returns all packages leading up to the given package, e.g. if the given
    * package is "com.foo.bar", returns ["com", "com.foo", "com.foo.bar"].
@@ -152,18 +161,17 @@ public class TypeLocationServiceImpl implements TypeLocationService {
   private FileManager fileManager;
   private FileMonitorService fileMonitorService;
   private MetadataService metadataService;
+  private MetadataSnapshotService metadataSnapshotService;
   private ProjectOperations projectOperations;
+  private Shell shell;
   private TypeCache typeCache;
+  private TypeParsingService typeParsingService;
   private TypeResolutionService typeResolutionService;
 
-  private final Map<JavaType, Set<String>> annotationToMidMap =
-      new HashMap<JavaType, Set<String>>();
   private final Map<String, Set<String>> changeMap = new HashMap<String, Set<String>>();
   private final Set<String> dirtyFiles = new HashSet<String>();
   private final Set<String> discoveredTypes = new HashSet<String>();
-  private final Map<String, Set<Object>> typeCustomDataMap = new HashMap<String, Set<Object>>();
-  private final Map<Object, Set<String>> tagToMidMap = new HashMap<Object, Set<String>>();
-  private final Map<String, Set<JavaType>> typeAnnotationMap = new HashMap<String, Set<JavaType>>();
+  private final TypeIndex typeIndex = new TypeIndex();
 
   private void cacheType(final String fileCanonicalPath) {
     Validate.notBlank(fileCanonicalPath, "File canonical path required");
@@ -174,6 +182,7 @@ public class TypeLocationServiceImpl implements TypeLocationService {
         final ClassOrInterfaceTypeDetails cid = lookupClassOrInterfaceTypeDetails(id);
         if (cid == null) {
           if (!getFileManager().exists(fileCanonicalPath)) {
+            typeIndex.remove(id);
             getTypeCache().removeType(id);
             final JavaType type = getTypeCache().getTypeDetails(id).getName();
             updateChanges(type.getFullyQualifiedTypeName(), true);
@@ -181,7 +190,7 @@ public class TypeLocationServiceImpl implements TypeLocationService {
           return;
         }
         getTypeCache().cacheType(fileCanonicalPath, cid);
-        updateAttributeCache(cid);
+        typeIndex.update(cid);
         updateChanges(cid.getName().getFullyQualifiedTypeName(), false);
       }
     }
@@ -239,6 +248,18 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     return Collections.unmodifiableSet(types);
   }
 
+  public Set<JavaType> findTypesWithAllAnnotations(final JavaType... annotationsToDetect) {
+    return findTypesWithAllAnnotationsInModule(null, annotationsToDetect);
+  }
+
+  public Set<JavaType> findTypesWithAllAnnotationsInModule(final String moduleName,
+      final JavaType... annotationsToDetect) {
+    Validate.notEmpty(annotationsToDetect, "Annotations to detect required");
+    updateTypeCache();
+    return getTypes(typeIndex.findWithAllAnnotations(Arrays.asList(annotationsToDetect),
+        moduleName));
+  }
+
   public Set<JavaType> findTypesWithAnnotation(final JavaType... annotationsToDetect) {
     return findTypesWithAnnotation(Arrays.asList(annotationsToDetect));
   }
@@ -256,6 +277,14 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     return Collections.unmodifiableSet(types);
   }
 
+  public Set<JavaType> findTypesWithAnnotationInModule(final String moduleName,
+      final JavaType... annotationsToDetect) {
+    Validate.notNull(moduleName, "Module name required");
+    updateTypeCache();
+    return getTypes(typeIndex.findWithAnyAnnotation(Arrays.asList(annotationsToDetect),
+        moduleName));
+  }
+
   public List<JavaPackage> getPackagesForModule(Pom module) {
     List<JavaPackage> packages = new ArrayList<JavaPackage>();
     for (JavaType type : getTypesForModule(module)) {
@@ -517,6 +546,23 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     return PhysicalTypeIdentifier.getPath(physicalTypeId);
   }
 
+  /**
+   * Returns the names of the given types, ignoring any no longer known
+   * 
+   * @param physicalTypeIds the physical type identifiers of the types
+   * @return an unmodifiable set in the same order
+   */
+  private Set<JavaType> getTypes(final Set<String> physicalTypeIds) {
+    final Set<JavaType> types = new LinkedHashSet<JavaType>();
+    for (final String physicalTypeId : physicalTypeIds) {
+      final ClassOrInterfaceTypeDetails located = getTypeCache().getTypeDetails(physicalTypeId);
+      if (located != null) {
+        types.add(located.getName());
+      }
+    }
+    return Collections.unmodifiableSet(types);
+  }
+
   public Collection<JavaType> getTypesForModule(final Pom module) {
     if ("pom".equals(module.getPackaging())) {
       return Collections.emptySet();
@@ -534,6 +580,11 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     return getTypeCache().getTypeNamesForModuleFilePath(modulePath);
   }
 
+  public long getTypeIndexGeneration() {
+    updateTypeCache();
+    return typeIndex.getGeneration();
+  }
+
   public boolean hasTypeChanged(final String requestingClass, final JavaType javaType) {
     Validate.notNull(requestingClass, "Requesting class required");
     Validate.notNull(javaType, "Java type required");
@@ -557,16 +608,98 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     return false;
   }
 
-  private void initTypeMap() {
+  /**
+   * Finds the Java files in every source path of every module, searching the
+   * source paths concurrently
+   * 
+   * @param executor the executor to search the source paths on (required)
+   * @return the canonical paths of the files, those of each source path
+   *         following those of the previous one (never <code>null</code>)
+   */
+  private List<String> findJavaFiles(final ExecutorService executor) {
+    final List<String> antPaths = new ArrayList<String>();
     for (final Pom pom : getProjectOperations().getPoms()) {
       for (final PhysicalPath path : pom.getPhysicalPaths()) {
         if (path.isSource()) {
-          final String allJavaFiles =
-              FileUtils.ensureTrailingSeparator(path.getLocationPath()) + JAVA_FILES_ANT_PATH;
-          for (final FileDetails file : getFileManager().findMatchingAntPath(allJavaFiles)) {
-            cacheType(file.getCanonicalPath());
+          antPaths.add(FileUtils.ensureTrailingSeparator(path.getLocationPath())
+              + JAVA_FILES_ANT_PATH);
+        }
+      }
+    }
+    final List<String> javaFiles = new ArrayList<String>();
+    if (antPaths.isEmpty()) {
+      return javaFiles;
+    }
+    final FileManager fileManager = getFileManager();
+    final List<Future<SortedSet<FileDetails>>> searches =
+        new ArrayList<Future<SortedSet<FileDetails>>>();
+    try {
+      for (final String antPath : antPaths) {
+        searches.add(executor.submit(new Callable<SortedSet<FileDetails>>() {
+          public SortedSet<FileDetails> call() {
+            return fileManager.findMatchingAntPath(antPath);
           }
+        }));
+      }
+      for (final Future<SortedSet<FileDetails>> search : searches) {
+        for (final FileDetails file : search.get()) {
+          javaFiles.add(file.getCanonicalPath());
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while finding the project's types", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      for (final Future<SortedSet<FileDetails>> search : searches) {
+        search.cancel(true);
+      }
+    }
+    return javaFiles;
+  }
+
+  /**
+   * Caches every type in the project. The files are found, then parsed ahead
+   * of time a batch at a time, on one pool of as many threads as there are
+   * processors; the types are then built and cached one by one, as building
+   * a type can look up the metadata of other types. Progress is reported
+   * through the shell.
+   */
+  private void initTypeMap() {
+    final int threads = Runtime.getRuntime().availableProcessors();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final TypeParsingService typeParsingService = getTypeParsingService();
+    final Shell shell = getShell();
+    final int batchSize = PREPARSED_FILES_PER_THREAD * threads;
+    long lastNotified = System.currentTimeMillis();
+    try {
+      final List<String> javaFiles = findJavaFiles(executor);
+      for (int start = 0; start < javaFiles.size(); start += batchSize) {
+        final List<String> batch =
+            javaFiles.subList(start, Math.min(javaFiles.size(), start + batchSize));
+        if (typeParsingService != null) {
+          typeParsingService.preparse(batch, executor);
+        }
+        for (final String javaFile : batch) {
+          cacheType(javaFile);
         }
+        if (shell != null && System.currentTimeMillis() > lastNotified + 1000) {
+          shell.flash(Level.FINE, "Discovered " + (start + batch.size()) + " of "
+              + javaFiles.size() + " types", TypeLocationServiceImpl.class.getName());
+          lastNotified = System.currentTimeMillis();
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+      if (typeParsingService != null) {
+        typeParsingService.releasePreparsed();
+      }
+      if (shell != null) {
+        shell.flash(Level.FINE, "", TypeLocationServiceImpl.class.getName());
       }
     }
   }
@@ -596,85 +729,29 @@ public class TypeLocationServiceImpl implements TypeLocationService {
       final LocatedTypeCallback callback) {
     Validate.notNull(annotationsToDetect, "Annotations to detect required");
     Validate.notNull(callback, "Callback required");
-    // If the cache doesn't yet contain the annotation to be found it should
-    // be added
-    for (final JavaType annotationType : annotationsToDetect) {
-      if (!annotationToMidMap.containsKey(annotationType)) {
-        annotationToMidMap.put(annotationType, new HashSet<String>());
-      }
-    }
-
     // Before processing the call any changes to the project should be
-    // processed and the cache updated accordingly
+    // processed and the index updated accordingly
     updateTypeCache();
 
-    for (final JavaType annotationType : annotationsToDetect) {
-      for (final String locatedMid : annotationToMidMap.get(annotationType)) {
-        final ClassOrInterfaceTypeDetails located = getTypeCache().getTypeDetails(locatedMid);
-        callback.process(located);
-      }
+    for (final String locatedMid : typeIndex.findWithAnyAnnotation(annotationsToDetect, null)) {
+      final ClassOrInterfaceTypeDetails located = getTypeCache().getTypeDetails(locatedMid);
+      callback.process(located);
     }
   }
 
   private void processTypesWithTag(final Object tag, final LocatedTypeCallback callback) {
     Validate.notNull(tag, "Tag required");
     Validate.notNull(callback, "Callback required");
-    // If the cache doesn't yet contain the tag it should be added
-    if (!tagToMidMap.containsKey(tag)) {
-      tagToMidMap.put(tag, new HashSet<String>());
-    }
-
     // Before processing the call any changes to the project should be
-    // processed and the cache updated accordingly
+    // processed and the index updated accordingly
     updateTypeCache();
 
-    for (final String locatedMid : tagToMidMap.get(tag)) {
+    for (final String locatedMid : typeIndex.findWithTag(tag, null)) {
       final ClassOrInterfaceTypeDetails located = getTypeCache().getTypeDetails(locatedMid);
       callback.process(located);
     }
   }
 
-  private void updateAttributeCache(final MemberHoldingTypeDetails cid) {
-    Validate.notNull(cid, "Member holding type details required");
-    if (!typeAnnotationMap.containsKey(cid.getDeclaredByMetadataId())) {
-      typeAnnotationMap.put(cid.getDeclaredByMetadataId(), new HashSet<JavaType>());
-    }
-    if (!typeCustomDataMap.containsKey(cid.getDeclaredByMetadataId())) {
-      typeCustomDataMap.put(cid.getDeclaredByMetadataId(), new HashSet<Object>());
-    }
-    final Set<JavaType> previousAnnotations = typeAnnotationMap.get(cid.getDeclaredByMetadataId());
-    for (final JavaType previousAnnotation : previousAnnotations) {
-      final Set<String> midSet = annotationToMidMap.get(previousAnnotation);
-      if (midSet != null) {
-        midSet.remove(cid.getDeclaredByMetadataId());
-      }
-    }
-    previousAnnotations.clear();
-    for (final AnnotationMetadata annotationMetadata : cid.getAnnotations()) {
-      if (!annotationToMidMap.containsKey(annotationMetadata.getAnnotationType())) {
-        annotationToMidMap.put(annotationMetadata.getAnnotationType(), new HashSet<String>());
-      }
-      previousAnnotations.add(annotationMetadata.getAnnotationType());
-      annotationToMidMap.get(annotationMetadata.getAnnotationType()).add(
-          cid.getDeclaredByMetadataId());
-    }
-    final Set<Object> previousCustomDataSet = typeCustomDataMap.get(cid.getDeclaredByMetadataId());
-    for (final Object previousCustomData : previousCustomDataSet) {
-      final Set<String> midSet = tagToMidMap.get(previousCustomData);
-      if (midSet != null) {
-        midSet.remove(cid.getDeclaredByMetadataId());
-      }
-    }
-    previousCustomDataSet.clear();
-    for (final Object customData : cid.getCustomData().keySet()) {
-      if (!tagToMidMap.containsKey(customData)) {
-        tagToMidMap.put(customData, new HashSet<String>());
-      }
-      previousCustomDataSet.add(customData);
-      tagToMidMap.get(customData).add(cid.getDeclaredByMetadataId());
-    }
-  }
-
   private void updateChanges(final String typeName, final boolean remove) {
     Validate.notNull(typeName, "Type name required");
     for (final String requestingClass : changeMap.keySet()) {
@@ -688,6 +765,12 @@ public class TypeLocationServiceImpl implements TypeLocationService {
 
   private void updateTypeCache() {
     if (getTypeCache().getAllTypeIdentifiers().isEmpty()) {
+      // Reuse where the previous session found the unchanged types; they're
+      // all still parsed and cached below
+      final MetadataSnapshotService metadataSnapshotService = getMetadataSnapshotService();
+      if (metadataSnapshotService != null) {
+        metadataSnapshotService.restore();
+      }
       initTypeMap();
     }
     discoverTypes();
@@ -823,6 +906,28 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     }
   }
 
+  public MetadataSnapshotService getMetadataSnapshotService() {
+    if (metadataSnapshotService == null) {
+      // Get all Services implement MetadataSnapshotService interface
+      try {
+        ServiceReference<?>[] references =
+            context.getAllServiceReferences(MetadataSnapshotService.class.getName(), null);
+
+        for (ServiceReference<?> ref : references) {
+          return (MetadataSnapshotService) context.getService(ref);
+        }
+
+        return null;
+
+      } catch (InvalidSyntaxException e) {
+        LOGGER.warning("Cannot load MetadataSnapshotService on TypeLocationServiceImpl.");
+        return null;
+      }
+    } else {
+      return metadataSnapshotService;
+    }
+  }
+
   public ProjectOperations getProjectOperations() {
     if (projectOperations == null) {
       // Get all Services implement ProjectOperations interface
@@ -845,6 +950,28 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     }
   }
 
+  public Shell getShell() {
+    if (shell == null) {
+      // Get all Services implement Shell interface
+      try {
+        ServiceReference<?>[] references =
+            context.getAllServiceReferences(Shell.class.getName(), null);
+
+        for (ServiceReference<?> ref : references) {
+          return (Shell) context.getService(ref);
+        }
+
+        return null;
+
+      } catch (InvalidSyntaxException e) {
+        LOGGER.warning("Cannot load Shell on TypeLocationServiceImpl.");
+        return null;
+      }
+    } else {
+      return shell;
+    }
+  }
+
   public TypeCache getTypeCache() {
     if (typeCache == null) {
       // Get all Services implement TypeCache interface
@@ -867,6 +994,28 @@ public class TypeLocationServiceImpl implements TypeLocationService {
     }
   }
 
+  public TypeParsingService getTypeParsingService() {
+    if (typeParsingService == null) {
+      // Get all Services implement TypeParsingService interface
+      try {
+        ServiceReference<?>[] references =
+            context.getAllServiceReferences(TypeParsingService.class.getName(), null);
+
+        for (ServiceReference<?> ref : references) {
+          return (TypeParsingService) context.getService(ref);
+        }
+
+        return null;
+
+      } catch (InvalidSyntaxException e) {
+        LOGGER.warning("Cannot load TypeParsingService on TypeLocationServiceImpl.");
+        return null;
+      }
+    } else {
+      return typeParsingService;
+    }
+  }
+
   public TypeResolutionService getTypeResolutionService() {
     if (typeResolutionService == null) {
       // Get all Services implement TypeResolutionService interface
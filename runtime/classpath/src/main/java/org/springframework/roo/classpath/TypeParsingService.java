@@ -1,5 +1,8 @@
 package org.springframework.roo.classpath;
 
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+
 import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.model.JavaType;
 
@@ -58,6 +61,29 @@ public interface TypeParsingService {
   ClassOrInterfaceTypeDetails getTypeFromString(String typeContents, String declaredByMetadataId,
       JavaType javaType);
 
+  /**
+   * Parses the given files ahead of time, so that reading their types and
+   * packages one by one afterwards needn't parse them again. Implementations
+   * may parse the files concurrently on the given executor, and keep only
+   * the last files given, so callers about to read many files should pass
+   * them a batch at a time, and call {@link #releasePreparsed()} once
+   * done. A file changed after being preparsed is parsed again when read.
+   * 
+   * @param fileIdentifiers the canonical paths of the files about to be read
+   *            (required)
+   * @param executor the executor to parse the files on (required)
+   * @since 2.0
+   */
+  void preparse(Collection<String> fileIdentifiers, ExecutorService executor);
+
+  /**
+   * Forgets the files last given to {@link #preparse(Collection, ExecutorService)},
+   * releasing what was kept of them
+   * 
+   * @since 2.0
+   */
+  void releasePreparsed();
+
   /**
    * Returns the compilation unit contents that represents the java file
    * updated with the passed class or interface details. The difference with
@@ -199,7 +199,13 @@ public class DefaultItdTypeDetails extends AbstractMemberHoldingTypeDetails impl
       hash *= includeCustomDataHash(declaredConstructors);
       hash *= includeCustomDataHash(declaredFields);
       hash *= includeCustomDataHash(declaredMethods);
-      hash *= new ItdSourceFileComposer(this).getOutput().hashCode();
+      final ItdSourceFileComposer composer = new ItdSourceFileComposer(this, true);
+      try {
+        final long outputHash = composer.getOutputHash();
+        hash *= (int) (outputHash ^ outputHash >>> 32);
+      } finally {
+        composer.release();
+      }
       this.hashCode = hash;
     }
     return hashCode;
@@ -281,18 +281,23 @@ public abstract class AbstractItdMetadataProvider extends AbstractHashCodeTracki
         // We have some members in the ITD, so decide if we're to write
         // something to disk
         final ItdSourceFileComposer itdSourceFileComposer =
-            new ItdSourceFileComposer(metadata.getMemberHoldingTypeDetails());
-
-        // Decide whether the get an ITD on-disk based on whether there
-        // is physical content to write
-        if (itdSourceFileComposer.isContent()) {
-          // We have content to write
-          getItdDiscoveryService().addItdTypeDetails(itdTypeDetails);
-          final String itd = itdSourceFileComposer.getOutput();
-          getFileManager().createOrUpdateTextFileIfRequired(itdFilename, itd, false);
-        } else {
-          // We don't have content to write
-          deleteItdFile = true;
+            new ItdSourceFileComposer(metadata.getMemberHoldingTypeDetails(), true);
+        try {
+          // Decide whether the get an ITD on-disk based on whether there
+          // is physical content to write
+          if (itdSourceFileComposer.isContent()) {
+            // We have content to write; it's only copied out of the
+            // composer's buffer if the file doesn't already contain it
+            getItdDiscoveryService().addItdTypeDetails(itdTypeDetails);
+            getFileManager().createOrUpdateTextFileIfRequired(itdFilename,
+                itdSourceFileComposer.getOutputBuffer(), itdSourceFileComposer.getOutputHash(),
+                false);
+          } else {
+            // We don't have content to write
+            deleteItdFile = true;
+          }
+        } finally {
+          itdSourceFileComposer.release();
         }
       }
 
@@ -30,9 +30,16 @@ import org.springframework.roo.model.ImportRegistrationResolver;
 import org.springframework.roo.model.ImportRegistrationResolverImpl;
 import org.springframework.roo.model.JavaSymbolName;
 import org.springframework.roo.model.JavaType;
+import org.springframework.roo.support.util.ContentHashUtils;
 
 /**
  * A simple way of producing an inter-type declaration source file.
+ * <p>
+ * A composer created with a reusable buffer composes into a buffer kept by
+ * the current thread, avoiding growing a new one for each large ITD. Its
+ * output must then be read through {@link #getOutputBuffer()} and
+ * {@link #getOutputHash()}, before the composer is {@link #release()
+ * released}.
  *
  * @author Ben Alex
  * @author Stefan Schmidt
@@ -51,13 +58,31 @@ public class ItdSourceFileComposer {
       "TODO Auto-generated method documentation";
   private static final String AUTOGENERATED_CONSTRUCTOR_JAVADOC =
       "TODO Auto-generated constructor documentation";
+  /** Larger buffers (in chars) aren't kept for reuse */
+  private static final int MAX_REUSED_BUFFER_CAPACITY = 1024 * 1024;
+  private static final ThreadLocal<StringBuilder> REUSABLE_BUFFER =
+      new ThreadLocal<StringBuilder>();
+
+  private static StringBuilder acquireBuffer() {
+    final StringBuilder buffer = REUSABLE_BUFFER.get();
+    if (buffer == null) {
+      // None yet, or it's being used further up the stack
+      return new StringBuilder();
+    }
+    REUSABLE_BUFFER.remove();
+    buffer.setLength(0);
+    return buffer;
+  }
+
   private final JavaType aspect;
   private boolean content;
   private int indentLevel = 0;
   private final JavaType introductionTo;
   private final ItdTypeDetails itdTypeDetails;
-  private StringBuilder pw = new StringBuilder();
+  private Long outputHash;
+  private StringBuilder pw;
   private final ImportRegistrationResolver resolver;
+  private final boolean reusingBuffer;
 
   /**
    * Constructs an {@link ItdSourceFileComposer} containing the members that
@@ -66,10 +91,26 @@ public class ItdSourceFileComposer {
    * @param itdTypeDetails to construct (required)
    */
   public ItdSourceFileComposer(final ItdTypeDetails itdTypeDetails) {
+    this(itdTypeDetails, false);
+  }
+
+  /**
+   * Constructs an {@link ItdSourceFileComposer} containing the members that
+   * were requested in the passed object.
+   *
+   * @param itdTypeDetails to construct (required)
+   * @param reuseBuffer whether to compose into the current thread's reusable
+   *            buffer, in which case the composer must be {@link #release()
+   *            released} once its output has been used
+   * @since 2.0
+   */
+  public ItdSourceFileComposer(final ItdTypeDetails itdTypeDetails, final boolean reuseBuffer) {
     Validate.notNull(itdTypeDetails, "ITD type details required");
     Validate.notNull(itdTypeDetails.getName(), "Introduction to is required");
 
     this.itdTypeDetails = itdTypeDetails;
+    reusingBuffer = reuseBuffer;
+    pw = reuseBuffer ? acquireBuffer() : new StringBuilder();
     introductionTo = itdTypeDetails.getName();
     aspect = itdTypeDetails.getAspect();
 
@@ -597,7 +638,34 @@ public class ItdSourceFileComposer {
   }
 
   public String getOutput() {
-    return pw.toString();
+    return getOutputBuffer().toString();
+  }
+
+  /**
+   * Returns the output without copying it, for example to compare it with a
+   * file's contents. If this composer reuses a buffer, the output is only
+   * available until it's {@link #release() released}.
+   *
+   * @return a non-<code>null</code> sequence
+   * @since 2.0
+   */
+  public CharSequence getOutputBuffer() {
+    Validate.validState(pw != null, "ITD output has been released");
+    return pw;
+  }
+
+  /**
+   * Returns the {@link ContentHashUtils#hash(CharSequence) hash} of the
+   * output, computed once in a single pass over the buffer.
+   *
+   * @return the hash
+   * @since 2.0
+   */
+  public long getOutputHash() {
+    if (outputHash == null) {
+      outputHash = ContentHashUtils.hash(getOutputBuffer());
+    }
+    return outputHash;
   }
 
   /**
@@ -682,11 +750,25 @@ public class ItdSourceFileComposer {
       topOfFile.append(NEW_LINE);
     }
 
-    // Now append the normal file to the bottom
-    topOfFile.append(pw.toString());
+    // Now insert it above the normal file, shifting rather than copying it
+    pw.insert(0, topOfFile);
+  }
 
-    // Replace the old writer with out new writer
-    pw = topOfFile;
+  /**
+   * Hands this composer's buffer back to the current thread for reuse, if it
+   * was created with a reusable buffer; its output is then unavailable. Has
+   * no effect otherwise, or if already released.
+   *
+   * @since 2.0
+   */
+  public void release() {
+    if (!reusingBuffer || pw == null) {
+      return;
+    }
+    if (pw.capacity() <= MAX_REUSED_BUFFER_CAPACITY) {
+      REUSABLE_BUFFER.set(pw);
+    }
+    pw = null;
   }
 
   private void writeImports(final StringBuilder topOfFile, final SortedMap<JavaType, Boolean> types) {
@@ -0,0 +1,234 @@
+package org.springframework.roo.classpath.scanner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.metadata.MetadataIdentificationUtils;
+import org.springframework.roo.metadata.MetadataItem;
+import org.springframework.roo.metadata.MetadataService;
+
+/**
+ * Remembers the undecorated members found for each governor, per requesting
+ * class, along with the class hierarchy and the ITD metadata they were found
+ * from.
+ * <p>
+ * An entry is forgotten as soon as any metadata it was found from is
+ * {@link #evict(String) evicted}. As such evictions may arrive after other
+ * metadata was refreshed, an entry is also only used while the same class
+ * hierarchy is presented and the {@link MetadataService} still caches the
+ * same ITD metadata, which only takes a lookup in its cache per ITD.
+ * <p>
+ * The cache holds at most {@value #DEFAULT_MAXIMUM_SIZE} entries by default
+ * (see {@value #MAXIMUM_SIZE_PROPERTY}), evicting the least recently used ones.
+ *
+ * @since 2.0
+ */
+class MemberDetailsCache {
+
+  /**
+   * The members found for a governor
+   */
+  private static class Members {
+
+    private final List<ClassOrInterfaceTypeDetails> hierarchy;
+    /** key: ITD metadata ID, value: the metadata, if any */
+    private final Map<String, MetadataItem> itds;
+    private final List<MemberHoldingTypeDetails> memberHoldingTypeDetails;
+
+    private Members(final List<ClassOrInterfaceTypeDetails> hierarchy,
+        final Map<String, MetadataItem> itds,
+        final List<MemberHoldingTypeDetails> memberHoldingTypeDetails) {
+      this.hierarchy = new ArrayList<ClassOrInterfaceTypeDetails>(hierarchy);
+      this.itds = new HashMap<String, MetadataItem>(itds);
+      this.memberHoldingTypeDetails =
+          new ArrayList<MemberHoldingTypeDetails>(memberHoldingTypeDetails);
+    }
+
+    private Set<String> getDependencies() {
+      final Set<String> dependencies = new HashSet<String>(itds.keySet());
+      for (final ClassOrInterfaceTypeDetails type : hierarchy) {
+        dependencies.add(type.getDeclaredByMetadataId());
+      }
+      return dependencies;
+    }
+
+    private boolean isCurrent(final List<ClassOrInterfaceTypeDetails> hierarchy,
+        final MetadataService metadataService) {
+      if (hierarchy.size() != this.hierarchy.size()) {
+        return false;
+      }
+      for (int i = 0; i < hierarchy.size(); i++) {
+        if (hierarchy.get(i) != this.hierarchy.get(i)) {
+          return false;
+        }
+      }
+      for (final Map.Entry<String, MetadataItem> itd : itds.entrySet()) {
+        if (metadataService.getIfCached(itd.getKey()) != itd.getValue()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  static final int DEFAULT_MAXIMUM_SIZE = 5000;
+  static final String MAXIMUM_SIZE_PROPERTY = "roo.member.details.cache.size";
+
+  private static String getKey(final String requestingClass, final String governorId) {
+    return governorId + " " + requestingClass;
+  }
+
+  /** key: requesting class and governor */
+  private final Map<String, Members> entries;
+  private long evictions;
+  private long hits;
+  /** key: metadata ID, value: the keys of the entries found from it */
+  private final Map<String, Set<String>> keysByDependency = new HashMap<String, Set<String>>();
+  private final int maximumSize;
+  private long misses;
+
+  /**
+   * Constructor that reads the maximum size from the
+   * {@value #MAXIMUM_SIZE_PROPERTY} system property
+   */
+  MemberDetailsCache() {
+    this(Integer.getInteger(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param maximumSize the maximum number of entries (0 disables the cache)
+   */
+  MemberDetailsCache(final int maximumSize) {
+    this.maximumSize = maximumSize;
+    entries = new LinkedHashMap<String, Members>(16, 0.75f, true);
+  }
+
+  /**
+   * Forgets the entries found from the given metadata
+   *
+   * @param metadataId the metadata ID; if it identifies a class, every entry
+   *            is forgotten
+   */
+  synchronized void evict(final String metadataId) {
+    if (MetadataIdentificationUtils.isIdentifyingClass(metadataId)) {
+      evictions += entries.size();
+      entries.clear();
+      keysByDependency.clear();
+      return;
+    }
+    final Set<String> keys = keysByDependency.remove(metadataId);
+    if (keys != null) {
+      for (final String key : keys) {
+        if (remove(key)) {
+          evictions++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the undecorated members of the given governor, if they're still
+   * current. This method doesn't hold the cache's lock while checking the
+   * metadata.
+   *
+   * @param requestingClass the class the members were found for
+   * @param hierarchy the governor's class hierarchy, starting from its
+   *            top-most superclass (required, not empty)
+   * @param metadataService the service to check the ITD metadata against
+   *            (required)
+   * @return <code>null</code> if they must be found again
+   */
+  List<MemberHoldingTypeDetails> get(final String requestingClass,
+      final List<ClassOrInterfaceTypeDetails> hierarchy, final MetadataService metadataService) {
+    final Members members;
+    synchronized (this) {
+      members = entries.get(getKey(requestingClass, getGovernorId(hierarchy)));
+    }
+    final boolean current = members != null && members.isCurrent(hierarchy, metadataService);
+    synchronized (this) {
+      if (current) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    return current ? members.memberHoldingTypeDetails : null;
+  }
+
+  private String getGovernorId(final List<ClassOrInterfaceTypeDetails> hierarchy) {
+    return hierarchy.get(hierarchy.size() - 1).getDeclaredByMetadataId();
+  }
+
+  /**
+   * Remembers the undecorated members found for the given governor
+   *
+   * @param requestingClass the class the members were found for
+   * @param hierarchy the governor's class hierarchy, starting from its
+   *            top-most superclass (required, not empty)
+   * @param itds the ITD metadata consulted, by ID, including those that
+   *            weren't available (required)
+   * @param memberHoldingTypeDetails the members found (required)
+   */
+  synchronized void put(final String requestingClass,
+      final List<ClassOrInterfaceTypeDetails> hierarchy, final Map<String, MetadataItem> itds,
+      final List<MemberHoldingTypeDetails> memberHoldingTypeDetails) {
+    if (maximumSize <= 0) {
+      return;
+    }
+    final String key = getKey(requestingClass, getGovernorId(hierarchy));
+    remove(key);
+    final Members members = new Members(hierarchy, itds, memberHoldingTypeDetails);
+    entries.put(key, members);
+    for (final String dependency : members.getDependencies()) {
+      Set<String> keys = keysByDependency.get(dependency);
+      if (keys == null) {
+        keys = new HashSet<String>();
+        keysByDependency.put(dependency, keys);
+      }
+      keys.add(key);
+    }
+    if (entries.size() > maximumSize) {
+      remove(entries.keySet().iterator().next());
+      evictions++;
+    }
+  }
+
+  private boolean remove(final String key) {
+    final Members members = entries.remove(key);
+    if (members == null) {
+      return false;
+    }
+    for (final String dependency : members.getDependencies()) {
+      final Set<String> keys = keysByDependency.get(dependency);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByDependency.remove(dependency);
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized String toString() {
+    final ToStringBuilder builder = new ToStringBuilder(this);
+    builder.append("hits", hits);
+    builder.append("misses", misses);
+    builder.append("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    builder.append("evictions", evictions);
+    builder.append("currentSize", entries.size());
+    builder.append("maximumSize", maximumSize);
+    return builder.toString().replaceFirst("@[0-9a-f]+", ":");
+  }
+}
@@ -2,7 +2,9 @@ package org.springframework.roo.classpath.scanner;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.logging.Logger;
@@ -20,8 +22,10 @@ import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
 import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
 import org.springframework.roo.classpath.itd.ItdMetadataProvider;
 import org.springframework.roo.classpath.itd.ItdTypeDetailsProvidingMetadataItem;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
 import org.springframework.roo.metadata.MetadataItem;
+import org.springframework.roo.metadata.MetadataNotificationListener;
 import org.springframework.roo.metadata.MetadataProvider;
 import org.springframework.roo.metadata.MetadataService;
 import org.osgi.framework.BundleContext;
@@ -42,13 +46,19 @@ import org.springframework.roo.support.logging.HandlerUtils;
  * the metadata infrastructure does not require special type naming approaches
  * to be employed. The ordering behaviour exists solely to simplify debugging
  * for add-on developers and log comparison between invocations.
+ * <p>
+ * The members found in the governor and its ITDs are cached per requesting
+ * class until the metadata they were found from changes, as notified through
+ * the {@link MetadataDependencyRegistry}; the decorators are still run on
+ * every call.
  * 
  * @author Ben Alex
  * @since 1.1
  */
 @Component
 @Service
-public class MemberDetailsScannerImpl implements MemberDetailsScanner {
+public class MemberDetailsScannerImpl implements MemberDetailsScanner,
+    MetadataNotificationListener {
 
   protected final static Logger LOGGER = HandlerUtils.getLogger(MemberDetailsScannerImpl.class);
 
@@ -56,6 +66,7 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
   private BundleContext context;
 
   protected MetadataService metadataService;
+  private MetadataDependencyRegistry metadataDependencyRegistry;
 
   protected void activate(final ComponentContext context) {
     this.context = context.getBundleContext();
@@ -71,6 +82,8 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
   // Mutex
   private final Object lock = new Object();
 
+  private final MemberDetailsCache memberDetailsCache = new MemberDetailsCache();
+
   private final SortedSet<MetadataProvider> providers = new TreeSet<MetadataProvider>(
       new Comparator<MetadataProvider>() {
         public int compare(final MetadataProvider o1, final MetadataProvider o2) {
@@ -117,7 +130,9 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
   }
 
   protected void deactivate(final ComponentContext componentContext) {
-    // Empty
+    if (metadataDependencyRegistry != null) {
+      metadataDependencyRegistry.removeNotificationListener(this);
+    }
   }
 
   public final MemberDetails getMemberDetails(final String requestingClass,
@@ -127,6 +142,13 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
       metadataService = getMetadataService();
     }
 
+    if (metadataDependencyRegistry == null) {
+      metadataDependencyRegistry = getMetadataDependencyRegistry();
+      if (metadataDependencyRegistry != null) {
+        metadataDependencyRegistry.addNotificationListener(this);
+      }
+    }
+
     if (providers.isEmpty()) {
       bindProviders();
     }
@@ -139,10 +161,6 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
       return null;
     }
     synchronized (lock) {
-      // Create a list of discovered members
-      final List<MemberHoldingTypeDetails> memberHoldingTypeDetails =
-          new ArrayList<MemberHoldingTypeDetails>();
-
       // Build a List representing the class hierarchy, where the first
       // element is the absolute superclass
       final List<ClassOrInterfaceTypeDetails> cidHierarchy =
@@ -152,48 +170,11 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
         cid = cid.getSuperclass();
       }
 
-      // Now we add this governor, plus all of its superclasses
-      for (final ClassOrInterfaceTypeDetails currentClass : cidHierarchy) {
-        memberHoldingTypeDetails.add(currentClass);
-
-        // Locate all MetadataProvider instances that provide ITDs and
-        // thus MemberHoldingTypeDetails information
-        for (final MetadataProvider mp : providers) {
-          // Skip non-ITD providers
-          if (!(mp instanceof ItdMetadataProvider)) {
-            continue;
-          }
-
-          // Skip myself
-          if (mp.getClass().getName().equals(requestingClass)) {
-            continue;
-          }
-
-          // Determine the key the ITD provider uses for this
-          // particular type
-          final String key =
-              ((ItdMetadataProvider) mp).getIdForPhysicalJavaType(currentClass
-                  .getDeclaredByMetadataId());
-          Validate.isTrue(MetadataIdentificationUtils.isIdentifyingInstance(key),
-              "ITD metadata provider '%s' returned an illegal key ('%s')", mp, key);
-
-          // Get the metadata and ensure we have ITD type details
-          // available
-          final MetadataItem metadataItem = metadataService.get(key);
-          if (metadataItem == null || !metadataItem.isValid()) {
-            continue;
-          }
-          Validate.isInstanceOf(ItdTypeDetailsProvidingMetadataItem.class, metadataItem,
-              "ITD metadata provider '%s' failed to return the correct metadata type", mp);
-          final ItdTypeDetailsProvidingMetadataItem itdTypeDetailsMd =
-              (ItdTypeDetailsProvidingMetadataItem) metadataItem;
-          if (itdTypeDetailsMd.getMemberHoldingTypeDetails() == null) {
-            continue;
-          }
-
-          // Capture the member details
-          memberHoldingTypeDetails.add(itdTypeDetailsMd.getMemberHoldingTypeDetails());
-        }
+      // Reuse the members found last time, if their metadata is unchanged
+      List<MemberHoldingTypeDetails> memberHoldingTypeDetails =
+          memberDetailsCache.get(requestingClass, cidHierarchy, metadataService);
+      if (memberHoldingTypeDetails == null) {
+        memberHoldingTypeDetails = getMemberHoldingTypeDetails(requestingClass, cidHierarchy);
       }
 
       // Turn out list of discovered members into a result
@@ -219,6 +200,90 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
     }
   }
 
+  /**
+   * Finds the members of the given class hierarchy and of the ITDs
+   * introduced into it, and caches them
+   * 
+   * @param requestingClass the class whose ITDs to leave out
+   * @param cidHierarchy the class hierarchy, starting from its top-most
+   *            superclass
+   * @return the members found, in order
+   */
+  private List<MemberHoldingTypeDetails> getMemberHoldingTypeDetails(
+      final String requestingClass, final List<ClassOrInterfaceTypeDetails> cidHierarchy) {
+    // Create a list of discovered members
+    final List<MemberHoldingTypeDetails> memberHoldingTypeDetails =
+        new ArrayList<MemberHoldingTypeDetails>();
+    // The ITD metadata consulted, even if unavailable
+    final Map<String, MetadataItem> itds = new LinkedHashMap<String, MetadataItem>();
+
+    // Now we add this governor, plus all of its superclasses
+    for (final ClassOrInterfaceTypeDetails currentClass : cidHierarchy) {
+      memberHoldingTypeDetails.add(currentClass);
+
+      // Locate all MetadataProvider instances that provide ITDs and
+      // thus MemberHoldingTypeDetails information
+      for (final MetadataProvider mp : providers) {
+        // Skip non-ITD providers
+        if (!(mp instanceof ItdMetadataProvider)) {
+          continue;
+        }
+
+        // Skip myself
+        if (mp.getClass().getName().equals(requestingClass)) {
+          continue;
+        }
+
+        // Determine the key the ITD provider uses for this
+        // particular type
+        final String key =
+            ((ItdMetadataProvider) mp).getIdForPhysicalJavaType(currentClass
+                .getDeclaredByMetadataId());
+        Validate.isTrue(MetadataIdentificationUtils.isIdentifyingInstance(key),
+            "ITD metadata provider '%s' returned an illegal key ('%s')", mp, key);
+
+        // Get the metadata and ensure we have ITD type details
+        // available
+        final MetadataItem metadataItem = metadataService.get(key);
+        itds.put(key, metadataItem);
+        if (metadataItem == null || !metadataItem.isValid()) {
+          continue;
+        }
+        Validate.isInstanceOf(ItdTypeDetailsProvidingMetadataItem.class, metadataItem,
+            "ITD metadata provider '%s' failed to return the correct metadata type", mp);
+        final ItdTypeDetailsProvidingMetadataItem itdTypeDetailsMd =
+            (ItdTypeDetailsProvidingMetadataItem) metadataItem;
+        if (itdTypeDetailsMd.getMemberHoldingTypeDetails() == null) {
+          continue;
+        }
+
+        // Capture the member details
+        memberHoldingTypeDetails.add(itdTypeDetailsMd.getMemberHoldingTypeDetails());
+      }
+    }
+
+    memberDetailsCache.put(requestingClass, cidHierarchy, itds, memberHoldingTypeDetails);
+    return memberHoldingTypeDetails;
+  }
+
+  public MetadataDependencyRegistry getMetadataDependencyRegistry() {
+    // Get all Services implement MetadataDependencyRegistry interface
+    try {
+      ServiceReference<?>[] references =
+          this.context.getAllServiceReferences(MetadataDependencyRegistry.class.getName(), null);
+
+      for (ServiceReference<?> ref : references) {
+        return (MetadataDependencyRegistry) this.context.getService(ref);
+      }
+
+      return null;
+
+    } catch (InvalidSyntaxException e) {
+      LOGGER.warning("Cannot load MetadataDependencyRegistry on MemberDetailsScannerImpl.");
+      return null;
+    }
+  }
+
   public MetadataService getMetadataService() {
     // Get all Services implement MetadataService interface
     try {
@@ -236,4 +301,13 @@ public class MemberDetailsScannerImpl implements MemberDetailsScanner {
       return null;
     }
   }
+
+  public void notify(final String upstreamDependency, final String downstreamDependency) {
+    memberDetailsCache.evict(upstreamDependency);
+  }
+
+  @Override
+  public String toString() {
+    return memberDetailsCache.toString();
+  }
 }
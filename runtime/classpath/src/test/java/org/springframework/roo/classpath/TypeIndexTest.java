@@ -0,0 +1,106 @@
+package org.springframework.roo.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.annotations.AnnotationMetadataBuilder;
+import org.springframework.roo.model.JavaType;
+import org.springframework.roo.project.LogicalPath;
+import org.springframework.roo.project.Path;
+
+/**
+ * Unit test of {@link TypeIndex}
+ *
+ * @since 2.0
+ */
+public class TypeIndexTest {
+
+  private static final JavaType ENTITY = new JavaType("javax.persistence.Entity");
+  private static final JavaType JAVA_BEAN = new JavaType("org.example.JavaBean");
+  private static final String TAG = "tag";
+
+  private static ClassOrInterfaceTypeDetails getType(final String name, final String module,
+      final Object tag, final JavaType... annotations) {
+    final JavaType type = new JavaType(name);
+    final ClassOrInterfaceTypeDetailsBuilder builder =
+        new ClassOrInterfaceTypeDetailsBuilder(getId(name, module), Modifier.PUBLIC, type,
+            PhysicalTypeCategory.CLASS);
+    for (final JavaType annotation : annotations) {
+      builder.addAnnotation(new AnnotationMetadataBuilder(annotation));
+    }
+    if (tag != null) {
+      builder.putCustomData(tag, null);
+    }
+    return builder.build();
+  }
+
+  private static String getId(final String name, final String module) {
+    return PhysicalTypeIdentifier.createIdentifier(new JavaType(name),
+        LogicalPath.getInstance(Path.SRC_MAIN_JAVA, module));
+  }
+
+  // Fixture
+  private TypeIndex index;
+
+  @Before
+  public void setUp() {
+    index = new TypeIndex();
+    index.update(getType("com.example.A", "", TAG, ENTITY, JAVA_BEAN));
+    index.update(getType("com.example.B", "", null, ENTITY));
+    index.update(getType("com.example.C", "web", TAG, ENTITY, JAVA_BEAN));
+  }
+
+  @Test
+  public void testFindWithAllAnnotations() {
+    assertEquals(
+        new HashSet<String>(Arrays.asList(getId("com.example.A", ""),
+            getId("com.example.C", "web"))),
+        index.findWithAllAnnotations(Arrays.asList(ENTITY, JAVA_BEAN), null));
+    assertEquals(Collections.singleton(getId("com.example.C", "web")),
+        index.findWithAllAnnotations(Arrays.asList(ENTITY, JAVA_BEAN), "web"));
+    assertTrue(index.findWithAllAnnotations(Arrays.asList(ENTITY, new JavaType("com.Missing")),
+        null).isEmpty());
+  }
+
+  @Test
+  public void testFindWithAnyAnnotationInModule() {
+    assertEquals(
+        new HashSet<String>(Arrays.asList(getId("com.example.A", ""),
+            getId("com.example.B", ""))),
+        index.findWithAnyAnnotation(Arrays.asList(ENTITY, JAVA_BEAN), ""));
+    assertEquals(3, index.findWithAnyAnnotation(Arrays.asList(JAVA_BEAN, ENTITY), null).size());
+  }
+
+  @Test
+  public void testGenerationOnlyChangesWithTheIndex() {
+    final long generation = index.getGeneration();
+
+    // Re-indexing a type as it was
+    assertFalse(index.update(getType("com.example.B", "", null, ENTITY)));
+    assertEquals(generation, index.getGeneration());
+
+    // Removing an annotation and a tag
+    assertTrue(index.update(getType("com.example.A", "", null, ENTITY)));
+    assertEquals(generation + 1, index.getGeneration());
+    assertEquals(Collections.singleton(getId("com.example.C", "web")),
+        index.findWithAllAnnotations(Collections.singleton(JAVA_BEAN), null));
+    assertEquals(Collections.singleton(getId("com.example.C", "web")),
+        index.findWithTag(TAG, null));
+
+    // Removing a type
+    assertTrue(index.remove(getId("com.example.C", "web")));
+    assertFalse(index.remove(getId("com.example.C", "web")));
+    assertEquals(generation + 2, index.getGeneration());
+    assertTrue(index.findWithTag(TAG, null).isEmpty());
+  }
+}
@@ -0,0 +1,88 @@
+package org.springframework.roo.classpath.scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.classpath.PhysicalTypeCategory;
+import org.springframework.roo.classpath.PhysicalTypeIdentifier;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetails;
+import org.springframework.roo.classpath.details.ClassOrInterfaceTypeDetailsBuilder;
+import org.springframework.roo.classpath.details.MemberHoldingTypeDetails;
+import org.springframework.roo.metadata.MetadataItem;
+import org.springframework.roo.metadata.MetadataService;
+import org.springframework.roo.model.JavaType;
+import org.springframework.roo.project.LogicalPath;
+import org.springframework.roo.project.Path;
+
+/**
+ * Unit test of {@link MemberDetailsCache}
+ *
+ * @since 2.0
+ */
+public class MemberDetailsCacheTest {
+
+  private static final String ITD_ID = "MID:com.example.ItdMetadata#com.example.Entity";
+  private static final String REQUESTING_CLASS = "com.example.MetadataProvider";
+
+  private static ClassOrInterfaceTypeDetails getType() {
+    final JavaType type = new JavaType("com.example.Entity");
+    return new ClassOrInterfaceTypeDetailsBuilder(PhysicalTypeIdentifier.createIdentifier(type,
+        LogicalPath.getInstance(Path.SRC_MAIN_JAVA, "")), Modifier.PUBLIC, type,
+        PhysicalTypeCategory.CLASS).build();
+  }
+
+  // Fixture
+  private MemberDetailsCache cache;
+  private ClassOrInterfaceTypeDetails governor;
+  private List<ClassOrInterfaceTypeDetails> hierarchy;
+  private MetadataItem itd;
+  private List<MemberHoldingTypeDetails> members;
+  private MetadataService metadataService;
+
+  @Before
+  public void setUp() {
+    cache = new MemberDetailsCache(10);
+    governor = getType();
+    hierarchy = Collections.singletonList(governor);
+    itd = mock(MetadataItem.class);
+    members = Arrays.<MemberHoldingTypeDetails>asList(governor);
+    metadataService = mock(MetadataService.class);
+    when(metadataService.getIfCached(ITD_ID)).thenReturn(itd);
+
+    final Map<String, MetadataItem> itds = Collections.singletonMap(ITD_ID, itd);
+    cache.put(REQUESTING_CLASS, hierarchy, itds, members);
+  }
+
+  @Test
+  public void testChangedHierarchyIsNotReused() {
+    assertNull(cache.get(REQUESTING_CLASS, Collections.singletonList(getType()), metadataService));
+  }
+
+  @Test
+  public void testChangedItdIsNotReused() {
+    when(metadataService.getIfCached(ITD_ID)).thenReturn(null);
+    assertNull(cache.get(REQUESTING_CLASS, hierarchy, metadataService));
+  }
+
+  @Test
+  public void testNotificationEvictsMembers() {
+    cache.evict(governor.getDeclaredByMetadataId());
+    assertNull(cache.get(REQUESTING_CLASS, hierarchy, metadataService));
+  }
+
+  @Test
+  public void testUnchangedMembersAreReused() {
+    assertEquals(members, cache.get(REQUESTING_CLASS, hierarchy, metadataService));
+    assertNull(cache.get("com.example.OtherProvider", hierarchy, metadataService));
+  }
+}
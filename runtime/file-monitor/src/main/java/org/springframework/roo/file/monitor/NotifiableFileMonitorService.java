@@ -1,6 +1,10 @@
 package org.springframework.roo.file.monitor;
 
+import java.util.Collection;
+
+import org.springframework.roo.file.monitor.event.FileEvent;
 import org.springframework.roo.file.monitor.event.FileEventListener;
+import org.springframework.roo.file.monitor.event.FileOperation;
 
 /**
  * A {@link FileMonitorService} that permits callers to explicitly indicate they
@@ -42,6 +46,19 @@ public interface NotifiableFileMonitorService extends FileMonitorService {
    */
   void notifyChanged(String fileCanonicalPath);
 
+  /**
+   * Indicates the given files should be treated as if they had been created,
+   * changed or deleted, according to the {@link FileOperation} of each event.
+   * This is equivalent to calling {@link #notifyCreated(String)},
+   * {@link #notifyChanged(String)} or {@link #notifyDeleted(String)} for each
+   * file, but records a batch of changes at once. Events with other
+   * operations are ignored.
+   * 
+   * @param fileEvents the events to record (required, can be empty)
+   * @since 2.0
+   */
+  void notifyChanges(Collection<FileEvent> fileEvents);
+
   void notifyCreated(String fileCanonicalPath);
 
   /**
@@ -0,0 +1,38 @@
+package org.springframework.roo.file.monitor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FileMonitorService} that can signal when the monitored locations
+ * may have changed, so callers can wait for changes instead of scanning
+ * periodically.
+ * <p>
+ * A signal only indicates that a {@link #scanAll()} is worthwhile; the changes
+ * themselves are still published by the scan.
+ *
+ * @since 2.0
+ */
+public interface SignallingFileMonitorService extends FileMonitorService {
+
+  /**
+   * Blocks until a monitored location is reported as changed, or the given
+   * timeout elapses. Every change reported when this method returns is
+   * counted, so a burst of changes is usually returned at once.
+   * <p>
+   * Returns 0 straight away if {@link #isSignalling()} is false.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout (required)
+   * @return the number of changes reported (0 if the timeout elapsed)
+   * @throws InterruptedException if interrupted while waiting
+   */
+  int awaitChanges(long timeout, TimeUnit unit) throws InterruptedException;
+
+  /**
+   * Indicates whether this service currently signals changes; if not,
+   * callers must scan periodically to find them.
+   *
+   * @return see above
+   */
+  boolean isSignalling();
+}
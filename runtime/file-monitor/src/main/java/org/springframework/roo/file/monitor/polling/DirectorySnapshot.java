@@ -0,0 +1,490 @@
+package org.springframework.roo.file.monitor.polling;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.springframework.roo.file.monitor.event.FileOperation;
+
+/**
+ * The files and directories found under a monitored location the last time it
+ * was scanned, in a form that makes rescanning it cheap.
+ * <p>
+ * Every directory keeps its known files in arrays, together with their last
+ * modification times as primitive <code>long</code>s, and the same
+ * {@link File} instances are reused from one scan to the next. A directory is
+ * only listed again when its own modification time changed, as that's the
+ * only way entries can be added to or removed from it; otherwise each known
+ * file simply has its modification time compared. As a result, a scan that
+ * finds no changes allocates next to nothing.
+ * <p>
+ * Directories modified less than {@link #RACY_INTERVAL} milliseconds before
+ * they were listed are listed again on the next scan too, as file systems
+ * with a coarse timestamp resolution could otherwise hide a change made in
+ * the same instant.
+ * <p>
+ * Symbolic links are followed, both when building and when relisting, so a
+ * link to a directory is always treated as a directory. Links to a directory
+ * within the monitored location are skipped, as that directory is monitored
+ * anyway and following them could loop.
+ * <p>
+ * This class is not thread safe; {@link PollingFileMonitorService} only uses
+ * it while holding its lock.
+ *
+ * @since 2.0
+ */
+class DirectorySnapshot {
+
+  /**
+   * Receives the entries found by a {@link DirectorySnapshot}
+   */
+  interface EntryCallback {
+
+    void onEntry(File file, long lastModified, FileOperation operation);
+  }
+
+  /**
+   * A directory of the snapshot
+   */
+  private static class Directory {
+
+    final File directory;
+    File[] files = NO_FILES;
+    long[] filesModified = NO_TIMES;
+    long lastModified;
+    boolean racy;
+    Directory[] subdirectories = NO_DIRECTORIES;
+
+    Directory(final File directory) {
+      this.directory = directory;
+    }
+  }
+
+  /**
+   * The contents of a directory while it's being listed
+   */
+  private static class Listing {
+
+    final List<File> files = new ArrayList<File>();
+    final List<Long> filesModified = new ArrayList<Long>();
+    final List<Directory> subdirectories = new ArrayList<Directory>();
+
+    void add(final File file, final long lastModified) {
+      files.add(file);
+      filesModified.add(lastModified);
+    }
+
+    void applyTo(final Directory directory) {
+      directory.files = files.toArray(NO_FILES);
+      directory.filesModified = new long[filesModified.size()];
+      for (int i = 0; i < directory.filesModified.length; i++) {
+        directory.filesModified[i] = filesModified.get(i);
+      }
+      directory.subdirectories = subdirectories.toArray(NO_DIRECTORIES);
+    }
+  }
+
+  private static final Directory[] NO_DIRECTORIES = new Directory[0];
+  private static final File[] NO_FILES = new File[0];
+  private static final long[] NO_TIMES = new long[0];
+
+  static final long RACY_INTERVAL = 2000;
+
+  private static File[] append(final File[] array, final File element) {
+    final File[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = element;
+    return result;
+  }
+
+  private static long[] append(final long[] array, final long element) {
+    final long[] result = Arrays.copyOf(array, array.length + 1);
+    result[array.length] = element;
+    return result;
+  }
+
+  private static int indexOf(final File[] files, final File file) {
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].equals(file)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Files recorded via {@link #record(File)} whose directory is not part of
+   * the snapshot yet, with their last modification time
+   */
+  private final Map<File, Long> detached = new HashMap<File, Long>();
+  private final Map<File, Directory> directories = new HashMap<File, Directory>();
+  private final boolean includeSubtree;
+  private final File root;
+  private long rootModified;
+  private final PollingFileMonitorService service;
+
+  /**
+   * Constructor for an empty snapshot; call {@link #build(EntryCallback)} to
+   * fill it
+   *
+   * @param root the monitored file or directory
+   * @param includeSubtree whether to include sub-directories of the root
+   * @param service the service deciding which directories are excluded
+   */
+  DirectorySnapshot(final File root, final boolean includeSubtree,
+      final PollingFileMonitorService service) {
+    File canonicalRoot;
+    try {
+      canonicalRoot = root.getCanonicalFile();
+    } catch (final IOException e) {
+      canonicalRoot = root.getAbsoluteFile();
+    }
+    this.root = canonicalRoot;
+    this.includeSubtree = includeSubtree;
+    this.service = service;
+  }
+
+  /**
+   * Records the current contents of the monitored location, presenting each
+   * entry to the callback with {@link FileOperation#MONITORING_START}.
+   *
+   * @param callback the callback (required)
+   */
+  void build(final EntryCallback callback) {
+    if (!isIgnored(root)) {
+      if (root.isDirectory()) {
+        buildTree(root, FileOperation.MONITORING_START, callback);
+      } else {
+        rootModified = root.lastModified();
+        callback.onEntry(root, rootModified, FileOperation.MONITORING_START);
+      }
+    }
+  }
+
+  /**
+   * Adds the given directory and its contents, presenting each entry to the
+   * callback with the given operation.
+   */
+  private Directory buildTree(final File directory, final FileOperation operation,
+      final EntryCallback callback) {
+    final Map<File, Listing> listings = new HashMap<File, Listing>();
+    final Directory[] top = new Directory[1];
+    try {
+      Files.walkFileTree(directory.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+          Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) {
+          final File file = dir.toFile();
+          listings.remove(file).applyTo(directories.get(file));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+          final File file = dir.toFile();
+          final Listing parent = listings.get(file.getParentFile());
+          final boolean isTop = top[0] == null;
+          if (isLinkWithinRoot(dir)) {
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+          if (!isTop && (!includeSubtree || parent == null || isIgnored(file))) {
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+          final Directory node = new Directory(file);
+          listed(node, file.lastModified());
+          directories.put(file, node);
+          listings.put(file, new Listing());
+          if (isTop) {
+            top[0] = node;
+          } else {
+            parent.subdirectories.add(node);
+          }
+          present(file, node.lastModified, operation, callback);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) {
+          final File file = path.toFile();
+          final Listing parent = listings.get(file.getParentFile());
+          if (attrs.isDirectory() || parent == null || isIgnored(file)) {
+            return FileVisitResult.CONTINUE;
+          }
+          // Timestamps are always read via File, so they compare equal to
+          // the ones read while rescanning
+          final long lastModified = file.lastModified();
+          parent.add(file, lastModified);
+          present(file, lastModified, operation, callback);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+          // Includes the FileSystemLoopException of a link to an ancestor
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (final IOException ignored) {
+      // The visitor doesn't throw any
+    }
+    return top[0];
+  }
+
+  /**
+   * Removes the given directory and its contents, presenting each entry to
+   * the callback as {@link FileOperation#DELETED}.
+   */
+  private void deleteTree(final Directory directory, final EntryCallback callback) {
+    for (final Directory subdirectory : directory.subdirectories) {
+      deleteTree(subdirectory, callback);
+    }
+    for (int i = 0; i < directory.files.length; i++) {
+      callback.onEntry(directory.files[i], directory.filesModified[i], FileOperation.DELETED);
+    }
+    directories.remove(directory.directory);
+    callback.onEntry(directory.directory, directory.lastModified, FileOperation.DELETED);
+  }
+
+  /**
+   * Removes the given file from the snapshot without any notification, so
+   * it's not reported as deleted by the next scan.
+   *
+   * @param file the file to forget
+   */
+  void forget(final File file) {
+    detached.remove(file);
+    final Directory parent = directories.get(file.getParentFile());
+    if (parent == null) {
+      return;
+    }
+    final int index = indexOf(parent.files, file);
+    if (index >= 0) {
+      removeFile(parent, index);
+    }
+  }
+
+  /**
+   * Presents every entry of the snapshot to the callback with the given
+   * operation.
+   *
+   * @param operation the operation to present
+   * @param callback the callback (required)
+   */
+  void forEach(final FileOperation operation, final EntryCallback callback) {
+    if (directories.isEmpty() && rootModified != 0) {
+      callback.onEntry(root, rootModified, operation);
+    }
+    for (final Directory directory : directories.values()) {
+      callback.onEntry(directory.directory, directory.lastModified, operation);
+      for (int i = 0; i < directory.files.length; i++) {
+        callback.onEntry(directory.files[i], directory.filesModified[i], operation);
+      }
+    }
+    for (final Entry<File, Long> entry : detached.entrySet()) {
+      callback.onEntry(entry.getKey(), entry.getValue(), operation);
+    }
+  }
+
+  private boolean isLinkWithinRoot(final Path directory) {
+    if (!Files.isSymbolicLink(directory)) {
+      return false;
+    }
+    try {
+      return directory.toRealPath().startsWith(root.toPath());
+    } catch (final IOException e) {
+      return false;
+    }
+  }
+
+  private boolean isIgnored(final File file) {
+    final String name = file.getName();
+    return name.length() > 1 && name.startsWith(".") || name.equals("log.roo")
+        || file.isDirectory() && service.isExcludedDirectory(file.getPath());
+  }
+
+  /**
+   * Lists the given directory again, presenting the entries that appeared or
+   * disappeared since it was last listed.
+   */
+  private void relist(final Directory directory, final EntryCallback callback) {
+    final File[] listed = directory.directory.listFiles();
+    final Listing listing = new Listing();
+    final Map<File, Integer> knownFiles = new HashMap<File, Integer>();
+    for (int i = 0; i < directory.files.length; i++) {
+      knownFiles.put(directory.files[i], i);
+    }
+    final Map<File, Directory> knownSubdirectories = new HashMap<File, Directory>();
+    for (final Directory subdirectory : directory.subdirectories) {
+      knownSubdirectories.put(subdirectory.directory, subdirectory);
+    }
+
+    for (final File file : listed == null ? NO_FILES : listed) {
+      if (isIgnored(file)) {
+        continue;
+      }
+      if (file.isDirectory()) {
+        if (!includeSubtree) {
+          continue;
+        }
+        Directory subdirectory = knownSubdirectories.remove(file);
+        if (subdirectory == null) {
+          subdirectory = buildTree(file, FileOperation.CREATED, callback);
+        }
+        if (subdirectory != null) {
+          listing.subdirectories.add(subdirectory);
+        }
+        continue;
+      }
+      final Integer index = knownFiles.remove(file);
+      if (index != null) {
+        // Reuse the known instance; its timestamp is compared by the caller
+        listing.add(directory.files[index], directory.filesModified[index]);
+      } else {
+        final long lastModified = file.lastModified();
+        present(file, lastModified, FileOperation.CREATED, callback);
+        listing.add(file, lastModified);
+      }
+    }
+
+    // Whatever is left disappeared
+    for (final Entry<File, Integer> entry : knownFiles.entrySet()) {
+      callback.onEntry(entry.getKey(), directory.filesModified[entry.getValue()],
+          FileOperation.DELETED);
+    }
+    for (final Directory subdirectory : knownSubdirectories.values()) {
+      deleteTree(subdirectory, callback);
+    }
+
+    listing.applyTo(directory);
+  }
+
+  private void listed(final Directory directory, final long lastModified) {
+    directory.lastModified = lastModified;
+    directory.racy = System.currentTimeMillis() - lastModified < RACY_INTERVAL;
+  }
+
+  /**
+   * Presents a newly found entry, unless it was already recorded via
+   * {@link #record(File)}.
+   */
+  private void present(final File file, final long lastModified, final FileOperation operation,
+      final EntryCallback callback) {
+    final Long recorded = detached.remove(file);
+    if (recorded == null) {
+      callback.onEntry(file, lastModified, operation);
+    } else if (recorded != lastModified) {
+      callback.onEntry(file, lastModified, FileOperation.UPDATED);
+    }
+  }
+
+  /**
+   * Records the current modification time of the given file, so the next
+   * scan doesn't report it as created or updated again.
+   *
+   * @param file the file to record
+   */
+  void record(final File file) {
+    final long lastModified = file.lastModified();
+    final Directory parent = directories.get(file.getParentFile());
+    if (directories.containsKey(file)) {
+      // Directories are left alone, so they are still listed if needed
+      return;
+    }
+    if (file.equals(root)) {
+      rootModified = lastModified;
+      return;
+    }
+    if (parent == null || file.isDirectory()) {
+      detached.put(file, lastModified);
+      return;
+    }
+    final int index = indexOf(parent.files, file);
+    if (index >= 0) {
+      parent.filesModified[index] = lastModified;
+    } else {
+      parent.files = append(parent.files, file);
+      parent.filesModified = append(parent.filesModified, lastModified);
+    }
+  }
+
+  private void removeFile(final Directory directory, final int index) {
+    final int remaining = directory.files.length - index - 1;
+    final File[] files = new File[directory.files.length - 1];
+    final long[] filesModified = new long[files.length];
+    System.arraycopy(directory.files, 0, files, 0, index);
+    System.arraycopy(directory.files, index + 1, files, index, remaining);
+    System.arraycopy(directory.filesModified, 0, filesModified, 0, index);
+    System.arraycopy(directory.filesModified, index + 1, filesModified, index, remaining);
+    directory.files = files;
+    directory.filesModified = filesModified;
+  }
+
+  /**
+   * Compares the monitored location with this snapshot, presenting each
+   * created, updated or deleted entry to the callback and updating the
+   * snapshot accordingly.
+   *
+   * @param callback the callback (required)
+   */
+  void scan(final EntryCallback callback) {
+    final Directory top = directories.get(root);
+    if (top != null) {
+      scan(top, callback);
+    } else if (rootModified != 0) {
+      final long lastModified = root.lastModified();
+      if (lastModified != rootModified && root.exists()) {
+        rootModified = lastModified;
+        callback.onEntry(root, lastModified, FileOperation.UPDATED);
+      }
+    } else if (root.isDirectory() && !isIgnored(root)) {
+      // The root didn't exist when the snapshot was built
+      buildTree(root, FileOperation.CREATED, callback);
+    }
+  }
+
+  private void scan(final Directory directory, final EntryCallback callback) {
+    final long lastModified = directory.directory.lastModified();
+    if (lastModified == 0 && !directory.directory.exists()) {
+      // Deleted since its parent was scanned; the parent will notice
+      return;
+    }
+    if (lastModified != directory.lastModified || directory.racy) {
+      if (lastModified != directory.lastModified) {
+        callback.onEntry(directory.directory, lastModified, FileOperation.UPDATED);
+      }
+      listed(directory, lastModified);
+      relist(directory, callback);
+    }
+
+    for (int i = 0; i < directory.files.length; i++) {
+      final File file = directory.files[i];
+      final long fileModified = file.lastModified();
+      if (fileModified == directory.filesModified[i]) {
+        continue;
+      }
+      if (fileModified == 0 && !file.exists()) {
+        // Deleted within the directory's timestamp resolution
+        callback.onEntry(file, directory.filesModified[i], FileOperation.DELETED);
+        removeFile(directory, i--);
+        continue;
+      }
+      directory.filesModified[i] = fileModified;
+      callback.onEntry(file, fileModified, FileOperation.UPDATED);
+    }
+
+    for (final Directory subdirectory : directory.subdirectories) {
+      scan(subdirectory, callback);
+    }
+  }
+}
@@ -1,10 +1,7 @@
 package org.springframework.roo.file.monitor.polling;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -15,7 +12,6 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -37,9 +33,6 @@ import org.springframework.roo.file.monitor.event.FileOperation;
 import org.springframework.roo.shell.AbstractShell;
 import org.springframework.roo.support.logging.HandlerUtils;
 import org.springframework.roo.support.util.FileUtils;
-import org.springframework.roo.support.util.XmlUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
  * A simple polling-based {@link FileMonitorService}.
@@ -75,10 +68,11 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
   private final Set<String> notifyChanged = new HashSet<String>();
   private final Set<String> notifyCreated = new HashSet<String>();
   private final Set<String> notifyDeleted = new HashSet<String>();
-  private final Map<MonitoringRequest, Map<File, Long>> priorExecution =
-      new WeakHashMap<MonitoringRequest, Map<File, Long>>();
+  private final Map<MonitoringRequest, DirectorySnapshot> priorExecution =
+      new WeakHashMap<MonitoringRequest, DirectorySnapshot>();
   private final Set<MonitoringRequest> requests = new LinkedHashSet<MonitoringRequest>();
   private final List<FileEvent> eventsPendingToPublish = new ArrayList<FileEvent>();
+  private final RooVersionGuard versionGuard = new RooVersionGuard();
 
   public final void add(final FileEventListener e) {
     synchronized (lock) {
@@ -134,51 +128,6 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     }
   }
 
-  /**
-   * Adds one or more entries into the Map. The key of the Map is the File
-   * object, and the value is the {@link File#lastModified()} time.
-   * <p>
-   * Specifically:
-   * <ul>
-   * <li>If invoked with a File that is actually a File, only the file is
-   * added.</li>
-   * <li>If invoked with a File that is actually a Directory, all files and
-   * directories are added.</li>
-   * <li>If invoked with a File that is actually a Directory, subdirectories
-   * will be added only if "includeSubtree" is true.</li>
-   * </ul>
-   */
-  private void computeEntries(final Map<File, Long> map, final File currentFile,
-      final boolean includeSubtree) {
-    Validate.notNull(map, "Map required");
-    Validate.notNull(currentFile, "Current file is required");
-
-    if (!currentFile.exists() || currentFile.getName().length() > 1
-        && currentFile.getName().startsWith(".") || currentFile.getName().equals("log.roo")
-        || currentFile.isDirectory() && isExcludedDirectory(currentFile.getPath())) {
-      return;
-    }
-
-    map.put(currentFile, currentFile.lastModified());
-
-    try {
-      allFiles.add(currentFile.getCanonicalPath());
-    } catch (final IOException ignored) {
-    }
-
-    if (currentFile.isDirectory()) {
-      final File[] files = currentFile.listFiles();
-      if (files == null || files.length == 0) {
-        return;
-      }
-      for (final File file : files) {
-        if (file.isFile() || includeSubtree) {
-          computeEntries(map, file, includeSubtree);
-        }
-      }
-    }
-  }
-
   public SortedSet<FileDetails> findMatchingAntPath(final String antPath) {
     Validate.notBlank(antPath, "Ant path required");
     final SortedSet<FileDetails> result = new TreeSet<FileDetails>();
@@ -224,7 +173,7 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
   }
 
   private List<FileEvent> getFileCreationEvents(final MonitoringRequest request,
-      final Map<File, Long> priorFiles) {
+      final DirectorySnapshot snapshot) {
     final List<FileEvent> createEvents = new ArrayList<FileEvent>();
     for (final Iterator<String> iter = notifyCreated.iterator(); iter.hasNext();) {
       final String filePath = iter.next();
@@ -236,9 +185,9 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
           // Record the notification
           createEvents.add(new FileEvent(new FileDetails(thisFile, thisFile.lastModified()),
               FileOperation.CREATED, null));
-          // Update the prior execution map so it isn't notified again
-          // next round
-          priorFiles.put(thisFile, thisFile.lastModified());
+          // Update the prior execution snapshot so it isn't notified
+          // again next round
+          snapshot.record(thisFile);
         }
       }
     }
@@ -246,7 +195,7 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
   }
 
   private List<FileEvent> getFileDeletionEvents(final MonitoringRequest request,
-      final Map<File, Long> priorFiles) {
+      final DirectorySnapshot snapshot) {
     final List<FileEvent> deleteEvents = new ArrayList<FileEvent>();
     for (final Iterator<String> iter = notifyDeleted.iterator(); iter.hasNext();) {
       final String filePath = iter.next();
@@ -259,9 +208,9 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
           // Record the notification
           deleteEvents.add(new FileEvent(new FileDetails(thisFile, null), FileOperation.DELETED,
               null));
-          // Update the prior execution map so it isn't notified again
-          // next round
-          priorFiles.remove(thisFile);
+          // Update the prior execution snapshot so it isn't notified
+          // again next round
+          snapshot.forget(thisFile);
         }
       }
     }
@@ -269,7 +218,7 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
   }
 
   private List<FileEvent> getFileUpdateEvents(final MonitoringRequest request,
-      final Map<File, Long> priorFiles) {
+      final DirectorySnapshot snapshot) {
     final List<FileEvent> updateEvents = new ArrayList<FileEvent>();
     for (final Iterator<String> iter = notifyChanged.iterator(); iter.hasNext();) {
       final String filePath = iter.next();
@@ -281,9 +230,9 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
           // Record the notification
           updateEvents.add(new FileEvent(new FileDetails(thisFile, thisFile.lastModified()),
               FileOperation.UPDATED, null));
-          // Update the prior execution map so it isn't notified again
-          // next round
-          priorFiles.put(thisFile, thisFile.lastModified());
+          // Update the prior execution snapshot so it isn't notified
+          // again next round
+          snapshot.record(thisFile);
           // Also remove it from the created list, if it's in there
           if (notifyCreated.contains(filePath)) {
             notifyCreated.remove(filePath);
@@ -294,6 +243,16 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     return updateEvents;
   }
 
+  /**
+   * Returns the guard that decides whether events are held back because the
+   * project was created by another version of Roo
+   * 
+   * @return a non-null guard
+   */
+  public RooVersionGuard getVersionGuard() {
+    return versionGuard;
+  }
+
   public List<FileDetails> getMonitored() {
     synchronized (lock) {
       final List<FileDetails> monitored = new ArrayList<FileDetails>();
@@ -303,10 +262,13 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
 
       for (final MonitoringRequest request : requests) {
         if (priorExecution.containsKey(request)) {
-          final Map<File, Long> priorFiles = priorExecution.get(request);
-          for (final Entry<File, Long> entry : priorFiles.entrySet()) {
-            monitored.add(new FileDetails(entry.getKey(), entry.getValue()));
-          }
+          priorExecution.get(request).forEach(FileOperation.MONITORING_START,
+              new DirectorySnapshot.EntryCallback() {
+                public void onEntry(final File file, final long lastModified,
+                    final FileOperation operation) {
+                  monitored.add(new FileDetails(file, lastModified));
+                }
+              });
         }
       }
 
@@ -320,7 +282,14 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     }
   }
 
-  private boolean isExcludedDirectory(final String path) {
+  /**
+   * Indicates whether the given directory is never monitored, e.g. because it
+   * contains build output.
+   * 
+   * @param path the path of the directory
+   * @return true if the directory is excluded from monitoring
+   */
+  protected boolean isExcludedDirectory(final String path) {
     final boolean hasSrc = path.contains(File.separator + "src");
     return !hasSrc
         && (path.contains(File.separator + "target") || path.contains(File.separator + "bin"))
@@ -346,7 +315,14 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     return false;
   }
 
-  private boolean isWithin(final MonitoringRequest request, final String filePath) {
+  /**
+   * Indicates whether the given file is monitored by the given request.
+   * 
+   * @param request the monitoring request
+   * @param filePath the canonical path of the file
+   * @return true if the request monitors the file
+   */
+  protected boolean isWithin(final MonitoringRequest request, final String filePath) {
     String requestCanonicalPath;
     try {
       requestCanonicalPath = request.getFile().getCanonicalPath();
@@ -373,6 +349,11 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     return true;
   }
 
+  private boolean isWatchSubtree(final MonitoringRequest request) {
+    return request instanceof DirectoryMonitoringRequest
+        && ((DirectoryMonitoringRequest) request).isWatchSubtree();
+  }
+
   private boolean noRequestsOrChanges() {
     return requests.isEmpty() || !isDirty();
   }
@@ -386,6 +367,33 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     }
   }
 
+  public void notifyChanges(final Collection<FileEvent> fileEvents) {
+    Validate.notNull(fileEvents, "File events required");
+    synchronized (lock) {
+      for (final FileEvent fileEvent : fileEvents) {
+        final String fileCanonicalPath = fileEvent.getFileDetails().getCanonicalPath();
+        final Set<String> notified;
+        switch (fileEvent.getOperation()) {
+          case CREATED:
+            notified = notifyCreated;
+            break;
+          case DELETED:
+            notified = notifyDeleted;
+            break;
+          case UPDATED:
+            notified = notifyChanged;
+            break;
+          default:
+            continue;
+        }
+        updateChanges(fileCanonicalPath, fileEvent.getOperation() == FileOperation.DELETED);
+        if (isNotificationUnderKnownMonitoringRequest(fileCanonicalPath)) {
+          notified.add(fileCanonicalPath);
+        }
+      }
+    }
+  }
+
   public void notifyCreated(final String fileCanonicalPath) {
     synchronized (lock) {
       updateChanges(fileCanonicalPath, false);
@@ -434,17 +442,17 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
       final List<FileEvent> eventsToPublish = new ArrayList<FileEvent>();
 
       // See when each file was last checked
-      Map<File, Long> priorFiles = priorExecution.get(request);
-      if (priorFiles == null) {
-        priorFiles = new HashMap<File, Long>();
-        priorExecution.put(request, priorFiles);
+      DirectorySnapshot snapshot = priorExecution.get(request);
+      if (snapshot == null) {
+        snapshot = new DirectorySnapshot(request.getFile(), isWatchSubtree(request), this);
+        priorExecution.put(request, snapshot);
       }
 
       // Handle files apparently updated, created, or deleted since the
       // last execution
-      eventsToPublish.addAll(getFileUpdateEvents(request, priorFiles));
-      eventsToPublish.addAll(getFileCreationEvents(request, priorFiles));
-      eventsToPublish.addAll(getFileDeletionEvents(request, priorFiles));
+      eventsToPublish.addAll(getFileUpdateEvents(request, snapshot));
+      eventsToPublish.addAll(getFileCreationEvents(request, snapshot));
+      eventsToPublish.addAll(getFileDeletionEvents(request, snapshot));
 
       publish(eventsToPublish);
       eventsPublished += eventsToPublish.size();
@@ -499,14 +507,14 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
       // Advise of the cessation to monitoring
       if (priorExecution.containsKey(request)) {
         final List<FileEvent> eventsToPublish = new ArrayList<FileEvent>();
-
-        final Map<File, Long> priorFiles = priorExecution.get(request);
-        for (final Entry<File, Long> entry : priorFiles.entrySet()) {
-          final File thisFile = entry.getKey();
-          final Long lastModified = entry.getValue();
-          eventsToPublish.add(new FileEvent(new FileDetails(thisFile, lastModified),
-              FileOperation.MONITORING_FINISH, null));
-        }
+        priorExecution.get(request).forEach(FileOperation.MONITORING_FINISH,
+            new DirectorySnapshot.EntryCallback() {
+              public void onEntry(final File file, final long lastModified,
+                  final FileOperation operation) {
+                eventsToPublish.add(new FileEvent(new FileDetails(file, lastModified),
+                    operation, null));
+              }
+            });
         publish(eventsToPublish);
       }
 
@@ -525,84 +533,63 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
       int changes = 0;
 
       for (final MonitoringRequest request : requests) {
-        boolean includeSubtree = false;
-        if (request instanceof DirectoryMonitoringRequest) {
-          includeSubtree = ((DirectoryMonitoringRequest) request).isWatchSubtree();
-        }
-
         if (!request.getFile().exists()) {
           continue;
         }
 
-        // Build contents of the monitored location
-        final Map<File, Long> currentExecution = new HashMap<File, Long>();
-        computeEntries(currentExecution, request.getFile(), includeSubtree);
+        DirectorySnapshot snapshot = priorExecution.get(request);
+        if (snapshot != null && !isChangedOnDisk(request)) {
+          // Nothing changed on disk since the last execution, so only the
+          // explicitly notified files need to be published
+          final List<FileEvent> eventsToPublish = new ArrayList<FileEvent>();
+          eventsToPublish.addAll(getFileUpdateEvents(request, snapshot));
+          eventsToPublish.addAll(getFileCreationEvents(request, snapshot));
+          eventsToPublish.addAll(getFileDeletionEvents(request, snapshot));
+          publishUnlessVersionChanged(eventsToPublish);
+          changes += eventsToPublish.size();
+          continue;
+        }
 
         final List<FileEvent> eventsToPublish = new ArrayList<FileEvent>();
-
-        if (priorExecution.containsKey(request)) {
-          // Need to perform a comparison, as we have data from a
-          // previous execution
-          final Map<File, Long> priorFiles = priorExecution.get(request);
-
-          // Locate created and modified files
-          for (final Entry<File, Long> entry : currentExecution.entrySet()) {
-            final File thisFile = entry.getKey();
-            final Long currentTimestamp = entry.getValue();
-            if (!priorFiles.containsKey(thisFile)) {
-              // This file did not exist last execution, so it
-              // must be new
-              eventsToPublish.add(new FileEvent(new FileDetails(thisFile, currentTimestamp),
-                  FileOperation.CREATED, null));
-              try {
-                // If this file was already going to be
-                // notified, there is no need to do it twice
-                notifyCreated.remove(thisFile.getCanonicalPath());
-              } catch (final IOException ignored) {
-              }
-              continue;
+        final DirectorySnapshot.EntryCallback collector = new DirectorySnapshot.EntryCallback() {
+          public void onEntry(final File file, final long lastModified,
+              final FileOperation operation) {
+            eventsToPublish.add(new FileEvent(new FileDetails(file, lastModified), operation,
+                null));
+            String canonicalPath;
+            try {
+              canonicalPath = file.getCanonicalPath();
+            } catch (final IOException e) {
+              return;
             }
-
-            final Long previousTimestamp = priorFiles.get(thisFile);
-            if (!currentTimestamp.equals(previousTimestamp)) {
-              // Modified
-              eventsToPublish.add(new FileEvent(new FileDetails(thisFile, currentTimestamp),
-                  FileOperation.UPDATED, null));
-              try {
-                // If this file was already going to be
-                // notified, there is no need to do it twice
-                notifyChanged.remove(thisFile.getCanonicalPath());
-              } catch (final IOException ignored) {
-              }
+            // If this file was already going to be notified, there is no
+            // need to do it twice
+            if (operation == FileOperation.CREATED) {
+              notifyCreated.remove(canonicalPath);
+            } else if (operation == FileOperation.UPDATED) {
+              notifyChanged.remove(canonicalPath);
+            } else if (operation == FileOperation.DELETED) {
+              notifyDeleted.remove(canonicalPath);
             }
-          }
-
-          // Now locate deleted files
-          priorFiles.keySet().removeAll(currentExecution.keySet());
-          for (final Entry<File, Long> entry : priorFiles.entrySet()) {
-            final File deletedFile = entry.getKey();
-            eventsToPublish.add(new FileEvent(new FileDetails(deletedFile, entry.getValue()),
-                FileOperation.DELETED, null));
-            try {
-              // If this file was already going to be notified,
-              // there is no need to do it twice
-              notifyDeleted.remove(deletedFile.getCanonicalPath());
-            } catch (final IOException ignored) {
+            if (operation == FileOperation.CREATED
+                || operation == FileOperation.MONITORING_START) {
+              allFiles.add(canonicalPath);
             }
           }
+        };
+
+        if (snapshot != null) {
+          // Need to perform a comparison, as we have data from a
+          // previous execution
+          snapshot.scan(collector);
         } else {
           // No data from previous execution, so it's a
           // newly-monitored location
-          for (final Entry<File, Long> entry : currentExecution.entrySet()) {
-            eventsToPublish.add(new FileEvent(new FileDetails(entry.getKey(), entry.getValue()),
-                FileOperation.MONITORING_START, null));
-          }
+          snapshot = new DirectorySnapshot(request.getFile(), isWatchSubtree(request), this);
+          snapshot.build(collector);
+          priorExecution.put(request, snapshot);
         }
 
-        // Record the monitored location's contents, ready for next
-        // execution
-        priorExecution.put(request, currentExecution);
-
         // We can discard the created and deleted notifications, as they
         // would have been correctly discovered in the above loop
         notifyCreated.clear();
@@ -617,25 +604,7 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
         }
         notifyChanged.clear();
 
-        // ROO-3622: Validate if version change
-        if (!isDifferentVersion()) {
-          // Publishing pending events if needed
-          if (!eventsPendingToPublish.isEmpty()) {
-            publish(eventsPendingToPublish);
-            // Clear events pending to publish
-            eventsPendingToPublish.clear();
-          }
-          publish(eventsToPublish);
-
-        } else {
-          for (FileEvent event : eventsToPublish) {
-            if (eventsPendingToPublish.indexOf(event) == -1) {
-              eventsPendingToPublish.add(event);
-            }
-          }
-
-
-        }
+        publishUnlessVersionChanged(eventsToPublish);
 
         changes += eventsToPublish.size();
       }
@@ -644,39 +613,58 @@ public class PollingFileMonitorService implements NotifiableFileMonitorService {
     }
   }
 
-  private String getRooProjectVersion() {
-    String homePath = new File(".").getPath();
-    String pomPath = homePath + "/pom.xml";
-    File pom = new File(pomPath);
-    try {
-      if (pom.exists()) {
-        InputStream is = new FileInputStream(pom);
-        Document docXml = XmlUtils.readXml(is);
-        Element document = docXml.getDocumentElement();
-        Element rooVersionElement = XmlUtils.findFirstElement("properties/roo.version", document);
-        String rooVersion = rooVersionElement.getTextContent();
-
-        return rooVersion;
-      }
-
-      return "UNKNOWN";
-
-    } catch (FileNotFoundException e) {
-      e.printStackTrace();
-    }
-
-    return "";
+  /**
+   * Indicates whether the files monitored by the given request may have
+   * changed on disk since they were last scanned. Requests for which this
+   * method returns false are not walked by {@link #scanAll()}; only the files
+   * explicitly notified via {@link NotifiableFileMonitorService} are
+   * published for them.
+   * <p>
+   * This implementation always returns true, as polling is the only way it
+   * knows to detect changes.
+   * 
+   * @param request a request that has already been scanned at least once
+   * @return true if the request needs to be scanned again
+   */
+  protected boolean isChangedOnDisk(final MonitoringRequest request) {
+    return true;
   }
 
-
-  private boolean isDifferentVersion() {
-    String rooVersion = getRooProjectVersion();
-
-    if ("UNKNOWN".equals(rooVersion)) {
-      return false;
+  /**
+   * Publishes the given events, unless the project was created by another
+   * version of Roo, in which case they are kept until it no longer is.
+   * <p>
+   * This method assumes the caller has already acquired a synchronisation
+   * lock.
+   * 
+   * @param eventsToPublish to publish (not null, but can be empty)
+   */
+  private void publishUnlessVersionChanged(final List<FileEvent> eventsToPublish) {
+    if (eventsToPublish.isEmpty() && eventsPendingToPublish.isEmpty()) {
+      // Nothing to publish, so there is no need to check the version
+      return;
+    }
+    // Let the guard know if the POM changed before asking it
+    for (final FileEvent event : eventsToPublish) {
+      versionGuard.onFileChanged(event.getFileDetails().getCanonicalPath());
     }
 
-    return !rooVersion.equals(versionInfoWithoutGit());
+    // ROO-3622: Validate if version change
+    if (!versionGuard.isDifferentVersion()) {
+      // Publishing pending events if needed
+      if (!eventsPendingToPublish.isEmpty()) {
+        publish(eventsPendingToPublish);
+        // Clear events pending to publish
+        eventsPendingToPublish.clear();
+      }
+      publish(eventsToPublish);
+    } else {
+      for (FileEvent event : eventsToPublish) {
+        if (eventsPendingToPublish.indexOf(event) == -1) {
+          eventsPendingToPublish.add(event);
+        }
+      }
+    }
   }
 
   public static String versionInfoWithoutGit() {
@@ -0,0 +1,125 @@
+package org.springframework.roo.file.monitor.polling;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+import org.springframework.roo.support.util.XmlUtils;
+import org.w3c.dom.Element;
+
+/**
+ * Tells whether the project's root POM was created by another version of Roo
+ * than the one running (ROO-3622).
+ * <p>
+ * The running version is determined once, and the POM is only read again
+ * after {@link #onFileChanged(String)} has been told that it changed, so
+ * asking repeatedly is cheap.
+ *
+ * @since 2.0
+ */
+public class RooVersionGuard {
+
+  static final String UNKNOWN_VERSION = "UNKNOWN";
+
+  private final String pomPath;
+  private String projectVersion;
+  private int projectVersionReads;
+  private String rooVersion;
+
+  /**
+   * Constructor for guarding the POM in the current directory against the
+   * version of the running Roo
+   */
+  public RooVersionGuard() {
+    this(new File("pom.xml"), null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param pom the project's root POM (required, need not exist)
+   * @param rooVersion the version of the running Roo; if null, it's taken
+   *            from the Roo bundle's manifest when first needed
+   */
+  public RooVersionGuard(final File pom, final String rooVersion) {
+    Validate.notNull(pom, "POM required");
+    String path;
+    try {
+      path = pom.getCanonicalPath();
+    } catch (final IOException e) {
+      path = pom.getAbsolutePath();
+    }
+    pomPath = path;
+    this.rooVersion = rooVersion;
+  }
+
+  /**
+   * Returns how many times the POM has been read, which in steady state
+   * should not increase between two scans
+   *
+   * @return the number of reads
+   */
+  public synchronized int getProjectVersionReads() {
+    return projectVersionReads;
+  }
+
+  /**
+   * Indicates whether the project was created by another version of Roo. A
+   * project without a <code>roo.version</code> property is considered to be
+   * of the same version.
+   *
+   * @return true if the versions differ
+   */
+  public synchronized boolean isDifferentVersion() {
+    if (projectVersion == null) {
+      projectVersion = readProjectVersion();
+    }
+    if (UNKNOWN_VERSION.equals(projectVersion)) {
+      return false;
+    }
+    if (rooVersion == null) {
+      rooVersion = PollingFileMonitorService.versionInfoWithoutGit();
+    }
+    return !projectVersion.equals(rooVersion);
+  }
+
+  /**
+   * Advises that the given file was created, updated or deleted; if it's the
+   * POM, its version is read again when next needed.
+   *
+   * @param fileCanonicalPath the canonical path of the file
+   */
+  public synchronized void onFileChanged(final String fileCanonicalPath) {
+    if (pomPath.equals(fileCanonicalPath)) {
+      projectVersion = null;
+    }
+  }
+
+  private String readProjectVersion() {
+    final File pom = new File(pomPath);
+    if (!pom.exists()) {
+      return UNKNOWN_VERSION;
+    }
+    projectVersionReads++;
+    InputStream is = null;
+    try {
+      is = new FileInputStream(pom);
+      final Element rooVersionElement =
+          XmlUtils.findFirstElement("properties/roo.version", XmlUtils.readXml(is)
+              .getDocumentElement());
+      if (rooVersionElement == null) {
+        // Not a Roo project
+        return UNKNOWN_VERSION;
+      }
+      return rooVersionElement.getTextContent();
+    } catch (final FileNotFoundException e) {
+      return UNKNOWN_VERSION;
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+}
@@ -1,4 +1,4 @@
-package org.springframework.roo.file.monitor.polling;
+package org.springframework.roo.file.monitor.watch;
 
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
@@ -6,6 +6,7 @@ import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.ReferenceStrategy;
 import org.apache.felix.scr.annotations.Service;
+import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.file.monitor.event.FileEventListener;
 import org.springframework.roo.file.monitor.polling.PollingFileMonitorService;
 
@@ -13,6 +14,10 @@ import org.springframework.roo.file.monitor.polling.PollingFileMonitorService;
  * Extends {@link PollingFileMonitorService} by making it available as an OSGi
  * component that automatically monitors the environment's
  * {@link FileEventListener} components.
+ * <p>
+ * Starting Roo with <code>-Droo.file.monitor.watch=true</code> makes this
+ * component use file change notifications rather than polling; see
+ * {@link WatchServiceFileMonitorService}.
  * 
  * @author Ben Alex
  * @since 1.1
@@ -22,12 +27,16 @@ import org.springframework.roo.file.monitor.polling.PollingFileMonitorService;
 @Reference(name = "fileEventListener", strategy = ReferenceStrategy.EVENT,
     policy = ReferencePolicy.DYNAMIC, referenceInterface = FileEventListener.class,
     cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE)
-public class PollingFileMonitorComponent extends PollingFileMonitorService {
+public class PollingFileMonitorComponent extends WatchServiceFileMonitorService {
 
   protected void bindFileEventListener(final FileEventListener listener) {
     add(listener);
   }
 
+  protected void deactivate(final ComponentContext context) {
+    stopWatching();
+  }
+
   protected void unbindFileEventListener(final FileEventListener listener) {
     remove(listener);
   }
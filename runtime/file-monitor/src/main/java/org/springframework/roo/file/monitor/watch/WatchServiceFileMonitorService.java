@@ -0,0 +1,388 @@
+package org.springframework.roo.file.monitor.watch;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.apache.commons.lang3.Validate;
+
+import org.springframework.roo.file.monitor.DirectoryMonitoringRequest;
+import org.springframework.roo.file.monitor.MonitoringRequest;
+import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
+import org.springframework.roo.file.monitor.SignallingFileMonitorService;
+import org.springframework.roo.file.monitor.polling.PollingFileMonitorService;
+
+/**
+ * A {@link NotifiableFileMonitorService} that relies on the operating system's
+ * file change notifications (via {@link WatchService}) instead of walking every
+ * monitored directory on each {@link #scanAll()}.
+ * <p>
+ * Each directory covered by a {@link MonitoringRequest} is registered with a
+ * {@link WatchService}. A {@link #scanAll()} only walks the requests in which
+ * the operating system reported a change since the previous scan, so an idle
+ * project costs next to nothing to scan. The walk itself, and therefore the
+ * {@link org.springframework.roo.file.monitor.event.FileEvent}s published, are
+ * exactly those of {@link PollingFileMonitorService}.
+ * <p>
+ * As notifications can be lost (the operating system reports an
+ * {@link java.nio.file.StandardWatchEventKinds#OVERFLOW} in that case) or not
+ * be supported at all for some file systems, every request is fully rescanned
+ * after an overflow and at least once every
+ * {@value #DEFAULT_RECONCILIATION_INTERVAL} milliseconds; the interval can be
+ * changed via the {@value #RECONCILIATION_INTERVAL_PROPERTY} system property.
+ * <p>
+ * While watching, this service also signals the changes it is notified of
+ * through {@link #awaitChanges(long, TimeUnit)}, so callers need not scan
+ * periodically.
+ * <p>
+ * Watching is only enabled when the {@value #WATCH_MODE_PROPERTY} system
+ * property is <code>true</code>; otherwise this service behaves exactly like
+ * {@link PollingFileMonitorService}.
+ *
+ * @since 2.0
+ */
+public class WatchServiceFileMonitorService extends PollingFileMonitorService implements
+    SignallingFileMonitorService {
+
+  static final long DEFAULT_RECONCILIATION_INTERVAL = 60000;
+  static final String RECONCILIATION_INTERVAL_PROPERTY = "roo.file.monitor.reconcile";
+  static final String WATCH_MODE_PROPERTY = "roo.file.monitor.watch";
+
+  /** The paths reported as changed since they were last scanned */
+  private final Set<String> changedPaths = new LinkedHashSet<String>();
+  /** Whether the scan in progress walks every request */
+  private boolean fullScan;
+  private long lastReconciliation;
+  /** The number of overflows recorded, and how many of them a scan walked past */
+  private long overflows;
+  private final long reconciliationInterval;
+  private long reconciledOverflows;
+  private boolean stopped;
+  private final Set<MonitoringRequest> registeredRequests = new HashSet<MonitoringRequest>();
+  private final boolean watch;
+  private final Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+  private final Object watchLock = new Object();
+  private WatchService watchService;
+
+  /**
+   * Constructor that enables watching according to the
+   * {@value #WATCH_MODE_PROPERTY} system property
+   */
+  public WatchServiceFileMonitorService() {
+    this(Boolean.getBoolean(WATCH_MODE_PROPERTY), Long.getLong(RECONCILIATION_INTERVAL_PROPERTY,
+        DEFAULT_RECONCILIATION_INTERVAL));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param watch whether to use file change notifications; if false, every
+   *            {@link #scanAll()} walks every monitored directory
+   * @param reconciliationInterval how many milliseconds may pass between two
+   *            full scans of the monitored directories
+   */
+  public WatchServiceFileMonitorService(final boolean watch, final long reconciliationInterval) {
+    this.watch = watch;
+    this.reconciliationInterval = reconciliationInterval;
+  }
+
+  public int awaitChanges(final long timeout, final TimeUnit unit) throws InterruptedException {
+    Validate.notNull(unit, "Time unit required");
+    final WatchService service;
+    synchronized (watchLock) {
+      if (!isWatching()) {
+        return 0;
+      }
+      service = watchService;
+    }
+    try {
+      // Wait without the lock, so scans can proceed meanwhile
+      WatchKey key = service.poll(timeout, unit);
+      int changes = 0;
+      while (key != null) {
+        synchronized (watchLock) {
+          changes += processEvents(key);
+        }
+        key = service.poll();
+      }
+      return changes;
+    } catch (final ClosedWatchServiceException e) {
+      // Stopped while waiting
+      return 0;
+    }
+  }
+
+  @Override
+  protected boolean isChangedOnDisk(final MonitoringRequest request) {
+    synchronized (watchLock) {
+      if (!isWatching() || fullScan || overflows != reconciledOverflows) {
+        return true;
+      }
+      if (!registeredRequests.contains(request)) {
+        // Register before the scan, so no change made during it is missed
+        register(request);
+        return true;
+      }
+
+      boolean changed = false;
+      for (final Iterator<String> iter = changedPaths.iterator(); iter.hasNext();) {
+        if (isWithin(request, iter.next())) {
+          iter.remove(); // It's about to be scanned
+          changed = true;
+        }
+      }
+      return changed;
+    }
+  }
+
+  public boolean isSignalling() {
+    return isWatching();
+  }
+
+  /**
+   * Indicates whether file change notifications are being used
+   *
+   * @return false if every scan walks every monitored directory
+   */
+  public boolean isWatching() {
+    synchronized (watchLock) {
+      return watch && !stopped && getWatchService() != null;
+    }
+  }
+
+  private WatchService getWatchService() {
+    if (watchService == null) {
+      try {
+        watchService = FileSystems.getDefault().newWatchService();
+      } catch (final IOException e) {
+        LOGGER.log(Level.FINE, "File change notifications unavailable; polling instead", e);
+      } catch (final UnsupportedOperationException e) {
+        LOGGER.log(Level.FINE, "File change notifications unavailable; polling instead", e);
+      }
+    }
+    return watchService;
+  }
+
+  /**
+   * Indicates whether the given directory is skipped while walking, in the
+   * same way as {@link PollingFileMonitorService} does.
+   */
+  private boolean isIgnored(final Path directory) {
+    final String name = directory.getFileName() == null ? "" : directory.getFileName().toString();
+    return name.length() > 1 && name.startsWith(".")
+        || isExcludedDirectory(directory.toString());
+  }
+
+  /**
+   * Takes the pending notifications from the {@link WatchService}. New
+   * directories are registered straight away, so files created in them
+   * before the next scan are not missed.
+   */
+  private void pollEvents() {
+    WatchKey key;
+    while ((key = watchService.poll()) != null) {
+      processEvents(key);
+    }
+  }
+
+  /**
+   * Records the changes reported by the given key
+   *
+   * @return the number of changes reported
+   */
+  private int processEvents(final WatchKey key) {
+    final Path directory = watchedDirectories.get(key);
+    if (directory == null) {
+      key.cancel();
+      return 0;
+    }
+    int changes = 0;
+    for (final WatchEvent<?> event : key.pollEvents()) {
+      changes++;
+      if (event.kind() == OVERFLOW) {
+        recordOverflow();
+        continue;
+      }
+      final Path child = directory.resolve((Path) event.context());
+      changedPaths.add(child.toString());
+      if (event.kind() == ENTRY_CREATE && Files.isDirectory(child) && !isIgnored(child)) {
+        for (final MonitoringRequest request : registeredRequests) {
+          if (request instanceof DirectoryMonitoringRequest
+              && ((DirectoryMonitoringRequest) request).isWatchSubtree()
+              && isWithin(request, child.toString())) {
+            registerTree(child, true);
+            break;
+          }
+        }
+      }
+    }
+    if (!key.reset()) {
+      // The directory is gone or no longer accessible
+      watchedDirectories.remove(key);
+      changedPaths.add(directory.toString());
+      changes++;
+    }
+    return changes;
+  }
+
+  /**
+   * Records that changes may have been missed, so the next scan walks every
+   * request
+   */
+  void recordOverflow() {
+    synchronized (watchLock) {
+      overflows++;
+    }
+  }
+
+  private void register(final MonitoringRequest request) {
+    final File file;
+    try {
+      file = request.getFile().getCanonicalFile();
+    } catch (final IOException e) {
+      // Such a request can only be polled
+      recordOverflow();
+      return;
+    }
+    if (request instanceof DirectoryMonitoringRequest) {
+      registerTree(file.toPath(), ((DirectoryMonitoringRequest) request).isWatchSubtree());
+    } else if (file.getParentFile() != null) {
+      registerTree(file.getParentFile().toPath(), false);
+    }
+    registeredRequests.add(request);
+  }
+
+  private void registerTree(final Path root, final boolean includeSubtree) {
+    try {
+      Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+            throws IOException {
+          if (!dir.equals(root) && (!includeSubtree || isIgnored(dir))) {
+            return FileVisitResult.SKIP_SUBTREE;
+          }
+          watchedDirectories.put(
+              dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (final IOException e) {
+      // Rely on the next full scan to find whatever could not be registered
+      LOGGER.log(Level.FINE, "Unable to watch " + root, e);
+      recordOverflow();
+    }
+  }
+
+  @Override
+  public boolean remove(final MonitoringRequest request) {
+    final boolean removed = super.remove(request);
+    synchronized (watchLock) {
+      if (registeredRequests.remove(request)) {
+        // Stop watching the directories no other request is interested in
+        for (final Iterator<Entry<WatchKey, Path>> iter =
+            watchedDirectories.entrySet().iterator(); iter.hasNext();) {
+          final Entry<WatchKey, Path> entry = iter.next();
+          if (!isWatchedByAnyRequest(entry.getValue())) {
+            entry.getKey().cancel();
+            iter.remove();
+          }
+        }
+      }
+    }
+    return removed;
+  }
+
+  private boolean isWatchedByAnyRequest(final Path directory) {
+    for (final MonitoringRequest request : registeredRequests) {
+      if (isWithin(request, directory.toString())) {
+        return true;
+      }
+      try {
+        // The request's own directory, or the parent of a monitored file
+        if (request.getFile().getCanonicalFile().toPath().startsWith(directory)) {
+          return true;
+        }
+      } catch (final IOException ignored) {
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int scanAll() {
+    // The overflows this scan walks past; those recorded while it runs are
+    // left for the next scan, as their changes may be in requests already
+    // walked
+    long scannedOverflows = -1;
+    synchronized (watchLock) {
+      if (isWatching()) {
+        pollEvents();
+        final long now = System.currentTimeMillis();
+        if (now - lastReconciliation >= reconciliationInterval
+            || overflows != reconciledOverflows) {
+          fullScan = true;
+          scannedOverflows = overflows;
+          lastReconciliation = now;
+          changedPaths.clear();
+        }
+      }
+    }
+    try {
+      return super.scanAll();
+    } finally {
+      synchronized (watchLock) {
+        if (scannedOverflows >= 0) {
+          fullScan = false;
+          reconciledOverflows = scannedOverflows;
+        }
+      }
+    }
+  }
+
+  /**
+   * Stops watching the file system; subsequent scans will walk every
+   * monitored directory.
+   */
+  public void stopWatching() {
+    synchronized (watchLock) {
+      stopped = true;
+      if (watchService != null) {
+        try {
+          watchService.close();
+        } catch (final IOException ignored) {
+        }
+      }
+      watchedDirectories.clear();
+      registeredRequests.clear();
+      changedPaths.clear();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+package org.springframework.roo.file.monitor.polling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.file.monitor.event.FileOperation;
+
+/**
+ * Unit test of {@link DirectorySnapshot}
+ *
+ * @since 2.0
+ */
+public class DirectorySnapshotTest {
+
+  /**
+   * Collects the entries presented by a snapshot
+   */
+  private static class Collector implements DirectorySnapshot.EntryCallback {
+
+    final Map<File, FileOperation> entries = new TreeMap<File, FileOperation>();
+
+    public void onEntry(final File file, final long lastModified, final FileOperation operation) {
+      entries.put(file, operation);
+    }
+  }
+
+  private static final long LONG_AGO = System.currentTimeMillis() - 60000;
+
+  private File root;
+  private File source;
+  private File person;
+
+  @Before
+  public void setUp() throws IOException {
+    root = Files.createTempDirectory("roo-snapshot").toFile().getCanonicalFile();
+    source = new File(root, "src");
+    person = new File(source, "Person.java");
+    assertTrue(source.mkdir());
+    FileUtils.writeStringToFile(person, "class Person {}");
+    assertTrue(new File(root, ".git").createNewFile());
+    // Avoid relisting the directories because they were just modified
+    for (final File file : new File[] {person, source, root}) {
+      assertTrue(file.setLastModified(LONG_AGO));
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(root);
+  }
+
+  private DirectorySnapshot build(final Collector collector) {
+    final DirectorySnapshot snapshot =
+        new DirectorySnapshot(root, true, new PollingFileMonitorService());
+    snapshot.build(collector);
+    return snapshot;
+  }
+
+  private Map<File, FileOperation> scan(final DirectorySnapshot snapshot) {
+    final Collector collector = new Collector();
+    snapshot.scan(collector);
+    return collector.entries;
+  }
+
+  @Test
+  public void testBuildPresentsAllEntriesButHiddenOnes() {
+    final Collector collector = new Collector();
+    build(collector);
+
+    assertEquals(3, collector.entries.size());
+    assertEquals(FileOperation.MONITORING_START, collector.entries.get(root));
+    assertEquals(FileOperation.MONITORING_START, collector.entries.get(source));
+    assertEquals(FileOperation.MONITORING_START, collector.entries.get(person));
+  }
+
+  @Test
+  public void testUnchangedTreeHasNoChanges() {
+    final DirectorySnapshot snapshot = build(new Collector());
+
+    assertTrue(scan(snapshot).isEmpty());
+  }
+
+  @Test
+  public void testModifiedFileIsUpdated() {
+    final DirectorySnapshot snapshot = build(new Collector());
+    assertTrue(person.setLastModified(LONG_AGO + 1000));
+
+    final Map<File, FileOperation> changes = scan(snapshot);
+
+    assertEquals(1, changes.size());
+    assertEquals(FileOperation.UPDATED, changes.get(person));
+  }
+
+  @Test
+  public void testCreatedAndDeletedEntriesAreFound() throws IOException {
+    final DirectorySnapshot snapshot = build(new Collector());
+    final File domain = new File(source, "domain");
+    final File order = new File(domain, "Order.java");
+    assertTrue(domain.mkdir());
+    assertTrue(order.createNewFile());
+    assertTrue(person.delete());
+
+    final Map<File, FileOperation> changes = scan(snapshot);
+
+    assertEquals(FileOperation.UPDATED, changes.get(source));
+    assertEquals(FileOperation.CREATED, changes.get(domain));
+    assertEquals(FileOperation.CREATED, changes.get(order));
+    assertEquals(FileOperation.DELETED, changes.get(person));
+    assertEquals(4, changes.size());
+  }
+
+  @Test
+  public void testRecordedFileIsNotCreatedAgain() throws IOException {
+    final DirectorySnapshot snapshot = build(new Collector());
+    final File order = new File(source, "Order.java");
+    assertTrue(order.createNewFile());
+
+    snapshot.record(order);
+    final Map<File, FileOperation> changes = scan(snapshot);
+
+    assertEquals(1, changes.size());
+    assertEquals(FileOperation.UPDATED, changes.get(source));
+  }
+
+  /**
+   * Links the given directory from the source directory, leaving the latter's
+   * modification time alone
+   *
+   * @return false if the file system has no symbolic links
+   */
+  private boolean link(final String name, final File directory) throws IOException {
+    try {
+      Files.createSymbolicLink(new File(source, name).toPath(), directory.toPath());
+    } catch (final UnsupportedOperationException e) {
+      return false;
+    }
+    assertTrue(source.setLastModified(LONG_AGO));
+    return true;
+  }
+
+  @Test
+  public void testLinkedDirectoryIsFollowed() throws IOException {
+    final File external = Files.createTempDirectory("roo-external").toFile();
+    try {
+      FileUtils.writeStringToFile(new File(external, "Order.java"), "class Order {}");
+      if (!link("lib", external)) {
+        return;
+      }
+      final Collector collector = new Collector();
+      final DirectorySnapshot snapshot = build(collector);
+      final File lib = new File(source, "lib");
+      final File order = new File(lib, "Order.java");
+      assertEquals(5, collector.entries.size());
+      assertTrue(collector.entries.containsKey(order));
+      final File address = new File(source, "Address.java");
+      assertTrue(address.createNewFile());
+
+      final Map<File, FileOperation> changes = scan(snapshot);
+
+      assertEquals(2, changes.size());
+      assertEquals(FileOperation.UPDATED, changes.get(source));
+      assertEquals(FileOperation.CREATED, changes.get(address));
+    } finally {
+      FileUtils.deleteDirectory(external);
+    }
+  }
+
+  @Test
+  public void testLinkWithinTreeIsSkipped() throws IOException {
+    if (!link("loop", root)) {
+      return;
+    }
+    final Collector collector = new Collector();
+    final DirectorySnapshot snapshot = build(collector);
+    assertEquals(3, collector.entries.size());
+    final File address = new File(source, "Address.java");
+    assertTrue(address.createNewFile());
+
+    final Map<File, FileOperation> changes = scan(snapshot);
+
+    assertEquals(2, changes.size());
+    assertEquals(FileOperation.CREATED, changes.get(address));
+  }
+}
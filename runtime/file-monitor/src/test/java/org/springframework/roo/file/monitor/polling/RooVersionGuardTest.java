@@ -0,0 +1,72 @@
+package org.springframework.roo.file.monitor.polling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link RooVersionGuard}
+ *
+ * @since 2.0
+ */
+public class RooVersionGuardTest {
+
+  private static final String ROO_VERSION = "2.0.0.RELEASE";
+
+  private RooVersionGuard guard;
+  private File pom;
+
+  @Before
+  public void setUp() throws IOException {
+    pom = File.createTempFile("pom", ".xml");
+    guard = new RooVersionGuard(pom, ROO_VERSION);
+  }
+
+  @After
+  public void tearDown() {
+    pom.delete();
+  }
+
+  private void writePom(final String properties) throws IOException {
+    FileUtils.writeStringToFile(pom, "<project><properties>" + properties
+        + "</properties></project>");
+  }
+
+  @Test
+  public void testProjectOfAnotherVersionIsDifferent() throws IOException {
+    writePom("<roo.version>1.3.2.RELEASE</roo.version>");
+
+    assertTrue(guard.isDifferentVersion());
+  }
+
+  @Test
+  public void testProjectWithoutVersionIsNotDifferent() throws IOException {
+    writePom("");
+
+    assertFalse(guard.isDifferentVersion());
+  }
+
+  @Test
+  public void testPomIsOnlyReadAgainWhenItChanges() throws IOException {
+    writePom("<roo.version>1.3.2.RELEASE</roo.version>");
+    guard.isDifferentVersion();
+    guard.onFileChanged(new File(pom.getParentFile(), "Person.java").getCanonicalPath());
+
+    assertTrue(guard.isDifferentVersion());
+    assertEquals(1, guard.getProjectVersionReads());
+
+    writePom("<roo.version>" + ROO_VERSION + "</roo.version>");
+    guard.onFileChanged(pom.getCanonicalPath());
+
+    assertFalse(guard.isDifferentVersion());
+    assertEquals(2, guard.getProjectVersionReads());
+  }
+}
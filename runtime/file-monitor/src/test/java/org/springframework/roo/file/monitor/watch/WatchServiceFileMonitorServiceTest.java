@@ -0,0 +1,159 @@
+package org.springframework.roo.file.monitor.watch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.file.monitor.DirectoryMonitoringRequest;
+import org.springframework.roo.file.monitor.MonitoringRequest;
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileEventListener;
+import org.springframework.roo.file.monitor.event.FileOperation;
+
+/**
+ * Unit test of {@link WatchServiceFileMonitorService}
+ *
+ * @since 2.0
+ */
+public class WatchServiceFileMonitorServiceTest {
+
+  private static final long TIMEOUT = 10000;
+
+  private File directory;
+  private final List<FileEvent> events = new ArrayList<FileEvent>();
+  private WatchServiceFileMonitorService service;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-watch").toFile().getCanonicalFile();
+    service = new WatchServiceFileMonitorService(true, Long.MAX_VALUE);
+    service.add(new FileEventListener() {
+      public void onFileEvent(final FileEvent fileEvent) {
+        events.add(fileEvent);
+      }
+    });
+    service.add(new DirectoryMonitoringRequest(directory, true, FileOperation.values()));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    service.stopWatching();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  /**
+   * Scans until the given file is reported with the given operation, as the
+   * operating system may take a moment to report changes
+   */
+  private void assertEventually(final FileOperation operation, final File file)
+      throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (System.currentTimeMillis() < deadline) {
+      service.scanAll();
+      for (final FileEvent event : events) {
+        if (event.getOperation() == operation && event.getFileDetails().getFile().equals(file)) {
+          return;
+        }
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("No " + operation + " event for " + file + " in " + events);
+  }
+
+  @Test
+  public void testIdleScansPublishNothing() {
+    service.scanAll(); // Monitoring start
+    service.scanAll(); // Registers the watches
+    events.clear();
+
+    assertEquals(0, service.scanAll());
+    assertTrue(events.isEmpty());
+  }
+
+  @Test
+  public void testChangesAreSignalled() throws Exception {
+    service.scanAll();
+    service.scanAll();
+    assertTrue(service.isSignalling());
+    assertEquals(0, service.awaitChanges(10, TimeUnit.MILLISECONDS));
+
+    final File file = new File(directory, "Person.java");
+    assertTrue(file.createNewFile());
+
+    assertTrue(service.awaitChanges(TIMEOUT, TimeUnit.MILLISECONDS) > 0);
+    assertEventually(FileOperation.CREATED, file);
+  }
+
+  @Test
+  public void testCreationsAndDeletionsArePublished() throws Exception {
+    service.scanAll();
+    service.scanAll();
+    final File subDirectory = new File(directory, "sub");
+    final File file = new File(subDirectory, "Person.java");
+
+    assertTrue(subDirectory.mkdir());
+    assertTrue(file.createNewFile());
+    assertEventually(FileOperation.CREATED, file);
+
+    assertTrue(file.delete());
+    assertEventually(FileOperation.DELETED, file);
+  }
+
+  @Test
+  public void testNotifiedChangesArePublishedWithoutRescan() throws Exception {
+    final File file = new File(directory, "Person.java");
+    assertTrue(file.createNewFile());
+    service.scanAll();
+    service.scanAll();
+    events.clear();
+
+    service.notifyChanged(file.getCanonicalPath());
+
+    assertEquals(1, service.scanNotified());
+    assertEquals(FileOperation.UPDATED, events.get(0).getOperation());
+  }
+
+  @Test
+  public void testOverflowDuringScanIsKeptForNextScan() {
+    final List<Boolean> changedOnDisk = new ArrayList<Boolean>();
+    final boolean[] overflowDuringScan = new boolean[1];
+    service.stopWatching();
+    service = new WatchServiceFileMonitorService(true, Long.MAX_VALUE) {
+      @Override
+      protected boolean isChangedOnDisk(final MonitoringRequest request) {
+        if (overflowDuringScan[0]) {
+          // As if the watch service overflowed while this scan ran
+          overflowDuringScan[0] = false;
+          recordOverflow();
+        }
+        final boolean changed = super.isChangedOnDisk(request);
+        changedOnDisk.add(changed);
+        return changed;
+      }
+    };
+    service.add(new DirectoryMonitoringRequest(directory, true, FileOperation.values()));
+    service.scanAll();
+    service.scanAll();
+    service.scanAll();
+    changedOnDisk.clear();
+
+    overflowDuringScan[0] = true;
+    service.scanAll();
+    service.scanAll();
+    service.scanAll();
+
+    assertEquals(3, changedOnDisk.size());
+    assertTrue(changedOnDisk.get(1));
+    assertEquals(Boolean.FALSE, changedOnDisk.get(2));
+  }
+}
@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.roo.support.logging.HandlerUtils;
@@ -20,8 +19,9 @@ public class DeleteFile implements UndoableOperation {
   private static final Logger LOGGER = HandlerUtils.getLogger(DeleteFile.class);
 
   private final File actual;
-  private final File backup;
+  private final boolean backedUp;
   private final FilenameResolver filenameResolver;
+  private final UndoJournal journal;
 
   /**
    * Constructor that doesn't allow a reason to be given
@@ -56,9 +56,10 @@ public class DeleteFile implements UndoableOperation {
     Validate.isTrue(actual.exists(), "File '%s' must exist", actual);
     Validate.isTrue(actual.isFile(), "Path '%s' must be a file (not a directory)", actual);
 
+    journal = undoManager.getJournal();
     try {
-      backup = File.createTempFile("DeleteFile", "tmp");
-      FileUtils.copyFile(actual, backup);
+      // Already backed up if changed earlier in the same transaction
+      backedUp = journal.record(actual);
     } catch (final IOException ioe) {
       throw new IllegalStateException("Unable to make a backup of file '" + actual + "'", ioe);
     }
@@ -74,29 +75,23 @@ public class DeleteFile implements UndoableOperation {
   }
 
   public void reset() {
-    // Fix for ROO-1555
-    try {
-      if (backup.delete()) {
-        LOGGER.finest("Reset manage " + filenameResolver.getMeaningfulName(backup));
-      } else {
-        backup.deleteOnExit();
-        LOGGER.fine("Reset failed " + filenameResolver.getMeaningfulName(backup));
-      }
-    } catch (final Throwable e) {
-      backup.deleteOnExit();
-      LOGGER.fine("Reset failed " + filenameResolver.getMeaningfulName(backup));
+    // The undo manager resets the journal itself
+    if (backedUp) {
+      LOGGER.finest("Reset manage " + filenameResolver.getMeaningfulName(actual));
     }
   }
 
   public boolean undo() {
-    try {
-      FileUtils.copyFile(backup, actual);
+    if (!backedUp) {
+      // Restored by the operation that backed it up
+      return true;
+    }
+    if (journal.restore(actual)) {
       LOGGER.fine("Undo delete " + filenameResolver.getMeaningfulName(actual));
       return true;
-    } catch (final IOException ioe) {
-      LOGGER.fine("Undo failed " + filenameResolver.getMeaningfulName(actual));
-      return false;
     }
+    LOGGER.fine("Undo failed " + filenameResolver.getMeaningfulName(actual));
+    return false;
   }
 
 }
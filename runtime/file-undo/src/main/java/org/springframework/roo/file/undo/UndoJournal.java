@@ -0,0 +1,225 @@
+package org.springframework.roo.file.undo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Holds the original contents of the files changed or deleted since the
+ * {@link UndoManager} was last reset or undone, so that an undo can restore
+ * them.
+ * <p>
+ * Contents are kept in memory up to a limit of
+ * {@value #DEFAULT_MEMORY_LIMIT} bytes, which can be changed via the
+ * {@value #MEMORY_LIMIT_PROPERTY} system property. Beyond that limit they are
+ * appended to a single temporary journal file, deleted on {@link #reset()}.
+ * Only the first contents recorded for a given file are kept, as those are
+ * the ones to restore.
+ *
+ * @since 2.0
+ */
+public class UndoJournal {
+
+  /**
+   * Where the original contents of a file are kept
+   */
+  private static class Record {
+
+    private final byte[] contents; // null if in the journal file
+    private final int length;
+    private final long offset;
+
+    private Record(final byte[] contents) {
+      this.contents = contents;
+      length = contents.length;
+      offset = -1;
+    }
+
+    private Record(final long offset, final int length) {
+      contents = null;
+      this.length = length;
+      this.offset = offset;
+    }
+  }
+
+  static final long DEFAULT_MEMORY_LIMIT = 16 * 1024 * 1024;
+  public static final String MEMORY_LIMIT_PROPERTY = "roo.undo.journal.memory";
+
+  private static void copyPermissions(final File file, final File temp) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    try {
+      Files.setPosixFilePermissions(temp.toPath(), Files.getPosixFilePermissions(file.toPath()));
+    } catch (final UnsupportedOperationException e) {
+      // Not a POSIX file system; the rename keeps what it can
+    }
+  }
+
+  private static File getKey(final File file) {
+    return file.getAbsoluteFile();
+  }
+
+  private static File getTarget(final File file) throws IOException {
+    if (Files.isSymbolicLink(file.toPath())) {
+      return file.toPath().toRealPath().toFile();
+    }
+    return file;
+  }
+
+  private RandomAccessFile journal;
+  private File journalFile;
+  private long journalLength;
+  private final long memoryLimit;
+  private long memoryUsed;
+  private final Map<File, Record> records = new HashMap<File, Record>();
+
+  /**
+   * Constructor that reads the memory limit from the
+   * {@value #MEMORY_LIMIT_PROPERTY} system property
+   */
+  public UndoJournal() {
+    this(Long.getLong(MEMORY_LIMIT_PROPERTY, DEFAULT_MEMORY_LIMIT));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param memoryLimit how many bytes of contents to keep in memory before
+   *            using the journal file
+   */
+  public UndoJournal(final long memoryLimit) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  /**
+   * Indicates whether the original contents of the given file are recorded
+   *
+   * @param file the file to check (required)
+   * @return see above
+   */
+  public synchronized boolean contains(final File file) {
+    Validate.notNull(file, "File required");
+    return records.containsKey(getKey(file));
+  }
+
+  /**
+   * @return the journal file, or null if all contents fit in memory
+   */
+  synchronized File getJournalFile() {
+    return journalFile;
+  }
+
+  /**
+   * @return how many bytes of contents are held in memory
+   */
+  synchronized long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  /**
+   * Records the current contents of the given file, unless contents are
+   * already recorded for it
+   *
+   * @param file an existing file (required)
+   * @return whether the contents were recorded by this call
+   * @throws IOException if the file can't be read, or the journal file can't
+   *             be written
+   */
+  public synchronized boolean record(final File file) throws IOException {
+    Validate.notNull(file, "File required");
+    final File key = getKey(file);
+    if (records.containsKey(key)) {
+      return false;
+    }
+    final byte[] contents = FileUtils.readFileToByteArray(file);
+    if (memoryUsed + contents.length <= memoryLimit) {
+      records.put(key, new Record(contents));
+      memoryUsed += contents.length;
+    } else {
+      if (journal == null) {
+        journalFile = File.createTempFile("UndoJournal", "tmp");
+        journal = new RandomAccessFile(journalFile, "rw");
+      }
+      journal.seek(journalLength);
+      journal.write(contents);
+      records.put(key, new Record(journalLength, contents.length));
+      journalLength += contents.length;
+    }
+    return true;
+  }
+
+  /**
+   * Forgets all the recorded contents, releasing the memory and journal file
+   * they use
+   */
+  public synchronized void reset() {
+    records.clear();
+    memoryUsed = 0;
+    if (journal != null) {
+      IOUtils.closeQuietly(journal);
+      if (!journalFile.delete()) {
+        journalFile.deleteOnExit();
+      }
+      journal = null;
+      journalFile = null;
+      journalLength = 0;
+    }
+  }
+
+  /**
+   * Restores the recorded contents of the given file. The file is replaced
+   * atomically where the file system supports it, so that it is never left
+   * partially written, keeping its permissions; if it's a symbolic link, the
+   * file it points to is replaced instead.
+   *
+   * @param file the file to restore (required)
+   * @return false if no contents are recorded for the file, or they could
+   *         not be restored
+   */
+  public synchronized boolean restore(final File file) {
+    Validate.notNull(file, "File required");
+    final File key = getKey(file);
+    final Record record = records.get(key);
+    if (record == null) {
+      return false;
+    }
+    File temp = null;
+    try {
+      byte[] contents = record.contents;
+      if (contents == null) {
+        contents = new byte[record.length];
+        journal.seek(record.offset);
+        journal.readFully(contents);
+      }
+      // Write alongside the file, so it can be moved in place atomically;
+      // a symbolic link is kept by replacing the file it points to
+      final File target = getTarget(key);
+      FileUtils.forceMkdir(target.getParentFile());
+      temp = File.createTempFile(".UndoJournal", "tmp", target.getParentFile());
+      FileUtils.writeByteArrayToFile(temp, contents);
+      copyPermissions(target, temp);
+      try {
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    } catch (final IOException e) {
+      if (temp != null) {
+        FileUtils.deleteQuietly(temp);
+      }
+      return false;
+    }
+  }
+}
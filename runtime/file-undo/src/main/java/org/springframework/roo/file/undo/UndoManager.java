@@ -36,6 +36,15 @@ public interface UndoManager {
    */
   void flush();
 
+  /**
+   * Returns the journal in which {@link UndoableOperation}s keep the original
+   * contents of the files they change, until this manager is reset or undone
+   * 
+   * @return a non-null journal
+   * @since 2.0
+   */
+  UndoJournal getJournal();
+
   /**
    * @param undoListener removes a previously-registered undo listener
    *            (required)
@@ -4,7 +4,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.logging.Logger;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.roo.support.logging.HandlerUtils;
 
@@ -19,11 +18,12 @@ public class UpdateFile implements UndoableOperation {
   private static final Logger LOGGER = HandlerUtils.getLogger(UpdateFile.class);
 
   private final File actual;
-  private final File backup;
+  private boolean backedUp;
   private final FilenameResolver filenameResolver;
+  private final UndoJournal journal;
 
   /**
-   * Constructor
+   * Constructor that backs up the file straight away
    * 
    * @param undoManager cannot be <code>null</code>
    * @param filenameResolver cannot be <code>null</code>
@@ -32,45 +32,72 @@ public class UpdateFile implements UndoableOperation {
    */
   public UpdateFile(final UndoManager undoManager, final FilenameResolver filenameResolver,
       final File actual) {
+    this(undoManager, filenameResolver, actual, false);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param undoManager cannot be <code>null</code>
+   * @param filenameResolver cannot be <code>null</code>
+   * @param actual the file to be updated; must be an existing file (not a
+   *            directory)
+   * @param deferBackup whether to back up the file only when {@link #backup()}
+   *            is called, i.e. just before it is changed; a file that is
+   *            never changed is then never backed up
+   * @since 2.0
+   */
+  public UpdateFile(final UndoManager undoManager, final FilenameResolver filenameResolver,
+      final File actual, final boolean deferBackup) {
     Validate.notNull(undoManager, "Undo manager required");
     Validate.notNull(actual, "File required");
     Validate.isTrue(actual.exists(), "File '%s' must exist", actual);
     Validate.isTrue(actual.isFile(), "Path '%s' must be a file (not a directory)", actual);
     Validate.notNull(filenameResolver, "Filename resolver required");
+    this.actual = actual;
     this.filenameResolver = filenameResolver;
+    journal = undoManager.getJournal();
+    if (!deferBackup) {
+      backup();
+    }
+    undoManager.add(this);
+  }
+
+  /**
+   * Backs up the file, which must not have been changed yet by this
+   * operation. Does nothing if the file was already backed up by this or an
+   * earlier operation of the same transaction, which will restore it.
+   * 
+   * @since 2.0
+   */
+  public void backup() {
+    if (backedUp) {
+      return;
+    }
     try {
-      backup = File.createTempFile("UpdateFile", "tmp");
-      FileUtils.copyFile(actual, backup);
+      backedUp = journal.record(actual);
     } catch (final IOException ioe) {
       throw new IllegalStateException("Unable to make a backup of file '" + actual + "'", ioe);
     }
-    this.actual = actual;
-    undoManager.add(this);
   }
 
   public void reset() {
-    // Fix for ROO-1555
-    try {
-      if (backup.delete()) {
-        LOGGER.finest("Reset manage " + filenameResolver.getMeaningfulName(backup));
-      } else {
-        backup.deleteOnExit();
-        LOGGER.fine("Reset failed " + filenameResolver.getMeaningfulName(backup));
-      }
-    } catch (final Throwable e) {
-      backup.deleteOnExit();
-      LOGGER.fine("Reset failed " + filenameResolver.getMeaningfulName(backup));
+    // The undo manager resets the journal itself
+    if (backedUp) {
+      LOGGER.finest("Reset manage " + filenameResolver.getMeaningfulName(actual));
     }
   }
 
   public boolean undo() {
-    try {
-      FileUtils.copyFile(backup, actual);
+    if (!backedUp) {
+      // Either unchanged, or restored by the operation that backed it up
+      return true;
+    }
+    if (journal.restore(actual)) {
       LOGGER.fine("Undo manage " + filenameResolver.getMeaningfulName(actual));
       return true;
-    } catch (final IOException ioe) {
-      LOGGER.fine("Undo failed " + filenameResolver.getMeaningfulName(actual));
-      return false;
     }
+    LOGGER.fine("Undo failed " + filenameResolver.getMeaningfulName(actual));
+    return false;
   }
 }
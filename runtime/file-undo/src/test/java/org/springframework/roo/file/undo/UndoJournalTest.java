@@ -0,0 +1,129 @@
+package org.springframework.roo.file.undo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link UndoJournal}
+ *
+ * @since 2.0
+ */
+public class UndoJournalTest {
+
+  private File directory;
+  private UndoJournal journal;
+
+  private File createFile(final String name, final String contents) throws IOException {
+    final File file = new File(directory, name);
+    FileUtils.writeStringToFile(file, contents);
+    return file;
+  }
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-undo").toFile();
+    journal = new UndoJournal(10);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    journal.reset();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testOnlyTheFirstContentsAreRestored() throws IOException {
+    final File file = createFile("Person.java", "first");
+
+    assertTrue(journal.record(file));
+    FileUtils.writeStringToFile(file, "second");
+    assertFalse(journal.record(file));
+    FileUtils.writeStringToFile(file, "third");
+
+    assertTrue(journal.restore(file));
+    assertEquals("first", FileUtils.readFileToString(file));
+  }
+
+  @Test
+  public void testContentsBeyondTheMemoryLimitAreJournaled() throws IOException {
+    final File small = createFile("Small.java", "small");
+    final File large = createFile("Large.java", "larger than the limit");
+    final File deleted = createFile("Deleted.java", "also journaled");
+
+    journal.record(small);
+    journal.record(large);
+    journal.record(deleted);
+    FileUtils.writeStringToFile(small, "changed");
+    FileUtils.writeStringToFile(large, "changed");
+    assertTrue(deleted.delete());
+
+    assertEquals(5, journal.getMemoryUsed());
+    final File journalFile = journal.getJournalFile();
+    assertNotNull(journalFile);
+    assertTrue(journal.restore(small));
+    assertTrue(journal.restore(large));
+    assertTrue(journal.restore(deleted));
+    assertEquals("small", FileUtils.readFileToString(small));
+    assertEquals("larger than the limit", FileUtils.readFileToString(large));
+    assertEquals("also journaled", FileUtils.readFileToString(deleted));
+    assertEquals(3, directory.list().length);
+
+    journal.reset();
+    assertNull(journal.getJournalFile());
+    assertFalse(journalFile.exists());
+    assertFalse(journal.contains(small));
+    assertFalse(journal.restore(small));
+  }
+
+  @Test
+  public void testPermissionsAreKept() throws IOException {
+    final File file = createFile("mvnw", "first");
+    final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-x---");
+    try {
+      Files.setPosixFilePermissions(file.toPath(), permissions);
+    } catch (final UnsupportedOperationException e) {
+      return; // Not a POSIX file system
+    }
+
+    journal.record(file);
+    FileUtils.writeStringToFile(file, "second");
+
+    assertTrue(journal.restore(file));
+    assertEquals("first", FileUtils.readFileToString(file));
+    assertEquals(permissions, Files.getPosixFilePermissions(file.toPath()));
+  }
+
+  @Test
+  public void testSymbolicLinkIsKept() throws IOException {
+    final File target = createFile("Person.java", "first");
+    final File link = new File(directory, "Link.java");
+    try {
+      Files.createSymbolicLink(link.toPath(), target.toPath());
+    } catch (final UnsupportedOperationException e) {
+      return; // No symbolic links on this file system
+    }
+
+    journal.record(link);
+    FileUtils.writeStringToFile(link, "second");
+
+    assertTrue(journal.restore(link));
+    assertTrue(Files.isSymbolicLink(link.toPath()));
+    assertEquals("first", FileUtils.readFileToString(target));
+    assertEquals(2, directory.list().length);
+  }
+}
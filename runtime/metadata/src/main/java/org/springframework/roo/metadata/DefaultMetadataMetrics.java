@@ -0,0 +1,168 @@
+package org.springframework.roo.metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Service;
+
+/**
+ * Default implementation of {@link MetadataMetrics}.
+ * <p>
+ * All statistics are kept in concurrent maps of atomic counters, so recording
+ * never blocks.
+ *
+ * @since 2.0
+ */
+@Service
+@Component
+public class DefaultMetadataMetrics implements MetadataMetrics {
+
+  private static final double[] PERCENTILES = {50, 90, 99};
+
+  private static void appendHistogram(final StringBuilder json, final MetadataHistogram histogram) {
+    json.append("{\"count\":").append(histogram.getCount());
+    json.append(",\"sum\":").append(histogram.getSum());
+    json.append(",\"mean\":").append(Math.round(histogram.getMean()));
+    for (final double percentile : PERCENTILES) {
+      json.append(",\"p").append((int) percentile).append("\":")
+          .append(histogram.getPercentile(percentile));
+    }
+    json.append(",\"max\":").append(histogram.getMax()).append("}");
+  }
+
+  private static void appendString(final StringBuilder json, final String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+
+  private volatile MetadataHistogram evictionCascades = new MetadataHistogram();
+  private final ConcurrentMap<String, MetadataHistogram> providerLatencies =
+      new ConcurrentHashMap<String, MetadataHistogram>();
+  private final ConcurrentMap<String, AtomicLong> recomputations =
+      new ConcurrentHashMap<String, AtomicLong>();
+  private volatile MetadataHistogram retryGroups = new MetadataHistogram();
+
+  public MetadataHistogram getEvictionCascades() {
+    return evictionCascades;
+  }
+
+  public Map<String, Long> getMostRecomputed(final int maximum) {
+    final Map<String, Long> counts = new TreeMap<String, Long>();
+    for (final Entry<String, AtomicLong> entry : recomputations.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().get());
+    }
+    final List<Entry<String, Long>> sorted = new ArrayList<Entry<String, Long>>(counts.entrySet());
+    Collections.sort(sorted, new Comparator<Entry<String, Long>>() {
+      public int compare(final Entry<String, Long> o1, final Entry<String, Long> o2) {
+        // Most frequent first; the sort is stable, so ties stay sorted by ID
+        return o2.getValue().compareTo(o1.getValue());
+      }
+    });
+    final Map<String, Long> snapshot = new LinkedHashMap<String, Long>();
+    for (final Entry<String, Long> entry : sorted) {
+      if (snapshot.size() >= maximum) {
+        break;
+      }
+      snapshot.put(entry.getKey(), entry.getValue());
+    }
+    return snapshot;
+  }
+
+  public Map<String, MetadataHistogram> getProviderLatencies() {
+    return new TreeMap<String, MetadataHistogram>(providerLatencies);
+  }
+
+  public MetadataHistogram getRetryGroups() {
+    return retryGroups;
+  }
+
+  public void recordEvictionCascade(final int evictions) {
+    evictionCascades.record(evictions);
+  }
+
+  public void recordProviderInvocation(final String providerClass,
+      final String metadataIdentificationString, final long nanoseconds) {
+    Validate.notBlank(providerClass, "Provider class required");
+    Validate.notBlank(metadataIdentificationString, "Metadata identification string required");
+    MetadataHistogram latencies = providerLatencies.get(providerClass);
+    if (latencies == null) {
+      final MetadataHistogram newLatencies = new MetadataHistogram();
+      latencies = providerLatencies.putIfAbsent(providerClass, newLatencies);
+      if (latencies == null) {
+        latencies = newLatencies;
+      }
+    }
+    latencies.record(nanoseconds);
+
+    AtomicLong counter = recomputations.get(metadataIdentificationString);
+    if (counter == null) {
+      final AtomicLong newCounter = new AtomicLong();
+      counter = recomputations.putIfAbsent(metadataIdentificationString, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    counter.incrementAndGet();
+  }
+
+  public void recordRetryGroup(final int retries) {
+    retryGroups.record(retries);
+  }
+
+  public void reset() {
+    evictionCascades = new MetadataHistogram();
+    providerLatencies.clear();
+    recomputations.clear();
+    retryGroups = new MetadataHistogram();
+  }
+
+  public String toJson(final int maximumRecomputed) {
+    final StringBuilder json = new StringBuilder("{\"providerLatencies\":{");
+    boolean first = true;
+    for (final Entry<String, MetadataHistogram> entry : getProviderLatencies().entrySet()) {
+      if (!first) {
+        json.append(",");
+      }
+      first = false;
+      appendString(json, entry.getKey());
+      json.append(":");
+      appendHistogram(json, entry.getValue());
+    }
+    json.append("},\"evictionCascades\":");
+    appendHistogram(json, evictionCascades);
+    json.append(",\"retryGroups\":");
+    appendHistogram(json, retryGroups);
+    json.append(",\"mostRecomputed\":{");
+    first = true;
+    for (final Entry<String, Long> entry : getMostRecomputed(maximumRecomputed).entrySet()) {
+      if (!first) {
+        json.append(",");
+      }
+      first = false;
+      appendString(json, entry.getKey());
+      json.append(":").append(entry.getValue());
+    }
+    return json.append("}}").toString();
+  }
+}
@@ -6,6 +6,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.Validate;
@@ -23,9 +24,12 @@ import org.springframework.roo.metadata.internal.MetadataDependencyRegistryTrack
 /**
  * Default implementation of {@link MetadataService}.
  * <p>
- * This implementation is not thread safe. It should only be accessed by a
- * single thread at a time. This is enforced by the process manager semantics,
- * so we avoid the cost of re-synchronization here.
+ * Metadata creation is not thread safe. Providers are only invoked by a single
+ * thread at a time. This is enforced by the process manager semantics, so we
+ * avoid the cost of re-synchronization here. When the cache runs in concurrent
+ * mode (see {@link AbstractMetadataCache#CONCURRENT_MODE_PROPERTY}) cache hits
+ * are served without acquiring the service lock, and only cache misses are
+ * serialized. The bookkeeping of recursive requests is kept per thread.
  *
  * @author Ben Alex
  * @author Enrique Ruiz at DISID Corporation S.L.
@@ -40,23 +44,37 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
 
   @Reference
   private MetadataLogger metadataLogger;
+  @Reference
+  private MetadataMetrics metadataMetrics;
+
+  /**
+   * Request control state of the calling thread
+   */
+  private static class RequestContext {
+    // List to assist output "stacks"which show the order of requests
+    final List<String> activeRequests = new ArrayList<String>();
+    // List to help us verify correct operation through logs (predictable
+    // ordering)
+    final List<String> keysToRetry = new ArrayList<String>();
+  }
 
-  // Request control
-  // List to assist output "stacks"which show the order of requests
-  private final List<String> activeRequests = new ArrayList<String>();
   private int cacheEvictions = 0;
-  private int cacheHits = 0;
+  private final AtomicInteger cacheHits = new AtomicInteger();
   private int cacheMisses = 0;
   private int cachePuts = 0;
-  // List to help us verify correct operation through logs (predictable
-  // ordering)
-  private final List<String> keysToRetry = new ArrayList<String>();
   // Mutex
   private final Object lock = new Object();
   private final Map<String, MetadataProvider> providerMap = new HashMap<String, MetadataProvider>();
   private final Set<MetadataProvider> providers = new HashSet<MetadataProvider>();
   private int recursiveGets = 0;
-  private int validGets = 0;
+  // Request control
+  private final ThreadLocal<RequestContext> requestContext = new ThreadLocal<RequestContext>() {
+    @Override
+    protected RequestContext initialValue() {
+      return new RequestContext();
+    }
+  };
+  private final AtomicInteger validGets = new AtomicInteger();
 
   protected MetadataDependencyRegistryTracker registryTracker = null;
 
@@ -100,21 +118,33 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
   @Override
   public void evict(final String metadataIdentificationString) {
     synchronized (lock) {
-      // Clear my own cache (which also verifies the argument is valid at
-      // the same time)
-      super.evict(metadataIdentificationString);
-
-      // Finally, evict downstream dependencies (ie metadata that
-      // previously depended on this now-evicted metadata)
-      MetadataDependencyRegistry registry = this.registryTracker.getService();
-      for (final String downstream : registry.getDownstream(metadataIdentificationString)) {
-        // We only need to evict if it is an instance, as only an
-        // instance will ever go into the cache
-        if (MetadataIdentificationUtils.isIdentifyingInstance(downstream)) {
-          evict(downstream);
-        }
+      metadataMetrics.recordEvictionCascade(evictCascade(metadataIdentificationString));
+    }
+  }
+
+  /**
+   * Evicts the given item and, recursively, its downstream dependencies.
+   *
+   * @param metadataIdentificationString the item to evict
+   * @return the number of items evicted
+   */
+  private int evictCascade(final String metadataIdentificationString) {
+    // Clear my own cache (which also verifies the argument is valid at
+    // the same time)
+    super.evict(metadataIdentificationString);
+    int evictions = 1;
+
+    // Finally, evict downstream dependencies (ie metadata that
+    // previously depended on this now-evicted metadata)
+    MetadataDependencyRegistry registry = this.registryTracker.getService();
+    for (final String downstream : registry.getDownstream(metadataIdentificationString)) {
+      // We only need to evict if it is an instance, as only an
+      // instance will ever go into the cache
+      if (MetadataIdentificationUtils.isIdentifyingInstance(downstream)) {
+        evictions += evictCascade(downstream);
       }
     }
+    return evictions;
   }
 
   @Override
@@ -147,6 +177,15 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
     return getInternal(metadataIdentificationString, evictCache, true);
   }
 
+  public MetadataItem getIfCached(final String metadataIdentificationString) {
+    if (isConcurrent()) {
+      return getFromCache(metadataIdentificationString);
+    }
+    synchronized (lock) {
+      return getFromCache(metadataIdentificationString);
+    }
+  }
+
   private MetadataItem getInternal(final String metadataIdentificationString,
       final boolean evictCache, final boolean cacheRetrievalAllowed) {
     Validate.isTrue(
@@ -154,8 +193,23 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
         "Metadata identification string '%s' does not identify a metadata instance",
         metadataIdentificationString);
 
+    // In concurrent mode a cache hit doesn't need the lock. We only take
+    // this shortcut when not tracing, as the logger must see every event.
+    if (cacheRetrievalAllowed && !evictCache && isConcurrent()
+        && metadataLogger.getTraceLevel() == 0) {
+      final MetadataItem result = getFromCache(metadataIdentificationString);
+      if (result != null) {
+        validGets.incrementAndGet();
+        cacheHits.incrementAndGet();
+        return result;
+      }
+    }
+
     synchronized (lock) {
-      validGets++;
+      validGets.incrementAndGet();
+      final RequestContext context = requestContext.get();
+      final List<String> activeRequests = context.activeRequests;
+      final List<String> keysToRetry = context.keysToRetry;
 
       try {
         metadataLogger.startEvent();
@@ -175,7 +229,7 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
           // Try the cache first
           final MetadataItem result = getFromCache(metadataIdentificationString);
           if (result != null) {
-            cacheHits++;
+            cacheHits.incrementAndGet();
             if (metadataLogger.getTraceLevel() > 0) {
               metadataLogger.log("Cache hit " + metadataIdentificationString);
             }
@@ -220,11 +274,14 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
               + p.getClass().getName());
         }
         MetadataItem result = null;
+        final long started = System.nanoTime();
         try {
           metadataLogger.startTimer(p.getClass().getName());
           result = p.get(metadataIdentificationString);
         } finally {
           metadataLogger.stopTimer();
+          metadataMetrics.recordProviderInvocation(p.getClass().getName(),
+              metadataIdentificationString, System.nanoTime() - started);
         }
 
         // If the item isn't available, evict it from the cache (unless
@@ -266,6 +323,9 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
             final List<String> thisRetry = new ArrayList<String>();
             thisRetry.addAll(keysToRetry);
             keysToRetry.clear();
+            if (!thisRetry.isEmpty()) {
+              metadataMetrics.recordRetryGroup(thisRetry.size());
+            }
             if (metadataLogger.getTraceLevel() > 0 && thisRetry.size() > 0) {
               metadataLogger.log(thisRetry.size() + " keys to retry: " + thisRetry);
             }
@@ -347,10 +407,10 @@ public class DefaultMetadataService extends AbstractMetadataCache implements Met
   @Override
   public final String toString() {
     final ToStringBuilder builder = new ToStringBuilder(this);
-    builder.append("validGets", validGets);
+    builder.append("validGets", validGets.get());
     builder.append("recursiveGets", recursiveGets);
     builder.append("cachePuts", cachePuts);
-    builder.append("cacheHits", cacheHits);
+    builder.append("cacheHits", cacheHits.get());
     builder.append("cacheMisses", cacheMisses);
     builder.append("cacheEvictions", cacheEvictions);
     builder.append("cacheCurrentSize", getCacheSize());
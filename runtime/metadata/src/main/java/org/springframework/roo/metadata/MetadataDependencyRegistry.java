@@ -1,5 +1,6 @@
 package org.springframework.roo.metadata;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -83,6 +84,33 @@ public interface MetadataDependencyRegistry {
    */
   void deregisterDependency(String upstreamDependency, String downstreamDependency);
 
+  /**
+   * Ends a batch started by {@link #startNotificationBatch()}. When the
+   * outermost batch ends, the notifications collected during it are
+   * delivered.
+   * <p>
+   * Each downstream instance is notified at most once for all the upstream
+   * dependencies that changed during the batch, in dependency order, so an
+   * instance is notified after the instances it depends on. Class-level
+   * downstream dependencies still receive one notification per upstream
+   * dependency, as they need it to resolve the instance to refresh.
+   * Notifications published while the batch is being delivered are
+   * delivered in turn, skipping the instances already notified since.
+   * 
+   * @since 2.0
+   */
+  void endNotificationBatch();
+
+  /**
+   * Obtains every dependency currently registered. This is mainly useful to
+   * persist the dependency graph between sessions.
+   * 
+   * @return a snapshot of the registered dependencies (never null, but may
+   *         be empty)
+   * @since 2.0
+   */
+  Collection<MetadataDependency> getDependencies();
+
   /**
    * Obtains the list of the immediate downstream dependencies of the
    * indicated metadata item.
@@ -177,4 +205,15 @@ public interface MetadataDependencyRegistry {
    * @param listener to no longer receive notifications (required)
    */
   void removeNotificationListener(MetadataNotificationListener listener);
+
+  /**
+   * Starts collecting the notifications published by
+   * {@link #notifyDownstream(String)} instead of delivering them immediately.
+   * Batches may be nested; the notifications are only delivered when the
+   * outermost batch ends. Every call must be matched by a call to
+   * {@link #endNotificationBatch()}.
+   * 
+   * @since 2.0
+   */
+  void startNotificationBatch();
 }
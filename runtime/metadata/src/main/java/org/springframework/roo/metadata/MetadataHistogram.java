@@ -0,0 +1,106 @@
+package org.springframework.roo.metadata;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * A histogram of non-negative values, such as latencies in nanoseconds, that
+ * can be recorded concurrently without locking.
+ * <p>
+ * Values are counted in power-of-two buckets, so percentiles are approximate:
+ * {@link #getPercentile(double)} returns the upper bound of the bucket the
+ * percentile falls into (but never more than {@link #getMax()}). The count,
+ * sum and maximum are exact.
+ *
+ * @since 2.0
+ */
+public class MetadataHistogram {
+
+  private static final int BUCKETS = 64;
+
+  /**
+   * Returns the largest value counted in the given bucket
+   */
+  private static long getUpperBound(final int bucket) {
+    return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+
+  /**
+   * @return the number of values recorded
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return the largest value recorded, or zero if none was
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @return the average of the values recorded, or zero if none was
+   */
+  public double getMean() {
+    final long currentCount = count.get();
+    return currentCount == 0 ? 0 : (double) sum.get() / currentCount;
+  }
+
+  /**
+   * Returns the approximate value below which the given percentage of the
+   * recorded values fall.
+   *
+   * @param percentile the percentage (between 0 and 100)
+   * @return the value, or zero if no value was recorded
+   */
+  public long getPercentile(final double percentile) {
+    Validate.isTrue(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += buckets.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulative += buckets.get(i);
+      if (cumulative >= rank) {
+        return Math.min(getUpperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  /**
+   * @return the total of the values recorded
+   */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /**
+   * Records the given value.
+   *
+   * @param value the value (negative values are recorded as zero)
+   */
+  public void record(final long value) {
+    final long positive = Math.max(0, value);
+    buckets.incrementAndGet(Math.min(BUCKETS - 1, BUCKETS - Long.numberOfLeadingZeros(positive)));
+    count.incrementAndGet();
+    sum.addAndGet(positive);
+    long currentMax = max.get();
+    while (positive > currentMax && !max.compareAndSet(currentMax, positive)) {
+      currentMax = max.get();
+    }
+  }
+}
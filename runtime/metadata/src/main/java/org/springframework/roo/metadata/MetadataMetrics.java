@@ -0,0 +1,84 @@
+package org.springframework.roo.metadata;
+
+import java.util.Map;
+
+/**
+ * Collects statistics about the work done by {@link MetadataService}, in more
+ * detail than the {@link MetadataTimingStatistic}s of {@link MetadataLogger}.
+ * <p>
+ * Implementations must be cheap enough to leave enabled at all times and must
+ * not require callers to synchronize, as metadata can be requested from
+ * several threads at once.
+ *
+ * @since 2.0
+ */
+public interface MetadataMetrics {
+
+  /**
+   * @return the number of instances evicted from the cache by each call to
+   *         {@link MetadataService#evict(String)}, including the downstream
+   *         instances evicted along with it (never null)
+   */
+  MetadataHistogram getEvictionCascades();
+
+  /**
+   * Returns the metadata instances created most often, most frequent first.
+   *
+   * @param maximum the maximum number of instances to return
+   * @return a map of metadata identification strings to the number of times
+   *         their provider created them (never null)
+   */
+  Map<String, Long> getMostRecomputed(int maximum);
+
+  /**
+   * @return the time in nanoseconds taken by each metadata provider to create
+   *         an instance, keyed by provider class name (never null)
+   */
+  Map<String, MetadataHistogram> getProviderLatencies();
+
+  /**
+   * @return the number of metadata instances retried after a group of
+   *         recursive requests completed (never null)
+   */
+  MetadataHistogram getRetryGroups();
+
+  /**
+   * Records a call to {@link MetadataService#evict(String)}.
+   *
+   * @param evictions the number of instances evicted, including downstream
+   *            instances
+   */
+  void recordEvictionCascade(int evictions);
+
+  /**
+   * Records that a metadata provider created a metadata instance.
+   *
+   * @param providerClass the provider's class name (required)
+   * @param metadataIdentificationString the instance created (required)
+   * @param nanoseconds how long the provider took
+   */
+  void recordProviderInvocation(String providerClass, String metadataIdentificationString,
+      long nanoseconds);
+
+  /**
+   * Records that a group of recursive requests completed and some instances
+   * had to be retried.
+   *
+   * @param retries the number of instances retried
+   */
+  void recordRetryGroup(int retries);
+
+  /**
+   * Discards all the statistics collected so far.
+   */
+  void reset();
+
+  /**
+   * Returns all the statistics as a JSON document, for consumption by tools.
+   *
+   * @param maximumRecomputed the maximum number of instances to include from
+   *            {@link #getMostRecomputed(int)}
+   * @return a non-blank JSON object
+   */
+  String toJson(int maximumRecomputed);
+}
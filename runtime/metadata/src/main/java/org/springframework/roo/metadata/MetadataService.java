@@ -95,4 +95,17 @@ public interface MetadataService extends MetadataNotificationListener, MetadataC
    */
   @Deprecated
   MetadataItem get(String metadataIdentificationString, boolean evictCache);
+
+  /**
+   * Returns the given metadata if it's currently cached, without creating it
+   * or notifying anyone otherwise. This allows a caller that remembers what
+   * it obtained via {@link #get(String)} to cheaply check that it's still
+   * current.
+   *
+   * @param metadataIdentificationString the ID of the metadata; must identify
+   *            a metadata instance
+   * @return <code>null</code> if it's not cached
+   * @since 2.0
+   */
+  MetadataItem getIfCached(String metadataIdentificationString);
 }
@@ -11,18 +11,41 @@ import org.springframework.roo.metadata.MetadataItem;
 /**
  * Basic {@link MetadataCache} that stores elements on a least recently used
  * (LRU) basis.
- * 
+ * <p>
+ * By default the elements are held in an access-ordered map, which requires
+ * callers to serialize every access (including cache hits). If the
+ * {@value #CONCURRENT_MODE_PROPERTY} system property is set, a
+ * {@link ConcurrentMetadataCache} is used instead, so that cache hits can be
+ * served to several threads without any locking.
+ *
  * @author Ben Alex
  * @since 1.0
  */
 public abstract class AbstractMetadataCache implements MetadataCache {
 
+  /**
+   * System property that enables the concurrent cache mode
+   */
+  public static final String CONCURRENT_MODE_PROPERTY = "roo.metadata.cache.concurrent";
+
   private static final float hashTableLoadFactor = 0.75f;
 
+  private final boolean concurrent;
+  private volatile ConcurrentMetadataCache concurrentMap;
   private LinkedHashMap<String, MetadataItem> map;
   private int maxCapacity = 100000;
 
   protected AbstractMetadataCache() {
+    this(System.getProperty(CONCURRENT_MODE_PROPERTY) != null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param concurrent whether cache hits must be served without locking
+   */
+  protected AbstractMetadataCache(final boolean concurrent) {
+    this.concurrent = concurrent;
     init();
   }
 
@@ -30,7 +53,11 @@ public abstract class AbstractMetadataCache implements MetadataCache {
     Validate.isTrue(
         MetadataIdentificationUtils.isIdentifyingInstance(metadataIdentificationString),
         "Only metadata instances can be cached (not '%s')", metadataIdentificationString);
-    map.remove(metadataIdentificationString);
+    if (concurrent) {
+      concurrentMap.remove(metadataIdentificationString);
+    } else {
+      map.remove(metadataIdentificationString);
+    }
   }
 
   public void evictAll() {
@@ -38,14 +65,15 @@ public abstract class AbstractMetadataCache implements MetadataCache {
   }
 
   protected int getCacheSize() {
-    return map.size();
+    return concurrent ? concurrentMap.size() : map.size();
   }
 
   protected MetadataItem getFromCache(final String metadataIdentificationString) {
     Validate.isTrue(
         MetadataIdentificationUtils.isIdentifyingInstance(metadataIdentificationString),
         "Only metadata instances can be cached (not '%s')", metadataIdentificationString);
-    return map.get(metadataIdentificationString);
+    return concurrent ? concurrentMap.get(metadataIdentificationString) : map
+        .get(metadataIdentificationString);
   }
 
   public int getMaxCapacity() {
@@ -53,6 +81,11 @@ public abstract class AbstractMetadataCache implements MetadataCache {
   }
 
   private void init() {
+    if (concurrent) {
+      concurrentMap =
+          new ConcurrentMetadataCache(maxCapacity, Runtime.getRuntime().availableProcessors());
+      return;
+    }
     final int hashTableCapacity = (int) Math.ceil(maxCapacity / hashTableLoadFactor) + 1;
     map = new LinkedHashMap<String, MetadataItem>(hashTableCapacity, hashTableLoadFactor, true) {
       private static final long serialVersionUID = 1;
@@ -64,9 +97,23 @@ public abstract class AbstractMetadataCache implements MetadataCache {
     };
   }
 
+  /**
+   * Indicates whether this cache can be read by several threads without
+   * external synchronization.
+   *
+   * @return true if the concurrent cache mode is active
+   */
+  protected boolean isConcurrent() {
+    return concurrent;
+  }
+
   public void put(final MetadataItem metadataItem) {
     Validate.notNull(metadataItem, "A metadata item is required");
-    map.put(metadataItem.getId(), metadataItem);
+    if (concurrent) {
+      concurrentMap.put(metadataItem);
+    } else {
+      map.put(metadataItem.getId(), metadataItem);
+    }
   }
 
   public void setMaxCapacity(int maxCapacity) {
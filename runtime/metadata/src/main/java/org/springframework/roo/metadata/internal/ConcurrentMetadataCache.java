@@ -0,0 +1,152 @@
+package org.springframework.roo.metadata.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.lang3.Validate;
+import org.springframework.roo.metadata.MetadataItem;
+
+/**
+ * Approximate least recently used (LRU) store of {@link MetadataItem}s that can
+ * be read without locking.
+ * <p>
+ * Lookups only stamp the entry with the current access tick, so concurrent
+ * cache hits never contend on a shared lock nor reorder a shared list. The
+ * tick advances on every insertion, which is sufficient to order entries for
+ * eviction as eviction only ever happens during an insertion. When the
+ * capacity is exceeded, a single thread trims the oldest entries in one pass
+ * down to a low water mark, so the sorting cost is amortized across many
+ * insertions.
+ *
+ * @since 2.0
+ */
+public class ConcurrentMetadataCache {
+
+  private static class Entry {
+    volatile long lastAccess;
+    final MetadataItem item;
+
+    Entry(final MetadataItem item, final long lastAccess) {
+      this.item = item;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  /**
+   * A candidate for eviction; the access tick is copied so that it cannot
+   * change while the candidates are being sorted.
+   */
+  private static class EvictionCandidate {
+    final Entry entry;
+    final String id;
+    final long lastAccess;
+
+    EvictionCandidate(final String id, final Entry entry) {
+      this.id = id;
+      this.entry = entry;
+      lastAccess = entry.lastAccess;
+    }
+  }
+
+  private static final Comparator<EvictionCandidate> OLDEST_FIRST =
+      new Comparator<EvictionCandidate>() {
+        public int compare(final EvictionCandidate o1, final EvictionCandidate o2) {
+          return o1.lastAccess < o2.lastAccess ? -1 : o1.lastAccess == o2.lastAccess ? 0 : 1;
+        }
+      };
+
+  /** Percentage of the capacity that is kept after a trim */
+  private static final int LOW_WATER_MARK_PERCENTAGE = 95;
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final ConcurrentHashMap<String, Entry> map;
+  private final int maxCapacity;
+  private final AtomicLong ticks = new AtomicLong();
+
+  /**
+   * Constructor
+   *
+   * @param maxCapacity the number of items above which the least recently
+   *            used ones are evicted (must be greater than zero)
+   * @param concurrencyLevel the estimated number of threads concurrently
+   *            updating the cache (must be greater than zero)
+   */
+  public ConcurrentMetadataCache(final int maxCapacity, final int concurrencyLevel) {
+    Validate.isTrue(maxCapacity > 0, "Maximum capacity must be greater than zero");
+    Validate.isTrue(concurrencyLevel > 0, "Concurrency level must be greater than zero");
+    this.maxCapacity = maxCapacity;
+    map =
+        new ConcurrentHashMap<String, Entry>(Math.min(maxCapacity, 1024), 0.75f, concurrencyLevel);
+  }
+
+  public void clear() {
+    map.clear();
+  }
+
+  /**
+   * Returns the cached item with the given ID, recording the access.
+   *
+   * @param metadataIdentificationString the ID to look up
+   * @return <code>null</code> if the item is not cached
+   */
+  public MetadataItem get(final String metadataIdentificationString) {
+    final Entry entry = map.get(metadataIdentificationString);
+    if (entry == null) {
+      return null;
+    }
+    entry.lastAccess = ticks.get();
+    return entry.item;
+  }
+
+  public int getMaxCapacity() {
+    return maxCapacity;
+  }
+
+  public void put(final MetadataItem metadataItem) {
+    map.put(metadataItem.getId(), new Entry(metadataItem, ticks.incrementAndGet()));
+    if (map.size() > maxCapacity) {
+      trim();
+    }
+  }
+
+  public void remove(final String metadataIdentificationString) {
+    map.remove(metadataIdentificationString);
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  private void trim() {
+    // Only one thread needs to trim; the others carry on
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      final int size = map.size();
+      if (size <= maxCapacity) {
+        return;
+      }
+      final List<EvictionCandidate> candidates = new ArrayList<EvictionCandidate>(size);
+      for (final Map.Entry<String, Entry> entry : map.entrySet()) {
+        candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue()));
+      }
+      Collections.sort(candidates, OLDEST_FIRST);
+      final int lowWaterMark = (int) ((long) maxCapacity * LOW_WATER_MARK_PERCENTAGE / 100);
+      final int toEvict = Math.min(candidates.size(), size - lowWaterMark);
+      for (int i = 0; i < toEvict; i++) {
+        final EvictionCandidate eldest = candidates.get(i);
+        // Only remove the exact entry we sorted, in case it was replaced
+        map.remove(eldest.id, eldest.entry);
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+}
@@ -1,17 +1,22 @@
 package org.springframework.roo.metadata.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
+import org.springframework.roo.metadata.MetadataDependency;
 import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
 import org.springframework.roo.metadata.MetadataLogger;
@@ -24,6 +29,13 @@ import org.springframework.roo.metadata.MetadataService;
  * This implementation is not thread safe. It should only be accessed by a
  * single thread at a time. This is enforced by the process manager semantics,
  * so we avoid the cost of re-synchronization here.
+ * <p>
+ * While a notification batch is open, {@link #notifyDownstream(String)} only
+ * records the upstream dependency. When the batch ends, the downstream
+ * dependencies of everything recorded are collected, de-duplicated and
+ * notified in dependency order, so an instance depended upon by many others
+ * (such as a widely used entity) does not cause each of them to be notified
+ * once per change.
  * 
  * @author Ben Alex
  * @since 1.0
@@ -32,19 +44,51 @@ import org.springframework.roo.metadata.MetadataService;
 @Service
 public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegistry {
 
-  /** key: downstream dependency; value: list<upstream dependencies> */
-  private final Map<String, Set<String>> downstreamKeyed = new HashMap<String, Set<String>>();
+  /**
+   * System property that stores the dependencies with interned IDs, which
+   * saves memory on large projects
+   */
+  public static final String INTERNED_GRAPH_PROPERTY = "roo.metadata.dependencies.interned";
 
-  /** key: upstream dependency; value: list<downstream dependencies> */
-  private final Map<String, Set<String>> upstreamKeyed = new HashMap<String, Set<String>>();
+  private final DependencyGraph graph;
 
   private final Set<MetadataNotificationListener> listeners =
       new HashSet<MetadataNotificationListener>();
 
+  /**
+   * key: upstream dependency notified during the batch; value: the dispatch
+   * sequence number when it was notified
+   */
+  private final Map<String, Long> batchedUpstreams = new LinkedHashMap<String, Long>();
+
+  /**
+   * key: downstream instance notified while delivering the batch; value: its
+   * dispatch sequence number
+   */
+  private final Map<String, Long> batchedDispatches = new HashMap<String, Long>();
+
+  private int batchDepth;
+  private boolean deliveringBatch;
+  private long dispatchSequence;
+
   @Reference(policy = ReferencePolicy.DYNAMIC)
   protected volatile MetadataLogger metadataLogger;
   protected MetadataService metadataService;
 
+  public DefaultMetadataDependencyRegistry() {
+    this(System.getProperty(INTERNED_GRAPH_PROPERTY) != null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param interned whether to store the dependencies with interned IDs
+   *            rather than identification strings
+   */
+  public DefaultMetadataDependencyRegistry(final boolean interned) {
+    graph = interned ? new InternedDependencyGraph() : new HashDependencyGraph();
+  }
+
   public void addNotificationListener(final MetadataNotificationListener listener) {
     Validate.notNull(listener, "Metadata notification listener required");
 
@@ -59,29 +103,114 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
 
   private void buildSetOfAllUpstreamDependencies(final Set<String> results,
       final String downstreamDependency) {
-    final Set<String> upstreams = downstreamKeyed.get(downstreamDependency);
-    if (upstreams == null) {
-      return;
-    }
-
-    for (final String upstream : upstreams) {
+    for (final String upstream : graph.getUpstream(downstreamDependency)) {
       results.add(upstream);
       buildSetOfAllUpstreamDependencies(results, upstream);
     }
   }
 
+  /**
+   * Adds the downstream dependencies to notify of a change to the given
+   * upstream dependency, skipping instances already notified since the
+   * upstream dependency published its notification.
+   */
+  private void collectBatchTargets(final String upstreamDependency, final long notifiedAt,
+      final Map<String, String> instanceTargets, final Map<String, Set<String>> classTargets) {
+    final Set<String> targets = new LinkedHashSet<String>();
+    targets.addAll(graph.getDownstream(upstreamDependency));
+    if (!MetadataIdentificationUtils.isIdentifyingClass(upstreamDependency)) {
+      targets.addAll(graph.getDownstream(MetadataIdentificationUtils
+          .getMetadataClassId(upstreamDependency)));
+      // Never notify an instance of its own change
+      targets.remove(upstreamDependency);
+    }
+
+    for (final String downstream : targets) {
+      if (MetadataIdentificationUtils.isIdentifyingClass(downstream)) {
+        // Class-level listeners resolve the instance from the upstream
+        Set<String> upstreams = classTargets.get(downstream);
+        if (upstreams == null) {
+          upstreams = new LinkedHashSet<String>();
+          classTargets.put(downstream, upstreams);
+        }
+        upstreams.add(upstreamDependency);
+        continue;
+      }
+      final Long dispatchedAt = batchedDispatches.get(downstream);
+      if (dispatchedAt != null && dispatchedAt > notifiedAt) {
+        // Already refreshed after this upstream changed
+        continue;
+      }
+      if (!instanceTargets.containsKey(downstream)) {
+        instanceTargets.put(downstream, upstreamDependency);
+      }
+    }
+  }
+
+  /**
+   * Delivers the notifications collected during the batch that just ended,
+   * including those published while doing so.
+   */
+  private void deliverBatch() {
+    deliveringBatch = true;
+    try {
+      while (!batchedUpstreams.isEmpty()) {
+        final Map<String, Long> upstreams = new LinkedHashMap<String, Long>(batchedUpstreams);
+        batchedUpstreams.clear();
+        deliverBatch(upstreams);
+      }
+    } finally {
+      deliveringBatch = false;
+      batchedUpstreams.clear();
+      batchedDispatches.clear();
+    }
+  }
+
+  private void deliverBatch(final Map<String, Long> upstreams) {
+    try {
+      metadataLogger.startEvent();
+
+      if (metadataService != null) {
+        // key: downstream instance; value: the upstream to notify it of
+        final Map<String, String> instanceTargets = new LinkedHashMap<String, String>();
+        // key: downstream class; value: every upstream to notify it of
+        final Map<String, Set<String>> classTargets = new LinkedHashMap<String, Set<String>>();
+        for (final Map.Entry<String, Long> entry : upstreams.entrySet()) {
+          collectBatchTargets(entry.getKey(), entry.getValue(), instanceTargets, classTargets);
+        }
+        final Set<String> targets = new LinkedHashSet<String>(instanceTargets.keySet());
+        targets.addAll(classTargets.keySet());
+        final List<String> ordered = sortByDependencies(targets);
+
+        for (final String downstream : ordered) {
+          final Set<String> classUpstreams = classTargets.get(downstream);
+          if (classUpstreams == null) {
+            dispatch(instanceTargets.get(downstream), downstream, "");
+            batchedDispatches.put(downstream, ++dispatchSequence);
+          } else {
+            for (final String upstream : classUpstreams) {
+              dispatch(upstream, downstream, " [via class]");
+            }
+          }
+        }
+      }
+
+      for (final String upstream : upstreams.keySet()) {
+        notifyListeners(upstream);
+      }
+    } finally {
+      metadataLogger.stopEvent();
+    }
+  }
+
   public void deregisterDependencies(final String downstreamDependency) {
     Validate.isTrue(MetadataIdentificationUtils.isValid(downstreamDependency),
         "Downstream dependency is an invalid metadata identification string ('%s')",
         downstreamDependency);
 
     // Acquire the keys to delete
-    final Set<String> upstream = downstreamKeyed.get(downstreamDependency);
-    if (upstream == null) {
-      return;
-    }
-
-    final Set<String> upstreamToDelete = new HashSet<String>(upstream);
+    final Set<String> upstreamToDelete =
+        new HashSet<String>(graph.getUpstream(downstreamDependency));
 
     // Delete them normally
     for (final String deleteUpstream : upstreamToDelete) {
@@ -98,30 +227,50 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
         "Downstream dependency is an invalid metadata identification string ('%s')",
         downstreamDependency);
 
-    // Maintain the upstream-keyed map, if it even exists
-    final Set<String> downstream = upstreamKeyed.get(upstreamDependency);
-    if (downstream != null) {
-      downstream.remove(downstreamDependency);
+    graph.remove(upstreamDependency, downstreamDependency);
+  }
+
+  /**
+   * Notifies a single downstream dependency, timing the notification
+   */
+  private void dispatch(final String upstreamDependency, final String downstreamDependency,
+      final String traceSuffix) {
+    if (metadataLogger.getTraceLevel() > 0) {
+      metadataLogger.log(upstreamDependency + " -> " + downstreamDependency + traceSuffix);
     }
+    try {
+      final String responsibleClass =
+          MetadataIdentificationUtils.getMetadataClass(downstreamDependency);
+      metadataLogger.startTimer(responsibleClass);
+      metadataService.notify(upstreamDependency, downstreamDependency);
+    } finally {
+      metadataLogger.stopTimer();
+    }
+  }
 
-    // Maintain the downstream-keyed map, if it even exists
-    final Set<String> upstream = downstreamKeyed.get(downstreamDependency);
-    if (upstream != null) {
-      upstream.remove(upstreamDependency);
+  public void endNotificationBatch() {
+    Validate.isTrue(batchDepth > 0, "No notification batch has been started");
+    batchDepth--;
+    if (batchDepth == 0 && !deliveringBatch) {
+      deliverBatch();
     }
   }
 
+  public Collection<MetadataDependency> getDependencies() {
+    return graph.getDependencies();
+  }
+
   public Set<String> getDownstream(final String upstreamDependency) {
     Validate.isTrue(MetadataIdentificationUtils.isValid(upstreamDependency),
         "Upstream dependency is an invalid metadata identification string ('%s')",
         upstreamDependency);
 
-    final Set<String> downstream = upstreamKeyed.get(upstreamDependency);
-    if (downstream == null) {
+    final Collection<String> downstream = graph.getDownstream(upstreamDependency);
+    if (downstream.isEmpty()) {
       return new HashSet<String>();
     }
 
-    return Collections.unmodifiableSet(new CopyOnWriteArraySet<String>(downstream));
+    return Collections.unmodifiableSet(new HashSet<String>(downstream));
   }
 
   public Set<String> getUpstream(final String downstreamDependency) {
@@ -129,12 +278,12 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
         "Downstream dependency is an invalid metadata identification string ('%s')",
         downstreamDependency);
 
-    final Set<String> upstream = downstreamKeyed.get(downstreamDependency);
-    if (upstream == null) {
+    final Collection<String> upstream = graph.getUpstream(downstreamDependency);
+    if (upstream.isEmpty()) {
       return new HashSet<String>();
     }
 
-    return Collections.unmodifiableSet(upstream);
+    return Collections.unmodifiableSet(new HashSet<String>(upstream));
   }
 
   public boolean isValidDependency(final String upstreamDependency,
@@ -151,13 +300,9 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
 
     // The simplest possible outcome is the relationship already exists, so
     // quickly return in that case
-    Set<String> downstream = upstreamKeyed.get(upstreamDependency);
-    if (downstream != null && downstream.contains(downstreamDependency)) {
+    if (graph.contains(upstreamDependency, downstreamDependency)) {
       return true;
     }
-    // Don't need the variable anymore, as we don't care about the other
-    // downstream dependencies
-    downstream = null;
 
     // Need to walk the upstream dependency's parent dependency graph,
     // verifying no presence of the proposed downstream dependency
@@ -173,6 +318,13 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
   }
 
   public void notifyDownstream(final String upstreamDependency) {
+    if (batchDepth > 0 || deliveringBatch) {
+      // Delivered when the batch ends; a repeated notification moves the
+      // point after which downstream refreshes count
+      batchedUpstreams.put(upstreamDependency, dispatchSequence);
+      return;
+    }
+
     try {
       metadataLogger.startEvent();
 
@@ -182,20 +334,10 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
         Set<String> notifiedDownstreams = new HashSet<String>();
         Set<String> downstreams = getDownstream(upstreamDependency);
         for (final String downstream : downstreams) {
-          if (metadataLogger.getTraceLevel() > 0) {
-            metadataLogger.log(upstreamDependency + " -> " + downstream);
-          }
           // No need to ensure upstreamDependency is different from
           // downstream, as that's taken care of in the
           // isValidDependency() method
-          try {
-            final String responsibleClass =
-                MetadataIdentificationUtils.getMetadataClass(downstream);
-            metadataLogger.startTimer(responsibleClass);
-            metadataService.notify(upstreamDependency, downstream);
-          } finally {
-            metadataLogger.stopTimer();
-          }
+          dispatch(upstreamDependency, downstream, "");
           notifiedDownstreams.add(downstream);
         }
 
@@ -219,17 +361,7 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
             // and that instance
             // caused an event to fire)
             if (!notifiedDownstreams.contains(downstream) && !upstreamDependency.equals(downstream)) {
-              if (metadataLogger.getTraceLevel() > 0) {
-                metadataLogger.log(upstreamDependency + " -> " + downstream + " [via class]");
-              }
-              try {
-                final String responsibleClass =
-                    MetadataIdentificationUtils.getMetadataClass(downstream);
-                metadataLogger.startTimer(responsibleClass);
-                metadataService.notify(upstreamDependency, downstream);
-              } finally {
-                metadataLogger.stopTimer();
-              }
+              dispatch(upstreamDependency, downstream, " [via class]");
             }
           }
         }
@@ -238,44 +370,34 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
       }
 
       // Finally dispatch the general-purpose additional listeners
-      for (final MetadataNotificationListener listener : listeners) {
-        if (metadataLogger.getTraceLevel() > 1) {
-          metadataLogger.log(upstreamDependency + " -> " + upstreamDependency + " ["
-              + listener.getClass().getSimpleName() + "]");
-        }
-        try {
-          final String responsibleClass = listener.getClass().getName();
-          metadataLogger.startTimer(responsibleClass);
-          listener.notify(upstreamDependency, null);
-        } finally {
-          metadataLogger.stopTimer();
-        }
-      }
+      notifyListeners(upstreamDependency);
     } finally {
       metadataLogger.stopEvent();
     }
   }
 
+  private void notifyListeners(final String upstreamDependency) {
+    for (final MetadataNotificationListener listener : listeners) {
+      if (metadataLogger.getTraceLevel() > 1) {
+        metadataLogger.log(upstreamDependency + " -> " + upstreamDependency + " ["
+            + listener.getClass().getSimpleName() + "]");
+      }
+      try {
+        final String responsibleClass = listener.getClass().getName();
+        metadataLogger.startTimer(responsibleClass);
+        listener.notify(upstreamDependency, null);
+      } finally {
+        metadataLogger.stopTimer();
+      }
+    }
+  }
+
   public void registerDependency(final String upstreamDependency, final String downstreamDependency) {
     Validate.isTrue(isValidDependency(upstreamDependency, downstreamDependency),
         "Invalid dependency between upstream '%s' and downstream '%s'", upstreamDependency,
         downstreamDependency);
 
-    // Maintain the upstream-keyed map
-    Set<String> downstream = upstreamKeyed.get(upstreamDependency);
-    if (downstream == null) {
-      downstream = new HashSet<String>();
-      upstreamKeyed.put(upstreamDependency, downstream);
-    }
-    downstream.add(downstreamDependency);
-
-    // Maintain the downstream-keyed map
-    Set<String> upstream = downstreamKeyed.get(downstreamDependency);
-    if (upstream == null) {
-      upstream = new HashSet<String>();
-      downstreamKeyed.put(downstreamDependency, upstream);
-    }
-    upstream.add(upstreamDependency);
+    graph.add(upstreamDependency, downstreamDependency);
   }
 
   public void removeNotificationListener(final MetadataNotificationListener listener) {
@@ -288,4 +410,48 @@ public class DefaultMetadataDependencyRegistry implements MetadataDependencyRegi
 
     listeners.remove(listener);
   }
+
+  /**
+   * Orders the given dependencies so that each comes before those that
+   * depend on it, directly, through intermediate dependencies or at class
+   * level.
+   */
+  private List<String> sortByDependencies(final Set<String> dependencies) {
+    if (dependencies.size() < 2) {
+      return new ArrayList<String>(dependencies);
+    }
+    final List<String> postOrder = new ArrayList<String>();
+    final Set<String> visited = new HashSet<String>();
+    for (final String dependency : dependencies) {
+      visitDownstream(dependency, visited, postOrder);
+    }
+    final List<String> sorted = new ArrayList<String>(dependencies.size());
+    for (int i = postOrder.size() - 1; i >= 0; i--) {
+      if (dependencies.contains(postOrder.get(i))) {
+        sorted.add(postOrder.get(i));
+      }
+    }
+    return sorted;
+  }
+
+  public void startNotificationBatch() {
+    batchDepth++;
+  }
+
+  private void visitDownstream(final String dependency, final Set<String> visited,
+      final List<String> postOrder) {
+    if (!visited.add(dependency)) {
+      return;
+    }
+    for (final String downstream : graph.getDownstream(dependency)) {
+      visitDownstream(downstream, visited, postOrder);
+    }
+    if (!MetadataIdentificationUtils.isIdentifyingClass(dependency)) {
+      for (final String downstream : graph.getDownstream(MetadataIdentificationUtils
+          .getMetadataClassId(dependency))) {
+        visitDownstream(downstream, visited, postOrder);
+      }
+    }
+    postOrder.add(dependency);
+  }
 }
@@ -0,0 +1,62 @@
+package org.springframework.roo.metadata.internal;
+
+import java.util.Collection;
+
+import org.springframework.roo.metadata.MetadataDependency;
+
+/**
+ * Stores the dependencies between metadata identification strings on behalf
+ * of {@link DefaultMetadataDependencyRegistry}, which validates the
+ * arguments. Like the registry, implementations need not be thread safe.
+ * 
+ * @since 2.0
+ */
+interface DependencyGraph {
+
+  /**
+   * Adds a dependency, unless it already exists.
+   * 
+   * @param upstreamDependency the upstream dependency (required)
+   * @param downstreamDependency the downstream dependency (required)
+   */
+  void add(String upstreamDependency, String downstreamDependency);
+
+  /**
+   * @param upstreamDependency the upstream dependency (required)
+   * @param downstreamDependency the downstream dependency (required)
+   * @return whether the given dependency exists
+   */
+  boolean contains(String upstreamDependency, String downstreamDependency);
+
+  /**
+   * @return every dependency in the graph (never null)
+   */
+  Collection<MetadataDependency> getDependencies();
+
+  /**
+   * Returns the immediate downstream dependencies of the given dependency.
+   * The result must not be modified and may reflect later changes to the
+   * graph, so callers needing it for longer must copy it.
+   * 
+   * @param upstreamDependency the upstream dependency (required)
+   * @return the downstream dependencies (never null)
+   */
+  Collection<String> getDownstream(String upstreamDependency);
+
+  /**
+   * Returns the immediate upstream dependencies of the given dependency, on
+   * the same terms as {@link #getDownstream(String)}.
+   * 
+   * @param downstreamDependency the downstream dependency (required)
+   * @return the upstream dependencies (never null)
+   */
+  Collection<String> getUpstream(String downstreamDependency);
+
+  /**
+   * Removes a dependency, if it exists.
+   * 
+   * @param upstreamDependency the upstream dependency (required)
+   * @param downstreamDependency the downstream dependency (required)
+   */
+  void remove(String upstreamDependency, String downstreamDependency);
+}
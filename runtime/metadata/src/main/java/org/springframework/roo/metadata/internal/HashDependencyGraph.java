@@ -0,0 +1,90 @@
+package org.springframework.roo.metadata.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.roo.metadata.MetadataDependency;
+
+/**
+ * {@link DependencyGraph} that keeps a set of identification strings for each
+ * side of every dependency. Simple and fast, but each set repeats the full
+ * identification strings of its members.
+ * 
+ * @since 2.0
+ */
+class HashDependencyGraph implements DependencyGraph {
+
+  /** key: downstream dependency; value: list<upstream dependencies> */
+  private final Map<String, Set<String>> downstreamKeyed = new HashMap<String, Set<String>>();
+
+  /** key: upstream dependency; value: list<downstream dependencies> */
+  private final Map<String, Set<String>> upstreamKeyed = new HashMap<String, Set<String>>();
+
+  public void add(final String upstreamDependency, final String downstreamDependency) {
+    // Maintain the upstream-keyed map
+    Set<String> downstream = upstreamKeyed.get(upstreamDependency);
+    if (downstream == null) {
+      downstream = new HashSet<String>();
+      upstreamKeyed.put(upstreamDependency, downstream);
+    }
+    downstream.add(downstreamDependency);
+
+    // Maintain the downstream-keyed map
+    Set<String> upstream = downstreamKeyed.get(downstreamDependency);
+    if (upstream == null) {
+      upstream = new HashSet<String>();
+      downstreamKeyed.put(downstreamDependency, upstream);
+    }
+    upstream.add(upstreamDependency);
+  }
+
+  public boolean contains(final String upstreamDependency, final String downstreamDependency) {
+    final Set<String> downstream = upstreamKeyed.get(upstreamDependency);
+    return downstream != null && downstream.contains(downstreamDependency);
+  }
+
+  public Collection<MetadataDependency> getDependencies() {
+    final Collection<MetadataDependency> dependencies = new ArrayList<MetadataDependency>();
+    for (final Map.Entry<String, Set<String>> entry : upstreamKeyed.entrySet()) {
+      for (final String downstream : entry.getValue()) {
+        dependencies.add(new MetadataDependency(entry.getKey(), downstream));
+      }
+    }
+    return dependencies;
+  }
+
+  public Collection<String> getDownstream(final String upstreamDependency) {
+    return get(upstreamKeyed, upstreamDependency);
+  }
+
+  public Collection<String> getUpstream(final String downstreamDependency) {
+    return get(downstreamKeyed, downstreamDependency);
+  }
+
+  public void remove(final String upstreamDependency, final String downstreamDependency) {
+    // Maintain the upstream-keyed map, if it even exists
+    final Set<String> downstream = upstreamKeyed.get(upstreamDependency);
+    if (downstream != null) {
+      downstream.remove(downstreamDependency);
+    }
+
+    // Maintain the downstream-keyed map, if it even exists
+    final Set<String> upstream = downstreamKeyed.get(downstreamDependency);
+    if (upstream != null) {
+      upstream.remove(upstreamDependency);
+    }
+  }
+
+  private Collection<String> get(final Map<String, Set<String>> map, final String key) {
+    final Set<String> values = map.get(key);
+    if (values == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(values);
+  }
+}
@@ -0,0 +1,191 @@
+package org.springframework.roo.metadata.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.roo.metadata.MetadataDependency;
+
+/**
+ * {@link DependencyGraph} that interns each identification string to an int
+ * ID, held once, and stores the dependencies of each ID in sorted arrays of
+ * IDs. This uses a fraction of the memory of {@link HashDependencyGraph} on
+ * large projects, where the same identification strings appear in many
+ * dependencies.
+ * <p>
+ * IDs are recycled once an identification string has no dependency left.
+ *
+ * @since 2.0
+ */
+class InternedDependencyGraph implements DependencyGraph {
+
+  private static final int[] EMPTY = new int[0];
+  private static final int INITIAL_CAPACITY = 256;
+
+  /**
+   * Inserts the given value into the sorted list of the given ID, unless
+   * present
+   */
+  private static void insert(final int[][] lists, final int[] sizes, final int id,
+      final int value) {
+    int[] list = lists[id];
+    final int size = sizes[id];
+    final int index = Arrays.binarySearch(list, 0, size, value);
+    if (index >= 0) {
+      return;
+    }
+    final int insertion = -index - 1;
+    if (size == list.length) {
+      list = Arrays.copyOf(list, Math.max(2, size * 2));
+      lists[id] = list;
+    }
+    System.arraycopy(list, insertion, list, insertion + 1, size - insertion);
+    list[insertion] = value;
+    sizes[id] = size + 1;
+  }
+
+  /**
+   * Removes the given value from the sorted list of the given ID, if present
+   */
+  private static void remove(final int[][] lists, final int[] sizes, final int id,
+      final int value) {
+    final int[] list = lists[id];
+    final int size = sizes[id];
+    final int index = Arrays.binarySearch(list, 0, size, value);
+    if (index < 0) {
+      return;
+    }
+    System.arraycopy(list, index + 1, list, index, size - index - 1);
+    sizes[id] = size - 1;
+    if (sizes[id] == 0) {
+      lists[id] = EMPTY;
+    }
+  }
+
+  /** key: identification string; value: its ID */
+  private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+  /** index: ID; value: its identification string, or null if free */
+  private String[] names = new String[INITIAL_CAPACITY];
+
+  /** index: upstream ID; value: sorted downstream IDs */
+  private int[][] downstreams = new int[INITIAL_CAPACITY][];
+  private int[] downstreamSizes = new int[INITIAL_CAPACITY];
+
+  /** index: downstream ID; value: sorted upstream IDs */
+  private int[][] upstreams = new int[INITIAL_CAPACITY][];
+  private int[] upstreamSizes = new int[INITIAL_CAPACITY];
+
+  private int[] freeIds = new int[INITIAL_CAPACITY];
+  private int freeIdCount;
+  private int nextId;
+
+  public void add(final String upstreamDependency, final String downstreamDependency) {
+    final int upstream = intern(upstreamDependency);
+    final int downstream = intern(downstreamDependency);
+    insert(downstreams, downstreamSizes, upstream, downstream);
+    insert(upstreams, upstreamSizes, downstream, upstream);
+  }
+
+  public boolean contains(final String upstreamDependency, final String downstreamDependency) {
+    final Integer upstream = ids.get(upstreamDependency);
+    final Integer downstream = ids.get(downstreamDependency);
+    if (upstream == null || downstream == null) {
+      return false;
+    }
+    return Arrays.binarySearch(downstreams[upstream], 0, downstreamSizes[upstream],
+        downstream) >= 0;
+  }
+
+  public Collection<MetadataDependency> getDependencies() {
+    final Collection<MetadataDependency> dependencies = new ArrayList<MetadataDependency>();
+    for (int upstream = 0; upstream < nextId; upstream++) {
+      for (int i = 0; i < downstreamSizes[upstream]; i++) {
+        dependencies
+            .add(new MetadataDependency(names[upstream], names[downstreams[upstream][i]]));
+      }
+    }
+    return dependencies;
+  }
+
+  public Collection<String> getDownstream(final String upstreamDependency) {
+    return get(downstreams, downstreamSizes, upstreamDependency);
+  }
+
+  public Collection<String> getUpstream(final String downstreamDependency) {
+    return get(upstreams, upstreamSizes, downstreamDependency);
+  }
+
+  /**
+   * @return the number of identification strings currently interned
+   */
+  int getInternedCount() {
+    return ids.size();
+  }
+
+  public void remove(final String upstreamDependency, final String downstreamDependency) {
+    final Integer upstream = ids.get(upstreamDependency);
+    final Integer downstream = ids.get(downstreamDependency);
+    if (upstream == null || downstream == null) {
+      return;
+    }
+    remove(downstreams, downstreamSizes, upstream, downstream);
+    remove(upstreams, upstreamSizes, downstream, upstream);
+    releaseIfUnused(upstream);
+    releaseIfUnused(downstream);
+  }
+
+  private Collection<String> get(final int[][] lists, final int[] sizes, final String key) {
+    final Integer id = ids.get(key);
+    if (id == null) {
+      return new ArrayList<String>(0);
+    }
+    // Resolve the names now, as the IDs may be recycled later
+    final int size = sizes[id];
+    final String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = names[lists[id][i]];
+    }
+    return Arrays.asList(values);
+  }
+
+  private int intern(final String name) {
+    final Integer existing = ids.get(name);
+    if (existing != null) {
+      return existing;
+    }
+    final int id;
+    if (freeIdCount > 0) {
+      id = freeIds[--freeIdCount];
+    } else {
+      if (nextId == names.length) {
+        final int capacity = names.length * 2;
+        names = Arrays.copyOf(names, capacity);
+        downstreams = Arrays.copyOf(downstreams, capacity);
+        downstreamSizes = Arrays.copyOf(downstreamSizes, capacity);
+        upstreams = Arrays.copyOf(upstreams, capacity);
+        upstreamSizes = Arrays.copyOf(upstreamSizes, capacity);
+      }
+      id = nextId++;
+    }
+    names[id] = name;
+    downstreams[id] = EMPTY;
+    upstreams[id] = EMPTY;
+    ids.put(name, id);
+    return id;
+  }
+
+  private void releaseIfUnused(final int id) {
+    if (downstreamSizes[id] > 0 || upstreamSizes[id] > 0) {
+      return;
+    }
+    ids.remove(names[id]);
+    names[id] = null;
+    if (freeIdCount == freeIds.length) {
+      freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+    }
+    freeIds[freeIdCount++] = id;
+  }
+}
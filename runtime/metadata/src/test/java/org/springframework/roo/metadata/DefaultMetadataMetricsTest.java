@@ -0,0 +1,86 @@
+package org.springframework.roo.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link DefaultMetadataMetrics}
+ *
+ * @since 2.0
+ */
+public class DefaultMetadataMetricsTest {
+
+  private static final String ENTITY = MetadataIdentificationUtils.create("com.Test", "entity");
+  private static final String PROVIDER = "com.example.EntityProvider";
+  private static final String REPOSITORY = MetadataIdentificationUtils.create("com.Test",
+      "repository");
+
+  private DefaultMetadataMetrics metrics;
+
+  @Before
+  public void setUp() {
+    metrics = new DefaultMetadataMetrics();
+  }
+
+  @Test
+  public void testHistogramPercentilesAreBucketUpperBounds() {
+    final MetadataHistogram histogram = new MetadataHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+
+    assertEquals(100, histogram.getCount());
+    assertEquals(5050, histogram.getSum());
+    assertEquals(100, histogram.getMax());
+    assertEquals(63, histogram.getPercentile(50));
+    assertEquals(100, histogram.getPercentile(99));
+  }
+
+  @Test
+  public void testMostRecomputedAreSortedByFrequency() {
+    metrics.recordProviderInvocation(PROVIDER, ENTITY, 10);
+    metrics.recordProviderInvocation(PROVIDER, REPOSITORY, 10);
+    metrics.recordProviderInvocation(PROVIDER, REPOSITORY, 30);
+
+    final Map<String, Long> mostRecomputed = metrics.getMostRecomputed(10);
+
+    assertEquals(Arrays.asList(REPOSITORY, ENTITY), Arrays.asList(mostRecomputed.keySet()
+        .toArray()));
+    assertEquals(Long.valueOf(2), mostRecomputed.get(REPOSITORY));
+    assertEquals(3, metrics.getProviderLatencies().get(PROVIDER).getCount());
+    assertEquals(1, metrics.getMostRecomputed(1).size());
+  }
+
+  @Test
+  public void testResetDiscardsEverything() {
+    metrics.recordProviderInvocation(PROVIDER, ENTITY, 10);
+    metrics.recordEvictionCascade(3);
+    metrics.recordRetryGroup(2);
+
+    metrics.reset();
+
+    assertTrue(metrics.getProviderLatencies().isEmpty());
+    assertTrue(metrics.getMostRecomputed(10).isEmpty());
+    assertEquals(0, metrics.getEvictionCascades().getCount());
+    assertEquals(0, metrics.getRetryGroups().getCount());
+  }
+
+  @Test
+  public void testJsonDump() {
+    metrics.recordProviderInvocation(PROVIDER, ENTITY, 1000);
+    metrics.recordEvictionCascade(3);
+
+    assertEquals("{\"providerLatencies\":{\"" + PROVIDER + "\":{\"count\":1,\"sum\":1000,"
+        + "\"mean\":1000,\"p50\":1000,\"p90\":1000,\"p99\":1000,\"max\":1000}},"
+        + "\"evictionCascades\":{\"count\":1,\"sum\":3,\"mean\":3,\"p50\":3,\"p90\":3,"
+        + "\"p99\":3,\"max\":3},\"retryGroups\":{\"count\":0,\"sum\":0,\"mean\":0,\"p50\":0,"
+        + "\"p90\":0,\"p99\":0,\"max\":0},\"mostRecomputed\":{\"" + ENTITY + "\":1}}",
+        metrics.toJson(10));
+  }
+}
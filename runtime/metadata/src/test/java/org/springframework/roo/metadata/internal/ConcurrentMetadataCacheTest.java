@@ -0,0 +1,60 @@
+package org.springframework.roo.metadata.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.springframework.roo.metadata.AbstractMetadataItem;
+import org.springframework.roo.metadata.MetadataIdentificationUtils;
+import org.springframework.roo.metadata.MetadataItem;
+
+/**
+ * Unit test of {@link ConcurrentMetadataCache}
+ *
+ * @since 2.0
+ */
+public class ConcurrentMetadataCacheTest {
+
+  private static class TestMetadataItem extends AbstractMetadataItem {
+
+    TestMetadataItem(final int number) {
+      super(MetadataIdentificationUtils.create("com.Test", "item" + number));
+    }
+  }
+
+  @Test
+  public void testPutGetAndRemove() {
+    final ConcurrentMetadataCache cache = new ConcurrentMetadataCache(100, 4);
+    final MetadataItem item = new TestMetadataItem(1);
+
+    cache.put(item);
+    assertSame(item, cache.get(item.getId()));
+    assertEquals(1, cache.size());
+
+    cache.remove(item.getId());
+    assertNull(cache.get(item.getId()));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedItems() {
+    final ConcurrentMetadataCache cache = new ConcurrentMetadataCache(100, 4);
+    final MetadataItem first = new TestMetadataItem(0);
+    cache.put(first);
+    for (int i = 1; i < 100; i++) {
+      cache.put(new TestMetadataItem(i));
+      // Keep the first item in use
+      cache.get(first.getId());
+    }
+    assertEquals(100, cache.size());
+
+    // Exceeding the capacity trims the cache down to its low water mark
+    cache.put(new TestMetadataItem(100));
+    assertEquals(95, cache.size());
+    assertNotNull(cache.get(first.getId()));
+    assertNull(cache.get(new TestMetadataItem(1).getId()));
+    assertNotNull(cache.get(new TestMetadataItem(100).getId()));
+  }
+}
@@ -1,9 +1,21 @@
 package org.springframework.roo.metadata.internal;
 
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.roo.metadata.DefaultMetadataLogger;
 import org.springframework.roo.metadata.MetadataIdentificationUtils;
+import org.springframework.roo.metadata.MetadataService;
 
 public class DefaultMetadataDependencyRegistryTest {
 
@@ -53,4 +65,55 @@ public class DefaultMetadataDependencyRegistryTest {
     Assert.assertEquals(0, reg.getDownstream(JAVA_TYPE_PERSON).size());
     Assert.assertEquals(2, reg.getDownstream(MVC_CONTROLLER).size());
   }
+
+  @Test
+  public void testBatchNotifiesEachDownstreamOnceInDependencyOrder() {
+    final DefaultMetadataDependencyRegistry reg = new DefaultMetadataDependencyRegistry();
+    final MetadataService metadataService = mock(MetadataService.class);
+    reg.metadataLogger = new DefaultMetadataLogger();
+    reg.addNotificationListener(metadataService);
+    // Like the metadata service, publish a notification for each instance refreshed
+    doAnswer(new Answer<Void>() {
+      public Void answer(final InvocationOnMock invocation) {
+        reg.notifyDownstream((String) invocation.getArguments()[1]);
+        return null;
+      }
+    }).when(metadataService).notify(anyString(), anyString());
+    reg.registerDependency(MVC_CONTROLLER, JSP_PAGE_1);
+    reg.registerDependency(JAVA_TYPE_PERSON, JSP_PAGE_1);
+    reg.registerDependency(JAVA_TYPE_PERSON, MVC_CONTROLLER);
+    reg.registerDependency(DISK_FILE, JAVA_TYPE_PERSON);
+    reg.registerDependency(JAVA_TYPE_OBJECT, JAVA_TYPE_PERSON);
+
+    reg.startNotificationBatch();
+    reg.notifyDownstream(DISK_FILE);
+    reg.notifyDownstream(JAVA_TYPE_OBJECT);
+    reg.notifyDownstream(DISK_FILE);
+    verifyZeroInteractions(metadataService);
+    reg.endNotificationBatch();
+
+    final InOrder inOrder = inOrder(metadataService);
+    inOrder.verify(metadataService).notify(DISK_FILE, JAVA_TYPE_PERSON);
+    inOrder.verify(metadataService).notify(JAVA_TYPE_PERSON, MVC_CONTROLLER);
+    inOrder.verify(metadataService).notify(JAVA_TYPE_PERSON, JSP_PAGE_1);
+    verify(metadataService, times(3)).notify(anyString(), anyString());
+  }
+
+  @Test
+  public void testNestedBatchesAreDeliveredByTheOutermost() {
+    final DefaultMetadataDependencyRegistry reg = new DefaultMetadataDependencyRegistry();
+    final MetadataService metadataService = mock(MetadataService.class);
+    reg.metadataLogger = new DefaultMetadataLogger();
+    reg.addNotificationListener(metadataService);
+    reg.registerDependency(DISK_FILE, JAVA_TYPE_OBJECT);
+
+    reg.startNotificationBatch();
+    reg.startNotificationBatch();
+    reg.notifyDownstream(DISK_FILE);
+    reg.endNotificationBatch();
+    verifyZeroInteractions(metadataService);
+    reg.endNotificationBatch();
+
+    verify(metadataService).notify(DISK_FILE, JAVA_TYPE_OBJECT);
+  }
 }
@@ -0,0 +1,80 @@
+package org.springframework.roo.metadata.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.metadata.MetadataIdentificationUtils;
+
+/**
+ * Unit test of {@link InternedDependencyGraph}
+ *
+ * @since 2.0
+ */
+public class InternedDependencyGraphTest {
+
+  private static final String ENTITY = MetadataIdentificationUtils.create("com.Test", "entity");
+  private static final String REPOSITORY = MetadataIdentificationUtils.create("com.Test",
+      "repository");
+  private static final String SERVICE = MetadataIdentificationUtils.create("com.Test", "service");
+  private static final String TYPE = MetadataIdentificationUtils.create("com.Test", "type");
+
+  private InternedDependencyGraph graph;
+
+  @Before
+  public void setUp() {
+    graph = new InternedDependencyGraph();
+  }
+
+  @Test
+  public void testDependenciesAreKeptBothWays() {
+    graph.add(TYPE, ENTITY);
+    graph.add(TYPE, REPOSITORY);
+    graph.add(ENTITY, REPOSITORY);
+    graph.add(TYPE, ENTITY);
+
+    assertTrue(graph.contains(TYPE, ENTITY));
+    assertFalse(graph.contains(ENTITY, TYPE));
+    assertEquals(new HashSet<String>(Arrays.asList(ENTITY, REPOSITORY)), new HashSet<String>(
+        graph.getDownstream(TYPE)));
+    assertEquals(new HashSet<String>(Arrays.asList(TYPE, ENTITY)), new HashSet<String>(
+        graph.getUpstream(REPOSITORY)));
+    assertEquals(3, graph.getDependencies().size());
+  }
+
+  @Test
+  public void testUnusedIdsAreRecycled() {
+    graph.add(TYPE, ENTITY);
+    graph.add(ENTITY, REPOSITORY);
+
+    graph.remove(ENTITY, REPOSITORY);
+    graph.remove(SERVICE, ENTITY);
+
+    assertEquals(2, graph.getInternedCount());
+    assertTrue(graph.getDownstream(ENTITY).isEmpty());
+    assertTrue(graph.getUpstream(REPOSITORY).isEmpty());
+
+    graph.add(ENTITY, SERVICE);
+
+    assertEquals(3, graph.getInternedCount());
+    assertEquals(Arrays.asList(SERVICE), graph.getDownstream(ENTITY));
+    assertTrue(graph.contains(TYPE, ENTITY));
+  }
+
+  @Test
+  public void testRegistryBehavesTheSameWithInternedIds() {
+    final DefaultMetadataDependencyRegistry registry = new DefaultMetadataDependencyRegistry(true);
+    registry.registerDependency(TYPE, ENTITY);
+    registry.registerDependency(ENTITY, REPOSITORY);
+
+    assertFalse(registry.isValidDependency(REPOSITORY, TYPE));
+    registry.deregisterDependencies(REPOSITORY);
+    assertTrue(registry.getDownstream(ENTITY).isEmpty());
+    assertEquals(1, registry.getDownstream(TYPE).size());
+  }
+}
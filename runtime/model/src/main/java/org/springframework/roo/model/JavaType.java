@@ -5,6 +5,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -16,6 +17,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Vector;
+import java.util.WeakHashMap;
 
 /**
  * The declaration of a Java type (i.e. contains no details of its members).
@@ -28,12 +30,20 @@ import java.util.Vector;
  * provides convenient ways to determine the type's simple name and package
  * name. A related {@link org.springframework.core.convert.converter.Converter}
  * is also offered.
+ * <p>
+ * Types that are used over and over again can be shared via
+ * {@link #intern(JavaType)} and {@link #intern(String)}.
  *
  * @author Ben Alex
  * @since 1.0
  */
 public class JavaType implements Comparable<JavaType> {
 
+  // Declared first, as the constants below may intern their enclosing types
+  /** key: {@link #getInternKey()}; weakly held, as are the types */
+  private static final Map<String, WeakReference<JavaType>> INTERNED_TYPES =
+      new WeakHashMap<String, WeakReference<JavaType>>();
+
   public static final JavaType BOOLEAN_OBJECT = new JavaType("java.lang.Boolean");
   public static final JavaType BOOLEAN_PRIMITIVE = new JavaType("java.lang.Boolean", 0,
       DataType.PRIMITIVE, null, null);
@@ -196,6 +206,55 @@ public class JavaType implements Comparable<JavaType> {
         Arrays.asList(parameters), null);
   }
 
+  /**
+   * Returns the canonical instance of the given type, being the first
+   * instance interned with the same name, data type, array dimensions, type
+   * argument name, type parameters, enclosing type and module. Canonical
+   * instances are weakly held, so that the ones no longer in use can be
+   * reclaimed.
+   *
+   * @param type the type to intern (required)
+   * @return a non-<code>null</code> type equal to the given one
+   * @since 2.0
+   */
+  public static JavaType intern(final JavaType type) {
+    Validate.notNull(type, "Java type required");
+    final String key = type.getInternKey();
+    synchronized (INTERNED_TYPES) {
+      final WeakReference<JavaType> reference = INTERNED_TYPES.get(key);
+      final JavaType canonical = reference == null ? null : reference.get();
+      if (canonical != null) {
+        return canonical;
+      }
+      INTERNED_TYPES.put(key, new WeakReference<JavaType>(type));
+      return type;
+    }
+  }
+
+  /**
+   * Returns the canonical instance of the type with the given name, as
+   * constructed by {@link #JavaType(String)}; unlike that constructor, this
+   * doesn't create a new instance if the type has already been interned.
+   *
+   * @param fullyQualifiedTypeName the name (as per the rules of
+   *            {@link #JavaType(String)}; mandatory)
+   * @return a non-<code>null</code> type
+   * @see #intern(JavaType)
+   * @since 2.0
+   */
+  public static JavaType intern(final String fullyQualifiedTypeName) {
+    Validate.notBlank(fullyQualifiedTypeName, "Fully qualified type name required");
+    synchronized (INTERNED_TYPES) {
+      // Such a type's intern key is its name
+      final WeakReference<JavaType> reference = INTERNED_TYPES.get(fullyQualifiedTypeName);
+      final JavaType canonical = reference == null ? null : reference.get();
+      if (canonical != null) {
+        return canonical;
+      }
+    }
+    return intern(new JavaType(fullyQualifiedTypeName));
+  }
+
   /**
    * Returns a {@link JavaType} for a {@link List} of the given element type
    *
@@ -325,7 +384,11 @@ public class JavaType implements Comparable<JavaType> {
   private final DataType dataType;
   private final boolean defaultPackage;
   private final JavaType enclosingType;
+  private final boolean enclosingTypeGiven;
   private final String fullyQualifiedTypeName;
+  private final int hashCode;
+  private String internKey;
+  private String nameIncludingTypeParameters;
   private final List<JavaType> parameters;
   private final String simpleTypeName;
   private String module;
@@ -497,6 +560,7 @@ public class JavaType implements Comparable<JavaType> {
     } else {
       this.enclosingType = enclosingType;
     }
+    enclosingTypeGiven = enclosingType != null;
     if (defaultPackage) {
       simpleTypeName = fullyQualifiedTypeName;
     } else {
@@ -509,6 +573,7 @@ public class JavaType implements Comparable<JavaType> {
       this.parameters.addAll(parameters);
     }
     this.module = module;
+    hashCode = computeHashCode();
   }
 
   @Override
@@ -524,6 +589,16 @@ public class JavaType implements Comparable<JavaType> {
     return toString().compareTo(o.toString());
   }
 
+  private int computeHashCode() {
+    final int prime = 31;
+    int result = 1;
+    result =
+        prime * result + (fullyQualifiedTypeName == null ? 0 : fullyQualifiedTypeName.hashCode());
+    result = prime * result + (dataType == null ? 0 : dataType.hashCode());
+    result = prime * result + arrayDimensions;
+    return result;
+  }
+
   private JavaType determineEnclosingType() {
     final int offset = fullyQualifiedTypeName.lastIndexOf(".");
     if (offset == -1) {
@@ -550,7 +625,7 @@ public class JavaType implements Comparable<JavaType> {
       // First letter is upper-case, so treat it as a type name for now
       final String preTypeNamePortion =
           enclosedWithinPackage == null ? "" : enclosedWithinPackage + ".";
-      return new JavaType(preTypeNamePortion + enclosedWithinTypeName);
+      return intern(preTypeNamePortion + enclosedWithinTypeName);
     }
 
     return null;
@@ -623,6 +698,35 @@ public class JavaType implements Comparable<JavaType> {
     return fullyQualifiedTypeName;
   }
 
+  /**
+   * Returns the key under which this type is interned, which is its name if
+   * it has nothing but a name
+   *
+   * @return a non-blank key
+   */
+  private String getInternKey() {
+    String key = internKey;
+    if (key == null) {
+      if (dataType == DataType.TYPE && arrayDimensions == 0 && argName == null
+          && parameters.isEmpty() && !enclosingTypeGiven && module == null) {
+        key = fullyQualifiedTypeName;
+      } else {
+        // Spaces and angle brackets can't appear in any of these values
+        final StringBuilder sb = new StringBuilder(fullyQualifiedTypeName);
+        sb.append(' ').append(dataType).append(' ').append(arrayDimensions);
+        sb.append(' ').append(argName).append(' ').append(module).append(' ');
+        sb.append(enclosingTypeGiven ? enclosingType.getInternKey() : "");
+        sb.append('<');
+        for (final JavaType parameter : parameters) {
+          sb.append(parameter.getInternKey()).append(' ');
+        }
+        key = sb.append('>').toString();
+      }
+      internKey = key;
+    }
+    return key;
+  }
+
   /**
    * Obtains the name of this type, including type parameters. It will be
    * formatted in a manner compatible with non-static use. No type name import
@@ -632,7 +736,13 @@ public class JavaType implements Comparable<JavaType> {
    *         null or empty)
    */
   public String getNameIncludingTypeParameters() {
-    return getNameIncludingTypeParameters(false, null, new HashMap<String, String>());
+    // Immutable, so computed once; racing threads compute the same name
+    String name = nameIncludingTypeParameters;
+    if (name == null) {
+      name = getNameIncludingTypeParameters(false, null, getTypeArgumentNames());
+      nameIncludingTypeParameters = name;
+    }
+    return name;
   }
 
   /**
@@ -650,9 +760,14 @@ public class JavaType implements Comparable<JavaType> {
    */
   public String getNameIncludingTypeParameters(final boolean staticForm,
       final ImportRegistrationResolver resolver) {
-    return getNameIncludingTypeParameters(staticForm, resolver, new HashMap<String, String>());
+    return getNameIncludingTypeParameters(staticForm, resolver, getTypeArgumentNames());
   }
 
+  /**
+   * @param types collects how each type argument name renders, for the
+   *            parameters that follow it (<code>null</code> if there are no
+   *            parameters)
+   */
   private String getNameIncludingTypeParameters(final boolean staticForm,
       final ImportRegistrationResolver resolver, final Map<String, String> types) {
     if (DataType.PRIMITIVE == dataType) {
@@ -673,14 +788,14 @@ public class JavaType implements Comparable<JavaType> {
       sb.append("?");
       if (dataType == DataType.TYPE || !staticForm) {
         sb.append(" extends ");
-      } else if (types.containsKey(fullyQualifiedTypeName)) {
+      } else if (types != null && types.containsKey(fullyQualifiedTypeName)) {
         sb.append(" extends ").append(types.get(fullyQualifiedTypeName));
       }
     } else if (WILDCARD_SUPER_ARG.equals(argName)) {
       sb.append("?");
       if (dataType == DataType.TYPE || !staticForm) {
         sb.append(" super ");
-      } else if (types.containsKey(fullyQualifiedTypeName)) {
+      } else if (types != null && types.containsKey(fullyQualifiedTypeName)) {
         sb.append(" extends ").append(types.get(fullyQualifiedTypeName));
       }
     } else if (WILDCARD_NEITHER_ARG.equals(argName)) {
@@ -735,7 +850,7 @@ public class JavaType implements Comparable<JavaType> {
       sb.append(getArraySuffix());
     }
 
-    if (argName != null && !argName.equals(WILDCARD_EXTENDS_ARG)
+    if (types != null && argName != null && !argName.equals(WILDCARD_EXTENDS_ARG)
         && !argName.equals(WILDCARD_SUPER_ARG) && !argName.equals(WILDCARD_NEITHER_ARG)) {
       types.put(argName.getSymbolName(), sb.toString());
     }
@@ -798,15 +913,17 @@ public class JavaType implements Comparable<JavaType> {
     return module;
   }
 
+  /**
+   * @return somewhere to collect the type argument names while rendering this
+   *         type's name (<code>null</code> if it has no parameters)
+   */
+  private Map<String, String> getTypeArgumentNames() {
+    return parameters.isEmpty() ? null : new HashMap<String, String>();
+  }
+
   @Override
   public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result =
-        prime * result + (fullyQualifiedTypeName == null ? 0 : fullyQualifiedTypeName.hashCode());
-    result = prime * result + (dataType == null ? 0 : dataType.hashCode());
-    result = prime * result + arrayDimensions;
-    return result;
+    return hashCode;
   }
 
   public boolean isArray() {
@@ -2,7 +2,9 @@ package org.springframework.roo.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.springframework.roo.model.JavaType.BOOLEAN_OBJECT;
 import static org.springframework.roo.model.JavaType.BOOLEAN_PRIMITIVE;
@@ -85,6 +87,24 @@ public class JavaTypeTest {
     assertNull(JdkJavaType.LIST.getBaseType());
   }
 
+  @Test
+  public void testInternDistinguishesWhatEqualsIgnores() {
+    final JavaType type = JavaType.intern("com.example.Interned");
+    final JavaType inModule = JavaType.intern(new JavaType("com.example.Interned", "web"));
+    assertEquals(type, inModule);
+    assertNotSame(type, inModule);
+    assertSame(inModule, JavaType.intern(new JavaType("com.example.Interned", "web")));
+  }
+
+  @Test
+  public void testInternReturnsCanonicalInstance() {
+    final JavaType type = JavaType.intern(listOf(new JavaType("com.example.Interned")));
+    assertSame(type, JavaType.intern(listOf(JavaType.intern("com.example.Interned"))));
+    assertSame(JavaType.intern("com.example.Interned"),
+        JavaType.intern(new JavaType("com.example.Interned")));
+    assertEquals("java.util.List<com.example.Interned>", type.toString());
+  }
+
   @Test
   public void testObjectIsNotBoolean() {
     assertFalse(OBJECT.isBoolean());
@@ -7,6 +7,7 @@ import org.springframework.roo.file.monitor.FileMonitorService;
 import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
 import org.springframework.roo.file.monitor.event.FileDetails;
 import org.springframework.roo.file.undo.UndoManager;
+import org.w3c.dom.Document;
 
 /**
  * Represents the primary means for add-ons to modify the underlying disk
@@ -129,6 +130,47 @@ public interface FileManager {
   void createOrUpdateTextFileIfRequired(String fileIdentifier, String newContents,
       String descriptionOfChange, boolean writeImmediately);
 
+  /**
+   * As {@link #createOrUpdateTextFileIfRequired(String, String, boolean)},
+   * for contents held in a buffer the caller reuses. The contents are only
+   * copied if the file doesn't already contain them, which the given hash
+   * usually tells without reading the file. Either way, the caller can reuse
+   * the buffer once this method returns.
+   * 
+   * @param fileIdentifier the file to create or update as appropriate
+   *            (required)
+   * @param newContents the replacement contents (required, but can be zero
+   *            characters if the file should be deleted)
+   * @param contentHash the
+   *            {@link org.springframework.roo.support.util.ContentHashUtils#hash(CharSequence)
+   *            hash} of the replacement contents
+   * @param writeImmediately forces immediate write of the file to disk (false
+   *            means it can be deferred, as recommended)
+   * @since 2.0
+   */
+  void createOrUpdateTextFileIfRequired(String fileIdentifier, CharSequence newContents,
+      long contentHash, boolean writeImmediately);
+
+  /**
+   * Records the given XML document as the new contents of the given file,
+   * to be written once the deferred changes are {@link #commit() committed}.
+   * The document is kept rather than serialized, so a file changed many
+   * times before then is only serialized once. As for text files, the file
+   * isn't modified if it already has the resulting contents.
+   * <p>
+   * The document mustn't be changed afterwards without recording it again.
+   * 
+   * @param fileIdentifier the XML file to create or update as appropriate
+   *            (required)
+   * @param document the new contents, usually obtained from
+   *            {@link #getXmlDocument(String)} (required)
+   * @param descriptionOfChange the additional information about a change (can
+   *            be null)
+   * @since 2.0
+   */
+  void createOrUpdateXmlFileIfRequired(String fileIdentifier, Document document,
+      String descriptionOfChange);
+
   /**
    * Attempts to delete a file or directory on the disk. The path should be in
    * canonical file name format.
@@ -185,6 +227,16 @@ public interface FileManager {
    */
   SortedSet<FileDetails> findMatchingAntPath(String antPath);
 
+  /**
+   * Returns how many times
+   * {@link #createOrUpdateTextFileIfRequired(String, String, boolean)} found
+   * that a file already had the proposed contents, so skipped writing it.
+   * 
+   * @return a count since startup
+   * @since 2.0
+   */
+  long getElidedWriteCount();
+
   /**
    * Obtains an input stream for the indicated file identifier, which must be
    * a file (not a directory) and must exist at the time the method is called.
@@ -197,6 +249,19 @@ public interface FileManager {
    */
   InputStream getInputStream(String fileIdentifier);
 
+  /**
+   * Returns a copy of the XML document in the given file, including any
+   * changes not yet committed. The file is only parsed once until the
+   * deferred changes are {@link #commit() committed} or {@link #clear()
+   * cleared}, each caller getting its own copy to change and then record via
+   * {@link #createOrUpdateXmlFileIfRequired(String, Document, String)}.
+   * 
+   * @param fileIdentifier the XML file to read (required)
+   * @return a document the caller may change (never null)
+   * @since 2.0
+   */
+  Document getXmlDocument(String fileIdentifier);
+
   /**
    * Obtains an already-existing file for reading. The path should be in
    * canonical file name format.
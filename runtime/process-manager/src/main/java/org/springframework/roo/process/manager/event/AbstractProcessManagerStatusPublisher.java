@@ -52,6 +52,22 @@ public abstract class AbstractProcessManagerStatusPublisher implements ProcessMa
     return processManagerStatus.status;
   }
 
+  /**
+   * Notifies the {@link ProcessManagerScanListener}s of a completed
+   * background scan.
+   *
+   * @param statistics describes the scan (required)
+   * @since 2.0
+   */
+  protected void publishScanStatistics(final ScanStatistics statistics) {
+    Validate.notNull(statistics, "Scan statistics required");
+    for (final ProcessManagerStatusListener listener : processManagerStatusListeners) {
+      if (listener instanceof ProcessManagerScanListener) {
+        ((ProcessManagerScanListener) listener).onScanCompleted(statistics);
+      }
+    }
+  }
+
   public final void removeProcessManagerStatusListener(
       final ProcessManagerStatusListener processManagerStatusListener) {
     Validate.notNull(processManagerStatusListener, "Status listener required");
@@ -0,0 +1,20 @@
+package org.springframework.roo.process.manager.event;
+
+import org.springframework.roo.process.manager.ProcessManager;
+
+/**
+ * A {@link ProcessManagerStatusListener} that is also notified of the
+ * background scans completed by the {@link ProcessManager}. It is registered
+ * in the same way as any status listener.
+ *
+ * @since 2.0
+ */
+public interface ProcessManagerScanListener extends ProcessManagerStatusListener {
+
+  /**
+   * Invoked by the {@link ProcessManager} after each background scan.
+   *
+   * @param statistics describes the scan (never null)
+   */
+  void onScanCompleted(ScanStatistics statistics);
+}
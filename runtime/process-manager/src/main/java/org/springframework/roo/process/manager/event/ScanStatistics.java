@@ -0,0 +1,74 @@
+package org.springframework.roo.process.manager.event;
+
+import org.springframework.roo.process.manager.ProcessManager;
+
+/**
+ * Describes a background scan completed by a {@link ProcessManager}.
+ *
+ * @since 2.0
+ */
+public class ScanStatistics {
+
+  private final long averageScanDuration;
+  private final int coalescedChanges;
+  private final long delay;
+  private final long elidedWrites;
+  private final long latency;
+  private final long scanDuration;
+
+  /**
+   * Constructor
+   *
+   * @param scanDuration how many milliseconds the scan took
+   * @param averageScanDuration the moving average of the scan durations so
+   *            far, in milliseconds
+   * @param latency how many milliseconds passed between the scan being
+   *            requested (e.g. by a file change) and its completion
+   * @param delay how many of these milliseconds the scan was delayed, to
+   *            coalesce changes or to back off after previous scans
+   * @param coalescedChanges the number of file changes signalled since the
+   *            previous scan (0 if the scan was periodic)
+   * @param elidedWrites the number of file writes skipped during the scan,
+   *            as the files already had the contents to write
+   */
+  public ScanStatistics(final long scanDuration, final long averageScanDuration,
+      final long latency, final long delay, final int coalescedChanges, final long elidedWrites) {
+    this.averageScanDuration = averageScanDuration;
+    this.coalescedChanges = coalescedChanges;
+    this.delay = delay;
+    this.elidedWrites = elidedWrites;
+    this.latency = latency;
+    this.scanDuration = scanDuration;
+  }
+
+  public long getAverageScanDuration() {
+    return averageScanDuration;
+  }
+
+  public int getCoalescedChanges() {
+    return coalescedChanges;
+  }
+
+  public long getDelay() {
+    return delay;
+  }
+
+  public long getElidedWrites() {
+    return elidedWrites;
+  }
+
+  public long getLatency() {
+    return latency;
+  }
+
+  public long getScanDuration() {
+    return scanDuration;
+  }
+
+  @Override
+  public String toString() {
+    return "scan took " + scanDuration + " ms (average " + averageScanDuration + " ms), "
+        + latency + " ms after being requested (" + delay + " ms delay), covering "
+        + coalescedChanges + " change(s); " + elidedWrites + " unchanged file(s) not rewritten";
+  }
+}
@@ -0,0 +1,259 @@
+package org.springframework.roo.process.manager.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Writes a batch of files without leaving any of them partially written.
+ * <p>
+ * Each file is first written to a temporary file in the same directory. These
+ * are written in parallel, as the batch may hold hundreds of files. Only once
+ * every temporary file is written are they renamed over the files they
+ * replace, atomically where the file system supports it. If a temporary file
+ * can't be written, none of the files are replaced. A replaced file keeps its
+ * POSIX permissions, and a symbolic link is kept by replacing the file it
+ * links to.
+ * <p>
+ * By default the temporary files are not forced to disk, just like the files
+ * written one by one; set the {@value #SYNC_PROPERTY} system property to
+ * <code>true</code> to force each of them to disk before the renames. Java
+ * can't force several files to disk at once, so each is forced by the thread
+ * that writes it.
+ *
+ * @since 2.0
+ */
+class BatchFileWriter {
+
+  static final String SYNC_PROPERTY = "roo.file.commit.sync";
+
+  /** Below this many files, they're written by the calling thread */
+  private static final int MIN_PARALLEL_WRITES = 4;
+  private static final String TEMP_FILE_PREFIX = ".roo";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  /** Writes the temporary files of large batches; created when first needed */
+  private static ExecutorService writers;
+
+  /**
+   * Gives the given new file the permissions of the existing file it's to
+   * replace, as the rename would otherwise drop them (e.g. the executable
+   * bit of a script)
+   */
+  private static void copyPermissions(final File file, final File temp) throws IOException {
+    if (!file.exists()) {
+      return;
+    }
+    try {
+      Files.setPosixFilePermissions(temp.toPath(), Files.getPosixFilePermissions(file.toPath()));
+    } catch (final UnsupportedOperationException e) {
+      // Not a POSIX file system; the rename keeps what it can
+    }
+  }
+
+  private static synchronized ExecutorService getWriters() {
+    if (writers == null) {
+      writers =
+          Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+              new ThreadFactory() {
+                public Thread newThread(final Runnable runnable) {
+                  final Thread thread = new Thread(runnable, "Roo batch file writer");
+                  // Idle writers mustn't keep the shell from exiting
+                  thread.setDaemon(true);
+                  return thread;
+                }
+              });
+    }
+    return writers;
+  }
+
+  /**
+   * Returns the file to replace in order to write the given one, which is
+   * the file it links to if it's a symbolic link, so that the link is kept
+   */
+  private static File getTarget(final File file) throws IOException {
+    if (Files.isSymbolicLink(file.toPath())) {
+      return file.toPath().toRealPath().toFile();
+    }
+    return file;
+  }
+
+  private static void move(final File source, final File target) throws IOException {
+    try {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private final boolean sync;
+  /** key: file to write, value: its new contents */
+  private final Map<File, byte[]> writes = new LinkedHashMap<File, byte[]>();
+
+  /**
+   * Constructor that reads whether to force the files to disk from the
+   * {@value #SYNC_PROPERTY} system property
+   */
+  BatchFileWriter() {
+    this(Boolean.getBoolean(SYNC_PROPERTY));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param sync whether to force each file to disk before it replaces the
+   *            original
+   */
+  BatchFileWriter(final boolean sync) {
+    this.sync = sync;
+  }
+
+  /**
+   * Adds a file to the batch
+   *
+   * @param file the file to write; its directory must exist (required)
+   * @param contents the contents to write (required)
+   */
+  void add(final File file, final byte[] contents) {
+    Validate.notNull(file, "File required");
+    Validate.notNull(contents, "Contents required");
+    writes.put(file, contents);
+  }
+
+  private void deleteQuietly(final Iterable<File> files) {
+    for (final File file : files) {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  /**
+   * @return the number of files in the batch
+   */
+  int size() {
+    return writes.size();
+  }
+
+  /**
+   * Writes every file of the batch, which is then emptied. If a file can't be
+   * renamed into place, the files renamed before it remain written.
+   *
+   * @throws IOException if a temporary file can't be written (no file was
+   *             replaced), or renamed into place
+   */
+  void write() throws IOException {
+    if (writes.isEmpty()) {
+      return;
+    }
+    final List<File> temps = writeTemps();
+    try {
+      int i = 0;
+      for (final File file : writes.keySet()) {
+        move(temps.get(i), getTarget(file));
+        i++;
+      }
+    } finally {
+      deleteQuietly(temps); // Only those not renamed still exist
+      writes.clear();
+    }
+  }
+
+  private File writeTemp(final File file, final byte[] contents) throws IOException {
+    final File target = getTarget(file);
+    final File temp =
+        File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX, target.getParentFile());
+    FileOutputStream outputStream = null;
+    try {
+      outputStream = new FileOutputStream(temp);
+      outputStream.write(contents);
+      if (sync) {
+        outputStream.getFD().sync();
+      }
+      outputStream.close();
+      copyPermissions(target, temp);
+      return temp;
+    } catch (final IOException e) {
+      IOUtils.closeQuietly(outputStream);
+      FileUtils.deleteQuietly(temp);
+      throw e;
+    }
+  }
+
+  /**
+   * Writes the temporary files, in the order of the batch
+   *
+   * @return the temporary files
+   * @throws IOException if any can't be written, in which case none is left
+   */
+  private List<File> writeTemps() throws IOException {
+    final List<File> temps = new ArrayList<File>(writes.size());
+    if (writes.size() < MIN_PARALLEL_WRITES) {
+      try {
+        for (final Entry<File, byte[]> write : writes.entrySet()) {
+          temps.add(writeTemp(write.getKey(), write.getValue()));
+        }
+      } catch (final IOException e) {
+        deleteQuietly(temps);
+        throw e;
+      }
+      return temps;
+    }
+
+    final ExecutorService executor = getWriters();
+    final List<Future<File>> futures = new ArrayList<Future<File>>(writes.size());
+    for (final Entry<File, byte[]> write : writes.entrySet()) {
+      futures.add(executor.submit(new Callable<File>() {
+        public File call() throws IOException {
+          return writeTemp(write.getKey(), write.getValue());
+        }
+      }));
+    }
+
+    // Wait for every write, even if interrupted, so no temporary file is left
+    boolean interrupted = false;
+    IOException failure = null;
+    for (final Future<File> future : futures) {
+      while (true) {
+        try {
+          temps.add(future.get());
+          break;
+        } catch (final InterruptedException e) {
+          interrupted = true;
+        } catch (final ExecutionException e) {
+          if (failure == null) {
+            failure =
+                e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException(e.getCause());
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure != null) {
+      deleteQuietly(temps);
+      throw failure;
+    }
+    return temps;
+  }
+}
@@ -7,12 +7,19 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.logging.Logger;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -25,6 +32,9 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentContext;
 import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
 import org.springframework.roo.file.monitor.event.FileDetails;
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileEventListener;
+import org.springframework.roo.file.monitor.event.FileOperation;
 import org.springframework.roo.file.undo.CreateDirectory;
 import org.springframework.roo.file.undo.CreateFile;
 import org.springframework.roo.file.undo.DeleteDirectory;
@@ -38,6 +48,9 @@ import org.springframework.roo.process.manager.FileManager;
 import org.springframework.roo.process.manager.MutableFile;
 import org.springframework.roo.process.manager.ProcessManager;
 import org.springframework.roo.support.logging.HandlerUtils;
+import org.springframework.roo.support.util.ContentHashUtils;
+import org.springframework.roo.support.util.XmlUtils;
+import org.w3c.dom.Document;
 
 /**
  * Default implementation of {@link FileManager}.
@@ -47,7 +60,7 @@ import org.springframework.roo.support.logging.HandlerUtils;
  */
 @Component
 @Service
-public class DefaultFileManager implements FileManager, UndoListener {
+public class DefaultFileManager implements FileManager, UndoListener, FileEventListener {
 
   protected final static Logger LOGGER = HandlerUtils.getLogger(DefaultFileManager.class);
 
@@ -56,6 +69,13 @@ public class DefaultFileManager implements FileManager, UndoListener {
       new LinkedHashMap<String, String>();
   /** key: file identifier, value: new textual content */
   private final Map<String, String> deferredFileWrites = new LinkedHashMap<String, String>();
+  /** The contents last written to or read from each file */
+  private final FileContentDigests contentDigests = new FileContentDigests();
+  private long elidedWriteCount;
+  /** The XML documents changed since they were last serialized */
+  private final Set<String> changedXmlDocuments = new HashSet<String>();
+  /** key: file identifier, value: the document parsed from it, as last changed */
+  private final Map<String, Document> xmlDocuments = new HashMap<String, Document>();
 
   // ------------ OSGi component attributes ----------------
   private BundleContext context;
@@ -73,24 +93,105 @@ public class DefaultFileManager implements FileManager, UndoListener {
     undoManager.addUndoListener(this);
   }
 
+  private void addDeferredDescriptionOfChange(final String fileIdentifier,
+      final String descriptionOfChange) {
+    String deferredDescriptionOfChange =
+        StringUtils.defaultIfEmpty(deferredDescriptionOfChanges.get(fileIdentifier), "");
+    if (StringUtils.isNotBlank(deferredDescriptionOfChange)
+        && !deferredDescriptionOfChange.trim().endsWith(";")) {
+      deferredDescriptionOfChange += "; ";
+    }
+    deferredDescriptionOfChanges.put(fileIdentifier,
+        deferredDescriptionOfChange + StringUtils.stripToEmpty(descriptionOfChange));
+  }
+
+  /**
+   * Prepares the given file to be written as part of the given batch, unless
+   * it already has the given contents. The file is created or backed up for
+   * undo straight away, and the change logged.
+   * 
+   * @return whether the file was added to the batch
+   */
+  private boolean addToBatch(final BatchFileWriter batch, final File file,
+      final String newContents, final String descriptionOfChange) {
+    final boolean create = !file.exists();
+    if (!create && isUnchanged(file, newContents)) {
+      return false;
+    }
+    if (processManager == null) {
+      processManager = getProcessManager();
+    }
+    if (filenameResolver == null) {
+      filenameResolver = getFileNameResolver();
+    }
+    if (undoManager == null) {
+      undoManager = getUndoManager();
+    }
+    Validate.notNull(processManager, "ProcessManager required");
+    Validate.notNull(filenameResolver, "FilenameResolver required");
+    Validate.notNull(undoManager, "UndoManager required");
+    if (create) {
+      final File parentDirectory = file.getAbsoluteFile().getParentFile();
+      if (!parentDirectory.exists()) {
+        createDirectory(parentDirectory.getPath());
+      }
+      new CreateFile(undoManager, filenameResolver, file);
+    } else {
+      new UpdateFile(undoManager, filenameResolver, file);
+    }
+
+    final byte[] bytes = newContents.getBytes();
+    final ManagedMessageRenderer renderer =
+        new ManagedMessageRenderer(filenameResolver, file, create);
+    renderer.setIncludeHashCode(processManager.isDevelopmentMode());
+    if (renderer.isIncludeHashCode()) {
+      renderer.setHashCode(DigestUtils.shaHex(bytes));
+    }
+    if (StringUtils.isNotBlank(descriptionOfChange)) {
+      renderer.setDescriptionOfChange(descriptionOfChange);
+    }
+    renderer.logManagedMessage();
+    batch.add(file, bytes);
+    return true;
+  }
+
   public void clear() {
     deferredFileWrites.clear();
     deferredDescriptionOfChanges.clear();
+    changedXmlDocuments.clear();
+    xmlDocuments.clear();
   }
 
   public void commit() {
+    // Each changed XML document is only serialized now
+    for (final String fileIdentifier : new ArrayList<String>(changedXmlDocuments)) {
+      serializeXmlDocument(fileIdentifier);
+    }
+    xmlDocuments.clear();
     final Map<String, String> toRemove = new LinkedHashMap<String, String>(deferredFileWrites);
     try {
+      // Deletions happen straight away, writes are made in one batch
+      final BatchFileWriter batch = new BatchFileWriter();
+      final Map<File, String> written = new LinkedHashMap<File, String>();
+      final List<File> created = new ArrayList<File>();
       for (final Entry<String, String> entry : toRemove.entrySet()) {
         final String fileIdentifier = entry.getKey();
         final String newContents = entry.getValue();
         if (StringUtils.isNotBlank(newContents)) {
-          createOrUpdateTextFileIfRequired(fileIdentifier, newContents,
-              StringUtils.stripToEmpty(deferredDescriptionOfChanges.get(fileIdentifier)));
+          final File file = new File(fileIdentifier);
+          final boolean create = !file.exists();
+          if (addToBatch(batch, file, newContents,
+              StringUtils.stripToEmpty(deferredDescriptionOfChanges.get(fileIdentifier)))) {
+            written.put(file, newContents);
+            if (create) {
+              created.add(file);
+            }
+          }
         } else if (exists(fileIdentifier)) {
           delete(fileIdentifier, "empty");
         }
       }
+      writeBatch(batch, written, created);
     } finally {
       for (final String remove : toRemove.keySet()) {
         deferredFileWrites.remove(remove);
@@ -166,18 +267,12 @@ public class DefaultFileManager implements FileManager, UndoListener {
   private void createOrUpdateTextFileIfRequired(final String fileIdentifier,
       final String newContents, final String descriptionOfChange) {
     MutableFile mutableFile = null;
+    final File file = new File(fileIdentifier);
     if (exists(fileIdentifier)) {
-      // First verify if the file has even changed
-      final File file = new File(fileIdentifier);
-      String existing = null;
-      try {
-        existing = FileUtils.readFileToString(file);
-      } catch (final IOException ignored) {
-      }
-
-      if (!newContents.equals(existing)) {
-        mutableFile = updateFile(fileIdentifier);
+      if (isUnchanged(file, newContents)) {
+        return;
       }
+      mutableFile = updateFile(fileIdentifier);
     } else {
       mutableFile = createFile(fileIdentifier);
       Validate.notNull(mutableFile, "Could not create file '%s'", fileIdentifier);
@@ -197,27 +292,46 @@ public class DefaultFileManager implements FileManager, UndoListener {
       } finally {
         IOUtils.closeQuietly(outputStream);
       }
+      contentDigests.record(file, newContents);
+    }
+  }
+
+  public void createOrUpdateTextFileIfRequired(final String fileIdentifier,
+      final CharSequence newContents, final long contentHash, final boolean writeImmediately) {
+    Validate.notNull(newContents, "New contents required");
+    // A pending write must still be replaced, even by the file's contents
+    if (newContents.length() > 0 && !deferredFileWrites.containsKey(fileIdentifier)
+        && !xmlDocuments.containsKey(fileIdentifier)) {
+      final File file = new File(fileIdentifier);
+      if (file.exists() && isUnchanged(file, newContents, contentHash)) {
+        return;
+      }
     }
+    createOrUpdateTextFileIfRequired(fileIdentifier, newContents.toString(), writeImmediately);
   }
 
   public void createOrUpdateTextFileIfRequired(final String fileIdentifier,
       final String newContents, final String descriptionOfChange, final boolean writeImmediately) {
+    // These contents supersede any changes to the file's XML document
+    changedXmlDocuments.remove(fileIdentifier);
+    xmlDocuments.remove(fileIdentifier);
     if (writeImmediately) {
       createOrUpdateTextFileIfRequired(fileIdentifier, newContents, descriptionOfChange);
     } else {
       deferredFileWrites.put(fileIdentifier, newContents);
-
-      String deferredDescriptionOfChange =
-          StringUtils.defaultIfEmpty(deferredDescriptionOfChanges.get(fileIdentifier), "");
-      if (StringUtils.isNotBlank(deferredDescriptionOfChange)
-          && !deferredDescriptionOfChange.trim().endsWith(";")) {
-        deferredDescriptionOfChange += "; ";
-      }
-      deferredDescriptionOfChanges.put(fileIdentifier,
-          deferredDescriptionOfChange + StringUtils.stripToEmpty(descriptionOfChange));
+      addDeferredDescriptionOfChange(fileIdentifier, descriptionOfChange);
     }
   }
 
+  public void createOrUpdateXmlFileIfRequired(final String fileIdentifier,
+      final Document document, final String descriptionOfChange) {
+    Validate.notBlank(fileIdentifier, "File identifier required");
+    Validate.notNull(document, "Document required");
+    xmlDocuments.put(fileIdentifier, document);
+    changedXmlDocuments.add(fileIdentifier);
+    addDeferredDescriptionOfChange(fileIdentifier, descriptionOfChange);
+  }
+
   protected void deactivate(final ComponentContext context) {
     if (undoManager == null) {
       undoManager = getUndoManager();
@@ -247,12 +361,14 @@ public class DefaultFileManager implements FileManager, UndoListener {
       return;
     }
 
+    releaseXmlDocument(fileIdentifier);
     final File actual = new File(fileIdentifier);
     Validate.isTrue(actual.exists(), "File '%s' does not exist", fileIdentifier);
     try {
       fileMonitorService.notifyDeleted(actual.getCanonicalPath());
     } catch (final IOException ignored) {
     }
+    contentDigests.remove(actual);
     if (actual.isDirectory()) {
       new DeleteDirectory(undoManager, filenameResolver, actual, reasonForDeletion);
     } else {
@@ -273,7 +389,12 @@ public class DefaultFileManager implements FileManager, UndoListener {
     return fileMonitorService.findMatchingAntPath(antPath);
   }
 
+  public long getElidedWriteCount() {
+    return elidedWriteCount;
+  }
+
   public InputStream getInputStream(final String fileIdentifier) {
+    serializeXmlDocument(fileIdentifier);
     if (deferredFileWrites.containsKey(fileIdentifier)) {
       return new BufferedInputStream(new ByteArrayInputStream(deferredFileWrites
           .get(fileIdentifier).getBytes()));
@@ -290,8 +411,70 @@ public class DefaultFileManager implements FileManager, UndoListener {
     }
   }
 
+  /**
+   * Returns a copy of the given file's document, parsing the file only if it
+   * isn't already kept. The kept document is deep cloned on every call, as
+   * callers may change their copy without recording it.
+   */
+  public Document getXmlDocument(final String fileIdentifier) {
+    Document document = xmlDocuments.get(fileIdentifier);
+    if (document == null) {
+      document = XmlUtils.readXml(getInputStream(fileIdentifier));
+      xmlDocuments.put(fileIdentifier, document);
+    }
+    return (Document) document.cloneNode(true);
+  }
+
+  /**
+   * Indicates whether the given existing file already has the given contents,
+   * in which case there's no need to write it
+   */
+  private boolean isUnchanged(final File file, final String newContents) {
+    return isUnchanged(file, newContents, ContentHashUtils.hash(newContents));
+  }
+
+  /**
+   * Indicates whether the given existing file already has the given contents
+   * 
+   * @param contentHash the {@link ContentHashUtils#hash(CharSequence) hash}
+   *            of the contents
+   */
+  private boolean isUnchanged(final File file, final CharSequence newContents,
+      final long contentHash) {
+    // Avoid reading the file if the text last written or read tells
+    if (contentDigests.matches(file, newContents.length(), contentHash)) {
+      elidedWriteCount++;
+      return true;
+    }
+    if (contentDigests.differs(file, newContents.length(), contentHash)) {
+      return false;
+    }
+    String existing = null;
+    try {
+      existing = FileUtils.readFileToString(file);
+    } catch (final IOException ignored) {
+    }
+    if (existing == null) {
+      return false;
+    }
+
+    // Spares reading the file again, e.g. when the write is committed
+    contentDigests.record(file, existing);
+    if (StringUtils.equals(newContents, existing)) {
+      elidedWriteCount++;
+      return true;
+    }
+    return false;
+  }
+
+  public void onFileEvent(final FileEvent fileEvent) {
+    contentDigests.onFileEvent(fileEvent);
+  }
+
   public void onUndoEvent(final UndoEvent event) {
     if (event.isUndoing()) {
+      // Files were restored behind the file monitor's back
+      contentDigests.clear();
       clear();
     } else {
       // It's a flush or a reset event
@@ -308,6 +491,15 @@ public class DefaultFileManager implements FileManager, UndoListener {
     return new FileDetails(f, f.lastModified());
   }
 
+  /**
+   * Defers the writing of any changes to the given file's XML document, then
+   * forgets the document, as the file is about to be changed by other means
+   */
+  private void releaseXmlDocument(final String fileIdentifier) {
+    serializeXmlDocument(fileIdentifier);
+    xmlDocuments.remove(fileIdentifier);
+  }
+
   public int scan() {
     if (fileMonitorService == null) {
       fileMonitorService = getFileMonitorService();
@@ -316,6 +508,17 @@ public class DefaultFileManager implements FileManager, UndoListener {
     return fileMonitorService.scanNotified();
   }
 
+  /**
+   * Defers the writing of any changes to the given file's XML document as
+   * text, keeping the document for further changes
+   */
+  private void serializeXmlDocument(final String fileIdentifier) {
+    if (changedXmlDocuments.remove(fileIdentifier)) {
+      deferredFileWrites.put(fileIdentifier,
+          XmlUtils.nodeToString(xmlDocuments.get(fileIdentifier)));
+    }
+  }
+
   public MutableFile updateFile(final String fileIdentifier) {
     if (fileMonitorService == null) {
       fileMonitorService = getFileMonitorService();
@@ -334,13 +537,48 @@ public class DefaultFileManager implements FileManager, UndoListener {
     Validate.notNull(processManager, "ProcessManager required");
     Validate.notNull(filenameResolver, "FilenameResolver required");
     Validate.notNull(undoManager, "UndoManager required");
+    releaseXmlDocument(fileIdentifier);
     final File actual = new File(fileIdentifier);
     Validate.isTrue(actual.exists(), "File '%s' does not exist", fileIdentifier);
-    new UpdateFile(undoManager, filenameResolver, actual);
+    // Only back up the file once it's actually changed
+    final UpdateFile updateFile = new UpdateFile(undoManager, filenameResolver, actual, true);
     final ManagedMessageRenderer renderer =
         new ManagedMessageRenderer(filenameResolver, actual, false);
     renderer.setIncludeHashCode(processManager.isDevelopmentMode());
-    return new DefaultMutableFile(actual, fileMonitorService, renderer);
+    return new DefaultMutableFile(actual, fileMonitorService, renderer, updateFile);
+  }
+
+  /**
+   * Writes the given batch, then notifies the file monitor of every change
+   * at once. If the batch can't be written, the files already created or
+   * backed up are left for the undo manager to restore.
+   * 
+   * @param written the new contents of each file in the batch
+   * @param created the files of the batch that didn't exist
+   */
+  private void writeBatch(final BatchFileWriter batch, final Map<File, String> written,
+      final Collection<File> created) {
+    if (written.isEmpty()) {
+      return;
+    }
+    if (fileMonitorService == null) {
+      fileMonitorService = getFileMonitorService();
+    }
+    Validate.notNull(fileMonitorService, "FileMonitorService required");
+    try {
+      batch.write();
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not output " + written.size() + " files", e);
+    }
+
+    final List<FileEvent> fileEvents = new ArrayList<FileEvent>(written.size());
+    for (final Entry<File, String> entry : written.entrySet()) {
+      final File file = entry.getKey();
+      contentDigests.record(file, entry.getValue());
+      fileEvents.add(new FileEvent(new FileDetails(file, file.lastModified()), created
+          .contains(file) ? FileOperation.CREATED : FileOperation.UPDATED, null));
+    }
+    fileMonitorService.notifyChanges(fileEvents);
   }
 
   public NotifiableFileMonitorService getFileMonitorService() {
@@ -10,6 +10,7 @@ import java.io.OutputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
+import org.springframework.roo.file.undo.UpdateFile;
 import org.springframework.roo.process.manager.MutableFile;
 import org.springframework.roo.support.util.FileUtils;
 
@@ -24,9 +25,25 @@ public class DefaultMutableFile implements MutableFile {
   private final File file;
   private final NotifiableFileMonitorService fileMonitorService;
   private final ManagedMessageRenderer managedMessageRenderer;
+  private final UpdateFile updateFile;
 
   public DefaultMutableFile(final File file, final NotifiableFileMonitorService fileMonitorService,
       final ManagedMessageRenderer managedMessageRenderer) {
+    this(file, fileMonitorService, managedMessageRenderer, null);
+  }
+
+  /**
+   * Constructor for a file whose backup is deferred until it is changed
+   * 
+   * @param file the file (required)
+   * @param fileMonitorService the monitor to notify of changes (can be null)
+   * @param managedMessageRenderer the renderer of change messages (required)
+   * @param updateFile the operation to back up the file with, before
+   *            changing it (can be null if the file needs no backup)
+   * @since 2.0
+   */
+  public DefaultMutableFile(final File file, final NotifiableFileMonitorService fileMonitorService,
+      final ManagedMessageRenderer managedMessageRenderer, final UpdateFile updateFile) {
     Validate.notNull(file, "File required");
     Validate.notNull(managedMessageRenderer, "Message renderer required");
     Validate.isTrue(file.isFile(), "A mutable file must actually be a file (not a directory)");
@@ -35,6 +52,7 @@ public class DefaultMutableFile implements MutableFile {
     this.managedMessageRenderer = managedMessageRenderer;
     // null is permitted
     this.fileMonitorService = fileMonitorService;
+    this.updateFile = updateFile;
   }
 
   public String getCanonicalPath() {
@@ -61,7 +79,8 @@ public class DefaultMutableFile implements MutableFile {
     Validate.isTrue(file.exists(), "A mutable file must actually exist");
 
     try {
-      return new MonitoredOutputStream(file, managedMessageRenderer, fileMonitorService);
+      return new MonitoredOutputStream(file, managedMessageRenderer, fileMonitorService,
+          updateFile);
     } catch (final IOException ioe) {
       throw new IllegalStateException("Unable to acquire output stream for file '"
           + getCanonicalPath() + "'", ioe);
@@ -20,11 +20,14 @@ import org.springframework.roo.file.monitor.FileMonitorService;
 import org.springframework.roo.file.monitor.MonitoringRequest;
 import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
 import org.springframework.roo.file.undo.UndoManager;
+import org.springframework.roo.metadata.MetadataDependencyRegistry;
 import org.springframework.roo.process.manager.ActiveProcessManager;
 import org.springframework.roo.process.manager.CommandCallback;
+import org.springframework.roo.process.manager.FileManager;
 import org.springframework.roo.process.manager.ProcessManager;
 import org.springframework.roo.process.manager.event.AbstractProcessManagerStatusPublisher;
 import org.springframework.roo.process.manager.event.ProcessManagerStatus;
+import org.springframework.roo.process.manager.event.ScanStatistics;
 import org.springframework.roo.support.logging.HandlerUtils;
 import org.springframework.roo.support.osgi.OSGiUtils;
 
@@ -42,14 +45,30 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
 
   private static final Logger LOGGER = HandlerUtils.getLogger(DefaultProcessManager.class);
 
+  /** How much the latest scan weighs in the moving average of scan durations */
+  private static final double SCAN_DURATION_SMOOTHING = 0.25;
+
+  /**
+   * System property that enables batching the metadata notifications caused
+   * by each file monitor scan
+   */
+  public static final String NOTIFICATION_BATCH_PROPERTY = "roo.metadata.notification.batch";
+
   // ------------ OSGi component attributes ----------------
   private BundleContext context;
 
+  private double averageScanDuration = 0; // Moving average of scan durations
   private boolean developmentMode = false;
+  private FileManager fileManager;
   private FileMonitorService fileMonitorService;
+  private MetadataDependencyRegistry metadataDependencyRegistry;
+  private final boolean notificationBatching =
+      System.getProperty(NOTIFICATION_BATCH_PROPERTY) != null;
   private long lastScanDuration = 0;
+  private long lastScanElidedWrites = 0;
   private long lastScanTime = 0; // What time the last scan was completed
   private long minimumDelayBetweenScan = -1; // How many ms must pass at
+  private Thread scanThread;
   private StartLevel startLevel;
   private UndoManager undoManager;
   private String workingDir;
@@ -123,52 +142,130 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
       // so we control process manager and can terminate its background
       // timer thread
       if (getProcessManagerStatus() != ProcessManagerStatus.TERMINATED) {
-        // The thread started above will terminate of its own accord,
-        // given we are shutting down
+        // The background scanning thread will terminate of its own accord,
+        // given we are shutting down, once woken up
         setProcessManagerStatus(ProcessManagerStatus.TERMINATED);
+        if (scanThread != null) {
+          scanThread.interrupt();
+        }
       }
     }
   }
 
   public void timerBasedScan() {
-    try {
-      if (minimumDelayBetweenScan == 0) {
-        // Manual scanning only, we never allow the timer to kick of a
-        // scan
-        return;
+    scanIfDue();
+  }
+
+  /**
+   * Returns the moving average of the background scan durations, which is
+   * what auto-scaling backs off by
+   *
+   * @return a number of milliseconds (0 = never ran)
+   */
+  long getAverageScanDuration() {
+    return Math.round(averageScanDuration);
+  }
+
+  /**
+   * Returns how many file writes the last background scan skipped as the
+   * files already had the contents to write
+   *
+   * @return see above
+   */
+  long getLastScanElidedWrites() {
+    return lastScanElidedWrites;
+  }
+
+  /**
+   * Returns how long a background scan must wait to honour the minimum delay
+   * between scans
+   *
+   * @return a number of milliseconds (<0 = manual scanning only)
+   */
+  long getDelayUntilNextScan() {
+    if (minimumDelayBetweenScan == 0) {
+      // Manual scanning only
+      return -1;
+    }
+
+    long effectiveMinimumDelayBetweenScan = minimumDelayBetweenScan;
+    if (effectiveMinimumDelayBetweenScan < 0) {
+      // A negative minimum delay between scan means auto-scaling is
+      // used
+      if (averageScanDuration < 500) {
+        // We've never done a scan, or they are very fast
+        effectiveMinimumDelayBetweenScan = 0;
+      } else {
+        // Back off by the usual cost of a scan
+        effectiveMinimumDelayBetweenScan = getAverageScanDuration();
       }
+    }
+    return Math.max(0, lastScanTime + effectiveMinimumDelayBetweenScan
+        - System.currentTimeMillis());
+  }
 
-      long effectiveMinimumDelayBetweenScan = minimumDelayBetweenScan;
-      if (effectiveMinimumDelayBetweenScan < 0) {
-        // A negative minimum delay between scan means auto-scaling is
-        // used
-        if (lastScanDuration < 500) {
-          // We've never done a scan, or they are very fast
-          effectiveMinimumDelayBetweenScan = 0;
-        } else {
-          // Use the last duration (we might make this sliding scale
-          // in the future)
-          effectiveMinimumDelayBetweenScan = lastScanDuration;
-        }
+  /**
+   * Notifies the listeners of a background scan
+   *
+   * @param statistics describes the scan (required)
+   */
+  void scanCompleted(final ScanStatistics statistics) {
+    publishScanStatistics(statistics);
+  }
+
+  /**
+   * Records a completed background scan, so that the next one is not run too
+   * soon
+   *
+   * @param started when the scan started, in milliseconds
+   * @param completed when the scan completed, in milliseconds
+   */
+  void recordScan(final long started, final long completed) {
+    // Record the completion time so we can ensure we don't re-scan too
+    // soon
+    lastScanTime = completed;
+
+    // Compute how many milliseconds it took to run
+    lastScanDuration = completed - started;
+    if (lastScanDuration == 0) {
+      // Ensure it correctly reflects that it has ever run
+      lastScanDuration = 1;
+    }
+    if (averageScanDuration == 0) {
+      averageScanDuration = lastScanDuration;
+    } else {
+      averageScanDuration += SCAN_DURATION_SMOOTHING * (lastScanDuration - averageScanDuration);
+    }
+  }
+
+  /**
+   * Runs a background scan unless the minimum delay between scans has not
+   * passed yet, or another thread is using the process manager
+   *
+   * @return whether the scan ran
+   */
+  boolean scanIfDue() {
+    try {
+      if (getDelayUntilNextScan() != 0) {
+        // Manual scanning only, or too soon to re-scan
+        return false;
       }
+      if (fileManager == null) {
+        fileManager = getFileManager();
+      }
+      final long elidedWrites = fileManager == null ? 0 : fileManager.getElidedWriteCount();
       final long started = System.currentTimeMillis();
-      if (started < lastScanTime + effectiveMinimumDelayBetweenScan) {
-        // Too soon to re-scan
-        return;
+      if (!backgroundScan()) {
+        return false;
       }
-      backgroundScan();
-      // Record the completion time so we can ensure we don't re-scan too
-      // soon
-      lastScanTime = System.currentTimeMillis();
-
-      // Compute how many milliseconds it took to run
-      lastScanDuration = lastScanTime - started;
-      if (lastScanDuration == 0) {
-        // Ensure it correctly reflects that it has ever run
-        lastScanDuration = 1;
+      if (fileManager != null) {
+        lastScanElidedWrites = fileManager.getElidedWriteCount() - elidedWrites;
       }
+      recordScan(started, System.currentTimeMillis());
+      return true;
     } catch (final Throwable t) {
       LOGGER.log(Level.SEVERE, t.getMessage(), t);
+      return false;
     }
   }
 
@@ -200,25 +297,12 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
       }
     });
 
-    // Now start a thread that will undertake a background scan every second
-    final Thread t = new Thread(new Runnable() {
-      public void run() {
-        // Unsynchronized lookup of terminated status to avoid anything
-        // blocking the termination of the thread
-        while (getProcessManagerStatus() != ProcessManagerStatus.TERMINATED) {
-          // We only bother doing a scan if we seem to be available (a
-          // proper synchronized check happens later)
-          if (getProcessManagerStatus() == ProcessManagerStatus.AVAILABLE) {
-            timerBasedScan();
-          }
-          try {
-            Thread.sleep(1000);
-          } catch (final InterruptedException ignoreAndContinue) {
-          }
-        }
-      }
-    }, "Spring Roo Process Manager Background Scanning Thread");
-    t.start();
+    // Now start a thread that will undertake background scans as changes
+    // are signalled, or periodically
+    scanThread =
+        new Thread(new ScanScheduler(this),
+            "Spring Roo Process Manager Background Scanning Thread");
+    scanThread.start();
   }
 
   protected void deactivate(final ComponentContext context) {
@@ -302,7 +386,7 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
 
       // Run the requested operation
       if (callback == null) {
-        fileMonitorService.scanAll();
+        scan(false);
       } else {
         result = callback.callback();
       }
@@ -313,11 +397,7 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
 
       // Guarantee scans repeat until there are no more changes detected
       while (fileMonitorService.isDirty()) {
-        if (fileMonitorService instanceof NotifiableFileMonitorService) {
-          ((NotifiableFileMonitorService) fileMonitorService).scanNotified();
-        } else {
-          fileMonitorService.scanAll();
-        }
+        scan(true);
         // In case something else happened as a result of event
         // notifications above
         undoManager.flush();
@@ -345,6 +425,35 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
     return result;
   }
 
+  /**
+   * Scans the file monitor, delivering the metadata notifications caused by
+   * the changes found once the scan completes if batching is enabled.
+   * 
+   * @param notifiedOnly whether to scan only the files that were notified to
+   *            the file monitor, if it supports that
+   */
+  private void scan(final boolean notifiedOnly) {
+    if (notificationBatching && metadataDependencyRegistry == null) {
+      metadataDependencyRegistry = getMetadataDependencyRegistry();
+    }
+
+    final boolean batch = notificationBatching && metadataDependencyRegistry != null;
+    if (batch) {
+      metadataDependencyRegistry.startNotificationBatch();
+    }
+    try {
+      if (notifiedOnly && fileMonitorService instanceof NotifiableFileMonitorService) {
+        ((NotifiableFileMonitorService) fileMonitorService).scanNotified();
+      } else {
+        fileMonitorService.scanAll();
+      }
+    } finally {
+      if (batch) {
+        metadataDependencyRegistry.endNotificationBatch();
+      }
+    }
+  }
+
   private void logException(final Throwable t) {
     final Throwable root = ObjectUtils.defaultIfNull(ExceptionUtils.getRootCause(t), t);
     if (developmentMode) {
@@ -363,6 +472,24 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
     }
   }
 
+  public FileManager getFileManager() {
+    // Get all Services implement FileManager interface
+    try {
+      ServiceReference<?>[] references =
+          this.context.getAllServiceReferences(FileManager.class.getName(), null);
+
+      for (ServiceReference<?> ref : references) {
+        return (FileManager) this.context.getService(ref);
+      }
+
+      return null;
+
+    } catch (InvalidSyntaxException e) {
+      LOGGER.warning("Cannot load FileManager on DefaultProcessManager.");
+      return null;
+    }
+  }
+
   public FileMonitorService getFileMonitorService() {
     // Get all Services implement FileMonitorService interface
     try {
@@ -381,6 +508,24 @@ public class DefaultProcessManager extends AbstractProcessManagerStatusPublisher
     }
   }
 
+  public MetadataDependencyRegistry getMetadataDependencyRegistry() {
+    // Get all Services implement MetadataDependencyRegistry interface
+    try {
+      ServiceReference<?>[] references =
+          this.context.getAllServiceReferences(MetadataDependencyRegistry.class.getName(), null);
+
+      for (ServiceReference<?> ref : references) {
+        return (MetadataDependencyRegistry) this.context.getService(ref);
+      }
+
+      return null;
+
+    } catch (InvalidSyntaxException e) {
+      LOGGER.warning("Cannot load MetadataDependencyRegistry on DefaultProcessManager.");
+      return null;
+    }
+  }
+
   public StartLevel getStartLevel() {
     // Get all Services implement StartLevel interface
     try {
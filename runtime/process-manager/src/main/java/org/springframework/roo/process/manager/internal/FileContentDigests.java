@@ -0,0 +1,142 @@
+package org.springframework.roo.process.manager.internal;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileOperation;
+import org.springframework.roo.support.util.ContentHashUtils;
+import org.springframework.roo.support.util.FileUtils;
+
+/**
+ * Remembers a digest of the text last written to or read from each file, so
+ * that whether the file already has some text can be told without reading
+ * the file again.
+ * <p>
+ * A digest is the length and 64-bit hash of the text, plus the size and last
+ * modification time of the file once written or read. A digest only matches
+ * while the file keeps that size and modification time, and is discarded
+ * when the file monitor reports any other change to the file.
+ * <p>
+ * A digest recorded less than {@link #RACY_INTERVAL} milliseconds after the
+ * file was last modified is never trusted, as file systems with a coarse
+ * timestamp resolution could hide a change made in the same instant; the
+ * file is then read, and its digest recorded again.
+ *
+ * @since 2.0
+ */
+class FileContentDigests {
+
+  private static class Digest {
+
+    private final long fileLength;
+    private final long hash;
+    private final long lastModified;
+    private final int length;
+    private final boolean racy;
+
+    private Digest(final String contents, final File file) {
+      fileLength = file.length();
+      hash = ContentHashUtils.hash(contents);
+      lastModified = file.lastModified();
+      length = contents.length();
+      racy = System.currentTimeMillis() - lastModified < RACY_INTERVAL;
+    }
+
+    private boolean isCurrent(final File file) {
+      return file.lastModified() == lastModified && file.length() == fileLength;
+    }
+
+    private boolean isTrusted(final File file) {
+      return !racy && isCurrent(file);
+    }
+  }
+
+  static final long RACY_INTERVAL = 2000;
+
+  /** key: canonical path */
+  private final Map<String, Digest> digests = new HashMap<String, Digest>();
+
+  /**
+   * Forgets every digest, for example after files were restored behind the
+   * file monitor's back
+   */
+  synchronized void clear() {
+    digests.clear();
+  }
+
+  /**
+   * Indicates whether the given file is known to contain other text than the
+   * one with the given length and hash, without reading it
+   *
+   * @param file the file to check (required)
+   * @param length the length of the text
+   * @param hash the {@link ContentHashUtils#hash(CharSequence) hash} of the
+   *            text
+   * @return false if the file contains that text, or isn't known to contain
+   *         other text
+   */
+  synchronized boolean differs(final File file, final int length, final long hash) {
+    final Digest digest = digests.get(FileUtils.getCanonicalPath(file));
+    return digest != null && (digest.length != length || digest.hash != hash)
+        && digest.isTrusted(file);
+  }
+
+  /**
+   * Indicates whether the given file is known to contain the text with the
+   * given length and hash, without reading it
+   *
+   * @param file the file to check (required)
+   * @param length the length of the text
+   * @param hash the {@link ContentHashUtils#hash(CharSequence) hash} of the
+   *            text
+   * @return false if the file contains other text, or isn't known to contain
+   *         that text
+   */
+  synchronized boolean matches(final File file, final int length, final long hash) {
+    final Digest digest = digests.get(FileUtils.getCanonicalPath(file));
+    return digest != null && digest.length == length && digest.hash == hash
+        && digest.isTrusted(file);
+  }
+
+  /**
+   * Discards the digest of any file reported as changed, unless the file
+   * still has the size and modification time it had when last written or
+   * read (as it then only reports that write)
+   *
+   * @param fileEvent the event (required)
+   */
+  synchronized void onFileEvent(final FileEvent fileEvent) {
+    final String canonicalPath = fileEvent.getFileDetails().getCanonicalPath();
+    final Digest digest = digests.get(canonicalPath);
+    if (digest == null) {
+      return;
+    }
+    if (fileEvent.getOperation() == FileOperation.DELETED
+        || fileEvent.getOperation() == FileOperation.RENAMED
+        || fileEvent.getOperation() == FileOperation.MONITORING_FINISH
+        || !digest.isCurrent(fileEvent.getFileDetails().getFile())) {
+      digests.remove(canonicalPath);
+    }
+  }
+
+  /**
+   * Records that the given file now contains the given text
+   *
+   * @param file the file just written or read (required)
+   * @param contents the text it contains (required)
+   */
+  synchronized void record(final File file, final String contents) {
+    digests.put(FileUtils.getCanonicalPath(file), new Digest(contents, file));
+  }
+
+  /**
+   * Forgets the digest of the given file
+   *
+   * @param file the file (required)
+   */
+  synchronized void remove(final File file) {
+    digests.remove(FileUtils.getCanonicalPath(file));
+  }
+}
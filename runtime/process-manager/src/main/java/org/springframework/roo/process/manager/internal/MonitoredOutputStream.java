@@ -4,11 +4,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
+import org.springframework.roo.file.undo.UpdateFile;
 
 /**
  * Ensures the {@link NotifiableFileMonitorService#notifyChanged(String)} method
@@ -17,6 +19,9 @@ import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
  * This is useful for ensuring the file monitoring system is notified of all
  * changed files, even those which are changed very rapidly on disk and would
  * not normally be detected using the file system's "last updated" timestamps.
+ * <p>
+ * If given the {@link UpdateFile} operation of the file, the stream only
+ * backs up and writes the file if its contents actually change.
  * 
  * @author Ben Alex
  * @since 1.0
@@ -27,6 +32,7 @@ public class MonitoredOutputStream extends ByteArrayOutputStream {
   private final NotifiableFileMonitorService fileMonitorService;
 
   private final ManagedMessageRenderer managedMessageRenderer;
+  private final UpdateFile updateFile;
 
   /**
    * Constructs a {@link MonitoredOutputStream}.
@@ -41,11 +47,33 @@ public class MonitoredOutputStream extends ByteArrayOutputStream {
   public MonitoredOutputStream(final File file,
       final ManagedMessageRenderer managedMessageRenderer,
       final NotifiableFileMonitorService fileMonitorService) throws FileNotFoundException {
+    this(file, managedMessageRenderer, fileMonitorService, null);
+  }
+
+  /**
+   * Constructs a {@link MonitoredOutputStream} that backs up the file before
+   * changing it.
+   * 
+   * @param file the file to output to (required)
+   * @param managedMessageRenderer a rendered for outputting a message once
+   *            the output stream is closed (required)
+   * @param fileMonitorService an optional monitoring service (null is
+   *            acceptable)
+   * @param updateFile the operation to back up the file with, if it is
+   *            changed (null if the file needs no backup)
+   * @throws FileNotFoundException if the file cannot be found
+   * @since 2.0
+   */
+  public MonitoredOutputStream(final File file,
+      final ManagedMessageRenderer managedMessageRenderer,
+      final NotifiableFileMonitorService fileMonitorService, final UpdateFile updateFile)
+      throws FileNotFoundException {
     Validate.notNull(file, "File required");
     Validate.notNull(managedMessageRenderer, "Message renderer required");
     this.file = file;
     this.fileMonitorService = fileMonitorService;
     this.managedMessageRenderer = managedMessageRenderer;
+    this.updateFile = updateFile;
   }
 
   @Override
@@ -53,6 +81,14 @@ public class MonitoredOutputStream extends ByteArrayOutputStream {
     // Obtain the bytes the user is writing out
     final byte[] bytes = toByteArray();
 
+    if (updateFile != null) {
+      if (isUnchanged(bytes)) {
+        // Nothing to write, nor to undo
+        return;
+      }
+      updateFile.backup();
+    }
+
     // Try to calculate the SHA hash code
     managedMessageRenderer.setHashCode(DigestUtils.shaHex(bytes));
 
@@ -73,4 +109,9 @@ public class MonitoredOutputStream extends ByteArrayOutputStream {
       fileMonitorService.notifyChanged(fileCanonicalPath);
     }
   }
+
+  private boolean isUnchanged(final byte[] bytes) throws IOException {
+    return file.length() == bytes.length
+        && Arrays.equals(FileUtils.readFileToByteArray(file), bytes);
+  }
 }
@@ -0,0 +1,171 @@
+package org.springframework.roo.process.manager.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.roo.file.monitor.FileMonitorService;
+import org.springframework.roo.file.monitor.SignallingFileMonitorService;
+import org.springframework.roo.process.manager.event.ProcessManagerStatus;
+import org.springframework.roo.process.manager.event.ScanStatistics;
+
+/**
+ * Decides when {@link DefaultProcessManager} runs its background scans.
+ * <p>
+ * If the {@link FileMonitorService} signals changes, the scheduler sleeps until
+ * one is signalled, then until none has been signalled for a debounce window
+ * ({@value #DEFAULT_DEBOUNCE} ms by default; see {@value #DEBOUNCE_PROPERTY}),
+ * so that a burst of changes such as an IDE saving several files is covered by
+ * a single scan. A long burst postpones the scan by at most
+ * {@value #MAX_DEBOUNCE_WINDOWS} windows. Without any signal, a scan still
+ * runs every {@value #DEFAULT_IDLE_INTERVAL} ms (see
+ * {@value #IDLE_INTERVAL_PROPERTY}), for the changes the monitor may not
+ * notice. Other monitors are scanned every {@value #POLLING_INTERVAL} ms.
+ * <p>
+ * Scans are further spaced out according to
+ * {@link DefaultProcessManager#getMinimumDelayBetweenScan()}, which by default
+ * backs off by the moving average of the scan durations. Each scan is
+ * described to the process manager's listeners via {@link ScanStatistics}.
+ *
+ * @since 2.0
+ */
+class ScanScheduler implements Runnable {
+
+  static final long DEFAULT_DEBOUNCE = 100;
+  static final long DEFAULT_IDLE_INTERVAL = 10000;
+  static final String DEBOUNCE_PROPERTY = "roo.process.scan.debounce";
+  static final String IDLE_INTERVAL_PROPERTY = "roo.process.scan.idle";
+  static final int MAX_DEBOUNCE_WINDOWS = 10;
+  static final long POLLING_INTERVAL = 1000;
+
+  private final long debounce;
+  private FileMonitorService fileMonitorService;
+  private final long idleInterval;
+  private int pendingChanges;
+  private final DefaultProcessManager processManager;
+  private long requested; // When the next scan was requested (0 = not yet)
+
+  /**
+   * Constructor that reads the debounce window and idle interval from the
+   * {@value #DEBOUNCE_PROPERTY} and {@value #IDLE_INTERVAL_PROPERTY} system
+   * properties
+   *
+   * @param processManager the process manager to scan (required)
+   */
+  ScanScheduler(final DefaultProcessManager processManager) {
+    this(processManager, Long.getLong(DEBOUNCE_PROPERTY, DEFAULT_DEBOUNCE), Long.getLong(
+        IDLE_INTERVAL_PROPERTY, DEFAULT_IDLE_INTERVAL));
+  }
+
+  /**
+   * Constructor
+   *
+   * @param processManager the process manager to scan (required)
+   * @param debounce how many milliseconds must pass without a change being
+   *            signalled before scanning
+   * @param idleInterval how many milliseconds may pass between two scans
+   *            when no change is signalled
+   */
+  ScanScheduler(final DefaultProcessManager processManager, final long debounce,
+      final long idleInterval) {
+    this.debounce = debounce;
+    this.idleInterval = idleInterval;
+    this.processManager = processManager;
+  }
+
+  public void run() {
+    // Unsynchronized lookup of terminated status to avoid anything
+    // blocking the termination of the thread
+    while (processManager.getProcessManagerStatus() != ProcessManagerStatus.TERMINATED) {
+      try {
+        // We only bother doing a scan if we seem to be available (a
+        // proper synchronized check happens later)
+        if (processManager.getProcessManagerStatus() != ProcessManagerStatus.AVAILABLE) {
+          Thread.sleep(POLLING_INTERVAL);
+          continue;
+        }
+        awaitChanges();
+        final long delay = processManager.getDelayUntilNextScan();
+        if (delay < 0) {
+          // Manual scanning only; keep any changes for later
+          Thread.sleep(POLLING_INTERVAL);
+          continue;
+        }
+        Thread.sleep(delay);
+        scan();
+      } catch (final InterruptedException ignoreAndContinue) {
+        // Terminating, or woken up to check the status
+      }
+    }
+  }
+
+  /**
+   * Blocks until a scan is worthwhile, coalescing the changes signalled in
+   * the meantime
+   */
+  private void awaitChanges() throws InterruptedException {
+    final SignallingFileMonitorService monitor = getSignallingFileMonitorService();
+    if (monitor == null) {
+      // Changes can only be found by scanning
+      Thread.sleep(POLLING_INTERVAL);
+      if (requested == 0) {
+        requested = System.currentTimeMillis();
+      }
+      return;
+    }
+
+    if (pendingChanges == 0) {
+      final int changes = monitor.awaitChanges(idleInterval, TimeUnit.MILLISECONDS);
+      if (requested == 0) {
+        requested = System.currentTimeMillis();
+      }
+      if (changes == 0) {
+        // Nothing signalled for a while; scan anyway
+        return;
+      }
+      pendingChanges = changes;
+    }
+
+    // Wait for the burst of changes to end
+    final long deadline = requested + debounce * MAX_DEBOUNCE_WINDOWS;
+    int changes;
+    do {
+      final long window = Math.min(debounce, deadline - System.currentTimeMillis());
+      if (window <= 0) {
+        break;
+      }
+      changes = monitor.awaitChanges(window, TimeUnit.MILLISECONDS);
+      pendingChanges += changes;
+    } while (changes > 0);
+  }
+
+  /**
+   * Returns the file monitor if it currently signals changes
+   *
+   * @return null if the file monitor has to be polled
+   */
+  private SignallingFileMonitorService getSignallingFileMonitorService() {
+    if (fileMonitorService == null) {
+      fileMonitorService = processManager.getFileMonitorService();
+    }
+    if (fileMonitorService instanceof SignallingFileMonitorService
+        && ((SignallingFileMonitorService) fileMonitorService).isSignalling()) {
+      return (SignallingFileMonitorService) fileMonitorService;
+    }
+    return null;
+  }
+
+  private void scan() throws InterruptedException {
+    final long started = System.currentTimeMillis();
+    if (!processManager.scanIfDue()) {
+      // Another thread got hold of the process manager; retry later
+      Thread.sleep(POLLING_INTERVAL);
+      return;
+    }
+    final ScanStatistics statistics =
+        new ScanStatistics(processManager.getLastScanDuration(),
+            processManager.getAverageScanDuration(), System.currentTimeMillis() - requested,
+            started - requested, pendingChanges, processManager.getLastScanElidedWrites());
+    pendingChanges = 0;
+    requested = 0;
+    processManager.scanCompleted(statistics);
+  }
+}
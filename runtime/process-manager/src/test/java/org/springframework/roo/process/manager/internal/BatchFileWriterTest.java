@@ -0,0 +1,157 @@
+package org.springframework.roo.process.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of {@link BatchFileWriter}
+ *
+ * @since 2.0
+ */
+public class BatchFileWriterTest {
+
+  private static final FilenameFilter TEMP_FILES = new FilenameFilter() {
+    public boolean accept(final File dir, final String name) {
+      return name.endsWith(".tmp");
+    }
+  };
+
+  // Fixture
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-batch").toFile();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private void assertNoTempFiles() {
+    assertEquals(0, directory.list(TEMP_FILES).length);
+  }
+
+  private File createFile(final String name, final String contents) throws IOException {
+    final File file = new File(directory, name);
+    FileUtils.writeStringToFile(file, contents);
+    return file;
+  }
+
+  /**
+   * Writes a batch of the given number of files, followed by one that can't
+   * be written
+   */
+  private void assertFailedBatchReplacesNothing(final int files) throws IOException {
+    final BatchFileWriter batch = new BatchFileWriter(false);
+    for (int i = 0; i < files; i++) {
+      batch.add(createFile("File" + i + ".java", "old"), "new".getBytes());
+    }
+    batch.add(new File(directory, "missing/File.java"), "new".getBytes());
+
+    try {
+      batch.write();
+      throw new AssertionError("The batch was written");
+    } catch (final IOException expected) {
+    }
+
+    for (int i = 0; i < files; i++) {
+      assertEquals("old", FileUtils.readFileToString(new File(directory, "File" + i + ".java")));
+    }
+    assertNoTempFiles();
+  }
+
+  @Test
+  public void testFilesAreCreatedAndReplaced() throws IOException {
+    final File existing = createFile("Person.java", "old");
+    final File created = new File(directory, "Owner.java");
+    final BatchFileWriter batch = new BatchFileWriter(true);
+    batch.add(existing, "new".getBytes());
+    batch.add(created, "created".getBytes());
+    assertEquals(2, batch.size());
+
+    batch.write();
+
+    assertEquals("new", FileUtils.readFileToString(existing));
+    assertEquals("created", FileUtils.readFileToString(created));
+    assertEquals(0, batch.size());
+    assertNoTempFiles();
+  }
+
+  @Test
+  public void testLargeBatchIsWrittenInParallel() throws IOException {
+    final BatchFileWriter batch = new BatchFileWriter(false);
+    for (int i = 0; i < 50; i++) {
+      batch.add(createFile("File" + i + ".java", "old"), ("new" + i).getBytes());
+    }
+
+    batch.write();
+
+    for (int i = 0; i < 50; i++) {
+      final File file = new File(directory, "File" + i + ".java");
+      assertEquals("new" + i, FileUtils.readFileToString(file));
+    }
+    assertNoTempFiles();
+  }
+
+  @Test
+  public void testFailedSmallBatchReplacesNothing() throws IOException {
+    assertFailedBatchReplacesNothing(1);
+  }
+
+  @Test
+  public void testFailedLargeBatchReplacesNothing() throws IOException {
+    assertFailedBatchReplacesNothing(20);
+  }
+
+  @Test
+  public void testPermissionsAreKept() throws IOException {
+    final File script = createFile("mvnw", "old");
+    final Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-x---");
+    try {
+      Files.setPosixFilePermissions(script.toPath(), permissions);
+    } catch (final UnsupportedOperationException e) {
+      return; // Not a POSIX file system
+    }
+    final BatchFileWriter batch = new BatchFileWriter(false);
+    batch.add(script, "new".getBytes());
+
+    batch.write();
+
+    assertEquals("new", FileUtils.readFileToString(script));
+    assertEquals(permissions, Files.getPosixFilePermissions(script.toPath()));
+  }
+
+  @Test
+  public void testSymbolicLinkIsKept() throws IOException {
+    final File target = createFile("Target.java", "old");
+    final File link = new File(directory, "Link.java");
+    try {
+      Files.createSymbolicLink(link.toPath(), target.toPath());
+    } catch (final UnsupportedOperationException e) {
+      return; // Links aren't supported
+    }
+    final BatchFileWriter batch = new BatchFileWriter(false);
+    batch.add(link, "new".getBytes());
+
+    batch.write();
+
+    assertTrue(Files.isSymbolicLink(link.toPath()));
+    assertEquals("new", FileUtils.readFileToString(target));
+    assertNoTempFiles();
+  }
+}
@@ -0,0 +1,190 @@
+package org.springframework.roo.process.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.file.monitor.DirectoryMonitoringRequest;
+import org.springframework.roo.file.monitor.NotifiableFileMonitorService;
+import org.springframework.roo.file.monitor.event.FileDetails;
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileEventListener;
+import org.springframework.roo.file.monitor.event.FileOperation;
+import org.springframework.roo.file.monitor.polling.PollingFileMonitorService;
+import org.springframework.roo.file.undo.DefaultFilenameResolver;
+import org.springframework.roo.file.undo.DefaultUndoManager;
+import org.springframework.roo.file.undo.FilenameResolver;
+import org.springframework.roo.file.undo.UndoManager;
+import org.springframework.roo.process.manager.ProcessManager;
+import org.springframework.roo.support.util.ContentHashUtils;
+
+/**
+ * Unit test of how {@link DefaultFileManager} skips rewriting unchanged files
+ *
+ * @since 2.0
+ */
+public class DefaultFileManagerTest {
+
+  private static final String CONTENTS = "public class Person {}";
+  private static final long LONG_AGO = System.currentTimeMillis() - 60000;
+
+  // Fixture
+  private File directory;
+  private final List<FileEvent> events = new ArrayList<FileEvent>();
+  private File file;
+  private DefaultFileManager fileManager;
+  private PollingFileMonitorService fileMonitorService;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("roo-files").toFile().getCanonicalFile();
+    file = new File(directory, "Person.java");
+    FileUtils.writeStringToFile(file, CONTENTS);
+    // Digests of files modified just before they're recorded aren't trusted
+    assertTrue(file.setLastModified(LONG_AGO));
+    fileMonitorService = new PollingFileMonitorService();
+    fileMonitorService.add(new FileEventListener() {
+      public void onFileEvent(final FileEvent fileEvent) {
+        events.add(fileEvent);
+      }
+    });
+    final UndoManager undoManager = new DefaultUndoManager();
+    final ProcessManager processManager = new DefaultProcessManager();
+    fileManager = new DefaultFileManager() {
+      @Override
+      public FilenameResolver getFileNameResolver() {
+        return new DefaultFilenameResolver();
+      }
+
+      @Override
+      public NotifiableFileMonitorService getFileMonitorService() {
+        return fileMonitorService;
+      }
+
+      @Override
+      public ProcessManager getProcessManager() {
+        return processManager;
+      }
+
+      @Override
+      public UndoManager getUndoManager() {
+        return undoManager;
+      }
+    };
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  /**
+   * Returns the contents the file manager would commit to the file
+   */
+  private String getContents() throws IOException {
+    final InputStream inputStream = fileManager.getInputStream(file.getPath());
+    try {
+      return IOUtils.toString(inputStream);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  private void write(final String contents) {
+    fileManager.createOrUpdateTextFileIfRequired(file.getPath(), contents,
+        ContentHashUtils.hash(contents), false);
+  }
+
+  @Test
+  public void testUnchangedFileIsNotWritten() throws IOException {
+    write(CONTENTS);
+
+    assertEquals(1, fileManager.getElidedWriteCount());
+    // Nothing was deferred
+    FileUtils.writeStringToFile(file, "public class Other {}");
+    assertEquals("public class Other {}", getContents());
+  }
+
+  @Test
+  public void testMatchingDigestSkipsWriteWithoutReading() throws IOException {
+    write(CONTENTS);
+    // Same size and modification time, so only reading would tell
+    final long lastModified = file.lastModified();
+    FileUtils.writeStringToFile(file, "public class Other1 {}");
+    file.setLastModified(lastModified);
+
+    write(CONTENTS);
+
+    assertEquals(2, fileManager.getElidedWriteCount());
+    assertEquals("public class Other1 {}", getContents());
+  }
+
+  @Test
+  public void testExternalChangeEventDiscardsDigest() throws IOException {
+    write(CONTENTS);
+    final long lastModified = file.lastModified();
+    FileUtils.writeStringToFile(file, "public class Other1 {}");
+    file.setLastModified(lastModified - 10000);
+    fileManager.onFileEvent(new FileEvent(new FileDetails(file, file.lastModified()),
+        FileOperation.UPDATED, null));
+    file.setLastModified(lastModified);
+
+    write(CONTENTS);
+
+    assertEquals(1, fileManager.getElidedWriteCount());
+    assertEquals(CONTENTS, getContents());
+  }
+
+  @Test
+  public void testChangedContentsAreDeferred() throws IOException {
+    write("public class Person { String name; }");
+
+    assertEquals(0, fileManager.getElidedWriteCount());
+    assertEquals("public class Person { String name; }", getContents());
+    assertEquals(CONTENTS, FileUtils.readFileToString(file));
+  }
+
+  @Test
+  public void testCommitWritesChangedFilesAndNotifiesMonitor() throws IOException {
+    fileMonitorService.add(new DirectoryMonitoringRequest(directory, true, FileOperation
+        .values()));
+    fileMonitorService.scanAll(); // Monitoring start
+    events.clear();
+    final File created = new File(directory, "Owner.java");
+    final File unchanged = new File(directory, "Pet.java");
+    FileUtils.writeStringToFile(unchanged, "public class Pet {}");
+    fileManager.createOrUpdateTextFileIfRequired(file.getPath(),
+        "public class Person { int age; }", false);
+    fileManager.createOrUpdateTextFileIfRequired(created.getPath(), "public class Owner {}",
+        false);
+    fileManager.createOrUpdateTextFileIfRequired(unchanged.getPath(), "public class Pet {}",
+        false);
+
+    fileManager.commit();
+
+    assertEquals("public class Person { int age; }", FileUtils.readFileToString(file));
+    assertEquals("public class Owner {}", FileUtils.readFileToString(created));
+    assertEquals(1, fileManager.getElidedWriteCount());
+    fileMonitorService.scanNotified();
+    assertEquals(2, events.size());
+    assertEquals(FileOperation.UPDATED, events.get(0).getOperation());
+    assertEquals(file, events.get(0).getFileDetails().getFile());
+    assertEquals(FileOperation.CREATED, events.get(1).getOperation());
+    assertEquals(created, events.get(1).getFileDetails().getFile());
+
+    // Just written, so the file is read to tell it's unchanged
+    write("public class Person { int age; }");
+    assertEquals(2, fileManager.getElidedWriteCount());
+  }
+}
@@ -0,0 +1,93 @@
+package org.springframework.roo.process.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test of the scan back-off of {@link DefaultProcessManager}
+ *
+ * @since 2.0
+ */
+public class DefaultProcessManagerTest {
+
+  // Fixture
+  private DefaultProcessManager processManager;
+
+  @Before
+  public void setUp() {
+    processManager = new DefaultProcessManager();
+  }
+
+  @Test
+  public void testFirstScanSetsAverageDuration() {
+    processManager.recordScan(1000, 1600);
+
+    assertEquals(600, processManager.getLastScanDuration());
+    assertEquals(600, processManager.getAverageScanDuration());
+  }
+
+  @Test
+  public void testAverageDurationIsSmoothed() {
+    processManager.recordScan(0, 1000);
+    processManager.recordScan(2000, 2200);
+
+    assertEquals(200, processManager.getLastScanDuration());
+    assertEquals(800, processManager.getAverageScanDuration());
+  }
+
+  @Test
+  public void testInstantScanIsRecordedAsHavingRun() {
+    processManager.recordScan(1000, 1000);
+
+    assertEquals(1, processManager.getLastScanDuration());
+    assertEquals(1, processManager.getAverageScanDuration());
+  }
+
+  @Test
+  public void testManualScanningIsNeverDue() {
+    processManager.setMinimumDelayBetweenScan(0);
+
+    assertEquals(-1, processManager.getDelayUntilNextScan());
+  }
+
+  @Test
+  public void testFastScansDoNotBackOff() {
+    final long now = System.currentTimeMillis();
+    processManager.recordScan(now - 100, now);
+
+    assertEquals(0, processManager.getDelayUntilNextScan());
+  }
+
+  @Test
+  public void testSlowScansBackOffByAverageDuration() {
+    final long now = System.currentTimeMillis();
+    processManager.recordScan(now - 2000, now);
+
+    final long delay = processManager.getDelayUntilNextScan();
+    assertTrue(delay > 1000);
+    assertTrue(delay <= 2000);
+  }
+
+  @Test
+  public void testFixedMinimumDelayBetweenScans() {
+    processManager.setMinimumDelayBetweenScan(5000);
+    final long now = System.currentTimeMillis();
+    processManager.recordScan(now - 10, now);
+
+    final long delay = processManager.getDelayUntilNextScan();
+    assertTrue(delay > 4000);
+    assertTrue(delay <= 5000);
+  }
+
+  @Test
+  public void testElapsedDelayIsDue() {
+    processManager.setMinimumDelayBetweenScan(5000);
+    final long longAgo = System.currentTimeMillis() - 60000;
+    processManager.recordScan(longAgo - 10, longAgo);
+
+    assertEquals(0, processManager.getDelayUntilNextScan());
+  }
+}
@@ -0,0 +1,161 @@
+package org.springframework.roo.process.manager.internal;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.roo.file.monitor.event.FileDetails;
+import org.springframework.roo.file.monitor.event.FileEvent;
+import org.springframework.roo.file.monitor.event.FileOperation;
+import org.springframework.roo.support.util.ContentHashUtils;
+
+/**
+ * Unit test of {@link FileContentDigests}
+ *
+ * @since 2.0
+ */
+public class FileContentDigestsTest {
+
+  private static final String CONTENTS = "<project/>";
+  private static final long LONG_AGO = System.currentTimeMillis() - 60000;
+
+  // Fixture
+  private FileContentDigests digests;
+  private File directory;
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    digests = new FileContentDigests();
+    directory = Files.createTempDirectory("roo-digests").toFile();
+    file = new File(directory, "pom.xml");
+    FileUtils.writeStringToFile(file, CONTENTS);
+    // Digests of files modified just before they're recorded aren't trusted
+    assertTrue(file.setLastModified(LONG_AGO));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  private boolean differs(final String contents) {
+    return digests.differs(file, contents.length(), ContentHashUtils.hash(contents));
+  }
+
+  private boolean matches(final String contents) {
+    return digests.matches(file, contents.length(), ContentHashUtils.hash(contents));
+  }
+
+  /**
+   * Rewrites the file behind the digests' back, keeping its size and
+   * modification time
+   */
+  private void rewriteUnnoticeably(final String contents) throws IOException {
+    final long lastModified = file.lastModified();
+    FileUtils.writeStringToFile(file, contents);
+    assertTrue(file.setLastModified(lastModified));
+  }
+
+  @Test
+  public void testUnknownFileNeitherMatchesNorDiffers() {
+    assertFalse(matches(CONTENTS));
+    assertFalse(differs("<other/>"));
+  }
+
+  @Test
+  public void testRecordedContentsMatch() {
+    digests.record(file, CONTENTS);
+
+    assertTrue(matches(CONTENTS));
+    assertFalse(differs(CONTENTS));
+  }
+
+  @Test
+  public void testOtherContentsDiffer() {
+    digests.record(file, CONTENTS);
+
+    assertFalse(matches("<other/>"));
+    assertTrue(differs("<other/>"));
+    assertTrue(differs("<project />"));
+  }
+
+  @Test
+  public void testDigestIsTrustedWhileSizeAndModificationTimeMatch() throws IOException {
+    digests.record(file, CONTENTS);
+
+    rewriteUnnoticeably("<other/>x!");
+
+    assertTrue(matches(CONTENTS));
+  }
+
+  @Test
+  public void testDigestOfJustModifiedFileIsNotTrusted() throws IOException {
+    FileUtils.writeStringToFile(file, CONTENTS);
+    digests.record(file, CONTENTS);
+
+    assertFalse(matches(CONTENTS));
+    assertFalse(differs("<other/>"));
+  }
+
+  @Test
+  public void testDigestIsIgnoredOnceFileChanges() throws IOException {
+    digests.record(file, CONTENTS);
+
+    FileUtils.writeStringToFile(file, "<project></project>");
+
+    assertFalse(matches(CONTENTS));
+    assertFalse(differs("<project></project>"));
+  }
+
+  @Test
+  public void testEventForRecordedWriteKeepsDigest() {
+    digests.record(file, CONTENTS);
+
+    digests.onFileEvent(new FileEvent(new FileDetails(file, file.lastModified()),
+        FileOperation.UPDATED, null));
+
+    assertTrue(matches(CONTENTS));
+  }
+
+  @Test
+  public void testEventForExternalChangeDiscardsDigest() {
+    digests.record(file, CONTENTS);
+    final long lastModified = file.lastModified();
+    assertTrue(file.setLastModified(lastModified - 10000));
+
+    digests.onFileEvent(new FileEvent(new FileDetails(file, file.lastModified()),
+        FileOperation.UPDATED, null));
+    assertTrue(file.setLastModified(lastModified));
+
+    assertFalse(matches(CONTENTS));
+  }
+
+  @Test
+  public void testDeletionDiscardsDigest() {
+    digests.record(file, CONTENTS);
+
+    digests.onFileEvent(new FileEvent(new FileDetails(file, file.lastModified()),
+        FileOperation.DELETED, null));
+
+    assertFalse(matches(CONTENTS));
+  }
+
+  @Test
+  public void testRemovedAndClearedDigestsAreForgotten() {
+    digests.record(file, CONTENTS);
+    digests.remove(file);
+    assertFalse(matches(CONTENTS));
+
+    digests.record(file, CONTENTS);
+    digests.clear();
+    assertFalse(matches(CONTENTS));
+  }
+}
@@ -0,0 +1,206 @@
+package org.springframework.roo.process.manager.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.roo.file.monitor.FileMonitorService;
+import org.springframework.roo.file.monitor.MonitoringRequest;
+import org.springframework.roo.file.monitor.SignallingFileMonitorService;
+import org.springframework.roo.file.monitor.event.FileDetails;
+import org.springframework.roo.process.manager.event.ProcessManagerStatus;
+import org.springframework.roo.process.manager.event.ScanStatistics;
+
+/**
+ * Unit test of {@link ScanScheduler}
+ *
+ * @since 2.0
+ */
+public class ScanSchedulerTest {
+
+  private static final long DEBOUNCE = 20;
+  private static final long IDLE_INTERVAL = 5000;
+
+  /**
+   * A file monitor that signals the given numbers of changes, in turn
+   */
+  private static class ScriptedFileMonitorService implements SignallingFileMonitorService {
+
+    private final LinkedList<Integer> changes;
+    private final boolean signalling;
+    private final boolean waiting;
+    final List<Long> timeouts = new ArrayList<Long>();
+
+    ScriptedFileMonitorService(final boolean signalling, final boolean waiting,
+        final Integer... changes) {
+      this.changes = new LinkedList<Integer>(Arrays.asList(changes));
+      this.signalling = signalling;
+      this.waiting = waiting;
+    }
+
+    public boolean add(final MonitoringRequest request) {
+      return false;
+    }
+
+    public int awaitChanges(final long timeout, final TimeUnit unit) throws InterruptedException {
+      timeouts.add(unit.toMillis(timeout));
+      if (waiting && unit.toMillis(timeout) < IDLE_INTERVAL) {
+        // As if the burst went on until the end of each debounce window
+        unit.sleep(timeout);
+      }
+      if (changes.size() > 1) {
+        return changes.removeFirst();
+      }
+      return changes.getFirst();
+    }
+
+    public SortedSet<FileDetails> findMatchingAntPath(final String antPath) {
+      return null;
+    }
+
+    public Collection<String> getDirtyFiles(final String requestingClass) {
+      return null;
+    }
+
+    public List<FileDetails> getMonitored() {
+      return null;
+    }
+
+    public boolean isDirty() {
+      return false;
+    }
+
+    public boolean isSignalling() {
+      return signalling;
+    }
+
+    public boolean remove(final MonitoringRequest request) {
+      return false;
+    }
+
+    public int scanAll() {
+      return 0;
+    }
+  }
+
+  /**
+   * A process manager that waits the given delays before each scan, and
+   * terminates after the first scan
+   */
+  private static class ScriptedProcessManager extends DefaultProcessManager {
+
+    private final LinkedList<Long> delays;
+    private final FileMonitorService fileMonitorService;
+    int scans;
+    ScanStatistics statistics;
+
+    ScriptedProcessManager(final FileMonitorService fileMonitorService, final Long... delays) {
+      this.delays = new LinkedList<Long>(Arrays.asList(delays));
+      this.fileMonitorService = fileMonitorService;
+      setProcessManagerStatus(ProcessManagerStatus.AVAILABLE);
+    }
+
+    @Override
+    long getDelayUntilNextScan() {
+      return delays.isEmpty() ? 0 : delays.removeFirst();
+    }
+
+    @Override
+    public FileMonitorService getFileMonitorService() {
+      return fileMonitorService;
+    }
+
+    @Override
+    void scanCompleted(final ScanStatistics statistics) {
+      this.statistics = statistics;
+      setProcessManagerStatus(ProcessManagerStatus.TERMINATED);
+    }
+
+    @Override
+    boolean scanIfDue() {
+      scans++;
+      return true;
+    }
+  }
+
+  private ScanStatistics runUntilScanned(final ScriptedProcessManager processManager) {
+    new ScanScheduler(processManager, DEBOUNCE, IDLE_INTERVAL).run();
+    assertEquals(1, processManager.scans);
+    return processManager.statistics;
+  }
+
+  @Test
+  public void testBurstOfChangesIsCoalescedIntoOneScan() {
+    final ScriptedFileMonitorService monitor = new ScriptedFileMonitorService(true, false, 2, 3, 0);
+
+    final ScanStatistics statistics = runUntilScanned(new ScriptedProcessManager(monitor));
+
+    assertEquals(5, statistics.getCoalescedChanges());
+    assertEquals(3, monitor.timeouts.size());
+    assertEquals(IDLE_INTERVAL, monitor.timeouts.get(0).longValue());
+    assertTrue(monitor.timeouts.get(1) <= DEBOUNCE);
+    assertTrue(monitor.timeouts.get(2) <= DEBOUNCE);
+  }
+
+  @Test
+  public void testChangesAreKeptWhileScanningIsManual() {
+    final ScriptedFileMonitorService monitor = new ScriptedFileMonitorService(true, false, 2, 0);
+
+    final ScanStatistics statistics = runUntilScanned(new ScriptedProcessManager(monitor, -1L));
+
+    assertEquals(2, statistics.getCoalescedChanges());
+    // The second wait found the debounce windows already used up
+    assertEquals(2, monitor.timeouts.size());
+    assertTrue(statistics.getDelay() >= ScanScheduler.POLLING_INTERVAL);
+  }
+
+  @Test
+  public void testIdleMonitorIsScannedAnyway() {
+    final ScriptedFileMonitorService monitor = new ScriptedFileMonitorService(true, false, 0);
+
+    final ScanStatistics statistics = runUntilScanned(new ScriptedProcessManager(monitor));
+
+    assertEquals(0, statistics.getCoalescedChanges());
+    assertEquals(Arrays.asList(IDLE_INTERVAL), monitor.timeouts);
+  }
+
+  @Test
+  public void testLongBurstPostponesScanByLimitedWindows() {
+    final ScriptedFileMonitorService monitor = new ScriptedFileMonitorService(true, true, 1);
+
+    final ScanStatistics statistics = runUntilScanned(new ScriptedProcessManager(monitor));
+
+    // The first wait is the idle one, which returned straight away
+    assertTrue(monitor.timeouts.size() <= ScanScheduler.MAX_DEBOUNCE_WINDOWS + 1);
+    assertEquals(monitor.timeouts.size(), statistics.getCoalescedChanges());
+  }
+
+  @Test
+  public void testNonSignallingMonitorIsPolled() {
+    final ScriptedFileMonitorService monitor = new ScriptedFileMonitorService(false, false, 1);
+
+    final ScanStatistics statistics = runUntilScanned(new ScriptedProcessManager(monitor));
+
+    assertEquals(0, statistics.getCoalescedChanges());
+    assertTrue(monitor.timeouts.isEmpty());
+  }
+
+  @Test
+  public void testScanIsDelayedToBackOff() {
+    final ScriptedFileMonitorService monitor = new ScriptedFileMonitorService(true, false, 1, 0);
+
+    final ScanStatistics statistics = runUntilScanned(new ScriptedProcessManager(monitor, 100L));
+
+    assertEquals(1, statistics.getCoalescedChanges());
+    assertTrue(statistics.getDelay() >= 100);
+    assertTrue(statistics.getLatency() >= statistics.getDelay());
+  }
+}
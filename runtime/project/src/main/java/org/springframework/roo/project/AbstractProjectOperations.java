@@ -143,13 +143,12 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     Validate.notNull(pom, "The pom is not available, so plugin addition cannot be performed");
 
 
-    final Document parentDocument =
-        XmlUtils.readXml(fileManager.getInputStream(parentPom.getPath()));
+    final Document parentDocument = fileManager.getXmlDocument(parentPom.getPath());
     Document document = null;
     if (isSamePom) {
       document = parentDocument;
     } else {
-      document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+      document = fileManager.getXmlDocument(pom.getPath());
     }
 
     writePluginInPom(newPlugins, parentPom, pom, parentDocument, document,
@@ -181,13 +180,12 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     }
     Validate.notNull(pom, "The pom is not available, so dependencies cannot be added");
 
-    final Document parentDocument =
-        XmlUtils.readXml(fileManager.getInputStream(parentPom.getPath()));
+    final Document parentDocument = fileManager.getXmlDocument(parentPom.getPath());
     Document document = null;
     if (isSamePom) {
       document = parentDocument;
     } else {
-      document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+      document = fileManager.getXmlDocument(pom.getPath());
     }
     return writeDependencyInPom(newDependencies, parentPom, pom, parentDocument, document,
         parentDocument.getDocumentElement(), document.getDocumentElement(),
@@ -280,7 +278,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final String descriptionOfChange;
     final Element buildElement = XmlUtils.findFirstElement("/project/build", root);
@@ -297,8 +295,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       descriptionOfChange = highlight(UPDATED + " filter") + " '" + filter.getValue() + "'";
     }
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   @Override
@@ -368,13 +365,12 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     Validate.notNull(pom, "The pom is not available, so plugin addition cannot be performed");
 
 
-    final Document parentDocument =
-        XmlUtils.readXml(fileManager.getInputStream(parentPom.getPath()));
+    final Document parentDocument = fileManager.getXmlDocument(parentPom.getPath());
     Document document = null;
     if (isSamePom) {
       document = parentDocument;
     } else {
-      document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+      document = fileManager.getXmlDocument(pom.getPath());
     }
 
     final Element parentRoot = parentDocument.getDocumentElement();
@@ -439,13 +435,13 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                 if (!isSamePom && addToPluginManagement) {
                   elementsElement.appendChild(XmlUtils.createTextElement(parentDocument,
                       elementName, element.getValue()));
-                  fileManager.createOrUpdateTextFileIfRequired(parentPom.getPath(),
-                      XmlUtils.nodeToString(parentDocument), descriptionOfChange, false);
+                  fileManager.createOrUpdateXmlFileIfRequired(parentPom.getPath(), parentDocument,
+                      descriptionOfChange);
                 } else {
                   elementsElement.appendChild(XmlUtils.createTextElement(document, elementName,
                       element.getValue()));
-                  fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                      XmlUtils.nodeToString(document), descriptionOfChange, false);
+                  fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document,
+                      descriptionOfChange);
                 }
               } else {
                 if (!isSamePom && addToPluginManagement) {
@@ -457,8 +453,8 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                   }
                   newParentElement.appendChild(XmlUtils.createTextElement(parentDocument,
                       element.getKey(), element.getValue()));
-                  fileManager.createOrUpdateTextFileIfRequired(parentPom.getPath(),
-                      XmlUtils.nodeToString(parentDocument), descriptionOfChange, false);
+                  fileManager.createOrUpdateXmlFileIfRequired(parentPom.getPath(), parentDocument,
+                      descriptionOfChange);
                 } else {
                   if (newParentElement == null) {
                     newParentElement =
@@ -468,8 +464,8 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
                   }
                   newParentElement.appendChild(XmlUtils.createTextElement(document,
                       element.getKey(), element.getValue()));
-                  fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
-                      XmlUtils.nodeToString(document), descriptionOfChange, false);
+                  fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document,
+                      descriptionOfChange);
                 }
               }
             }
@@ -550,7 +546,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final String descriptionOfChange;
     final Element existing =
@@ -572,8 +568,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
               + property.getValue() + "'";
     }
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   public void addRepositories(final String moduleName,
@@ -593,7 +588,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     }
     final Pom pom = getPomFromModuleName(moduleName);
     Validate.notNull(pom, "The pom is not available, so repository addition cannot be performed");
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element repositoriesElement =
         DomUtils.createChildIfNotExists(containingPath, document.getDocumentElement(), document);
 
@@ -632,8 +627,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     }
     final String message = getDescriptionOfChange(ADDED, addedRepositories, path, containingPath);
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        message, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, message);
   }
 
   public void addRepository(final String moduleName, final Repository repository) {
@@ -658,7 +652,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element buildElement =
         XmlUtils.findFirstElement("/project/build", document.getDocumentElement());
     final Element resourcesElement =
@@ -667,8 +661,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     final String descriptionOfChange =
         highlight(ADDED + " resource") + " " + resource.getSimpleDescription();
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   protected void bindFeature(final Feature feature) {
@@ -880,7 +873,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final Element pluginsElement = XmlUtils.findFirstElement("/project/build/plugins", root);
     if (pluginsElement == null) {
@@ -911,8 +904,12 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     DomUtils.removeTextNodes(pluginsElement);
     final String message = getDescriptionOfChange(REMOVED, removedPlugins, "plugin", "plugins");
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        message, writeImmediately);
+    if (writeImmediately) {
+      fileManager.createOrUpdateTextFileIfRequired(pom.getPath(),
+          XmlUtils.nodeToString(document), message, true);
+    } else {
+      fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, message);
+    }
   }
 
   public void removeDependencies(final String moduleName,
@@ -929,7 +926,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final Element dependenciesElement = XmlUtils.findFirstElement("/project/dependencies", root);
     if (dependenciesElement == null) {
@@ -963,8 +960,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     final String message =
         getDescriptionOfChange(REMOVED, removedDependencies, "dependency", "dependencies");
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        message, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, message);
   }
 
   public void removeDependency(final String moduleName, final Dependency dependency) {
@@ -992,7 +988,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
 
     String descriptionOfChange = "";
@@ -1009,8 +1005,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
     DomUtils.removeTextNodes(dependenciesElement);
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   public final void removeDependency(final String moduleName, final String groupId,
@@ -1124,7 +1119,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
 
     final Element filtersElement = XmlUtils.findFirstElement("/project/build/filters", root);
@@ -1149,8 +1144,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
     DomUtils.removeTextNodes(root);
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   public void removePluginRepository(final String moduleName, final Repository repository) {
@@ -1170,7 +1164,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final Element propertiesElement = XmlUtils.findFirstElement("/project/properties", root);
     String descriptionOfChange = "";
@@ -1186,8 +1180,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
     DomUtils.removeTextNodes(propertiesElement);
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   public void removeRepository(final String moduleName, final Repository repository) {
@@ -1211,7 +1204,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       }
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
 
     String descriptionOfChange = "";
@@ -1224,8 +1217,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       }
     }
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   public void removeResource(final String moduleName, final Resource resource) {
@@ -1238,7 +1230,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final Element resourcesElement = XmlUtils.findFirstElement("/project/build/resources", root);
     if (resourcesElement == null) {
@@ -1263,8 +1255,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
     DomUtils.removeTextNodes(root);
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   public void setModule(final Pom module) {
@@ -1309,7 +1300,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       return;
     }
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element root = document.getDocumentElement();
     final Element dependencyElement =
         XmlUtils.findFirstElement(
@@ -1346,8 +1337,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     }
 
     if (descriptionOfChange != null) {
-      fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-          descriptionOfChange, false);
+      fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
     }
   }
 
@@ -1356,7 +1346,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     final Pom pom = getPomFromModuleName(moduleName);
     Validate.notNull(pom, "The pom is not available, so the project type cannot be changed");
 
-    final Document document = XmlUtils.readXml(fileManager.getInputStream(pom.getPath()));
+    final Document document = fileManager.getXmlDocument(pom.getPath());
     final Element packaging =
         DomUtils.createChildIfNotExists("packaging", document.getDocumentElement(), document);
     if (packaging.getTextContent().equals(projectType.getType())) {
@@ -1367,8 +1357,7 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
     final String descriptionOfChange =
         highlight(UPDATED + " project type") + " to " + projectType.getType();
 
-    fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-        descriptionOfChange, false);
+    fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, descriptionOfChange);
   }
 
   /**
@@ -1527,12 +1516,10 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
       final String message =
           getPomDependenciesUpdateMessage(addedDependencies, removedDependencies,
               skippedDependencies);
-      fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-          message, false);
+      fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, message);
       // If parent pom is different, is necessary to add dependencies to dependencyManagement
       if (!isSamePom && addToDependencyManagement) {
-        fileManager.createOrUpdateTextFileIfRequired(parentPom.getPath(),
-            XmlUtils.nodeToString(parentDocument), message, false);
+        fileManager.createOrUpdateXmlFileIfRequired(parentPom.getPath(), parentDocument, message);
       }
     }
 
@@ -1669,12 +1656,10 @@ public abstract class AbstractProjectOperations implements ProjectOperations {
 
     if (!newPlugins.isEmpty()) {
       final String message = getPomPluginsUpdateMessage(addedPlugins, removedPlugins);
-      fileManager.createOrUpdateTextFileIfRequired(pom.getPath(), XmlUtils.nodeToString(document),
-          message, false);
+      fileManager.createOrUpdateXmlFileIfRequired(pom.getPath(), document, message);
       // If parent pom is different, is necessary to add plugins to pluginManagement
       if (!isSamePom && addToPluginManagement) {
-        fileManager.createOrUpdateTextFileIfRequired(parentPom.getPath(),
-            XmlUtils.nodeToString(parentDocument), message, false);
+        fileManager.createOrUpdateXmlFileIfRequired(parentPom.getPath(), parentDocument, message);
       }
     }
   }
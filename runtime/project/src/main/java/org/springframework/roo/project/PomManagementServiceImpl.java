@@ -34,10 +34,15 @@ import org.springframework.roo.project.maven.PomFactory;
 import org.springframework.roo.shell.Shell;
 import org.springframework.roo.support.logging.HandlerUtils;
 import org.springframework.roo.support.osgi.OSGiUtils;
+import org.springframework.roo.support.util.ContentHashUtils;
 import org.springframework.roo.support.util.FileUtils;
 import org.springframework.roo.support.util.XmlUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.Text;
 
 @Component
 @Service
@@ -82,6 +87,40 @@ public class PomManagementServiceImpl implements PomManagementService {
   private static final String DEFAULT_POM_NAME = "pom.xml";
   private static final String DEFAULT_RELATIVE_PATH = ".." + SEPARATOR + DEFAULT_POM_NAME;
 
+  private static void appendContent(final Element element, final StringBuilder content) {
+    content.append('<').append(element.getTagName());
+    final NamedNodeMap attributes = element.getAttributes();
+    for (int i = 0; i < attributes.getLength(); i++) {
+      final Node attribute = attributes.item(i);
+      content.append(' ').append(attribute.getNodeName()).append("=\"")
+          .append(attribute.getNodeValue()).append('"');
+    }
+    content.append('>');
+    final NodeList children = element.getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      final Node child = children.item(i);
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        appendContent((Element) child, content);
+      } else if (child instanceof Text && StringUtils.isNotBlank(child.getNodeValue())) {
+        content.append(child.getNodeValue());
+      }
+    }
+    content.append("</>");
+  }
+
+  /**
+   * Returns a digest of the given POM's elements, attributes and text, which
+   * ignores its comments and any whitespace between its elements
+   * 
+   * @param pomRoot the POM's root element (required)
+   * @return the digest
+   */
+  private static long getContentDigest(final Element pomRoot) {
+    final StringBuilder content = new StringBuilder();
+    appendContent(pomRoot, content);
+    return ContentHashUtils.hash(content);
+  }
+
   FileManager fileManager;
   FileMonitorService fileMonitorService;
   MetadataDependencyRegistry metadataDependencyRegistry;
@@ -90,6 +129,8 @@ public class PomManagementServiceImpl implements PomManagementService {
   Shell shell;
 
   private String focusedModulePath;
+  /** key: POM path, value: the content digest of the POM as last parsed */
+  private final Map<String, Long> pomDigests = new HashMap<String, Long>();
   private final Map<String, Pom> pomMap = new LinkedHashMap<String, Pom>();
   private String projectRootDirectory;
   private final Set<String> toBeParsed = new HashSet<String>();
@@ -189,6 +230,15 @@ public class PomManagementServiceImpl implements PomManagementService {
     return pomMap.get(projectRootDirectory + SEPARATOR + DEFAULT_POM_NAME);
   }
 
+  /**
+   * Indicates whether the given POM's relatives were already resolved, or
+   * will be when it's parsed, so they needn't be read again when resolving
+   * another POM
+   */
+  private boolean isKnown(final String pomPath) {
+    return pomMap.containsKey(pomPath) || toBeParsed.contains(pomPath);
+  }
+
   private Set<Pom> parseUnparsedPoms() {
     final Map<String, String> pomModuleMap = new HashMap<String, String>();
     final Set<Pom> newPoms = new HashSet<Pom>();
@@ -203,11 +253,20 @@ public class PomManagementServiceImpl implements PomManagementService {
         }
         if (StringUtils.isNotBlank(pomContents)) {
           final Element rootElement = XmlUtils.stringToElement(pomContents);
+          final Long digest = getContentDigest(rootElement);
+          if (pomMap.containsKey(pathToChangedPom)
+              && digest.equals(pomDigests.get(pathToChangedPom))) {
+            // Only its formatting or comments changed, if anything, so
+            // keep its model and spare its module's dependents
+            iter.remove();
+            continue;
+          }
           resolvePoms(rootElement, pathToChangedPom, pomModuleMap);
           final String moduleName = getModuleName(FileUtils.getFirstDirectory(pathToChangedPom));
           final Pom pom = getPomFactory().getInstance(rootElement, pathToChangedPom, moduleName);
           Validate.notNull(pom, "POM is null for module '%s' and path '%s'", moduleName,
               pathToChangedPom);
+          pomDigests.put(pathToChangedPom, digest);
           pomMap.put(pathToChangedPom, pom);
           newPoms.add(pom);
           iter.remove();
@@ -225,7 +284,7 @@ public class PomManagementServiceImpl implements PomManagementService {
         final String modulePath = resolveRelativePath(pomPath, moduleName);
         final boolean alreadyDiscovered = pomSet.containsKey(modulePath);
         pomSet.put(modulePath, moduleName);
-        if (!alreadyDiscovered) {
+        if (!alreadyDiscovered && !isKnown(modulePath)) {
           final Document pomDocument =
               XmlUtils.readXml(getFileManager().getInputStream(modulePath));
           final Element root = pomDocument.getDocumentElement();
@@ -243,7 +302,7 @@ public class PomManagementServiceImpl implements PomManagementService {
     final boolean alreadyDiscovered = pomSet.containsKey(parentPomPath);
     if (!alreadyDiscovered) {
       pomSet.put(parentPomPath, pomSet.get(parentPomPath));
-      if (new File(parentPomPath).isFile()) {
+      if (!isKnown(parentPomPath) && new File(parentPomPath).isFile()) {
         final Document pomDocument =
             XmlUtils.readXml(getFileManager().getInputStream(parentPomPath));
         final Element root = pomDocument.getDocumentElement();
@@ -323,8 +382,10 @@ public class PomManagementServiceImpl implements PomManagementService {
 
   private void updatePomCache() {
     findUnparsedPoms();
+    final int knownPoms = pomMap.size();
     final Collection<Pom> newPoms = parseUnparsedPoms();
-    if (!newPoms.isEmpty()) {
+    if (pomMap.size() > knownPoms) {
+      // The order only depends on the paths of the POMs
       sortPomMap();
     }
     updateProjectMetadataForModules(newPoms);
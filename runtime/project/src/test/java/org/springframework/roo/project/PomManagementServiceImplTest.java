@@ -235,6 +235,27 @@ public class PomManagementServiceImplTest {
     assertEquals(0, poms.size());
   }
 
+  @Test
+  public void testGetPomsWhenPomIsDirtyWithoutChanges() throws Exception {
+    // Set up
+    setUpWorkingDirectory("single");
+    final String canonicalPath = getCanonicalPath("single/pom.xml");
+    when(mockFileMonitorService.getDirtyFiles(PomManagementServiceImpl.class.getName()))
+        .thenReturn(Arrays.asList(canonicalPath));
+    final Pom mockPom = getMockPom(ROOT_MODULE_NAME, canonicalPath);
+
+    // Invoke
+    service.getPoms();
+    final Collection<Pom> poms = service.getPoms();
+
+    // Check
+    assertEquals(1, poms.size());
+    assertEquals(mockPom, poms.iterator().next());
+    verify(mockPomFactory).getInstance(any(Element.class), eq(canonicalPath),
+        eq(ROOT_MODULE_NAME));
+    verifyProjectMetadataNotification(ROOT_MODULE_NAME);
+  }
+
   private void verifyProjectMetadataNotification(final String... moduleNames) {
     for (final String moduleName : moduleNames) {
       final String projectMetadataId = ProjectMetadata.getProjectIdentifier(moduleName);
@@ -0,0 +1,121 @@
+package org.springframework.roo.support.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Computes cheap, non-cryptographic 64-bit hashes (FNV-1a) of file contents.
+ * <p>
+ * These hashes are only intended to detect whether some content changed, for
+ * example to avoid re-reading or re-writing a file whose contents are already
+ * known. They must not be used for security purposes.
+ *
+ * @since 2.0
+ */
+public final class ContentHashUtils {
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * Returns the hash of the given bytes.
+   *
+   * @param bytes the bytes to hash (required)
+   * @return the hash
+   */
+  public static long hash(final byte[] bytes) {
+    Validate.notNull(bytes, "Bytes required");
+    return update(FNV_OFFSET_BASIS, bytes, 0, bytes.length);
+  }
+
+  /**
+   * Returns the hash of the given characters, without encoding them into
+   * bytes first. Two equal strings always have the same hash.
+   *
+   * @param chars the characters to hash (required)
+   * @return the hash
+   */
+  public static long hash(final CharSequence chars) {
+    Validate.notNull(chars, "Characters required");
+    long hash = FNV_OFFSET_BASIS;
+    for (int i = 0; i < chars.length(); i++) {
+      final char c = chars.charAt(i);
+      hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+      hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the hash of the contents of the given file.
+   *
+   * @param file the file to hash (required)
+   * @return the hash
+   * @throws IOException if the file cannot be read
+   */
+  public static long hash(final File file) throws IOException {
+    Validate.notNull(file, "File required");
+    InputStream inputStream = null;
+    try {
+      inputStream = new FileInputStream(file);
+      return hash(inputStream);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  /**
+   * Returns the hash of the remaining contents of the given stream. The
+   * stream is not closed.
+   *
+   * @param inputStream the stream to hash (required)
+   * @return the hash
+   * @throws IOException if the stream cannot be read
+   */
+  public static long hash(final InputStream inputStream) throws IOException {
+    Validate.notNull(inputStream, "Input stream required");
+    final byte[] buffer = new byte[BUFFER_SIZE];
+    long hash = FNV_OFFSET_BASIS;
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      hash = update(hash, buffer, 0, read);
+    }
+    return hash;
+  }
+
+  /**
+   * Continues the given hash with the given bytes, allowing content to be
+   * hashed incrementally. The initial value is {@link #initialValue()}.
+   *
+   * @param hash the hash of the preceding content
+   * @param bytes the buffer (required)
+   * @param offset the first byte to hash
+   * @param length the number of bytes to hash
+   * @return the hash including the given bytes
+   */
+  public static long update(long hash, final byte[] bytes, final int offset, final int length) {
+    for (int i = offset; i < offset + length; i++) {
+      hash = (hash ^ (bytes[i] & 0xff)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * @return the hash of empty content, to be passed to the first call of
+   *         {@link #update(long, byte[], int, int)}
+   */
+  public static long initialValue() {
+    return FNV_OFFSET_BASIS;
+  }
+
+  /**
+   * Constructor is private to prevent instantiation
+   */
+  private ContentHashUtils() {}
+}
@@ -0,0 +1,44 @@
+package org.springframework.roo.support.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Unit test of {@link ContentHashUtils}
+ *
+ * @since 2.0
+ */
+public class ContentHashUtilsTest {
+
+  private static final byte[] CONTENT = "public class Person {}".getBytes();
+
+  @Test
+  public void testHashOfEmptyContentIsTheInitialValue() {
+    assertEquals(ContentHashUtils.initialValue(), ContentHashUtils.hash(new byte[0]));
+  }
+
+  @Test
+  public void testStreamAndArrayHashesAreEqual() throws IOException {
+    assertEquals(ContentHashUtils.hash(CONTENT),
+        ContentHashUtils.hash(new ByteArrayInputStream(CONTENT)));
+  }
+
+  @Test
+  public void testIncrementalHashEqualsHashOfWholeContent() {
+    long hash = ContentHashUtils.initialValue();
+    hash = ContentHashUtils.update(hash, CONTENT, 0, 10);
+    hash = ContentHashUtils.update(hash, CONTENT, 10, CONTENT.length - 10);
+    assertEquals(ContentHashUtils.hash(CONTENT), hash);
+  }
+
+  @Test
+  public void testDifferentContentsHaveDifferentHashes() {
+    assertFalse(ContentHashUtils.hash("public class Person {}") == ContentHashUtils
+        .hash("public class Person  {}"));
+  }
+}